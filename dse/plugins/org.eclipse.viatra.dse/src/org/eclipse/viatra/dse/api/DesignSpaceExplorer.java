@@ -226,6 +226,37 @@ public class DesignSpaceExplorer {
         globalContext.getThreadPool().setMaximumPoolSize(maxNumberOfThreads);
     }
 
+    /**
+     * Defines how the models of additional processing threads are created. By default, a thread starting a new thread
+     * clones its own model. If set to true, the new thread itself copies the initial model and replays the trajectory
+     * leading to the state of the starting thread, so the copies are made in parallel by the new threads. Threads
+     * started from trajectories longer than {@link #setMaxReplayedTrajectoryLength(int) the maximal replayed length}
+     * still clone the model of the starting thread. This requires the initial model to be cloned (see
+     * {@link #setInitialModel(Notifier, boolean)}) and a state coder that produces the same activation codes on the
+     * copies of the model. The initial model is copied by the threads, hence it must not be modified during the
+     * exploration; its proxies are resolved when the exploration starts.
+     * 
+     * @param forkingByTrajectoryReplay
+     *            true to fork the models of new threads by replaying trajectories on the initial model
+     * @since 1.6
+     */
+    public void setForkingByTrajectoryReplay(boolean forkingByTrajectoryReplay) {
+        globalContext.setForkingByTrajectoryReplay(forkingByTrajectoryReplay);
+    }
+
+    /**
+     * Sets the maximal length of the trajectories replayed when forking by trajectory replay (see
+     * {@link #setForkingByTrajectoryReplay(boolean)}); threads started from longer trajectories clone the model of the
+     * starting thread. {@link GlobalContext#DEFAULT_MAX_REPLAYED_TRAJECTORY_LENGTH} by default.
+     * 
+     * @param maxReplayedTrajectoryLength
+     *            the maximal number of activations replayed by a new thread
+     * @since 1.6
+     */
+    public void setMaxReplayedTrajectoryLength(int maxReplayedTrajectoryLength) {
+        globalContext.setMaxReplayedTrajectoryLength(maxReplayedTrajectoryLength);
+    }
+
     /**
      * Sets the {@link IDesignSpace} implementation that is to be used during the design space exploration process. By
      * default, the {@link DesignSpace} implementation is used.
@@ -78,6 +78,23 @@ public class GlobalContext {
 
     private boolean isAlreadyInited;
 
+    /**
+     * The default maximal length of the trajectories replayed by new threads, see
+     * {@link #setMaxReplayedTrajectoryLength(int)}.
+     * 
+     * @since 1.6
+     */
+    public static final int DEFAULT_MAX_REPLAYED_TRAJECTORY_LENGTH = 64;
+
+    /**
+     * The model given to {@link #startFirstThread(IStrategy, Notifier)} with all proxies resolved, if forking by
+     * trajectory replay. As the threads explore copies of it, it is never modified, so the new threads can copy it
+     * concurrently.
+     */
+    private Notifier initialModel;
+    private boolean forkingByTrajectoryReplay = false;
+    private int maxReplayedTrajectoryLength = DEFAULT_MAX_REPLAYED_TRAJECTORY_LENGTH;
+
     public void waitForTermination() {
         synchronized (terminationSnycObject) {
             while (!isDone()) {
@@ -92,14 +109,10 @@ public class GlobalContext {
     /**
      * Starts a new thread to explore the design space.
      * 
-     * @param originalThreadContext The context of the thread which starts the new thread.
-     * @param model The model to start from.
-     * @param cloneModel It should be true in most cases.
-     * @param strategy The strategy, the thread will use.
+     * @param newThreadContext The context of the new thread.
      * @return The {@link ExplorerThread}
      */
-    private synchronized ExplorerThread tryStartNewThread(ThreadContext originalThreadContext, Notifier model,
-            IStrategy strategy) {
+    private synchronized ExplorerThread tryStartNewThread(ThreadContext newThreadContext) {
         
         if(!isAlreadyInited) {
             isAlreadyInited = true;
@@ -109,8 +122,6 @@ public class GlobalContext {
         if (state != ExplorationProcessState.COMPLETED && state != ExplorationProcessState.STOPPING
                 && threadPool.canStartNewThread()) {
 
-            ThreadContext newThreadContext = new ThreadContext(this, strategy, model);
-
             // TODO : clone undo list? slave strategy can't go further back...
             ExplorerThread explorerThread = new ExplorerThread(newThreadContext);
             newThreadContext.setExplorerThread(explorerThread);
@@ -132,22 +143,33 @@ public class GlobalContext {
     }
 
     public synchronized ExplorerThread tryStartNewThread(ThreadContext originalThreadContext, IStrategy strategy) {
-        return tryStartNewThread(originalThreadContext, EMFHelper.clone(originalThreadContext.getModel()), strategy);
+        Object[] rootTrajectory = originalThreadContext.getTrajectoryFromInitialModel();
+        if (forkingByTrajectoryReplay && initialModel != null && rootTrajectory != null
+                && rootTrajectory.length <= maxReplayedTrajectoryLength) {
+            return tryStartNewThread(ThreadContext.createFork(this, strategy, initialModel, rootTrajectory));
+        }
+        return tryStartNewThread(new ThreadContext(this, strategy, EMFHelper.clone(originalThreadContext.getModel()),
+                rootTrajectory));
     }
 
     public synchronized ExplorerThread tryStartNewThreadWithoutModelClone(ThreadContext originalThreadContext,
             IStrategy strategy) {
-        return tryStartNewThread(originalThreadContext, originalThreadContext.getModel(), strategy);
+        return tryStartNewThread(new ThreadContext(this, strategy, originalThreadContext.getModel()));
     }
 
     public synchronized ExplorerThread startFirstThread(IStrategy strategy, Notifier model) {
         Preconditions.checkState(!isAlreadyInited, "First thread is already started.");
-        return tryStartNewThread(null, EMFHelper.clone(model), strategy);
+        if (forkingByTrajectoryReplay) {
+            // the threads explore copies of the model, so it needs no copy of its own
+            initialModel = model;
+            EMFHelper.resolveAll(initialModel);
+        }
+        return tryStartNewThread(new ThreadContext(this, strategy, EMFHelper.clone(model), new Object[0]));
     }
 
     public synchronized ExplorerThread startFirstThreadWithoutModelClone(IStrategy strategy, Notifier model) {
         Preconditions.checkState(!isAlreadyInited, "First thread is already started.");
-        return tryStartNewThread(null, model, strategy);
+        return tryStartNewThread(new ThreadContext(this, strategy, model));
     }
     
     public synchronized void startAllThreads(ThreadContext originalThreadContext, IStrategyFactory strategyFactory) {
@@ -372,6 +394,47 @@ public class GlobalContext {
         this.conflictResolver = conflictResolver;
     }
 
+    /**
+     * If set to true, new threads started by {@link #tryStartNewThread(ThreadContext, IStrategy)} do not clone the
+     * model of the starting thread while holding the lock of this context, instead they copy the unmodified initial
+     * model in their own thread and replay the trajectory leading to the state of the starting thread, unless it is
+     * longer than {@link #setMaxReplayedTrajectoryLength(int) the maximal replayed length}. This requires the
+     * exploration to be started by {@link #startFirstThread(IStrategy, Notifier)} after setting this option, and a
+     * state coder that produces the same activation codes on the copies of the model. The initial model must not be
+     * modified during the exploration, and its proxies are resolved when the exploration starts. False by default.
+     * 
+     * @since 1.6
+     */
+    public void setForkingByTrajectoryReplay(boolean forkingByTrajectoryReplay) {
+        this.forkingByTrajectoryReplay = forkingByTrajectoryReplay;
+    }
+
+    /**
+     * @since 1.6
+     */
+    public boolean isForkingByTrajectoryReplay() {
+        return forkingByTrajectoryReplay;
+    }
+
+    /**
+     * Sets the maximal length of the trajectories replayed when forking by trajectory replay. New threads starting
+     * from longer trajectories clone the model of the starting thread instead, as the replay would take longer than
+     * the copy. {@link #DEFAULT_MAX_REPLAYED_TRAJECTORY_LENGTH} by default.
+     * 
+     * @since 1.6
+     */
+    public void setMaxReplayedTrajectoryLength(int maxReplayedTrajectoryLength) {
+        Preconditions.checkArgument(maxReplayedTrajectoryLength >= 0, "Maximal replayed length must not be negative.");
+        this.maxReplayedTrajectoryLength = maxReplayedTrajectoryLength;
+    }
+
+    /**
+     * @since 1.6
+     */
+    public int getMaxReplayedTrajectoryLength() {
+        return maxReplayedTrajectoryLength;
+    }
+
     public ConflictResolver getConflictResolver() {
         return conflictResolver;
     }
@@ -37,6 +37,7 @@ import org.eclipse.viatra.query.runtime.api.ViatraQueryEngine;
 import org.eclipse.viatra.query.runtime.emf.EMFScope;
 import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
 import org.eclipse.viatra.transformation.evm.api.Activation;
+import org.eclipse.viatra.transformation.evm.api.Context;
 import org.eclipse.viatra.transformation.evm.api.RuleEngine;
 import org.eclipse.viatra.transformation.evm.api.RuleSpecification;
 import org.eclipse.viatra.transformation.evm.api.event.EventFilter;
@@ -72,6 +73,16 @@ public class ThreadContext implements IDseStrategyContext{
     private DseConflictSet dseConflictSet;
     private ActivationCodesConflictSet activationCodesConflictSet;
 
+    /**
+     * The shared, unmodified initial model to fork the model of this thread from during initialization, or null if
+     * the model is given directly.
+     */
+    private Notifier modelToFork;
+    /**
+     * The activation ids leading from the initial model to the root state of this thread, or null if unknown.
+     */
+    private Object[] rootTrajectory;
+
     /**
      * This value is true after the {@link ThreadContext} has been initialized in it's own thread.
      */
@@ -120,10 +131,45 @@ public class ThreadContext implements IDseStrategyContext{
      * @param parentGuidance
      */
     public ThreadContext(final GlobalContext globalContext, IStrategy strategy, Notifier model) {
+        this(globalContext, strategy, model, null);
+    }
+
+    /**
+     * Creates a {@link ThreadContext} on the given model, whose current state is reached from the initial model of
+     * the exploration by the given trajectory.
+     * 
+     * @param rootTrajectory
+     *            the activation ids leading from the initial model to the given model, or null if unknown
+     * @since 1.6
+     */
+    public ThreadContext(final GlobalContext globalContext, IStrategy strategy, Notifier model,
+            Object[] rootTrajectory) {
         checkArgument(model != null, "Cannot initialize ThreadContext on a null model.");
         this.globalContext = globalContext;
         this.strategy = strategy;
         this.model = model;
+        this.rootTrajectory = rootTrajectory;
+    }
+
+    /**
+     * Creates a {@link ThreadContext} that forks its model in {@link #init()}, i.e. in its own thread, by copying the
+     * given initial model and replaying the given trajectory on the copy. The initial model is shared by the threads
+     * without locking, so it must not be modified during the exploration, and all of its proxies must be resolved.
+     * 
+     * @param initialModel
+     *            the unmodified initial model of the exploration, see {@link EMFHelper#resolveAll(Notifier)}
+     * @param rootTrajectory
+     *            the activation ids leading from the initial model to the root state of the new thread
+     * @since 1.6
+     */
+    public static ThreadContext createFork(final GlobalContext globalContext, IStrategy strategy,
+            Notifier initialModel, Object[] rootTrajectory) {
+        checkArgument(initialModel != null, "Cannot fork a null model.");
+        checkArgument(rootTrajectory != null, "Cannot fork a model without a trajectory.");
+        ThreadContext threadContext = new ThreadContext(globalContext, strategy, initialModel, rootTrajectory);
+        threadContext.model = null;
+        threadContext.modelToFork = initialModel;
+        return threadContext;
     }
 
     /**
@@ -152,6 +198,11 @@ public class ThreadContext implements IDseStrategyContext{
         checkArgument(!inited.getAndSet(true), "This Thread context has been initialized already!");
 
         try {
+            if (modelToFork != null) {
+                // only read, as it has no proxies to resolve
+                model = EMFHelper.clone(modelToFork);
+            }
+
             // initialize query engine
             final EMFScope scope = new EMFScope(model);
             queryEngine = ViatraQueryEngine.on(scope);
@@ -173,6 +224,10 @@ public class ThreadContext implements IDseStrategyContext{
             activationCodesConflictSet = dseConflictSet.getActivationCodesConflictSet();
             activationCodesConflictSet.updateActivationCodes();
 
+            if (modelToFork != null) {
+                replayRootTrajectory();
+                modelToFork = null;
+            }
 
         } catch (ViatraQueryException e) {
             throw new DSEException("Failed to create unmanaged ViatraQueryEngine on the model.", e);
@@ -227,6 +282,46 @@ public class ThreadContext implements IDseStrategyContext{
 
     }
 
+    /**
+     * Brings the forked model to the root state of this thread by firing the activations of the root trajectory,
+     * outside of the design space and the trajectory of this thread.
+     */
+    private void replayRootTrajectory() {
+        List<BatchTransformationRule<?, ?>> replayedRules = new ArrayList<BatchTransformationRule<?, ?>>();
+        DseIdPoolHelper.INSTANCE.registerRules(new GetRuleExecutionsImpl(replayedRules), getRules());
+        Context context = Context.create();
+        for (Object activationId : rootTrajectory) {
+            Activation<?> activation = activationCodesConflictSet.getActivation(activationId);
+            if (activation == null) {
+                throw new DSEException("Failed to fork the model: activation " + activationId
+                        + " is not found. Possible problem: the state coder is not deterministic.");
+            }
+            activation.fire(context);
+            replayedRules.add(getRuleByRuleSpecification(activation.getInstance().getSpecification()));
+            stateCoder.createStateCode();
+            activationCodesConflictSet.updateActivationCodes();
+        }
+    }
+
+    /**
+     * Returns the activation ids leading from the initial model of the exploration to the current state of this
+     * thread, or null if it is unknown, e.g. if the exploration started on the given model without cloning it.
+     * 
+     * @since 1.6
+     */
+    public Object[] getTrajectoryFromInitialModel() {
+        if (rootTrajectory == null) {
+            return null;
+        }
+        List<Object> trajectoryFromRoot = designSpaceManager.getTrajectoryFromRoot();
+        Object[] result = new Object[rootTrajectory.length + trajectoryFromRoot.size()];
+        System.arraycopy(rootTrajectory, 0, result, 0, rootTrajectory.length);
+        for (int i = 0; i < trajectoryFromRoot.size(); i++) {
+            result[rootTrajectory.length + i] = trajectoryFromRoot.get(i);
+        }
+        return result;
+    }
+
     public Fitness calculateFitness() {
         Fitness result = new Fitness();
 
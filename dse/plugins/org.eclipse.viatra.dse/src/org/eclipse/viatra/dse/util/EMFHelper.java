@@ -38,6 +38,7 @@ import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
 import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
 import org.eclipse.emf.edit.command.AddCommand;
@@ -219,6 +220,25 @@ public final class EMFHelper {
         }
     }
 
+    /**
+     * Resolves all the proxies in the given model. Either an {@link EObject}, {@link Resource} or {@link ResourceSet}.
+     * Afterwards, the model can be cloned by many threads at once, as long as it is not modified.
+     * 
+     * @param notifier The root container of the model.
+     * @since 1.6
+     */
+    public static void resolveAll(Notifier notifier) {
+        if (notifier instanceof EObject) {
+            EcoreUtil.resolveAll((EObject) notifier);
+        } else if (notifier instanceof Resource) {
+            EcoreUtil.resolveAll((Resource) notifier);
+        } else if (notifier instanceof ResourceSet) {
+            EcoreUtil.resolveAll((ResourceSet) notifier);
+        } else {
+            throw new EmfHelperException("Not supported argument type.");
+        }
+    }
+
     /**
      * Collects all the classes and references from the given {@link EPackage}s.
      * @param metaModelPackages
@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.dse.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.viatra.dse.api.DesignSpaceExplorer;
+import org.eclipse.viatra.dse.api.strategy.interfaces.IStrategy;
+import org.eclipse.viatra.dse.base.GlobalContext;
+import org.eclipse.viatra.dse.base.ThreadContext;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.IMatchProcessor;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.impl.BaseGeneratedEMFPQuery;
+import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.emf.types.EClassTransitiveInstancesKey;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PBody;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.ExportedParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.TypeConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.QueryInitializationException;
+import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.viatra.transformation.runtime.emf.rules.batch.BatchTransformationRule;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the threads started with {@link DesignSpaceExplorer#setForkingByTrajectoryReplay(boolean)} reach the
+ * state of the thread starting them, including threads started by forked threads, whether they replay the trajectory
+ * of the starting thread or clone its model. The model is a set of named nodes,
+ * and the only rule deletes a node.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class ForkingByTrajectoryReplayTest {
+
+    private static final int NODE_COUNT = 6;
+    private static final int FORK_COUNT = 3;
+    private static final int FORK_DEPTH = 2;
+
+    private EPackage ePackage;
+    private EClass nodeClass;
+    private EReference nodes;
+    private EAttribute name;
+    private EObject root;
+
+    /**
+     * The state of a forked thread at the start of its exploration.
+     */
+    private static final class ForkRecord {
+        private final Set<String> expectedNames;
+        private final Set<String> actualNames;
+        private final Notifier model;
+        private final int trajectoryLength;
+
+        public ForkRecord(Set<String> expectedNames, Set<String> actualNames, Notifier model, int trajectoryLength) {
+            this.expectedNames = expectedNames;
+            this.actualNames = actualNames;
+            this.model = model;
+            this.trajectoryLength = trajectoryLength;
+        }
+    }
+
+    private final List<ForkRecord> forkRecords = Collections.synchronizedList(new ArrayList<ForkRecord>());
+
+    @Before
+    public void setUp() {
+        EcoreFactory factory = EcoreFactory.eINSTANCE;
+
+        nodeClass = factory.createEClass();
+        nodeClass.setName("Node");
+        name = factory.createEAttribute();
+        name.setName("name");
+        name.setEType(EcorePackage.Literals.ESTRING);
+        nodeClass.getEStructuralFeatures().add(name);
+
+        EClass rootClass = factory.createEClass();
+        rootClass.setName("Root");
+        nodes = factory.createEReference();
+        nodes.setName("nodes");
+        nodes.setEType(nodeClass);
+        nodes.setUpperBound(EStructuralFeature.UNBOUNDED_MULTIPLICITY);
+        nodes.setContainment(true);
+        rootClass.getEStructuralFeatures().add(nodes);
+
+        ePackage = factory.createEPackage();
+        ePackage.setName("forking");
+        ePackage.setNsPrefix("forking");
+        ePackage.setNsURI("http:///org.eclipse.viatra.dse.tests.forking");
+        ePackage.getEClassifiers().add(nodeClass);
+        ePackage.getEClassifiers().add(rootClass);
+
+        root = ePackage.getEFactoryInstance().create(rootClass);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            EObject node = ePackage.getEFactoryInstance().create(nodeClass);
+            node.eSet(name, "node" + i);
+            getNodes(root).add(node);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<EObject> getNodes(Notifier model) {
+        return (List<EObject>) ((EObject) model).eGet(nodes);
+    }
+
+    private Set<String> getNodeNames(Notifier model) {
+        Set<String> result = new HashSet<String>();
+        for (EObject node : getNodes(model)) {
+            result.add((String) node.eGet(name));
+        }
+        return result;
+    }
+
+    /**
+     * Deletes a node, then starts new threads which do the same, until the given depth is reached.
+     */
+    private final class ForkingStrategy implements IStrategy {
+
+        private final int depth;
+        private final int choice;
+        private final Set<String> expectedNames;
+        private ThreadContext context;
+
+        public ForkingStrategy(int depth, int choice, Set<String> expectedNames) {
+            this.depth = depth;
+            this.choice = choice;
+            this.expectedNames = expectedNames;
+        }
+
+        @Override
+        public void initStrategy(ThreadContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void explore() {
+            if (expectedNames != null) {
+                forkRecords.add(new ForkRecord(expectedNames, getNodeNames(context.getModel()), context.getModel(),
+                        context.getTrajectoryFromInitialModel().length));
+            }
+            if (depth == 0) {
+                return;
+            }
+            List<String> activationIds = new ArrayList<String>();
+            for (Object activationId : context.getCurrentActivationIds()) {
+                activationIds.add((String) activationId);
+            }
+            Collections.sort(activationIds);
+            context.executeAcitvationId(activationIds.get(choice % activationIds.size()));
+
+            Set<String> names = getNodeNames(context.getModel());
+            for (int i = 0; i < FORK_COUNT; i++) {
+                assertNotNull(context.tryStartNewThread(new ForkingStrategy(depth - 1, i, names)));
+            }
+        }
+
+        @Override
+        public void interruptStrategy() {
+        }
+
+    }
+
+    private static final class NodeQuery extends BaseGeneratedEMFPQuery {
+
+        private final EClass nodeClass;
+        private final PParameter parameter = new PParameter("n");
+
+        public NodeQuery(EClass nodeClass) {
+            this.nodeClass = nodeClass;
+        }
+
+        @Override
+        public String getFullyQualifiedName() {
+            return "org.eclipse.viatra.dse.tests.node";
+        }
+
+        @Override
+        public List<PParameter> getParameters() {
+            return Collections.singletonList(parameter);
+        }
+
+        @Override
+        protected Set<PBody> doGetContainedBodies() throws QueryInitializationException {
+            PBody body = new PBody(this);
+            PVariable n = body.getOrCreateVariableByName("n");
+            body.setSymbolicParameters(Collections.singletonList(new ExportedParameter(body, n, parameter)));
+            new TypeConstraint(body, new FlatTuple(n), new EClassTransitiveInstancesKey(nodeClass));
+            return Collections.singleton(body);
+        }
+    }
+
+    private static final class NodeQuerySpecification extends GenericQuerySpecification<GenericPatternMatcher> {
+
+        public NodeQuerySpecification(EClass nodeClass) {
+            super(new NodeQuery(nodeClass));
+        }
+
+        @Override
+        protected GenericPatternMatcher instantiate(ViatraQueryEngine engine) throws ViatraQueryException {
+            return defaultInstantiate(engine);
+        }
+
+        @Override
+        public GenericPatternMatcher instantiate() throws ViatraQueryException {
+            return new GenericPatternMatcher(this);
+        }
+
+        @Override
+        public Class<? extends QueryScope> getPreferredScopeClass() {
+            return EMFScope.class;
+        }
+    }
+
+    @Test
+    public void testForkedThreadsReachStateOfStartingThread() {
+        exploreAndCheckForks(GlobalContext.DEFAULT_MAX_REPLAYED_TRAJECTORY_LENGTH);
+    }
+
+    @Test
+    public void testLongTrajectoriesCloned() {
+        // the threads started by the forked threads clone the models of their starting threads
+        exploreAndCheckForks(1);
+    }
+
+    private void exploreAndCheckForks(int maxReplayedTrajectoryLength) {
+        DesignSpaceExplorer dse = new DesignSpaceExplorer();
+        dse.addMetaModelPackage(ePackage);
+        dse.setInitialModel(root);
+        dse.addTransformationRule(new BatchTransformationRule<GenericPatternMatch, GenericPatternMatcher>(
+                "deleteNode", new NodeQuerySpecification(nodeClass), BatchTransformationRule.STATELESS_RULE_LIFECYCLE,
+                new IMatchProcessor<GenericPatternMatch>() {
+                    @Override
+                    public void process(GenericPatternMatch match) {
+                        EcoreUtil.delete((EObject) match.get("n"));
+                    }
+                }));
+        dse.setMaxNumberOfThreads(1 + FORK_COUNT + FORK_COUNT * FORK_COUNT);
+        dse.setForkingByTrajectoryReplay(true);
+        dse.setMaxReplayedTrajectoryLength(maxReplayedTrajectoryLength);
+        dse.startExploration(new ForkingStrategy(FORK_DEPTH, 0, null));
+
+        assertTrue(dse.getGlobalContext().getExceptions().isEmpty());
+        assertEquals(FORK_COUNT + FORK_COUNT * FORK_COUNT, forkRecords.size());
+        Set<Notifier> models = Collections.newSetFromMap(new IdentityHashMap<Notifier, Boolean>());
+        Set<Set<String>> reachedStates = new HashSet<Set<String>>();
+        for (ForkRecord forkRecord : forkRecords) {
+            assertEquals(forkRecord.expectedNames, forkRecord.actualNames);
+            assertEquals(NODE_COUNT - forkRecord.actualNames.size(), forkRecord.trajectoryLength);
+            assertNotSame(root, forkRecord.model);
+            models.add(forkRecord.model);
+            reachedStates.add(forkRecord.actualNames);
+        }
+        // each thread has its own copy of the model
+        assertEquals(forkRecords.size(), models.size());
+        // the threads started by the forked threads replay different trajectories of two activations
+        assertEquals(1 + FORK_COUNT, reachedStates.size());
+        assertEquals(NODE_COUNT, getNodes(root).size());
+    }
+
+}
@@ -12,8 +12,11 @@
 package org.eclipse.viatra.query.runtime.base.itc.alg.counting;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.viatra.query.runtime.base.itc.alg.misc.DFSPathFinder;
@@ -208,6 +211,15 @@ public class CountingAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
         return targets;
     }
 
+    @Override
+    public Map<V, Set<V>> getAllReachableTargetsOfEach(Collection<V> sources) {
+        Map<V, Set<V>> result = new HashMap<V, Set<V>>();
+        for (V source : sources) {
+            result.put(source, getAllReachableTargets(source));
+        }
+        return result;
+    }
+
     @Override
     public Set<V> getAllReachableSources(V target) {
         Set<V> sources = new HashSet<V>();
@@ -12,6 +12,7 @@
 package org.eclipse.viatra.query.runtime.base.itc.alg.dred;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -273,6 +274,15 @@ public class DRedAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
         return tc.getTupleEnds(source);
     }
 
+    @Override
+    public Map<V, Set<V>> getAllReachableTargetsOfEach(Collection<V> sources) {
+        Map<V, Set<V>> result = new HashMap<V, Set<V>>();
+        for (V source : sources) {
+            result.put(source, getAllReachableTargets(source));
+        }
+        return result;
+    }
+
     @Override
     public Set<V> getAllReachableSources(V target) {
         return tc.getTupleStarts(target);
@@ -0,0 +1,815 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.alg.incscc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.base.itc.alg.misc.DFSPathFinder;
+import org.eclipse.viatra.query.runtime.base.itc.alg.misc.IGraphPathFinder;
+import org.eclipse.viatra.query.runtime.base.itc.alg.misc.Tuple;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntIntHashMap;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphObserver;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.ITcDataSource;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.ITcObserver;
+import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+
+/**
+ * Common base of the int-specialized incremental SCC algorithms, working on the node ids of an {@link IntGraph}.
+ *
+ * <p>
+ * Strongly connected components are identified by one of their nodes (the root), and the members of each component
+ * are kept in a circular list, so that both finding the component of a node and enumerating a component take no
+ * hashing. The components are merged and split as the graph changes, and the condensed graph of the components is
+ * maintained with edge multiplicities. Reachability between different components is left to the subclasses, which are
+ * informed about the changes of the condensed graph.
+ *
+ * <p>
+ * Unlike {@link IncSCCAlg}, a node is only reported to be reachable from itself if it is on a cycle, consistently with
+ * the reachable targets and sources of the node.
+ *
+ * <p>
+ * Subclasses must call {@link #initialize()} at the end of their constructors.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ *
+ * @param <V>
+ *            the type parameter of the nodes in the graph data source
+ */
+public abstract class AbstractIntIncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
+
+    private static final long serialVersionUID = 3615384137934497658L;
+    protected static final int NONE = -1;
+
+    protected final IntGraph<V> graph;
+    private final List<ITcObserver<V>> observers;
+
+    /**
+     * node id -> root of its component, or {@link #NONE} if the node is not known
+     */
+    protected int[] rootOf;
+    /**
+     * node id -> next member of its component, the members of a component form a circular list
+     */
+    protected int[] nextMember;
+    /**
+     * root -> number of members of the component
+     */
+    protected int[] componentSize;
+    /**
+     * root -> root of target component -> number of edges between the two components (null if none)
+     */
+    protected IntIntHashMap[] condensedTargets;
+    /**
+     * root -> root of source component -> number of edges between the two components (null if none)
+     */
+    protected IntIntHashMap[] condensedSources;
+    /**
+     * true while the components are restructured; observers are notified separately
+     */
+    private boolean silent = false;
+
+    /**
+     * Scratch space of the traversals, indexed by node ids; all zero between traversals. Subclasses may use it for
+     * marking visited roots, provided they reset it afterwards.
+     */
+    protected int[] visitIndex;
+    private int[] lowLink;
+
+    protected AbstractIntIncSCCAlg(IntGraph<V> graph) {
+        this.graph = graph;
+        this.observers = new ArrayList<ITcObserver<V>>();
+    }
+
+    /**
+     * Computes the components of the graph and starts observing it.
+     */
+    protected final void initialize() {
+        allocate(Math.max(16, graph.getNodeIdBound()));
+        initializeComponents();
+        graph.attachObserver(this);
+    }
+
+    // ********* hooks of the subclasses *********
+
+    /**
+     * Called when the arrays indexed by node ids are (re)allocated; the arrays of the subclass should be resized to the
+     * given capacity.
+     */
+    protected abstract void capacityChanged(int capacity);
+
+    /**
+     * Called when a node becomes a new singleton component, with no edges in the condensed graph.
+     */
+    protected void componentCreated(int root) {
+    }
+
+    /**
+     * Called after the components and the condensed graph are computed for the initial contents of the graph.
+     *
+     * @param components
+     *            the members of the components, each component preceded by the components reachable from it
+     */
+    protected abstract void componentsInitialized(List<int[]> components);
+
+    /**
+     * @return true if the target component is reachable from the different source component
+     */
+    protected abstract boolean isComponentReachable(int sourceRoot, int targetRoot);
+
+    /**
+     * @return the given component, followed by the other components reachable from it
+     */
+    protected abstract int[] getReachableComponents(int root);
+
+    /**
+     * @return for each of the given distinct components, the component followed by the other components reachable
+     *         from it
+     */
+    protected int[][] getReachableComponentsOfEach(int[] roots) {
+        int[][] result = new int[roots.length][];
+        for (int i = 0; i < roots.length; ++i) {
+            result[i] = getReachableComponents(roots[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the given component, followed by the other components it is reachable from
+     */
+    protected abstract int[] getReachingComponents(int root);
+
+    /**
+     * Called when the first edge from the source component to the target component is inserted, before it becomes
+     * part of the condensed graph.
+     */
+    protected abstract void condensedEdgeInserted(int sourceRoot, int targetRoot);
+
+    /**
+     * Called when the last edge from the source component to the target component is deleted, after it is removed
+     * from the condensed graph.
+     */
+    protected abstract void condensedEdgeDeleted(int sourceRoot, int targetRoot);
+
+    /**
+     * Called before components are merged or split. The condensed graph is then rebuilt, while the observers are not
+     * notified.
+     */
+    protected void componentsRestructuring() {
+    }
+
+    /**
+     * @return true if the observers should be notified about the changes of reachability between components
+     */
+    protected final boolean isNotifying() {
+        return !silent && !observers.isEmpty();
+    }
+
+    // ********* components *********
+
+    private void allocate(int capacity) {
+        rootOf = new int[capacity];
+        Arrays.fill(rootOf, NONE);
+        nextMember = new int[capacity];
+        componentSize = new int[capacity];
+        condensedTargets = new IntIntHashMap[capacity];
+        condensedSources = new IntIntHashMap[capacity];
+        visitIndex = new int[capacity];
+        lowLink = new int[capacity];
+        capacityChanged(capacity);
+    }
+
+    private void ensureCapacity(int id) {
+        int oldCapacity = rootOf.length;
+        if (id >= oldCapacity) {
+            int capacity = Math.max(2 * oldCapacity, id + 1);
+            rootOf = Arrays.copyOf(rootOf, capacity);
+            Arrays.fill(rootOf, oldCapacity, capacity, NONE);
+            nextMember = Arrays.copyOf(nextMember, capacity);
+            componentSize = Arrays.copyOf(componentSize, capacity);
+            condensedTargets = Arrays.copyOf(condensedTargets, capacity);
+            condensedSources = Arrays.copyOf(condensedSources, capacity);
+            visitIndex = Arrays.copyOf(visitIndex, capacity);
+            lowLink = Arrays.copyOf(lowLink, capacity);
+            capacityChanged(capacity);
+        }
+    }
+
+    /**
+     * @return the root of the component of the node with the given id, which becomes a new singleton component if it
+     *         was not known yet
+     */
+    private int rootOfNode(int id) {
+        ensureCapacity(id);
+        if (rootOf[id] == NONE) {
+            rootOf[id] = id;
+            nextMember[id] = id;
+            componentSize[id] = 1;
+            componentCreated(id);
+        }
+        return rootOf[id];
+    }
+
+    /**
+     * @return the id of the given node, or {@link #NONE} if it is not known
+     */
+    private int idOf(V node) {
+        int id = graph.getNodeId(node);
+        return (id < 0 || id >= rootOf.length || rootOf[id] == NONE) ? NONE : id;
+    }
+
+    private void initializeComponents() {
+        int bound = graph.getNodeIdBound();
+        int[] nodes = new int[bound];
+        int count = 0;
+        for (int id = 0; id < bound; ++id) {
+            if (graph.getNode(id) != null) {
+                rootOfNode(id);
+                nodes[count++] = id;
+            }
+        }
+        List<int[]> components = computeComponents(Arrays.copyOf(nodes, count), NONE);
+        for (int[] component : components) {
+            formComponent(component);
+        }
+        for (int[] component : components) {
+            int root = rootOf[component[0]];
+            for (int member : component) {
+                for (int i = 0; i < graph.getTargetCount(member); ++i) {
+                    int targetRoot = rootOf[graph.getTargetId(member, i)];
+                    if (targetRoot != root) {
+                        int multiplicity = graph.getTargetMultiplicity(member, i);
+                        addEntry(condensedTargets, root, targetRoot, multiplicity);
+                        addEntry(condensedSources, targetRoot, root, multiplicity);
+                    }
+                }
+            }
+        }
+        componentsInitialized(components);
+    }
+
+    /**
+     * Makes the given nodes a component.
+     *
+     * @return the root of the new component
+     */
+    private int formComponent(int[] members) {
+        int root = members[0];
+        for (int i = 0; i < members.length; ++i) {
+            rootOf[members[i]] = root;
+            nextMember[members[i]] = members[(i + 1) % members.length];
+        }
+        componentSize[root] = members.length;
+        return root;
+    }
+
+    private int[] membersOf(int root) {
+        int[] members = new int[componentSize[root]];
+        int member = root;
+        for (int i = 0; i < members.length; ++i) {
+            members[i] = member;
+            member = nextMember[member];
+        }
+        return members;
+    }
+
+    /**
+     * @return true if the nodes of the component reach themselves
+     */
+    protected final boolean isCyclic(int root) {
+        return componentSize[root] > 1 || graph.getEdgeMultiplicity(root, root) > 0;
+    }
+
+    protected static int getEntry(IntIntHashMap[] rows, int row, int column) {
+        return (rows[row] == null) ? 0 : rows[row].get(column);
+    }
+
+    /**
+     * @return the new value of the entry
+     */
+    protected static int addEntry(IntIntHashMap[] rows, int row, int column, int delta) {
+        IntIntHashMap map = rows[row];
+        if (map == null) {
+            map = new IntIntHashMap();
+            rows[row] = map;
+        }
+        int value = map.add(column, delta);
+        if (map.isEmpty()) {
+            rows[row] = null;
+        }
+        return value;
+    }
+
+    // ********* graph changes *********
+
+    @Override
+    public void edgeInserted(V source, V target) {
+        int sourceId = graph.getNodeId(source);
+        int targetId = graph.getNodeId(target);
+        int sourceRoot = rootOfNode(sourceId);
+        int targetRoot = rootOfNode(targetId);
+
+        if (sourceRoot != targetRoot) {
+            if (getEntry(condensedTargets, sourceRoot, targetRoot) == 0
+                    && isComponentReachable(targetRoot, sourceRoot)) {
+                mergeComponents(sourceRoot, targetRoot);
+            } else {
+                insertCondensedEdge(sourceRoot, targetRoot, 1);
+            }
+        } else if (sourceId == targetId && componentSize[sourceRoot] == 1
+                && graph.getEdgeMultiplicity(sourceId, sourceId) == 1) {
+            // first self-loop
+            notifyTcObservers(sourceRoot, sourceRoot, Direction.INSERT);
+        }
+    }
+
+    @Override
+    public void edgeDeleted(V source, V target) {
+        int sourceId = idOf(source);
+        int targetId = idOf(target);
+        if (sourceId == NONE || targetId == NONE) {
+            return;
+        }
+        int sourceRoot = rootOf[sourceId];
+        int targetRoot = rootOf[targetId];
+
+        if (sourceRoot != targetRoot) {
+            deleteCondensedEdge(sourceRoot, targetRoot, 1);
+        } else if (sourceId == targetId) {
+            if (componentSize[sourceRoot] == 1 && graph.getEdgeMultiplicity(sourceId, sourceId) == 0) {
+                // last self-loop
+                notifyTcObservers(sourceRoot, sourceRoot, Direction.DELETE);
+            }
+        } else if (!isReachableWithin(sourceId, targetId, sourceRoot)) {
+            splitComponent(sourceRoot, sourceId, targetId);
+        }
+    }
+
+    @Override
+    public void nodeInserted(V n) {
+        rootOfNode(graph.getNodeId(n));
+    }
+
+    @Override
+    public void nodeDeleted(V n) {
+        // the edges of the node have already been deleted, so it is an isolated singleton component
+        int id = idOf(n);
+        if (id != NONE) {
+            rootOf[id] = NONE;
+            componentSize[id] = 0;
+        }
+    }
+
+    private void insertCondensedEdge(int sourceRoot, int targetRoot, int multiplicity) {
+        if (getEntry(condensedTargets, sourceRoot, targetRoot) == 0) {
+            condensedEdgeInserted(sourceRoot, targetRoot);
+        }
+        addEntry(condensedSources, targetRoot, sourceRoot, multiplicity);
+        addEntry(condensedTargets, sourceRoot, targetRoot, multiplicity);
+    }
+
+    private void deleteCondensedEdge(int sourceRoot, int targetRoot, int multiplicity) {
+        addEntry(condensedSources, targetRoot, sourceRoot, -multiplicity);
+        if (addEntry(condensedTargets, sourceRoot, targetRoot, -multiplicity) == 0) {
+            condensedEdgeDeleted(sourceRoot, targetRoot);
+        }
+    }
+
+    /**
+     * Merges the components becoming strongly connected by a new edge from the source component to the target
+     * component.
+     */
+    private void mergeComponents(int sourceRoot, int targetRoot) {
+        int[] sourceRoots = getReachingComponents(sourceRoot);
+        int[] targetRoots = getReachableComponents(targetRoot);
+
+        // notifications must be issued before the components change
+        if (!observers.isEmpty()) {
+            for (int s : sourceRoots) {
+                for (int t : targetRoots) {
+                    if (s == t ? !isCyclic(s) : !isComponentReachable(s, t)) {
+                        notifyTcObservers(s, t, Direction.INSERT);
+                    }
+                }
+            }
+        }
+
+        // the components reachable from the target and reaching the source are on the new cycles
+        List<Integer> merged = new ArrayList<Integer>();
+        for (int t : targetRoots) {
+            if (t == sourceRoot || isComponentReachable(t, sourceRoot)) {
+                merged.add(t);
+            }
+        }
+
+        componentsRestructuring();
+        silent = true;
+        try {
+            int newRoot = sourceRoot;
+            for (int root : merged) {
+                disconnect(root);
+                if (componentSize[root] > componentSize[newRoot]) {
+                    newRoot = root;
+                }
+            }
+            for (int root : merged) {
+                if (root != newRoot) {
+                    for (int member : membersOf(root)) {
+                        rootOf[member] = newRoot;
+                    }
+                    // splice the circular member lists
+                    int next = nextMember[newRoot];
+                    nextMember[newRoot] = nextMember[root];
+                    nextMember[root] = next;
+                    componentSize[newRoot] += componentSize[root];
+                    componentSize[root] = 0;
+                }
+            }
+            int[] members = membersOf(newRoot);
+            connectOutgoing(newRoot, members);
+            connectIncoming(newRoot, members);
+        } finally {
+            silent = false;
+        }
+    }
+
+    /**
+     * Splits the component that may have fallen apart after the deletion of an edge from the source to the target.
+     */
+    private void splitComponent(int root, int sourceId, int targetId) {
+        int[] members = membersOf(root);
+        List<int[]> components = computeComponents(members, root);
+
+        componentsRestructuring();
+        silent = true;
+        try {
+            disconnect(root);
+            IntIntHashMap newRoots = new IntIntHashMap(components.size());
+            for (int[] component : components) {
+                newRoots.put(formComponent(component), 1);
+            }
+            // sinks first, so reachability is propagated to as few predecessors as possible
+            for (int[] component : components) {
+                connectOutgoing(rootOf[component[0]], component);
+            }
+            for (int member : members) {
+                int memberRoot = rootOf[member];
+                for (int i = 0; i < graph.getSourceCount(member); ++i) {
+                    int sourceRoot = rootOf[graph.getSourceId(member, i)];
+                    if (!newRoots.containsKey(sourceRoot)) {
+                        insertCondensedEdge(sourceRoot, memberRoot, graph.getSourceMultiplicity(member, i));
+                    }
+                }
+            }
+        } finally {
+            silent = false;
+        }
+
+        // notifications must be issued after the components change
+        if (!observers.isEmpty()) {
+            int[] sourceRoots = getReachingComponents(rootOf[sourceId]);
+            int[] targetRoots = getReachableComponents(rootOf[targetId]);
+            for (int s : sourceRoots) {
+                for (int t : targetRoots) {
+                    if (s == t ? !isCyclic(s) : !isComponentReachable(s, t)) {
+                        notifyTcObservers(s, t, Direction.DELETE);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the edges of the condensed graph incident to the given component.
+     */
+    private void disconnect(int root) {
+        if (condensedTargets[root] != null) {
+            IntIntHashMap targets = condensedTargets[root];
+            for (int targetRoot : targets.keys()) {
+                deleteCondensedEdge(root, targetRoot, targets.get(targetRoot));
+            }
+        }
+        if (condensedSources[root] != null) {
+            IntIntHashMap sources = condensedSources[root];
+            for (int sourceRoot : sources.keys()) {
+                deleteCondensedEdge(sourceRoot, root, sources.get(sourceRoot));
+            }
+        }
+    }
+
+    /**
+     * Inserts the edges of the condensed graph from the given component, corresponding to the edges from its members.
+     */
+    private void connectOutgoing(int root, int[] members) {
+        for (int member : members) {
+            for (int i = 0; i < graph.getTargetCount(member); ++i) {
+                int targetRoot = rootOfNode(graph.getTargetId(member, i));
+                if (targetRoot != root) {
+                    insertCondensedEdge(root, targetRoot, graph.getTargetMultiplicity(member, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the edges of the condensed graph into the given component, corresponding to the edges into its members.
+     */
+    private void connectIncoming(int root, int[] members) {
+        for (int member : members) {
+            for (int i = 0; i < graph.getSourceCount(member); ++i) {
+                int sourceRoot = rootOfNode(graph.getSourceId(member, i));
+                if (sourceRoot != root) {
+                    insertCondensedEdge(sourceRoot, root, graph.getSourceMultiplicity(member, i));
+                }
+            }
+        }
+    }
+
+    // ********* traversals *********
+
+    /**
+     * @return true if the target is reachable from the source along the edges within the given component
+     */
+    private boolean isReachableWithin(int sourceId, int targetId, int root) {
+        int[] stack = new int[componentSize[root]];
+        int[] visited = new int[componentSize[root]];
+        int stackSize = 0;
+        int visitedCount = 0;
+        stack[stackSize++] = sourceId;
+        visited[visitedCount++] = sourceId;
+        visitIndex[sourceId] = 1;
+        boolean found = false;
+        while (stackSize > 0 && !found) {
+            int node = stack[--stackSize];
+            for (int i = 0; i < graph.getTargetCount(node); ++i) {
+                int next = graph.getTargetId(node, i);
+                if (next == targetId) {
+                    found = true;
+                    break;
+                }
+                if (rootOf[next] == root && visitIndex[next] == 0) {
+                    visitIndex[next] = 1;
+                    visited[visitedCount++] = next;
+                    stack[stackSize++] = next;
+                }
+            }
+        }
+        for (int i = 0; i < visitedCount; ++i) {
+            visitIndex[visited[i]] = 0;
+        }
+        return found;
+    }
+
+    /**
+     * Computes the strongly connected components of the given nodes using Tarjan's algorithm.
+     *
+     * @param restrictToRoot
+     *            if not {@link #NONE}, only the edges within this component are followed
+     * @return the components, each component preceded by the components reachable from it
+     */
+    private List<int[]> computeComponents(int[] nodes, int restrictToRoot) {
+        List<int[]> components = new ArrayList<int[]>();
+        int[] componentStack = new int[nodes.length];
+        int componentStackSize = 0;
+        int[] callNodes = new int[nodes.length];
+        int[] callPositions = new int[nodes.length];
+        int callDepth = 0;
+        int counter = 0;
+
+        for (int start : nodes) {
+            if (visitIndex[start] != 0) {
+                continue;
+            }
+            visitIndex[start] = lowLink[start] = ++counter;
+            componentStack[componentStackSize++] = start;
+            callNodes[callDepth] = start;
+            callPositions[callDepth++] = 0;
+
+            while (callDepth > 0) {
+                int node = callNodes[callDepth - 1];
+                int position = callPositions[callDepth - 1];
+                if (position < graph.getTargetCount(node)) {
+                    callPositions[callDepth - 1]++;
+                    int next = graph.getTargetId(node, position);
+                    if (restrictToRoot != NONE && rootOf[next] != restrictToRoot) {
+                        continue;
+                    }
+                    if (visitIndex[next] == 0) {
+                        visitIndex[next] = lowLink[next] = ++counter;
+                        componentStack[componentStackSize++] = next;
+                        callNodes[callDepth] = next;
+                        callPositions[callDepth++] = 0;
+                    } else if (lowLink[next] > 0) {
+                        // still on the component stack
+                        lowLink[node] = Math.min(lowLink[node], visitIndex[next]);
+                    }
+                } else {
+                    callDepth--;
+                    if (lowLink[node] == visitIndex[node]) {
+                        int size = 0;
+                        while (componentStack[componentStackSize - 1 - size] != node) {
+                            size++;
+                        }
+                        size++;
+                        componentStackSize -= size;
+                        int[] component = Arrays.copyOfRange(componentStack, componentStackSize,
+                                componentStackSize + size);
+                        for (int member : component) {
+                            // marks the member as no longer on the component stack
+                            lowLink[member] = 0;
+                        }
+                        components.add(component);
+                    }
+                    if (callDepth > 0) {
+                        int caller = callNodes[callDepth - 1];
+                        if (lowLink[node] > 0) {
+                            lowLink[caller] = Math.min(lowLink[caller], lowLink[node]);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int node : nodes) {
+            visitIndex[node] = 0;
+            lowLink[node] = 0;
+        }
+        return components;
+    }
+
+    // ********* queries *********
+
+    @Override
+    public boolean isReachable(V source, V target) {
+        int sourceId = idOf(source);
+        int targetId = idOf(target);
+        if (sourceId == NONE || targetId == NONE) {
+            return false;
+        }
+        int sourceRoot = rootOf[sourceId];
+        int targetRoot = rootOf[targetId];
+        return (sourceRoot == targetRoot) ? isCyclic(sourceRoot) : isComponentReachable(sourceRoot, targetRoot);
+    }
+
+    @Override
+    public Set<V> getAllReachableTargets(V source) {
+        int sourceId = idOf(source);
+        if (sourceId == NONE) {
+            return new HashSet<V>();
+        }
+        return collectMembers(getReachableComponents(rootOf[sourceId]));
+    }
+
+    @Override
+    public Map<V, Set<V>> getAllReachableTargetsOfEach(Collection<V> sources) {
+        Map<V, Set<V>> result = new HashMap<V, Set<V>>();
+        // root -> the sources in the component
+        Map<Integer, List<V>> sourcesOfComponents = new LinkedHashMap<Integer, List<V>>();
+        for (V source : sources) {
+            int sourceId = idOf(source);
+            if (sourceId == NONE) {
+                result.put(source, new HashSet<V>());
+                continue;
+            }
+            List<V> sourcesOfComponent = sourcesOfComponents.get(rootOf[sourceId]);
+            if (sourcesOfComponent == null) {
+                sourcesOfComponent = new ArrayList<V>();
+                sourcesOfComponents.put(rootOf[sourceId], sourcesOfComponent);
+            }
+            sourcesOfComponent.add(source);
+        }
+        int[] roots = new int[sourcesOfComponents.size()];
+        int index = 0;
+        for (Integer root : sourcesOfComponents.keySet()) {
+            roots[index++] = root;
+        }
+        int[][] reachableComponents = getReachableComponentsOfEach(roots);
+        index = 0;
+        for (List<V> sourcesOfComponent : sourcesOfComponents.values()) {
+            Set<V> targets = collectMembers(reachableComponents[index++]);
+            // the sources in the same component have the same targets, but each gets its own set
+            result.put(sourcesOfComponent.get(0), targets);
+            for (int i = 1; i < sourcesOfComponent.size(); ++i) {
+                result.put(sourcesOfComponent.get(i), new HashSet<V>(targets));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<V> getAllReachableSources(V target) {
+        int targetId = idOf(target);
+        if (targetId == NONE) {
+            return new HashSet<V>();
+        }
+        return collectMembers(getReachingComponents(rootOf[targetId]));
+    }
+
+    /**
+     * @param components
+     *            a component followed by other components
+     * @return the members of the other components, and the members of the first one if it is cyclic
+     */
+    private Set<V> collectMembers(int[] components) {
+        Set<V> result = new HashSet<V>();
+        for (int i = (isCyclic(components[0]) ? 0 : 1); i < components.length; ++i) {
+            int root = components[i];
+            int member = root;
+            do {
+                result.add(graph.getNode(member));
+                member = nextMember[member];
+            } while (member != root);
+        }
+        return result;
+    }
+
+    /**
+     * @return the set of all tuples of the transitive closure relation
+     */
+    public Set<Tuple<V>> getTcRelation() {
+        Set<Tuple<V>> resultSet = new HashSet<Tuple<V>>();
+        for (int id = 0; id < rootOf.length; ++id) {
+            if (rootOf[id] == id) {
+                Set<V> targets = collectMembers(getReachableComponents(id));
+                int member = id;
+                do {
+                    V source = graph.getNode(member);
+                    for (V target : targets) {
+                        resultSet.add(new Tuple<V>(source, target));
+                    }
+                    member = nextMember[member];
+                } while (member != id);
+            }
+        }
+        return resultSet;
+    }
+
+    /**
+     * @return true if the node has no incoming or outgoing edges
+     */
+    public boolean isIsolated(V node) {
+        int id = graph.getNodeId(node);
+        return id < 0 || (graph.getTargetCount(id) == 0 && graph.getSourceCount(id) == 0);
+    }
+
+    @Override
+    public void attachObserver(ITcObserver<V> to) {
+        observers.add(to);
+    }
+
+    @Override
+    public void detachObserver(ITcObserver<V> to) {
+        observers.remove(to);
+    }
+
+    /**
+     * Notifies the observers about the tuples between the members of the two components.
+     */
+    protected final void notifyTcObservers(int sourceRoot, int targetRoot, Direction direction) {
+        int source = sourceRoot;
+        do {
+            int target = targetRoot;
+            do {
+                for (ITcObserver<V> observer : observers) {
+                    if (direction == Direction.INSERT) {
+                        observer.tupleInserted(graph.getNode(source), graph.getNode(target));
+                    } else {
+                        observer.tupleDeleted(graph.getNode(source), graph.getNode(target));
+                    }
+                }
+                target = nextMember[target];
+            } while (target != targetRoot);
+            source = nextMember[source];
+        } while (source != sourceRoot);
+    }
+
+    @Override
+    public IGraphPathFinder<V> getPathFinder() {
+        return new DFSPathFinder<V>(graph, this);
+    }
+
+    @Override
+    public void dispose() {
+        graph.detachObserver(this);
+        observers.clear();
+        allocate(0);
+    }
+
+}
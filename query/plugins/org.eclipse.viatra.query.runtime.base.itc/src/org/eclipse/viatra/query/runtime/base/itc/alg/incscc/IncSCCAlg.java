@@ -12,9 +12,12 @@
 package org.eclipse.viatra.query.runtime.base.itc.alg.incscc;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.viatra.query.runtime.base.itc.alg.counting.CountingAlg;
@@ -382,6 +385,15 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
         return targets;
     }
 
+    @Override
+    public Map<V, Set<V>> getAllReachableTargetsOfEach(Collection<V> sources) {
+        Map<V, Set<V>> result = new HashMap<V, Set<V>>();
+        for (V source : sources) {
+            result.put(source, getAllReachableTargets(source));
+        }
+        return result;
+    }
+
     @Override
     public Set<V> getAllReachableSources(V target) {
         V targetRoot = sccs.find(target);
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.alg.incscc;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntIntHashMap;
+import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+
+/**
+ * Int-specialized variant of {@link IncSCCAlg}, working on the node ids of an {@link IntGraph}.
+ *
+ * <p>
+ * Over the condensed graph of the strongly connected components, the transitive closure is maintained by counting, in
+ * primitive maps: for each pair of components, the number of successors of the first component through which the
+ * second one is reachable is stored. Unlike counting paths, this number is bounded by the out-degree in the condensed
+ * graph. Reachability queries are answered by a single lookup, at the price of storing every reachable pair of
+ * components; see {@link IntIncSCCIndexAlg} for a compact alternative.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ *
+ * @param <V>
+ *            the type parameter of the nodes in the graph data source
+ */
+public class IntIncSCCAlg<V> extends AbstractIntIncSCCAlg<V> {
+
+    private static final long serialVersionUID = -2813624407596519634L;
+
+    /**
+     * A change of the components reachable from a component, to be propagated to its predecessors.
+     */
+    private static final class Derivation {
+        final int root;
+        final int[] components;
+
+        Derivation(int root, int[] components) {
+            this.root = root;
+            this.components = components;
+        }
+    }
+
+    /**
+     * root -> root of a different reachable component -> number of successors it is reachable through (null if none)
+     */
+    private IntIntHashMap[] reachableTargets;
+    /**
+     * root -> root of a different component it is reachable from -> 1 (null if none)
+     */
+    private IntIntHashMap[] reachableSources;
+
+    public IntIncSCCAlg(IntGraph<V> graph) {
+        super(graph);
+        initialize();
+    }
+
+    @Override
+    protected void capacityChanged(int capacity) {
+        reachableTargets = (reachableTargets == null) ? new IntIntHashMap[capacity]
+                : Arrays.copyOf(reachableTargets, capacity);
+        reachableSources = (reachableSources == null) ? new IntIntHashMap[capacity]
+                : Arrays.copyOf(reachableSources, capacity);
+    }
+
+    @Override
+    protected void componentsInitialized(List<int[]> components) {
+        // components are listed sinks first, so reachability can be computed from the already processed successors
+        for (int[] component : components) {
+            int root = rootOf[component[0]];
+            IntIntHashMap successors = condensedTargets[root];
+            if (successors != null) {
+                for (int slot = 0; slot < successors.capacity(); ++slot) {
+                    int successor = successors.keyAt(slot);
+                    if (successor >= 0) {
+                        for (int reachable : getReachableComponents(successor)) {
+                            if (addEntry(reachableTargets, root, reachable, 1) == 1) {
+                                addEntry(reachableSources, reachable, root, 1);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected boolean isComponentReachable(int sourceRoot, int targetRoot) {
+        return getEntry(reachableTargets, sourceRoot, targetRoot) > 0;
+    }
+
+    @Override
+    protected int[] getReachableComponents(int root) {
+        return withKeys(root, reachableTargets[root]);
+    }
+
+    @Override
+    protected int[] getReachingComponents(int root) {
+        return withKeys(root, reachableSources[root]);
+    }
+
+    private static int[] withKeys(int root, IntIntHashMap components) {
+        if (components == null) {
+            return new int[] { root };
+        }
+        int[] result = new int[components.size() + 1];
+        result[0] = root;
+        System.arraycopy(components.keys(), 0, result, 1, components.size());
+        return result;
+    }
+
+    @Override
+    protected void condensedEdgeInserted(int sourceRoot, int targetRoot) {
+        deriveReachable(sourceRoot, getReachableComponents(targetRoot), 1);
+    }
+
+    @Override
+    protected void condensedEdgeDeleted(int sourceRoot, int targetRoot) {
+        deriveReachable(sourceRoot, getReachableComponents(targetRoot), -1);
+    }
+
+    /**
+     * Adds (or removes) a derivation of the given components as reachable from the given component, and propagates
+     * the components becoming reachable (or unreachable) to the predecessors of the component.
+     */
+    private void deriveReachable(int root, int[] components, int delta) {
+        Direction direction = (delta > 0) ? Direction.INSERT : Direction.DELETE;
+        boolean notify = isNotifying();
+        Deque<Derivation> pending = new ArrayDeque<Derivation>();
+        pending.push(new Derivation(root, components));
+        while (!pending.isEmpty()) {
+            Derivation derivation = pending.pop();
+            int[] changed = new int[derivation.components.length];
+            int changedCount = 0;
+            for (int component : derivation.components) {
+                int count = addEntry(reachableTargets, derivation.root, component, delta);
+                if (count == ((delta > 0) ? 1 : 0)) {
+                    addEntry(reachableSources, component, derivation.root, delta);
+                    changed[changedCount++] = component;
+                    if (notify) {
+                        notifyTcObservers(derivation.root, component, direction);
+                    }
+                }
+            }
+            IntIntHashMap predecessors = condensedSources[derivation.root];
+            if (changedCount > 0 && predecessors != null) {
+                int[] propagated = Arrays.copyOf(changed, changedCount);
+                for (int slot = 0; slot < predecessors.capacity(); ++slot) {
+                    int predecessor = predecessors.keyAt(slot);
+                    if (predecessor >= 0) {
+                        pending.push(new Derivation(predecessor, propagated));
+                    }
+                }
+            }
+        }
+    }
+
+}
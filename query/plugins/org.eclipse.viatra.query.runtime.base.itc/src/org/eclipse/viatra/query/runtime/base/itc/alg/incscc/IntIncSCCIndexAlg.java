@@ -0,0 +1,442 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.alg.incscc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.base.itc.alg.misc.bfs.BFS;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntIntHashMap;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphDataSource;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphObserver;
+import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+
+/**
+ * Variant of {@link IntIncSCCAlg} that does not materialize the reachable pairs of components. Instead, the condensed
+ * graph is labeled in linear space, and reachability queries are answered by the labels, falling back to a search of
+ * the condensed graph pruned by the labels when they are inconclusive.
+ *
+ * <p>
+ * The labels are computed by a depth-first traversal of the condensed graph:
+ * <ul>
+ * <li>the post-order rank of each component, and the smallest rank among the components reachable from it; a component
+ * is not reachable from another one if its rank is not smaller, or its smallest reachable rank is smaller (negative
+ * cut),</li>
+ * <li>the pre-order interval of each component in the spanning forest of the traversal; a component is reachable from
+ * its ancestors in the forest (positive cut).</li>
+ * </ul>
+ * Insertions into the condensed graph are incorporated into the ranks if they respect the order of the ranks, and
+ * they never break the spanning forest. Deletions keep the ranks sound, and only break the spanning forest if one of
+ * its edges is deleted. Labels that are broken by a change, or by merging or splitting components, are recomputed
+ * lazily, when the searches performed since they were broken have visited more components than there are nodes.
+ *
+ * <p>
+ * Observers are notified as by {@link IntIncSCCAlg}, by comparing the reachability before and after each change of the
+ * condensed graph. As this searches the condensed graph on every change, {@link IntIncSCCAlg} should be used if the
+ * changes of the closure are observed, and this variant if mostly reachability queries are answered.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ *
+ * @param <V>
+ *            the type parameter of the nodes in the graph data source
+ */
+public class IntIncSCCIndexAlg<V> extends AbstractIntIncSCCAlg<V> {
+
+    private static final long serialVersionUID = 6124583901273468502L;
+    private static final int UNLABELED = Integer.MIN_VALUE;
+
+    /**
+     * root -> rank of the component, smaller than the ranks of the components reaching it, or {@link #UNLABELED} if
+     * the component has not been labeled yet
+     */
+    private int[] rank;
+    /**
+     * root -> lower bound of the ranks of the component and the components reachable from it
+     */
+    private int[] low;
+    /**
+     * root -> pre-order index of the component in the spanning forest (from 1), or 0 if it is not in the forest
+     */
+    private int[] treeStart;
+    /**
+     * root -> greatest pre-order index in the subtree of the component in the spanning forest
+     */
+    private int[] treeEnd;
+    /**
+     * root -> parent of the component in the spanning forest, or {@link #NONE} if none
+     */
+    private int[] treeParent;
+    private boolean rankLabelsValid = false;
+    private boolean treeLabelsValid = false;
+    private int nextHighRank;
+    private int nextLowRank;
+    /**
+     * number of components visited by searches since the last labeling, while some of the labels are invalid
+     */
+    private long searchCost = 0;
+    /**
+     * scratch space of the searches
+     */
+    private int[] queue = new int[16];
+
+    public IntIncSCCIndexAlg(IntGraph<V> graph) {
+        super(graph);
+        initialize();
+    }
+
+    @Override
+    protected void capacityChanged(int capacity) {
+        rank = (rank == null) ? new int[capacity] : Arrays.copyOf(rank, capacity);
+        low = (low == null) ? new int[capacity] : Arrays.copyOf(low, capacity);
+        treeStart = (treeStart == null) ? new int[capacity] : Arrays.copyOf(treeStart, capacity);
+        treeEnd = (treeEnd == null) ? new int[capacity] : Arrays.copyOf(treeEnd, capacity);
+        treeParent = (treeParent == null) ? new int[capacity] : Arrays.copyOf(treeParent, capacity);
+    }
+
+    @Override
+    protected void componentCreated(int root) {
+        rank[root] = UNLABELED;
+        low[root] = UNLABELED;
+        treeStart[root] = 0;
+        treeEnd[root] = 0;
+        treeParent[root] = NONE;
+    }
+
+    @Override
+    protected void componentsInitialized(List<int[]> components) {
+        relabel();
+    }
+
+    @Override
+    protected void componentsRestructuring() {
+        rankLabelsValid = false;
+        treeLabelsValid = false;
+    }
+
+    // ********* condensed graph changes *********
+
+    @Override
+    protected void condensedEdgeInserted(int sourceRoot, int targetRoot) {
+        // the new pairs are the ones reaching the source and reachable from the target, unless they were already
+        if (isNotifying() && !isComponentReachable(sourceRoot, targetRoot)) {
+            for (int s : getReachingComponents(sourceRoot)) {
+                for (int t : getReachableComponents(targetRoot)) {
+                    if (!isComponentReachable(s, t)) {
+                        notifyTcObservers(s, t, Direction.INSERT);
+                    }
+                }
+            }
+        }
+
+        if (rankLabelsValid) {
+            if (nextHighRank == Integer.MAX_VALUE || nextLowRank == UNLABELED + 1) {
+                rankLabelsValid = false;
+                return;
+            }
+            // components without labels have no edges yet, so they can be ranked below or above all others
+            if (rank[targetRoot] == UNLABELED) {
+                rank[targetRoot] = low[targetRoot] = nextLowRank--;
+            }
+            if (rank[sourceRoot] == UNLABELED) {
+                rank[sourceRoot] = low[sourceRoot] = nextHighRank++;
+            }
+            if (rank[targetRoot] < rank[sourceRoot]) {
+                lowerLow(sourceRoot, low[targetRoot]);
+            } else {
+                rankLabelsValid = false;
+            }
+        }
+    }
+
+    @Override
+    protected void condensedEdgeDeleted(int sourceRoot, int targetRoot) {
+        if (treeParent[targetRoot] == sourceRoot) {
+            treeLabelsValid = false;
+        }
+
+        // the lost pairs are among the ones reaching the source and reachable from the target
+        if (isNotifying() && !isComponentReachable(sourceRoot, targetRoot)) {
+            for (int s : getReachingComponents(sourceRoot)) {
+                for (int t : getReachableComponents(targetRoot)) {
+                    if (!isComponentReachable(s, t)) {
+                        notifyTcObservers(s, t, Direction.DELETE);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lowers the smallest reachable rank of the given component and the components reaching it to the given value.
+     */
+    private void lowerLow(int root, int value) {
+        int size = 0;
+        queue[size++] = root;
+        while (size > 0) {
+            int component = queue[--size];
+            if (low[component] > value) {
+                low[component] = value;
+                IntIntHashMap sources = condensedSources[component];
+                if (sources != null) {
+                    for (int slot = 0; slot < sources.capacity(); ++slot) {
+                        if (sources.keyAt(slot) >= 0) {
+                            if (size == queue.length) {
+                                queue = Arrays.copyOf(queue, 2 * size);
+                            }
+                            queue[size++] = sources.keyAt(slot);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // ********* labeling *********
+
+    /**
+     * Labels the condensed graph by a depth-first traversal from the components without predecessors.
+     */
+    private void relabel() {
+        int[] callNodes = new int[rootOf.length];
+        int[] callSlots = new int[rootOf.length];
+        int preorder = 0;
+        int postorder = 0;
+
+        for (int start = 0; start < rootOf.length; ++start) {
+            if (rootOf[start] != start || condensedSources[start] != null) {
+                continue;
+            }
+            visitIndex[start] = 1;
+            treeStart[start] = ++preorder;
+            treeParent[start] = NONE;
+            callNodes[0] = start;
+            callSlots[0] = 0;
+            int callDepth = 1;
+
+            while (callDepth > 0) {
+                int node = callNodes[callDepth - 1];
+                IntIntHashMap targets = condensedTargets[node];
+                int child = NONE;
+                while (targets != null && child == NONE && callSlots[callDepth - 1] < targets.capacity()) {
+                    int target = targets.keyAt(callSlots[callDepth - 1]++);
+                    if (target >= 0 && visitIndex[target] == 0) {
+                        child = target;
+                    }
+                }
+                if (child != NONE) {
+                    visitIndex[child] = 1;
+                    treeStart[child] = ++preorder;
+                    treeParent[child] = node;
+                    callNodes[callDepth] = child;
+                    callSlots[callDepth++] = 0;
+                } else {
+                    callDepth--;
+                    treeEnd[node] = preorder;
+                    rank[node] = low[node] = postorder++;
+                    if (targets != null) {
+                        for (int slot = 0; slot < targets.capacity(); ++slot) {
+                            int target = targets.keyAt(slot);
+                            if (target >= 0) {
+                                low[node] = Math.min(low[node], low[target]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int root = 0; root < rootOf.length; ++root) {
+            visitIndex[root] = 0;
+        }
+        nextHighRank = postorder;
+        nextLowRank = -1;
+        rankLabelsValid = true;
+        treeLabelsValid = true;
+        searchCost = 0;
+    }
+
+    // ********* reachability *********
+
+    @Override
+    protected boolean isComponentReachable(int sourceRoot, int targetRoot) {
+        if (rankLabelsValid && isExcludedByRanks(sourceRoot, targetRoot)) {
+            return false;
+        }
+        if (treeLabelsValid && isTreeAncestor(sourceRoot, targetRoot)) {
+            return true;
+        }
+        return search(sourceRoot, targetRoot);
+    }
+
+    private boolean isExcludedByRanks(int sourceRoot, int targetRoot) {
+        return rank[sourceRoot] == UNLABELED || rank[targetRoot] == UNLABELED
+                || rank[targetRoot] >= rank[sourceRoot] || low[targetRoot] < low[sourceRoot];
+    }
+
+    private boolean isTreeAncestor(int ancestor, int descendant) {
+        return treeStart[ancestor] != 0 && treeStart[descendant] != 0 && treeStart[ancestor] <= treeStart[descendant]
+                && treeStart[descendant] <= treeEnd[ancestor];
+    }
+
+    /**
+     * Searches the condensed graph from the source component, skipping the components excluded by the labels.
+     */
+    private boolean search(int sourceRoot, int targetRoot) {
+        int size = 0;
+        int head = 0;
+        boolean found = false;
+        queue[size++] = sourceRoot;
+        visitIndex[sourceRoot] = 1;
+        while (head < size && !found) {
+            IntIntHashMap targets = condensedTargets[queue[head++]];
+            for (int slot = 0; targets != null && slot < targets.capacity(); ++slot) {
+                int next = targets.keyAt(slot);
+                if (next < 0 || visitIndex[next] != 0) {
+                    continue;
+                }
+                if (next == targetRoot || (treeLabelsValid && isTreeAncestor(next, targetRoot))) {
+                    found = true;
+                    break;
+                }
+                if (!rankLabelsValid || !isExcludedByRanks(next, targetRoot)) {
+                    visitIndex[next] = 1;
+                    if (size == queue.length) {
+                        queue = Arrays.copyOf(queue, 2 * size);
+                    }
+                    queue[size++] = next;
+                }
+            }
+        }
+        for (int i = 0; i < size; ++i) {
+            visitIndex[queue[i]] = 0;
+        }
+
+        if (!rankLabelsValid || !treeLabelsValid) {
+            searchCost += size;
+            if (searchCost > graph.getAllNodes().size()) {
+                relabel();
+            }
+        }
+        return found;
+    }
+
+    @Override
+    protected int[] getReachableComponents(int root) {
+        return collect(root, condensedTargets);
+    }
+
+    /**
+     * Explores the condensed graph from the given components together, by a multi-source breadth first search.
+     */
+    @Override
+    protected int[][] getReachableComponentsOfEach(int[] roots) {
+        List<Integer> sources = new ArrayList<Integer>(roots.length);
+        for (int root : roots) {
+            sources.add(root);
+        }
+        Map<Integer, Set<Integer>> reachable = BFS.reachableTargetsOfEach(new CondensedGraph(), sources);
+        int[][] result = new int[roots.length][];
+        for (int i = 0; i < roots.length; ++i) {
+            // the condensed graph is acyclic, so a component is never reachable from itself
+            Set<Integer> targets = reachable.get(roots[i]);
+            result[i] = new int[targets.size() + 1];
+            result[i][0] = roots[i];
+            int index = 1;
+            for (Integer target : targets) {
+                result[i][index++] = target;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected int[] getReachingComponents(int root) {
+        return collect(root, condensedSources);
+    }
+
+    /**
+     * @return the given component, followed by the components reachable from it along the given adjacency
+     */
+    private int[] collect(int root, IntIntHashMap[] adjacency) {
+        int size = 0;
+        int head = 0;
+        queue[size++] = root;
+        visitIndex[root] = 1;
+        while (head < size) {
+            IntIntHashMap neighbors = adjacency[queue[head++]];
+            for (int slot = 0; neighbors != null && slot < neighbors.capacity(); ++slot) {
+                int next = neighbors.keyAt(slot);
+                if (next >= 0 && visitIndex[next] == 0) {
+                    visitIndex[next] = 1;
+                    if (size == queue.length) {
+                        queue = Arrays.copyOf(queue, 2 * size);
+                    }
+                    queue[size++] = next;
+                }
+            }
+        }
+        for (int i = 0; i < size; ++i) {
+            visitIndex[queue[i]] = 0;
+        }
+        return Arrays.copyOf(queue, size);
+    }
+
+    /**
+     * Read-only view of the condensed graph, with the components represented by their roots.
+     */
+    private final class CondensedGraph implements IGraphDataSource<Integer> {
+        private static final long serialVersionUID = -3317420584926413047L;
+
+        @Override
+        public void attachObserver(IGraphObserver<Integer> go) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void detachObserver(IGraphObserver<Integer> go) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<Integer> getAllNodes() {
+            Set<Integer> roots = new HashSet<Integer>();
+            for (int id = 0; id < rootOf.length; ++id) {
+                if (rootOf[id] == id) {
+                    roots.add(id);
+                }
+            }
+            return roots;
+        }
+
+        @Override
+        public List<Integer> getTargetNodes(Integer source) {
+            IntIntHashMap targets = condensedTargets[source];
+            if (targets == null) {
+                return null;
+            }
+            List<Integer> result = new ArrayList<Integer>(targets.size());
+            for (int slot = 0; slot < targets.capacity(); ++slot) {
+                int target = targets.keyAt(slot);
+                if (target >= 0) {
+                    result.add(target);
+                }
+            }
+            return result;
+        }
+    }
+
+}
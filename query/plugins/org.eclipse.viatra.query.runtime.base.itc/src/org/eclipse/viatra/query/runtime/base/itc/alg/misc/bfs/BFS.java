@@ -12,8 +12,13 @@
 package org.eclipse.viatra.query.runtime.base.itc.alg.misc.bfs;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.viatra.query.runtime.base.itc.igraph.IBiDirectionalGraphDataSource;
@@ -21,6 +26,11 @@ import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphDataSource;
 
 public class BFS<V> {
 
+    /**
+     * The number of sources explored together by a multi-source search, one bit of a long for each.
+     */
+    private static final int BATCH_SIZE = 64;
+
     /**
      * Performs a breadth first search on the given graph to determine whether source is reachable from target.
      * 
@@ -119,6 +129,130 @@ public class BFS<V> {
         }
     }
 
+    /**
+     * Determines the nodes reachable from each of the given sources, exploring the graph for up to 64 sources at once.
+     * The sources reaching a node are tracked as the bits of a long, so each node is expanded at most once per level
+     * for all of them.
+     * 
+     * @param <V>
+     *            the type parameter of the nodes in the graph
+     * @param graph
+     *            the graph data source
+     * @param sources
+     *            the source nodes
+     * @return the nodes reachable from each source along at least one edge; a source is only reachable from itself if
+     *         it is on a cycle
+     * @since 1.6
+     */
+    public static <V> Map<V, Set<V>> reachableTargetsOfEach(IGraphDataSource<V> graph, Collection<V> sources) {
+        Map<V, Set<V>> result = new HashMap<V, Set<V>>();
+        for (List<V> batch : toBatches(sources)) {
+            result.putAll(new MultiSourceSearch<V>(graph).run(batch));
+        }
+        return result;
+    }
+
+    private static <V> List<List<V>> toBatches(Collection<V> sources) {
+        List<V> distinctSources = new ArrayList<V>(new LinkedHashSet<V>(sources));
+        List<List<V>> batches = new ArrayList<List<V>>();
+        for (int from = 0; from < distinctSources.size(); from += BATCH_SIZE) {
+            batches.add(distinctSources.subList(from, Math.min(from + BATCH_SIZE, distinctSources.size())));
+        }
+        return batches;
+    }
+
+    /**
+     * A breadth first search from at most 64 sources at once, with the nodes numbered in the order of discovery.
+     */
+    private static final class MultiSourceSearch<V> {
+        private final IGraphDataSource<V> graph;
+        private final Map<V, Integer> indices = new HashMap<V, Integer>();
+        private final List<V> nodes = new ArrayList<V>();
+        /**
+         * node index -> the sources that reach the node
+         */
+        private long[] reached = new long[16];
+        /**
+         * node index -> the sources that reach the node for the first time on the next level
+         */
+        private long[] next = new long[16];
+
+        MultiSourceSearch(IGraphDataSource<V> graph) {
+            this.graph = graph;
+        }
+
+        private int indexOf(V node) {
+            Integer index = indices.get(node);
+            if (index == null) {
+                index = nodes.size();
+                indices.put(node, index);
+                nodes.add(node);
+                if (index == reached.length) {
+                    reached = Arrays.copyOf(reached, 2 * index);
+                    next = Arrays.copyOf(next, 2 * index);
+                }
+            }
+            return index;
+        }
+
+        Map<V, Set<V>> run(List<V> sources) {
+            int[] level = new int[sources.size()];
+            long[] levelBits = new long[sources.size()];
+            int levelSize = 0;
+            for (V source : sources) {
+                level[levelSize] = indexOf(source);
+                levelBits[levelSize] = 1L << levelSize;
+                levelSize++;
+            }
+
+            int[] nextLevel = new int[16];
+            while (levelSize > 0) {
+                int nextLevelSize = 0;
+                for (int i = 0; i < levelSize; ++i) {
+                    List<V> targets = graph.getTargetNodes(nodes.get(level[i]));
+                    if (targets == null) {
+                        continue;
+                    }
+                    for (V target : targets) {
+                        int index = indexOf(target);
+                        long newBits = levelBits[i] & ~reached[index];
+                        if (newBits != 0) {
+                            reached[index] |= newBits;
+                            if (next[index] == 0) {
+                                if (nextLevelSize == nextLevel.length) {
+                                    nextLevel = Arrays.copyOf(nextLevel, 2 * nextLevelSize);
+                                }
+                                nextLevel[nextLevelSize++] = index;
+                            }
+                            next[index] |= newBits;
+                        }
+                    }
+                }
+                if (level.length < nextLevelSize) {
+                    level = new int[nextLevel.length];
+                    levelBits = new long[nextLevel.length];
+                }
+                for (int i = 0; i < nextLevelSize; ++i) {
+                    level[i] = nextLevel[i];
+                    levelBits[i] = next[nextLevel[i]];
+                    next[nextLevel[i]] = 0;
+                }
+                levelSize = nextLevelSize;
+            }
+
+            Map<V, Set<V>> result = new HashMap<V, Set<V>>();
+            for (V source : sources) {
+                result.put(source, new HashSet<V>());
+            }
+            for (int index = 0; index < nodes.size(); ++index) {
+                for (long bits = reached[index]; bits != 0; bits &= bits - 1) {
+                    result.get(sources.get(Long.numberOfTrailingZeros(bits))).add(nodes.get(index));
+                }
+            }
+            return result;
+        }
+    }
+
     /**
      * Performs a breadth first search on the given graph and collects all the nodes along the path from source to
      * target if such path exists.
@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.graphimpl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.base.itc.igraph.IBiDirectionalGraphDataSource;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphDataSource;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphObserver;
+
+/**
+ * A graph data source that assigns dense int ids to its nodes, and stores the adjacency of each node in growable int
+ * arrays of (neighbor id, edge multiplicity) pairs, in both directions. Besides the object-based
+ * {@link IGraphDataSource} interface, the adjacency can be queried by node ids, without allocation.
+ *
+ * <p>
+ * Unlike {@link Graph}, the endpoints of an inserted edge are inserted as nodes if necessary, and a deleted node is
+ * removed from the graph after its edges are deleted; its id may be reused by nodes inserted later.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ *
+ * @param <V>
+ *            the type of the nodes in the graph
+ */
+public class IntGraph<V> implements IGraphDataSource<V>, IBiDirectionalGraphDataSource<V> {
+
+    private static final long serialVersionUID = 5386404219549232101L;
+
+    /**
+     * Adjacency lists longer than this are indexed by a hash map, so that their edges are found in constant time.
+     */
+    private static final int INDEX_THRESHOLD = 16;
+
+    /**
+     * The neighbors of a node in one direction, with the multiplicities of the edges.
+     */
+    private static final class Adjacency implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * neighbor ids at even positions, multiplicities at odd positions
+         */
+        int[] entries = new int[4];
+        int size = 0;
+        /**
+         * neighbor id -> position + 1, only for long lists
+         */
+        IntIntHashMap positions = null;
+
+        int indexOf(int neighbor) {
+            if (positions != null) {
+                return positions.get(neighbor) - 1;
+            }
+            for (int i = 0; i < size; ++i) {
+                if (entries[2 * i] == neighbor) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int multiplicity(int neighbor) {
+            int index = indexOf(neighbor);
+            return (index < 0) ? 0 : entries[2 * index + 1];
+        }
+
+        /**
+         * @return the new multiplicity of the edge
+         */
+        int add(int neighbor) {
+            int index = indexOf(neighbor);
+            if (index >= 0) {
+                return ++entries[2 * index + 1];
+            }
+            if (2 * size == entries.length) {
+                entries = Arrays.copyOf(entries, 2 * entries.length);
+            }
+            entries[2 * size] = neighbor;
+            entries[2 * size + 1] = 1;
+            size++;
+            if (positions != null) {
+                positions.put(neighbor, size);
+            } else if (size > INDEX_THRESHOLD) {
+                positions = new IntIntHashMap(2 * size);
+                for (int i = 0; i < size; ++i) {
+                    positions.put(entries[2 * i], i + 1);
+                }
+            }
+            return 1;
+        }
+
+        /**
+         * @return the new multiplicity of the edge, or -1 if the edge was not present
+         */
+        int remove(int neighbor) {
+            int index = indexOf(neighbor);
+            if (index < 0) {
+                return -1;
+            }
+            int multiplicity = --entries[2 * index + 1];
+            if (multiplicity == 0) {
+                size--;
+                if (index != size) {
+                    entries[2 * index] = entries[2 * size];
+                    entries[2 * index + 1] = entries[2 * size + 1];
+                    if (positions != null) {
+                        positions.put(entries[2 * index], index + 1);
+                    }
+                }
+                if (positions != null) {
+                    positions.remove(neighbor);
+                }
+            }
+            return multiplicity;
+        }
+    }
+
+    private final Map<V, Integer> idsOfNodes = new HashMap<V, Integer>();
+    private Object[] nodesOfIds = new Object[16];
+    private Adjacency[] outgoing = new Adjacency[16];
+    private Adjacency[] incoming = new Adjacency[16];
+    private int idBound = 0;
+    private int[] freeIds = new int[16];
+    private int freeIdCount = 0;
+    private final List<IGraphObserver<V>> observers = new ArrayList<IGraphObserver<V>>();
+
+    // ********* ids *********
+
+    /**
+     * @return the id of the given node, or -1 if it is not in the graph
+     */
+    public int getNodeId(V node) {
+        Integer id = idsOfNodes.get(node);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * @return the node with the given id, or null if there is no such node
+     */
+    @SuppressWarnings("unchecked")
+    public V getNode(int id) {
+        return (id < 0 || id >= idBound) ? null : (V) nodesOfIds[id];
+    }
+
+    /**
+     * @return an upper bound (exclusive) of the ids of the nodes currently in the graph
+     */
+    public int getNodeIdBound() {
+        return idBound;
+    }
+
+    private int acquireId(V node) {
+        int id;
+        if (freeIdCount > 0) {
+            id = freeIds[--freeIdCount];
+        } else {
+            id = idBound++;
+            if (id == nodesOfIds.length) {
+                nodesOfIds = Arrays.copyOf(nodesOfIds, 2 * id);
+                outgoing = Arrays.copyOf(outgoing, 2 * id);
+                incoming = Arrays.copyOf(incoming, 2 * id);
+            }
+        }
+        nodesOfIds[id] = node;
+        idsOfNodes.put(node, id);
+        return id;
+    }
+
+    private void releaseId(int id) {
+        idsOfNodes.remove(nodesOfIds[id]);
+        nodesOfIds[id] = null;
+        outgoing[id] = null;
+        incoming[id] = null;
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, 2 * freeIdCount);
+        }
+        freeIds[freeIdCount++] = id;
+    }
+
+    // ********* updates *********
+
+    public void insertNode(V node) {
+        if (!idsOfNodes.containsKey(node)) {
+            acquireId(node);
+            for (IGraphObserver<V> go : this.observers) {
+                go.nodeInserted(node);
+            }
+        }
+    }
+
+    public void deleteNode(V node) {
+        int id = getNodeId(node);
+        if (id < 0) {
+            return;
+        }
+        while (incoming[id] != null && incoming[id].size > 0) {
+            V source = getNode(incoming[id].entries[2 * (incoming[id].size - 1)]);
+            deleteEdge(source, node);
+        }
+        while (outgoing[id] != null && outgoing[id].size > 0) {
+            V target = getNode(outgoing[id].entries[2 * (outgoing[id].size - 1)]);
+            deleteEdge(node, target);
+        }
+        for (IGraphObserver<V> go : this.observers) {
+            go.nodeDeleted(node);
+        }
+        releaseId(id);
+    }
+
+    public void insertEdge(V source, V target) {
+        insertNode(source);
+        insertNode(target);
+        int sourceId = idsOfNodes.get(source);
+        int targetId = idsOfNodes.get(target);
+        if (outgoing[sourceId] == null) {
+            outgoing[sourceId] = new Adjacency();
+        }
+        outgoing[sourceId].add(targetId);
+        if (incoming[targetId] == null) {
+            incoming[targetId] = new Adjacency();
+        }
+        incoming[targetId].add(sourceId);
+
+        for (IGraphObserver<V> go : this.observers) {
+            go.edgeInserted(source, target);
+        }
+    }
+
+    public void deleteEdge(V source, V target) {
+        int sourceId = getNodeId(source);
+        int targetId = getNodeId(target);
+        if (sourceId < 0 || targetId < 0 || outgoing[sourceId] == null || outgoing[sourceId].remove(targetId) < 0) {
+            return;
+        }
+        if (outgoing[sourceId].size == 0) {
+            outgoing[sourceId] = null;
+        }
+        incoming[targetId].remove(sourceId);
+        if (incoming[targetId].size == 0) {
+            incoming[targetId] = null;
+        }
+
+        for (IGraphObserver<V> go : this.observers) {
+            go.edgeDeleted(source, target);
+        }
+    }
+
+    @Override
+    public void attachObserver(IGraphObserver<V> go) {
+        this.observers.add(go);
+    }
+
+    @Override
+    public void detachObserver(IGraphObserver<V> go) {
+        this.observers.remove(go);
+    }
+
+    // ********* queries by id *********
+
+    /**
+     * @return the number of distinct targets of the edges starting from the node with the given id
+     */
+    public int getTargetCount(int sourceId) {
+        return (outgoing[sourceId] == null) ? 0 : outgoing[sourceId].size;
+    }
+
+    /**
+     * @return the id of the target with the given index, from 0 to {@link #getTargetCount(int)}
+     */
+    public int getTargetId(int sourceId, int index) {
+        return outgoing[sourceId].entries[2 * index];
+    }
+
+    /**
+     * @return the number of edges to the target with the given index, from 0 to {@link #getTargetCount(int)}
+     */
+    public int getTargetMultiplicity(int sourceId, int index) {
+        return outgoing[sourceId].entries[2 * index + 1];
+    }
+
+    /**
+     * @return the number of distinct sources of the edges ending in the node with the given id
+     */
+    public int getSourceCount(int targetId) {
+        return (incoming[targetId] == null) ? 0 : incoming[targetId].size;
+    }
+
+    /**
+     * @return the id of the source with the given index, from 0 to {@link #getSourceCount(int)}
+     */
+    public int getSourceId(int targetId, int index) {
+        return incoming[targetId].entries[2 * index];
+    }
+
+    /**
+     * @return the number of edges from the source with the given index, from 0 to {@link #getSourceCount(int)}
+     */
+    public int getSourceMultiplicity(int targetId, int index) {
+        return incoming[targetId].entries[2 * index + 1];
+    }
+
+    /**
+     * @return the number of edges between the nodes with the given ids
+     */
+    public int getEdgeMultiplicity(int sourceId, int targetId) {
+        return (outgoing[sourceId] == null) ? 0 : outgoing[sourceId].multiplicity(targetId);
+    }
+
+    // ********* queries by node *********
+
+    @Override
+    public Set<V> getAllNodes() {
+        return Collections.unmodifiableSet(idsOfNodes.keySet());
+    }
+
+    @Override
+    public List<V> getTargetNodes(V source) {
+        int id = getNodeId(source);
+        return (id < 0) ? null : getNeighbors(outgoing[id]);
+    }
+
+    @Override
+    public List<V> getSourceNodes(V target) {
+        int id = getNodeId(target);
+        return (id < 0) ? null : getNeighbors(incoming[id]);
+    }
+
+    /**
+     * @return the neighbors, each repeated as many times as the multiplicity of the edge, or null if there are none
+     */
+    private List<V> getNeighbors(Adjacency adjacency) {
+        if (adjacency == null) {
+            return null;
+        }
+        List<V> result = new ArrayList<V>(adjacency.size);
+        for (int i = 0; i < adjacency.size; ++i) {
+            V neighbor = getNode(adjacency.entries[2 * i]);
+            for (int j = 0; j < adjacency.entries[2 * i + 1]; ++j) {
+                result.add(neighbor);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("nodes = ");
+        for (V n : idsOfNodes.keySet()) {
+            sb.append(n.toString() + " ");
+        }
+        sb.append(" edges = ");
+        for (int source = 0; source < idBound; ++source) {
+            for (int i = 0; i < getTargetCount(source); ++i) {
+                for (int j = 0; j < getTargetMultiplicity(source, i); ++j) {
+                    sb.append("(" + getNode(source) + "," + getNode(getTargetId(source, i)) + ") ");
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
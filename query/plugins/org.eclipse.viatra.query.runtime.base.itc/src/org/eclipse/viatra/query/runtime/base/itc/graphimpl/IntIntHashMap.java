@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.graphimpl;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A hash map from non-negative int keys to int values, using open addressing with linear probing, without boxing.
+ * Absent keys are mapped to 0.
+ *
+ * <p>
+ * Entries can be enumerated without allocation by iterating over the slots from 0 to {@link #capacity()}, and
+ * skipping the slots whose {@link #keyAt(int)} is negative. The map must not be modified during such an iteration.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public final class IntIntHashMap implements Serializable {
+
+    private static final long serialVersionUID = -3178533316291850207L;
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size = 0;
+
+    public IntIntHashMap() {
+        this(4);
+    }
+
+    /**
+     * @param expectedSize
+     *            the number of entries the map should be able to hold without resizing
+     */
+    public IntIntHashMap(int expectedSize) {
+        int capacity = 8;
+        while (capacity * 2 < expectedSize * 3) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+    }
+
+    private int slotOf(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (keys.length - 1);
+    }
+
+    /**
+     * @return the slot of the key, or the free slot where it would be inserted
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return key >= 0 && keys[find(key)] == key;
+    }
+
+    /**
+     * @return the value mapped to the key, or 0 if the key is absent
+     */
+    public int get(int key) {
+        return values[find(key)];
+    }
+
+    /**
+     * Maps the key to the given value; a value of 0 removes the key.
+     */
+    public void put(int key, int value) {
+        if (value == 0) {
+            remove(key);
+            return;
+        }
+        int slot = find(key);
+        if (keys[slot] == FREE) {
+            insertAt(slot, key, value);
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    /**
+     * Adds the given delta to the value of the key; the key is removed if the new value is 0.
+     *
+     * @return the new value of the key
+     */
+    public int add(int key, int delta) {
+        int slot = find(key);
+        if (keys[slot] == FREE) {
+            if (delta != 0) {
+                insertAt(slot, key, delta);
+            }
+            return delta;
+        }
+        int value = values[slot] + delta;
+        if (value == 0) {
+            removeAt(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return the value that was mapped to the key, or 0 if the key was absent
+     */
+    public int remove(int key) {
+        int slot = find(key);
+        if (keys[slot] == FREE) {
+            return 0;
+        }
+        int value = values[slot];
+        removeAt(slot);
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * @return a new array of the keys of the map
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int index = 0;
+        for (int slot = 0; slot < keys.length; ++slot) {
+            if (keys[slot] != FREE) {
+                result[index++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of slots of the map
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return the key stored in the given slot, or a negative number if the slot is free
+     */
+    public int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @return the value stored in the given slot
+     */
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private void insertAt(int slot, int key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key " + key);
+        }
+        if (3 * (size + 1) > 2 * keys.length) {
+            rehash(2 * keys.length);
+            slot = find(key);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Frees the given slot, shifting back the entries of the same probe sequence, so that no tombstones are needed.
+     */
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != FREE) {
+            int ideal = slotOf(keys[next]);
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = FREE;
+        values[hole] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; ++slot) {
+            if (oldKeys[slot] != FREE) {
+                int newSlot = find(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int slot = 0; slot < keys.length; ++slot) {
+            if (keys[slot] != FREE) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(keys[slot]).append('=').append(values[slot]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -11,6 +11,8 @@
 
 package org.eclipse.viatra.query.runtime.base.itc.igraph;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.viatra.query.runtime.base.itc.alg.misc.IGraphPathFinder;
@@ -50,6 +52,17 @@ public interface ITcDataSource<V> {
      */
     public Set<V> getAllReachableTargets(V source);
 
+    /**
+     * Returns the nodes which are reachable from each of the source nodes. Implementations may answer the query for
+     * all the sources at once, which is cheaper than calling {@link #getAllReachableTargets(Object)} for each of them.
+     * 
+     * @param sources
+     *            the source nodes
+     * @return the map from each source node to the set of its target nodes
+     * @since 1.6
+     */
+    public Map<V, Set<V>> getAllReachableTargetsOfEach(Collection<V> sources);
+
     /**
      * Returns all nodes from which the target node is reachable.
      * 
@@ -55,6 +55,24 @@ public class BaseIndexOptions {
      * By default, base indices will be constructed with dynamic EMF mode set as false.
      */
     protected static final boolean DYNAMIC_EMF_MODE_DEFAULT = false;
+    /**
+     * 
+     * By default, base indices will store feature values in hash-based maps.
+     * @since 1.6
+     */
+    protected static final boolean COLUMNAR_FEATURE_STORAGE_DEFAULT = false;
+    /**
+     * 
+     * By default, base indices will traverse the model on a single thread.
+     * @since 1.6
+     */
+    protected static final boolean PARALLEL_TRAVERSAL_DEFAULT = false;
+    /**
+     * 
+     * By default, base indices will only index the registered features.
+     * @since 1.6
+     */
+    protected static final boolean ADAPTIVE_FEATURE_INDEXING_DEFAULT = false;
 
     protected boolean dynamicEMFMode = DYNAMIC_EMF_MODE_DEFAULT;
     protected boolean traverseOnlyWellBehavingDerivedFeatures = TRAVERS_ONLY_WELLBEHAVING_DERIVED_FEATURES_DEFAULT;
@@ -65,6 +83,18 @@ public class BaseIndexOptions {
      * @since 1.5
      */
     protected IBaseIndexFeatureFilter featureFilterConfiguration;
+    /**
+     * @since 1.6
+     */
+    protected boolean columnarFeatureStorage = COLUMNAR_FEATURE_STORAGE_DEFAULT;
+    /**
+     * @since 1.6
+     */
+    protected boolean parallelTraversal = PARALLEL_TRAVERSAL_DEFAULT;
+    /**
+     * @since 1.6
+     */
+    protected boolean adaptiveFeatureIndexing = ADAPTIVE_FEATURE_INDEXING_DEFAULT;
 
     /**
      * Creates a base index options with the default values.
@@ -163,6 +193,81 @@ public class BaseIndexOptions {
     }
     
 
+    /**
+     * Returns a copy of the configuration with columnar feature storage turned on or off. In columnar mode, the values
+     * of structural features are stored in compact int arrays instead of nested hash maps, which significantly reduces
+     * the memory footprint of large indexes, at the cost of slower updates. Furthermore, the sets and maps returned by
+     * the feature queries of the index are snapshots instead of live views.
+     * 
+     * @param columnarFeatureStorage
+     * @since 1.6
+     */
+    public BaseIndexOptions withColumnarFeatureStorage(boolean columnarFeatureStorage) {
+        BaseIndexOptions result = copy();
+        result.columnarFeatureStorage = columnarFeatureStorage;
+        return result;
+    }
+
+    /**
+     * @return whether the values of structural features are stored in columnar form
+     * @since 1.6
+     */
+    public boolean isColumnarFeatureStorage() {
+        return columnarFeatureStorage;
+    }
+
+    /**
+     * Returns a copy of the configuration with parallel model traversal turned on or off. In parallel mode, the
+     * traversals of the base index (e.g. upon adding a root or registering new types) visit the contents of separate
+     * resources on multiple threads; the index itself is still updated on the calling thread.
+     * 
+     * <p>
+     * The model and the filters of the base index are accessed concurrently in this mode, therefore the model must
+     * not be modified during the traversal, the metamodels should be fully initialized, and the filters must be
+     * thread-safe. Proxies are not resolved by the worker threads.
+     * 
+     * @param parallelTraversal
+     * @since 1.6
+     */
+    public BaseIndexOptions withParallelTraversal(boolean parallelTraversal) {
+        BaseIndexOptions result = copy();
+        result.parallelTraversal = parallelTraversal;
+        return result;
+    }
+
+    /**
+     * @return whether the model is traversed on multiple threads
+     * @since 1.6
+     */
+    public boolean isParallelTraversal() {
+        return parallelTraversal;
+    }
+
+    /**
+     * Returns a copy of the configuration with adaptive feature indexing turned on or off. In adaptive mode, queries
+     * about features that are not registered are answered by navigating the model directly instead of returning empty
+     * results; features that are queried frequently are registered automatically, and features registered this way
+     * are unregistered again if they are not queried for a long time. Queries never change the registered features
+     * themselves; the changes are applied when the next coalesced traversal block starts (see
+     * {@link NavigationHelper#coalesceTraversals(java.util.concurrent.Callable)}), e.g. when types are registered.
+     * 
+     * @param adaptiveFeatureIndexing
+     * @since 1.6
+     */
+    public BaseIndexOptions withAdaptiveFeatureIndexing(boolean adaptiveFeatureIndexing) {
+        BaseIndexOptions result = copy();
+        result.adaptiveFeatureIndexing = adaptiveFeatureIndexing;
+        return result;
+    }
+
+    /**
+     * @return whether features are indexed adaptively, based on the queries
+     * @since 1.6
+     */
+    public boolean isAdaptiveFeatureIndexing() {
+        return adaptiveFeatureIndexing;
+    }
+
     /**
      * @return whether the base index option has dynamic EMF mode set
      */
@@ -227,6 +332,9 @@ public class BaseIndexOptions {
         baseIndexOptions.notifierFilterConfiguration = this.notifierFilterConfiguration;
         baseIndexOptions.resourceFilterConfiguration = this.resourceFilterConfiguration;
         baseIndexOptions.featureFilterConfiguration = this.featureFilterConfiguration;
+        baseIndexOptions.columnarFeatureStorage = this.columnarFeatureStorage;
+        baseIndexOptions.parallelTraversal = this.parallelTraversal;
+        baseIndexOptions.adaptiveFeatureIndexing = this.adaptiveFeatureIndexing;
         return baseIndexOptions;
     }
 
@@ -250,6 +358,9 @@ public class BaseIndexOptions {
 		result = prime * result
 				+ (traverseOnlyWellBehavingDerivedFeatures ? 1231 : 1237);
 		result = prime * result + (1231 + wildcardMode.ordinal() * 6);
+		result = prime * result + (columnarFeatureStorage ? 1231 : 1237);
+		result = prime * result + (parallelTraversal ? 1231 : 1237);
+		result = prime * result + (adaptiveFeatureIndexing ? 1231 : 1237);
 		return result;
 	}
 
@@ -290,6 +401,12 @@ public class BaseIndexOptions {
 			return false;
 		if (wildcardMode != other.wildcardMode)
 			return false;
+		if (columnarFeatureStorage != other.columnarFeatureStorage)
+			return false;
+		if (parallelTraversal != other.parallelTraversal)
+			return false;
+		if (adaptiveFeatureIndexing != other.adaptiveFeatureIndexing)
+			return false;
 		return true;
 	}
     
@@ -303,6 +420,9 @@ public class BaseIndexOptions {
     	appendModifier(sb, notifierFilterConfiguration, null, "notifierFilter=");
     	appendModifier(sb, resourceFilterConfiguration, null, "resourceFilter=");
     	appendModifier(sb, featureFilterConfiguration, null, "featureFilterConfiguration=");
+    	appendModifier(sb, columnarFeatureStorage, COLUMNAR_FEATURE_STORAGE_DEFAULT, "columnarFeatureStorage");
+    	appendModifier(sb, parallelTraversal, PARALLEL_TRAVERSAL_DEFAULT, "parallelTraversal");
+    	appendModifier(sb, adaptiveFeatureIndexing, ADAPTIVE_FEATURE_INDEXING_DEFAULT, "adaptiveFeatureIndexing");
     	final String result = sb.toString();
 		return result.isEmpty() ? "defaults" : result;
     }
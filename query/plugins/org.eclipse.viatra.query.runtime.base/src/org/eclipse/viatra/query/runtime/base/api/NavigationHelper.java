@@ -11,6 +11,9 @@
 
 package org.eclipse.viatra.query.runtime.base.api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.Map;
@@ -658,6 +661,50 @@ public interface NavigationHelper {
      */
     public <V> V coalesceTraversals(Callable<V> callable) throws InvocationTargetException;
 
+    /**
+     * The given callback will be executed, and the notifications of instance, feature and data type listeners will be
+     * delayed until the execution is done. Changes that cancel each other out during the execution (e.g. an element
+     * removed and added back, or moved to a different container) are not delivered at all; the net changes are
+     * delivered at the end, deletions first. The index itself is updated immediately, so the listeners observe the
+     * state at the end of the execution.
+     * 
+     * <p>
+     * Useful for wrapping the execution of large model manipulating commands.
+     * 
+     * @param callable
+     * @since 1.6
+     */
+    public <V> V coalesceNotifications(Callable<V> callable) throws InvocationTargetException;
+
+    /**
+     * Writes a snapshot of the index into the given stream, which can be loaded later by
+     * {@link #loadSnapshot(InputStream)} to build the index of the same model without traversing its unchanged
+     * resources. Model elements are identified by their resource URIs and URI fragments. The stream is not closed.
+     * 
+     * <p>
+     * Writing a snapshot takes a traversal of the model, without modifying the index. Note that loading a snapshot is
+     * not necessarily faster than traversing resources that are already in memory, as each recorded model element has
+     * to be looked up by its URI fragment.
+     * 
+     * @throws IllegalStateException
+     *             if the index is in wildcard mode
+     * @since 1.6
+     */
+    public void saveSnapshot(OutputStream out) throws IOException;
+
+    /**
+     * Loads a snapshot written by {@link #saveSnapshot(OutputStream)}, registering the types observed at that time.
+     * The snapshot is used for the resources that have not changed since then: resources that track modifications
+     * (see {@link org.eclipse.emf.ecore.resource.Resource#setTrackingModification(boolean)}), are not modified, and
+     * have the same time stamp. All other resources are traversed. Must be invoked after the model roots are added,
+     * before any types are registered. The stream is not closed.
+     * 
+     * @throws IllegalStateException
+     *             if the index is in wildcard mode or there are already observed types
+     * @since 1.6
+     */
+    public void loadSnapshot(InputStream in) throws IOException;
+
     /**
      * Execute the given runnable after traversal. It is guaranteed that the runnable is executed as soon as
      * the indexing is finished. The callback is executed only once, then is removed from the callback queue.
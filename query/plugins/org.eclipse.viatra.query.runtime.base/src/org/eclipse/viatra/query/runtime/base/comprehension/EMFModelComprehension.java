@@ -157,16 +157,24 @@ public class EMFModelComprehension {
     }
 
     public void traverseResourceIfUnfiltered(EMFVisitor visitor, Resource resource) {
-		final IBaseIndexResourceFilter resourceFilter = options.getResourceFilterConfiguration();
-		if (resourceFilter != null && resourceFilter.isResourceFiltered(resource))
-			return;
-		final IBaseIndexObjectFilter objectFilter = options.getObjectFilterConfiguration();
-		if (objectFilter != null && objectFilter.isFiltered(resource))
+		if (isFiltered(resource))
 			return;
 		
 		traverseResource(visitor, resource);
 	}
 
+    /**
+     * @return true if the resource is excluded from traversals by the resource or object filter of the base index
+     * @since 1.6
+     */
+    public boolean isFiltered(Resource resource) {
+		final IBaseIndexResourceFilter resourceFilter = options.getResourceFilterConfiguration();
+		if (resourceFilter != null && resourceFilter.isResourceFiltered(resource))
+			return true;
+		final IBaseIndexObjectFilter objectFilter = options.getObjectFilterConfiguration();
+		return objectFilter != null && objectFilter.isFiltered(resource);
+	}
+
     public void traverseResource(EMFVisitor visitor, Resource source) {
         if (source == null)
             return;
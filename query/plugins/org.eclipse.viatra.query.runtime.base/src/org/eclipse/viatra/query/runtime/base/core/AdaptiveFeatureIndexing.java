@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+import org.eclipse.viatra.query.runtime.base.comprehension.EMFVisitor;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Answers feature queries of a {@link NavigationHelperImpl} for features that are not indexed, by navigating the model
+ * directly. Accesses are counted per feature; features accessed frequently are promoted to full indexing, while
+ * features promoted this way are demoted again (and their index released) if they are not accessed for a long time.
+ *
+ * <p>
+ * Forward navigation is answered by reading the feature of the source object, and inverse navigation of references
+ * with an opposite or of containment references by reading the opposite direction. All other queries require a
+ * traversal of the whole model, therefore they count as several accesses.
+ *
+ * <p>
+ * Accesses may be recorded by multiple threads, and they never modify the index. Promotions and demotions are only
+ * decided by accesses, and they are applied by {@link #maintain(Map)} when the next outermost coalesced traversal block
+ * starts (see {@link NavigationHelperImpl#coalesceTraversals(java.util.concurrent.Callable)}), on the thread
+ * maintaining the index.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class AdaptiveFeatureIndexing {
+
+    /**
+     * The number of accesses after which a feature is promoted to full indexing.
+     */
+    static final int PROMOTION_THRESHOLD = 16;
+    /**
+     * The number of accesses a query traversing the whole model counts as.
+     */
+    static final int TRAVERSAL_WEIGHT = PROMOTION_THRESHOLD / 2;
+    /**
+     * The number of feature accesses (of any feature) after which a promoted feature is demoted, if it was not
+     * accessed in the meantime.
+     */
+    static final long DEMOTION_AGE = 1 << 16;
+
+    private static final class FeatureUsage {
+        final EStructuralFeature feature;
+        final AtomicInteger accesses = new AtomicInteger();
+        volatile long lastAccess = 0;
+        /**
+         * true if the feature is indexed because it was promoted, and may be demoted; only accessed on the thread
+         * maintaining the index
+         */
+        boolean promoted = false;
+
+        FeatureUsage(EStructuralFeature feature) {
+            this.feature = feature;
+        }
+    }
+
+    private final NavigationHelperImpl navigationHelper;
+    private final ConcurrentMap<Object, FeatureUsage> usages = new ConcurrentHashMap<Object, FeatureUsage>();
+    /**
+     * the keys of the features that reached the promotion threshold since the last maintenance
+     */
+    private final Set<Object> pendingPromotions = Collections
+            .newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    /**
+     * the total number of feature accesses so far
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    AdaptiveFeatureIndexing(NavigationHelperImpl navigationHelper) {
+        this.navigationHelper = navigationHelper;
+    }
+
+    /**
+     * Records an access to the given feature, and decides whether it shall be answered using the index. The feature is
+     * not promoted right away, only marked for promotion at the next maintenance. May be called from any thread.
+     *
+     * @param inverse
+     *            true if the access navigates backwards or enumerates all values of the feature
+     * @return true if the feature is indexed, false if the query has to be answered by direct navigation
+     */
+    boolean useIndex(EStructuralFeature feature, boolean inverse) {
+        if (navigationHelper.isInWildcardMode()) {
+            return true;
+        }
+        Object featureKey = navigationHelper.metaStore.toKey(feature);
+        FeatureUsage usage = usages.get(featureKey);
+        if (usage == null) {
+            FeatureUsage newUsage = new FeatureUsage(feature);
+            usage = usages.putIfAbsent(featureKey, newUsage);
+            if (usage == null) {
+                usage = newUsage;
+            }
+        }
+        usage.lastAccess = clock.incrementAndGet();
+
+        if (isIndexed(featureKey)) {
+            return true;
+        }
+        int weight = (inverse && !hasNavigableInverse(feature)) ? TRAVERSAL_WEIGHT : 1;
+        if (usage.accesses.addAndGet(weight) >= PROMOTION_THRESHOLD) {
+            pendingPromotions.add(featureKey);
+        }
+        return false;
+    }
+
+    /**
+     * Notifies that the given features were registered by a client, so they must not be demoted.
+     */
+    void featuresRegistered(Collection<? extends EStructuralFeature> features) {
+        if (features != null) {
+            for (EStructuralFeature feature : features) {
+                Object featureKey = navigationHelper.metaStore.toKey(feature);
+                pendingPromotions.remove(featureKey);
+                FeatureUsage usage = usages.get(featureKey);
+                if (usage != null) {
+                    usage.promoted = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Demotes the features that were not accessed for a long time, then requests the indexing of the features marked
+     * for promotion. Must be called at the start of an outermost coalesced traversal block, on the thread maintaining
+     * the index.
+     *
+     * @param delayedFeatures
+     *            the features to be indexed at the end of the coalesced traversal block, extended by the promoted
+     *            features
+     */
+    void maintain(Map<Object, IndexingLevel> delayedFeatures) {
+        long now = clock.get();
+        for (Iterator<Map.Entry<Object, FeatureUsage>> iterator = usages.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<Object, FeatureUsage> entry = iterator.next();
+            FeatureUsage usage = entry.getValue();
+            if (now - usage.lastAccess > DEMOTION_AGE) {
+                if (usage.promoted && !navigationHelper.getFeatureListeners().containsRow(entry.getKey())) {
+                    navigationHelper.unregisterEStructuralFeatures(ImmutableSet.of(usage.feature));
+                    iterator.remove();
+                } else if (!usage.promoted) {
+                    // forget old accesses of features that are not indexed
+                    iterator.remove();
+                }
+            }
+        }
+
+        for (Iterator<Object> iterator = pendingPromotions.iterator(); iterator.hasNext();) {
+            Object featureKey = iterator.next();
+            iterator.remove();
+            FeatureUsage usage = usages.get(featureKey);
+            if (usage != null && !isIndexed(featureKey)) {
+                usage.promoted = true;
+                delayedFeatures.put(featureKey, IndexingLevel.FULL);
+            }
+        }
+    }
+
+    private boolean isIndexed(Object featureKey) {
+        return IndexingLevel.FULL == navigationHelper.observedFeatures.get(featureKey);
+    }
+
+    private static boolean hasNavigableInverse(EStructuralFeature feature) {
+        return feature instanceof EReference
+                && (((EReference) feature).isContainment() || ((EReference) feature).getEOpposite() != null);
+    }
+
+    // ********* direct navigation *********
+
+    /**
+     * @return the values of the feature of the given source object
+     */
+    Set<Object> getValues(EObject source, EStructuralFeature feature) {
+        if (!source.eClass().getEAllStructuralFeatures().contains(feature)) {
+            return Collections.emptySet();
+        }
+        Object value = source.eGet(feature);
+        if (feature.isMany()) {
+            Set<Object> result = new LinkedHashSet<Object>();
+            for (Object element : (Collection<?>) value) {
+                if (element != null) {
+                    result.add(toValue(feature, element));
+                }
+            }
+            return result;
+        } else {
+            return (value == null) ? Collections.emptySet() : Collections.singleton(toValue(feature, value));
+        }
+    }
+
+    /**
+     * @return the objects holding the given value in the given feature
+     */
+    Set<EObject> getHolders(EStructuralFeature feature, Object value) {
+        if (feature instanceof EReference && value instanceof EObject) {
+            EReference reference = (EReference) feature;
+            EObject target = (EObject) value;
+            if (reference.isContainment()) {
+                return (reference.equals(target.eContainmentFeature()))
+                        ? Collections.singleton(target.eContainer()) : Collections.<EObject> emptySet();
+            } else if (reference.getEOpposite() != null) {
+                Set<EObject> result = new HashSet<EObject>();
+                for (Object source : getValues(target, reference.getEOpposite())) {
+                    result.add((EObject) source);
+                }
+                return result;
+            }
+        }
+        Set<EObject> result = new HashSet<EObject>();
+        for (Map.Entry<EObject, Set<Object>> entry : getHolderToValues(feature).entrySet()) {
+            if (entry.getValue().contains(value)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Traverses the model to collect the values of the given feature.
+     *
+     * @return the values of the feature for each holder
+     */
+    Map<EObject, Set<Object>> getHolderToValues(final EStructuralFeature feature) {
+        final Object featureKey = navigationHelper.metaStore.toKey(feature);
+        final Map<EObject, Set<Object>> result = new LinkedHashMap<EObject, Set<Object>>();
+        EMFVisitor visitor = new EMFVisitor(true) {
+            @Override
+            public boolean pruneFeature(EStructuralFeature visitedFeature) {
+                return !featureKey.equals(navigationHelper.metaStore.toKey(visitedFeature));
+            }
+
+            @Override
+            public boolean attemptProxyResolutions(EObject source, EReference reference) {
+                return false;
+            }
+
+            @Override
+            public void visitAttribute(EObject source, EAttribute attribute, Object target) {
+                record(source, toValue(attribute, target));
+            }
+
+            @Override
+            public void visitInternalContainment(EObject source, EReference reference, EObject target) {
+                record(source, target);
+            }
+
+            @Override
+            public void visitNonContainmentReference(EObject source, EReference reference, EObject target) {
+                record(source, target);
+            }
+
+            private void record(EObject source, Object value) {
+                Set<Object> values = result.get(source);
+                if (values == null) {
+                    values = new LinkedHashSet<Object>();
+                    result.put(source, values);
+                }
+                values.add(value);
+            }
+        };
+        for (Notifier root : new ArrayList<Notifier>(navigationHelper.modelRoots)) {
+            navigationHelper.getComprehension().traverseModel(visitor, root);
+        }
+        return result;
+    }
+
+    private Object toValue(EStructuralFeature feature, Object value) {
+        return (feature instanceof EAttribute) ? navigationHelper.toCanonicalValueRepresentation(value) : value;
+    }
+
+}
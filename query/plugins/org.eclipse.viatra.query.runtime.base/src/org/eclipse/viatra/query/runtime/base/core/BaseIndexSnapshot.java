@@ -0,0 +1,653 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+
+/**
+ * Saves and restores the contents of a {@link NavigationHelperImpl} in a compact binary form.
+ *
+ * <p>
+ * The snapshot consists of the observed types and of a section for each resource of the model roots. A section lists
+ * the index insertions a traversal of the resource would perform, with model elements identified by resource URI and
+ * URI fragment. When the snapshot is loaded, the section of a resource is reused if neither the resource nor any of
+ * the resources referenced from the section changed since the snapshot was taken; all other resources are traversed.
+ * A resource is considered unchanged only if it tracks modifications (see {@link Resource#isTrackingModification()}),
+ * it is not modified, and it has the same non-zero time stamp, as the modified flag of a resource without modification
+ * tracking says nothing about changes made in memory.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class BaseIndexSnapshot {
+
+    private static final int MAGIC = 0x56424958;
+    private static final int VERSION = 1;
+
+    private static final byte CLASS = 0;
+    private static final byte FEATURE = 1;
+    private static final byte DATA_TYPE = 2;
+
+    private static final byte INSTANCE_OP = 0;
+    private static final byte FEATURE_OP = 1;
+    private static final byte DATA_TYPE_OP = 2;
+    private static final byte CLASSIFIER_STATISTICS_OP = 3;
+    private static final byte FEATURE_STATISTICS_OP = 4;
+    private static final byte END_OP = 5;
+
+    private static final byte OBJECT_VALUE = 0;
+    private static final byte LITERAL_VALUE = 1;
+    private static final byte NULL_VALUE = 2;
+
+    private BaseIndexSnapshot() {
+    }
+
+    // ********* writing *********
+
+    static void write(NavigationHelperImpl navigationHelper, OutputStream out) throws IOException {
+        checkNoWildcard(navigationHelper);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+
+        EMFBaseIndexMetaStore metaStore = navigationHelper.metaStore;
+        writeObservations(data, CLASS, navigationHelper.directlyObservedClasses, metaStore);
+        writeObservations(data, FEATURE, navigationHelper.observedFeatures, metaStore);
+        writeObservations(data, DATA_TYPE, navigationHelper.observedDataTypes, metaStore);
+
+        for (Resource resource : collectResources(navigationHelper)) {
+            if (resource.getURI() == null) {
+                // cannot be identified on load, will be traversed
+                continue;
+            }
+            SectionWriter section = new SectionWriter(navigationHelper, resource);
+            SnapshotVisitor visitor = new SnapshotVisitor(navigationHelper, section);
+            navigationHelper.getComprehension().traverseResource(visitor, resource);
+            data.writeBoolean(true);
+            section.writeTo(data);
+        }
+        data.writeBoolean(false);
+        data.flush();
+    }
+
+    private static void writeObservations(DataOutputStream data, byte kind, Map<Object, IndexingLevel> observations,
+            EMFBaseIndexMetaStore metaStore) throws IOException {
+        data.writeInt(observations.size());
+        for (Entry<Object, IndexingLevel> observation : observations.entrySet()) {
+            data.writeByte(kind);
+            if (kind == FEATURE) {
+                EStructuralFeature feature = metaStore.getKnownFeatureForKey(observation.getKey());
+                data.writeUTF(feature.getEContainingClass().getEPackage().getNsURI());
+                data.writeUTF(feature.getEContainingClass().getName());
+                data.writeUTF(feature.getName());
+            } else {
+                EClassifier classifier = metaStore.getKnownClassifierForKey(observation.getKey());
+                data.writeUTF(classifier.getEPackage().getNsURI());
+                data.writeUTF(classifier.getName());
+            }
+            data.writeUTF(observation.getValue().name());
+        }
+    }
+
+    /**
+     * Records the index insertions of a single resource.
+     */
+    private static final class SectionWriter {
+        private final EMFBaseIndexMetaStore metaStore;
+        private final String uri;
+        private final long timeStamp;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream body = new DataOutputStream(bytes);
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+        private final Set<String> dependencies = new LinkedHashSet<String>();
+        /**
+         * false if some insertion could not be encoded, in which case the section cannot be reused
+         */
+        private boolean complete = true;
+
+        SectionWriter(NavigationHelperImpl navigationHelper, Resource resource) {
+            this.metaStore = navigationHelper.metaStore;
+            this.uri = resource.getURI().toString();
+            this.timeStamp = resource.getTimeStamp();
+        }
+
+        void writeTo(DataOutputStream data) throws IOException {
+            body.writeByte(END_OP);
+            body.flush();
+            data.writeUTF(uri);
+            data.writeLong(timeStamp);
+            data.writeBoolean(complete);
+            data.writeInt(dependencies.size());
+            for (String dependency : dependencies) {
+                data.writeUTF(dependency);
+            }
+            data.writeInt(bytes.size());
+            bytes.writeTo(data);
+        }
+
+        void instance(Object classKey, EObject instance) {
+            try {
+                body.writeByte(INSTANCE_OP);
+                writeClassifier(classKey);
+                writeObject(instance);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void featureTuple(Object featureKey, EObject holder, Object value) {
+            try {
+                body.writeByte(FEATURE_OP);
+                EStructuralFeature feature = writeFeature(featureKey);
+                writeObject(holder);
+                if (feature instanceof EReference) {
+                    writeValue(null, value);
+                } else {
+                    writeValue(((EAttribute) feature).getEAttributeType(), value);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void dataTypeValue(Object typeKey, Object value) {
+            try {
+                body.writeByte(DATA_TYPE_OP);
+                EClassifier type = writeClassifier(typeKey);
+                writeValue((EDataType) type, value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void statistics(Object key) {
+            try {
+                boolean isFeature = (key instanceof EStructuralFeature)
+                        || (key instanceof String && metaStore.getKnownFeature((String) key) != null);
+                if (isFeature) {
+                    body.writeByte(FEATURE_STATISTICS_OP);
+                    writeFeature(key);
+                } else {
+                    body.writeByte(CLASSIFIER_STATISTICS_OP);
+                    writeClassifier(key);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void writeString(String string) throws IOException {
+            Integer id = strings.get(string);
+            if (id == null) {
+                // the first occurrence of a string is written inline, preceded by its new id
+                body.writeInt(strings.size());
+                body.writeUTF(string);
+                strings.put(string, strings.size());
+            } else {
+                body.writeInt(id);
+            }
+        }
+
+        private EClassifier writeClassifier(Object classifierKey) throws IOException {
+            EClassifier classifier = metaStore.getKnownClassifierForKey(classifierKey);
+            writeString(classifier.getEPackage().getNsURI());
+            writeString(classifier.getName());
+            return classifier;
+        }
+
+        private EStructuralFeature writeFeature(Object featureKey) throws IOException {
+            EStructuralFeature feature = metaStore.getKnownFeatureForKey(featureKey);
+            EClass containingClass = feature.getEContainingClass();
+            writeString(containingClass.getEPackage().getNsURI());
+            writeString(containingClass.getName());
+            writeString(feature.getName());
+            return feature;
+        }
+
+        private void writeObject(EObject object) throws IOException {
+            Resource resource = object.eResource();
+            if (resource == null || resource.getURI() == null) {
+                complete = false;
+                writeString("");
+                writeString("");
+                return;
+            }
+            String resourceUri = resource.getURI().toString();
+            if (!uri.equals(resourceUri)) {
+                dependencies.add(resourceUri);
+            }
+            writeString(resourceUri);
+            writeString(resource.getURIFragment(object));
+        }
+
+        private void writeValue(EDataType type, Object value) throws IOException {
+            if (value == null) {
+                body.writeByte(NULL_VALUE);
+            } else if (type == null) {
+                body.writeByte(OBJECT_VALUE);
+                writeObject((EObject) value);
+            } else {
+                body.writeByte(LITERAL_VALUE);
+                String literal = null;
+                try {
+                    literal = EcoreUtil.convertToString(type, value);
+                    // values without a faithful literal representation prevent reusing the section
+                    if (literal == null || !value.equals(
+                            metaStore.toInternalValueRepresentation(EcoreUtil.createFromString(type, literal)))) {
+                        complete = false;
+                    }
+                } catch (RuntimeException e) {
+                    complete = false;
+                }
+                writeString(literal == null ? "" : literal);
+            }
+        }
+    }
+
+    /**
+     * Traverses a resource the same way the base index would traverse it to gather all observed types, recording the
+     * index insertions instead of executing them.
+     */
+    private static final class SnapshotVisitor extends NavigationHelperVisitor.TraversingVisitor {
+
+        SnapshotVisitor(NavigationHelperImpl navigationHelper, final SectionWriter section) {
+            super(navigationHelper,
+                    new NavigationHelperVisitor.ObservedTypes(navigationHelper.getWildcardLevel(),
+                            navigationHelper.observedFeatures, navigationHelper.directlyObservedClasses,
+                            navigationHelper.observedDataTypes),
+                    NavigationHelperVisitor.ObservedTypes.none());
+            instanceStore = new EMFBaseIndexInstanceStore(navigationHelper) {
+                @Override
+                public void insertIntoInstanceSet(Object keyClass, EObject value) {
+                    section.instance(keyClass, value);
+                }
+
+                @Override
+                public void insertFeatureTuple(Object featureKey, boolean unique, Object value, EObject holder) {
+                    section.featureTuple(featureKey, holder, value);
+                }
+
+                @Override
+                public void insertIntoDataTypeMap(Object keyType, Object value) {
+                    section.dataTypeValue(keyType, value);
+                }
+            };
+            statsStore = new EMFBaseIndexStatisticsStore() {
+                @Override
+                public void addInstance(Object key) {
+                    section.statistics(key);
+                }
+            };
+        }
+
+        @Override
+        public boolean attemptProxyResolutions(EObject source, EReference feature) {
+            return false;
+        }
+
+        @Override
+        public void visitProxyReference(EObject source, EReference reference, EObject targetObject,
+                Integer position) {
+            // the model is not modified while taking a snapshot
+        }
+    }
+
+    // ********* reading *********
+
+    static void read(final NavigationHelperImpl navigationHelper, InputStream in)
+            throws IOException, InvocationTargetException {
+        checkNoWildcard(navigationHelper);
+        if (!(navigationHelper.directlyObservedClasses.isEmpty() && navigationHelper.observedFeatures.isEmpty()
+                && navigationHelper.observedDataTypes.isEmpty())) {
+            throw new IllegalStateException("Snapshots can only be loaded into a base index without observed types");
+        }
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Unsupported base index snapshot format");
+        }
+
+        SectionReader reader = new SectionReader(navigationHelper);
+        final Map<Object, IndexingLevel> classes = new HashMap<Object, IndexingLevel>();
+        final Map<Object, IndexingLevel> features = new HashMap<Object, IndexingLevel>();
+        final Map<Object, IndexingLevel> dataTypes = new HashMap<Object, IndexingLevel>();
+        readObservations(data, reader, classes, features, dataTypes);
+        readObservations(data, reader, classes, features, dataTypes);
+        readObservations(data, reader, classes, features, dataTypes);
+
+        Map<String, Resource> resources = new LinkedHashMap<String, Resource>();
+        for (Resource resource : collectResources(navigationHelper)) {
+            if (resource.getURI() != null) {
+                resources.put(resource.getURI().toString(), resource);
+            }
+        }
+        Map<String, Long> timeStamps = new HashMap<String, Long>();
+        Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+        Map<String, byte[]> bodies = new HashMap<String, byte[]>();
+        while (data.readBoolean()) {
+            String uri = data.readUTF();
+            long timeStamp = data.readLong();
+            boolean complete = data.readBoolean();
+            Set<String> sectionDependencies = new LinkedHashSet<String>();
+            for (int i = data.readInt(); i > 0; --i) {
+                sectionDependencies.add(data.readUTF());
+            }
+            byte[] body = new byte[data.readInt()];
+            data.readFully(body);
+            timeStamps.put(uri, timeStamp);
+            if (complete) {
+                dependencies.put(uri, sectionDependencies);
+                bodies.put(uri, body);
+            }
+        }
+
+        // decode the reusable sections; all other resources will be traversed
+        List<Notifier> toTraverse = new ArrayList<Notifier>();
+        List<List<Object[]>> reusedSections = new ArrayList<List<Object[]>>();
+        for (Entry<String, Resource> entry : resources.entrySet()) {
+            String uri = entry.getKey();
+            List<Object[]> operations = null;
+            if (bodies.containsKey(uri) && isUnchanged(uri, resources, timeStamps)) {
+                boolean dependenciesUnchanged = true;
+                for (String dependency : dependencies.get(uri)) {
+                    dependenciesUnchanged &= isUnchanged(dependency, resources, timeStamps);
+                }
+                if (dependenciesUnchanged) {
+                    operations = reader.decode(bodies.get(uri), resources);
+                }
+            }
+            if (operations == null) {
+                toTraverse.add(entry.getValue());
+            } else {
+                reusedSections.add(operations);
+            }
+        }
+        for (Notifier root : navigationHelper.modelRoots) {
+            if (root instanceof EObject) {
+                toTraverse.add(root);
+            }
+        }
+
+        // register the observed types, traversing only the resources without reusable sections
+        navigationHelper.restrictNextTraversal(toTraverse);
+        try {
+            navigationHelper.coalesceTraversals(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    navigationHelper.delayedClasses.putAll(classes);
+                    navigationHelper.delayedFeatures.putAll(features);
+                    navigationHelper.delayedDataTypes.putAll(dataTypes);
+                    return null;
+                }
+            });
+        } finally {
+            navigationHelper.restrictNextTraversal(null);
+        }
+
+        for (List<Object[]> operations : reusedSections) {
+            apply(navigationHelper, operations);
+        }
+        navigationHelper.notifyBaseIndexChangeListeners();
+    }
+
+    private static void readObservations(DataInputStream data, SectionReader reader,
+            Map<Object, IndexingLevel> classes, Map<Object, IndexingLevel> features,
+            Map<Object, IndexingLevel> dataTypes) throws IOException {
+        for (int i = data.readInt(); i > 0; --i) {
+            byte kind = data.readByte();
+            Object key;
+            if (kind == FEATURE) {
+                key = reader.featureKey(data.readUTF(), data.readUTF(), data.readUTF());
+            } else {
+                key = reader.classifierKey(data.readUTF(), data.readUTF());
+            }
+            IndexingLevel level = IndexingLevel.valueOf(data.readUTF());
+            if (kind == CLASS) {
+                classes.put(key, level);
+            } else if (kind == FEATURE) {
+                features.put(key, level);
+            } else {
+                dataTypes.put(key, level);
+            }
+        }
+    }
+
+    private static boolean isUnchanged(String uri, Map<String, Resource> resources, Map<String, Long> timeStamps) {
+        Resource resource = resources.get(uri);
+        Long timeStamp = timeStamps.get(uri);
+        return resource != null && timeStamp != null && timeStamp != 0 && timeStamp == resource.getTimeStamp()
+                && resource.isTrackingModification() && !resource.isModified();
+    }
+
+    private static void apply(NavigationHelperImpl navigationHelper, List<Object[]> operations) {
+        EMFBaseIndexInstanceStore instanceStore = navigationHelper.instanceStore;
+        EMFBaseIndexStatisticsStore statsStore = navigationHelper.statsStore;
+        for (Object[] operation : operations) {
+            switch ((Byte) operation[0]) {
+            case INSTANCE_OP:
+                instanceStore.insertIntoInstanceSet(operation[1], (EObject) operation[2]);
+                break;
+            case FEATURE_OP:
+                instanceStore.insertFeatureTuple(operation[1], (Boolean) operation[4], operation[3],
+                        (EObject) operation[2]);
+                break;
+            case DATA_TYPE_OP:
+                instanceStore.insertIntoDataTypeMap(operation[1], operation[2]);
+                break;
+            default:
+                statsStore.addInstance(operation[1]);
+            }
+        }
+    }
+
+    /**
+     * Decodes sections, resolving the metamodel elements and model elements they refer to.
+     */
+    private static final class SectionReader {
+        private final EMFBaseIndexMetaStore metaStore;
+        private final EPackage.Registry packageRegistry;
+        private final Map<String, Object> keys = new HashMap<String, Object>();
+
+        SectionReader(NavigationHelperImpl navigationHelper) {
+            this.metaStore = navigationHelper.metaStore;
+            EPackage.Registry registry = EPackage.Registry.INSTANCE;
+            for (Notifier root : navigationHelper.modelRoots) {
+                if (root instanceof ResourceSet) {
+                    registry = ((ResourceSet) root).getPackageRegistry();
+                    break;
+                }
+            }
+            this.packageRegistry = registry;
+        }
+
+        private EClassifier classifier(String nsURI, String name) throws IOException {
+            EPackage ePackage = packageRegistry.getEPackage(nsURI);
+            EClassifier classifier = (ePackage == null) ? null : ePackage.getEClassifier(name);
+            if (classifier == null) {
+                throw new IOException(String.format("Classifier %s of package %s not found", name, nsURI));
+            }
+            return classifier;
+        }
+
+        Object classifierKey(String nsURI, String name) throws IOException {
+            String id = nsURI + "##" + name;
+            Object key = keys.get(id);
+            if (key == null) {
+                key = metaStore.toKey(classifier(nsURI, name));
+                keys.put(id, key);
+            }
+            return key;
+        }
+
+        Object featureKey(String nsURI, String className, String name) throws IOException {
+            String id = nsURI + "##" + className + "##" + name;
+            Object key = keys.get(id);
+            if (key == null) {
+                EClassifier containingClass = classifier(nsURI, className);
+                EStructuralFeature feature = (containingClass instanceof EClass)
+                        ? ((EClass) containingClass).getEStructuralFeature(name) : null;
+                if (feature == null) {
+                    throw new IOException(String.format("Feature %s of class %s not found", name, className));
+                }
+                key = metaStore.toKey(feature);
+                keys.put(id, key);
+            }
+            return key;
+        }
+
+        /**
+         * @return the decoded operations, or null if some of the model elements could not be resolved
+         */
+        List<Object[]> decode(byte[] bytes, Map<String, Resource> resources) throws IOException {
+            DataInputStream body = new DataInputStream(new ByteArrayInputStream(bytes));
+            List<String> strings = new ArrayList<String>();
+            List<Object[]> operations = new ArrayList<Object[]>();
+            for (byte kind = body.readByte(); kind != END_OP; kind = body.readByte()) {
+                switch (kind) {
+                case INSTANCE_OP: {
+                    Object classKey = classifierKey(readString(body, strings), readString(body, strings));
+                    EObject instance = readObject(body, strings, resources);
+                    if (instance == null) {
+                        return null;
+                    }
+                    operations.add(new Object[] { kind, classKey, instance });
+                    break;
+                }
+                case FEATURE_OP: {
+                    Object featureKey = featureKey(readString(body, strings), readString(body, strings),
+                            readString(body, strings));
+                    EStructuralFeature feature = metaStore.getKnownFeatureForKey(featureKey);
+                    EObject holder = readObject(body, strings, resources);
+                    EDataType type = (feature instanceof EAttribute) ? ((EAttribute) feature).getEAttributeType()
+                            : null;
+                    Object[] value = readValue(body, strings, resources, type);
+                    if (holder == null || value == null) {
+                        return null;
+                    }
+                    operations.add(new Object[] { kind, featureKey, holder, value[0], feature.isUnique() });
+                    break;
+                }
+                case DATA_TYPE_OP: {
+                    Object typeKey = classifierKey(readString(body, strings), readString(body, strings));
+                    Object[] value = readValue(body, strings, resources,
+                            (EDataType) metaStore.getKnownClassifierForKey(typeKey));
+                    if (value == null) {
+                        return null;
+                    }
+                    operations.add(new Object[] { kind, typeKey, value[0] });
+                    break;
+                }
+                case CLASSIFIER_STATISTICS_OP:
+                    operations.add(new Object[] { kind,
+                            classifierKey(readString(body, strings), readString(body, strings)) });
+                    break;
+                case FEATURE_STATISTICS_OP:
+                    operations.add(new Object[] { kind, featureKey(readString(body, strings),
+                            readString(body, strings), readString(body, strings)) });
+                    break;
+                default:
+                    throw new IOException("Corrupt base index snapshot section");
+                }
+            }
+            return operations;
+        }
+
+        private static String readString(DataInputStream body, List<String> strings) throws IOException {
+            int id = body.readInt();
+            if (id == strings.size()) {
+                strings.add(body.readUTF());
+            }
+            return strings.get(id);
+        }
+
+        private static EObject readObject(DataInputStream body, List<String> strings, Map<String, Resource> resources)
+                throws IOException {
+            Resource resource = resources.get(readString(body, strings));
+            String fragment = readString(body, strings);
+            return (resource == null) ? null : resource.getEObject(fragment);
+        }
+
+        /**
+         * @return a singleton array containing the value, or null if the value could not be resolved
+         */
+        private Object[] readValue(DataInputStream body, List<String> strings, Map<String, Resource> resources,
+                EDataType type) throws IOException {
+            byte kind = body.readByte();
+            if (kind == NULL_VALUE) {
+                return new Object[] { null };
+            } else if (kind == OBJECT_VALUE) {
+                EObject object = readObject(body, strings, resources);
+                return (object == null) ? null : new Object[] { object };
+            } else {
+                String literal = readString(body, strings);
+                return new Object[] {
+                        metaStore.toInternalValueRepresentation(EcoreUtil.createFromString(type, literal)) };
+            }
+        }
+    }
+
+    // ********* common *********
+
+    private static void checkNoWildcard(NavigationHelperImpl navigationHelper) {
+        if (navigationHelper.getWildcardLevel() != IndexingLevel.NONE) {
+            throw new IllegalStateException("Snapshots are not supported in wildcard mode");
+        }
+    }
+
+    /**
+     * @return the resources of the model roots that are traversed by the base index
+     */
+    private static List<Resource> collectResources(NavigationHelperImpl navigationHelper) {
+        List<Resource> result = new ArrayList<Resource>();
+        for (Notifier root : navigationHelper.modelRoots) {
+            if (root instanceof ResourceSet) {
+                for (Resource resource : ((ResourceSet) root).getResources()) {
+                    if (!navigationHelper.getComprehension().isFiltered(resource)) {
+                        result.add(resource);
+                    }
+                }
+            } else if (root instanceof Resource) {
+                result.add((Resource) root);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,512 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.Arrays;
+
+/**
+ * A set of (row, column) pairs of non-negative int ids, stored in compressed sparse row format: the ids of the
+ * non-empty rows are kept in a sorted array, and the sorted columns of all rows are stored consecutively in a shared
+ * array.
+ *
+ * <p>
+ * As the compressed arrays are expensive to update, insertions and deletions are collected in delta buffers first.
+ * The buffers are merged into the compressed arrays once they grow large compared to the size of the set. The
+ * inserted pairs are also indexed by row, so that queries only look at the buffered columns of the queried row.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class CompressedAdjacency {
+
+    /**
+     * Processes the pairs of a {@link CompressedAdjacency}.
+     */
+    interface PairProcessor {
+        void process(int row, int column);
+    }
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Deltas smaller than this are never merged into the compressed arrays.
+     */
+    private static final int MIN_DELTA_SIZE = 256;
+
+    /**
+     * The deltas are merged when their size reaches this fraction of the total size. As merging takes linear time,
+     * this guarantees amortized constant merging cost per update.
+     */
+    private static final int DELTA_SIZE_RATIO = 4;
+
+    /**
+     * sorted ids of the rows that had at least one column at the last merge
+     */
+    private int[] rows = EMPTY;
+    /**
+     * the columns of rows[i] are stored in columns[rowStart[i]] (inclusive) to columns[rowStart[i+1]] (exclusive)
+     */
+    private int[] rowStart = { 0 };
+    private int[] columns = EMPTY;
+
+    /**
+     * pairs inserted since the last merge; disjoint from the compressed pairs
+     */
+    private final LongSet added = new LongSet();
+    /**
+     * the columns of {@link #added}, indexed by row
+     */
+    private final RowIndex addedByRow = new RowIndex();
+    /**
+     * compressed pairs deleted since the last merge
+     */
+    private final LongSet removed = new LongSet();
+
+    private int size = 0;
+
+    private static long encode(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private static int rowOf(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int columnOf(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * @return the number of pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the estimated size of the arrays of this structure, in bytes
+     */
+    long getEstimatedBytes() {
+        return 4L * (rows.length + rowStart.length + columns.length) + 8L * (added.slots.length + removed.slots.length)
+                + addedByRow.getEstimatedBytes();
+    }
+
+    public boolean contains(int row, int column) {
+        long pair = encode(row, column);
+        if (added.contains(pair)) {
+            return true;
+        }
+        return !removed.contains(pair) && compressedContains(row, column);
+    }
+
+    private boolean compressedContains(int row, int column) {
+        int rowIndex = Arrays.binarySearch(rows, row);
+        return rowIndex >= 0 && Arrays.binarySearch(columns, rowStart[rowIndex], rowStart[rowIndex + 1], column) >= 0;
+    }
+
+    /**
+     * @return true if the pair was not contained before
+     */
+    public boolean add(int row, int column) {
+        long pair = encode(row, column);
+        if (removed.remove(pair)) {
+            size++;
+            return true;
+        }
+        if (added.contains(pair) || compressedContains(row, column)) {
+            return false;
+        }
+        added.add(pair);
+        addedByRow.add(row, column);
+        size++;
+        mergeIfDeltaExceeds(Math.max(MIN_DELTA_SIZE, size / DELTA_SIZE_RATIO));
+        return true;
+    }
+
+    /**
+     * @return true if the pair was contained before
+     */
+    public boolean remove(int row, int column) {
+        long pair = encode(row, column);
+        if (added.remove(pair)) {
+            addedByRow.remove(row, column);
+            size--;
+            return true;
+        }
+        if (removed.contains(pair) || !compressedContains(row, column)) {
+            return false;
+        }
+        removed.add(pair);
+        size--;
+        mergeIfDeltaExceeds(Math.max(MIN_DELTA_SIZE, size / DELTA_SIZE_RATIO));
+        return true;
+    }
+
+    /**
+     * @return a new sorted array of the columns paired with the given row
+     */
+    public int[] get(int row) {
+        int rowIndex = Arrays.binarySearch(rows, row);
+        int from = rowIndex >= 0 ? rowStart[rowIndex] : 0;
+        int to = rowIndex >= 0 ? rowStart[rowIndex + 1] : 0;
+        if (added.isEmpty() && removed.isEmpty()) {
+            return (from == to) ? EMPTY : Arrays.copyOfRange(columns, from, to);
+        }
+
+        int[] addedColumns = addedByRow.columnsOf(row);
+        int[] result = new int[to - from + addedColumns.length];
+        int resultSize = 0;
+        int a = 0;
+        for (int i = from; i < to; ++i) {
+            int column = columns[i];
+            while (a < addedColumns.length && addedColumns[a] < column) {
+                result[resultSize++] = addedColumns[a++];
+            }
+            if (!removed.contains(encode(row, column))) {
+                result[resultSize++] = column;
+            }
+        }
+        while (a < addedColumns.length) {
+            result[resultSize++] = addedColumns[a++];
+        }
+        return resultSize == result.length ? result : Arrays.copyOf(result, resultSize);
+    }
+
+    /**
+     * @return a new sorted array of the rows paired with at least one column
+     */
+    public int[] getRows() {
+        merge();
+        return rows.clone();
+    }
+
+    /**
+     * Invokes the processor on each pair, ordered by row and then by column. The pairs are processed as they were
+     * when this method was called, even if the set is modified by the processor.
+     */
+    public void forEachPair(PairProcessor processor) {
+        merge();
+        int[] currentRows = rows;
+        int[] currentRowStart = rowStart;
+        int[] currentColumns = columns;
+        for (int r = 0; r < currentRows.length; ++r) {
+            for (int i = currentRowStart[r]; i < currentRowStart[r + 1]; ++i) {
+                processor.process(currentRows[r], currentColumns[i]);
+            }
+        }
+    }
+
+    private void mergeIfDeltaExceeds(int limit) {
+        if (added.size() + removed.size() > limit) {
+            merge();
+        }
+    }
+
+    /**
+     * Merges the delta buffers into the compressed arrays. New arrays are allocated, so that iterations over the
+     * previous ones are not disturbed.
+     */
+    private void merge() {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        long[] addedPairs = added.toSortedArray();
+        int[] newRows = new int[rows.length + addedPairs.length];
+        int[] newRowStart = new int[newRows.length + 1];
+        int[] newColumns = new int[size];
+        int rowCount = 0;
+        int columnCount = 0;
+
+        int a = 0;
+        for (int r = 0; r <= rows.length; ++r) {
+            // pairs of added rows preceding the current compressed row (or all remaining ones after the last row)
+            int row = r < rows.length ? rows[r] : Integer.MAX_VALUE;
+            while (a < addedPairs.length && rowOf(addedPairs[a]) < row) {
+                int addedRow = rowOf(addedPairs[a]);
+                newRows[rowCount] = addedRow;
+                while (a < addedPairs.length && rowOf(addedPairs[a]) == addedRow) {
+                    newColumns[columnCount++] = columnOf(addedPairs[a++]);
+                }
+                newRowStart[++rowCount] = columnCount;
+            }
+            if (r == rows.length) {
+                break;
+            }
+            int rowBegin = columnCount;
+            for (int i = rowStart[r]; i < rowStart[r + 1]; ++i) {
+                int column = columns[i];
+                while (a < addedPairs.length && rowOf(addedPairs[a]) == row && columnOf(addedPairs[a]) < column) {
+                    newColumns[columnCount++] = columnOf(addedPairs[a++]);
+                }
+                if (!removed.contains(encode(row, column))) {
+                    newColumns[columnCount++] = column;
+                }
+            }
+            while (a < addedPairs.length && rowOf(addedPairs[a]) == row) {
+                newColumns[columnCount++] = columnOf(addedPairs[a++]);
+            }
+            if (columnCount > rowBegin) {
+                newRows[rowCount] = row;
+                newRowStart[++rowCount] = columnCount;
+            }
+        }
+
+        rows = Arrays.copyOf(newRows, rowCount);
+        rowStart = Arrays.copyOf(newRowStart, rowCount + 1);
+        columns = newColumns;
+        added.clear();
+        addedByRow.clear();
+        removed.clear();
+    }
+
+    /**
+     * A minimal open addressing hash map from rows to the lists of their columns, used to index a delta buffer by row.
+     * Rows are only removed from the index when it is cleared.
+     */
+    private static final class RowIndex {
+        private static final int INITIAL_CAPACITY = 16;
+        /**
+         * marks a free slot; as rows are non-negative ids, it cannot be a valid key
+         */
+        private static final int FREE = -1;
+
+        private int[] keys = newKeys(INITIAL_CAPACITY);
+        private int[][] columns = new int[INITIAL_CAPACITY][];
+        private int[] columnCounts = new int[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private static int[] newKeys(int capacity) {
+            int[] result = new int[capacity];
+            Arrays.fill(result, FREE);
+            return result;
+        }
+
+        private int indexOf(int row) {
+            int hash = row * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & (keys.length - 1);
+        }
+
+        private int find(int row) {
+            for (int i = indexOf(row);; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == row || keys[i] == FREE) {
+                    return i;
+                }
+            }
+        }
+
+        long getEstimatedBytes() {
+            long result = 4L * (keys.length + columnCounts.length) + 8L * columns.length;
+            for (int[] rowColumns : columns) {
+                if (rowColumns != null) {
+                    result += 4L * rowColumns.length;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @pre the column is not listed for the row
+         */
+        void add(int row, int column) {
+            int i = find(row);
+            if (keys[i] == FREE) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    i = find(row);
+                }
+                keys[i] = row;
+                columns[i] = new int[2];
+                size++;
+            } else if (columnCounts[i] == columns[i].length) {
+                columns[i] = Arrays.copyOf(columns[i], 2 * columns[i].length);
+            }
+            columns[i][columnCounts[i]++] = column;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[][] oldColumns = columns;
+            int[] oldColumnCounts = columnCounts;
+            keys = newKeys(2 * oldKeys.length);
+            columns = new int[keys.length][];
+            columnCounts = new int[keys.length];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != FREE) {
+                    int i = find(oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    columns[i] = oldColumns[j];
+                    columnCounts[i] = oldColumnCounts[j];
+                }
+            }
+        }
+
+        /**
+         * @pre the column is listed for the row
+         */
+        void remove(int row, int column) {
+            int i = find(row);
+            int[] rowColumns = columns[i];
+            int last = --columnCounts[i];
+            for (int j = 0; j < last; j++) {
+                if (rowColumns[j] == column) {
+                    rowColumns[j] = rowColumns[last];
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return a new sorted array of the columns listed for the row
+         */
+        int[] columnsOf(int row) {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int i = find(row);
+            if (keys[i] == FREE || columnCounts[i] == 0) {
+                return EMPTY;
+            }
+            int[] result = Arrays.copyOf(columns[i], columnCounts[i]);
+            Arrays.sort(result);
+            return result;
+        }
+
+        void clear() {
+            if (size > 0) {
+                keys = newKeys(INITIAL_CAPACITY);
+                columns = new int[INITIAL_CAPACITY][];
+                columnCounts = new int[INITIAL_CAPACITY];
+                size = 0;
+            }
+        }
+    }
+
+    /**
+     * A minimal open addressing hash set of long values, used as delta buffer.
+     */
+    private static final class LongSet {
+        private static final int INITIAL_CAPACITY = 16;
+        /**
+         * marks a free slot; as pairs consist of non-negative ids, it cannot be a valid element
+         */
+        private static final long FREE = -1L;
+
+        private long[] slots = newSlots(INITIAL_CAPACITY);
+        private int size = 0;
+
+        private static long[] newSlots(int capacity) {
+            long[] result = new long[capacity];
+            Arrays.fill(result, FREE);
+            return result;
+        }
+
+        private int indexOf(long value) {
+            long hash = value * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & (slots.length - 1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean contains(long value) {
+            if (size == 0) {
+                return false;
+            }
+            for (int i = indexOf(value);; i = (i + 1) & (slots.length - 1)) {
+                if (slots[i] == value) {
+                    return true;
+                } else if (slots[i] == FREE) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * @pre the value is not contained
+         */
+        void add(long value) {
+            if (2 * (size + 1) > slots.length) {
+                long[] oldSlots = slots;
+                slots = newSlots(2 * oldSlots.length);
+                for (long oldValue : oldSlots) {
+                    if (oldValue != FREE) {
+                        insert(oldValue);
+                    }
+                }
+            }
+            insert(value);
+            size++;
+        }
+
+        private void insert(long value) {
+            int i = indexOf(value);
+            while (slots[i] != FREE) {
+                i = (i + 1) & (slots.length - 1);
+            }
+            slots[i] = value;
+        }
+
+        boolean remove(long value) {
+            if (size == 0) {
+                return false;
+            }
+            int i = indexOf(value);
+            while (slots[i] != value) {
+                if (slots[i] == FREE) {
+                    return false;
+                }
+                i = (i + 1) & (slots.length - 1);
+            }
+            // backward shift deletion keeps the probe sequences of the remaining values intact
+            int free = i;
+            for (int j = (i + 1) & (slots.length - 1); slots[j] != FREE; j = (j + 1) & (slots.length - 1)) {
+                int home = indexOf(slots[j]);
+                boolean movable = (free <= j) ? (home <= free || home > j) : (home <= free && home > j);
+                if (movable) {
+                    slots[free] = slots[j];
+                    free = j;
+                }
+            }
+            slots[free] = FREE;
+            size--;
+            return true;
+        }
+
+        void clear() {
+            if (size > 0) {
+                slots = newSlots(INITIAL_CAPACITY);
+                size = 0;
+            }
+        }
+
+        long[] toSortedArray() {
+            long[] result = new long[size];
+            int count = 0;
+            for (long value : slots) {
+                if (value != FREE) {
+                    result[count++] = value;
+                }
+            }
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+}
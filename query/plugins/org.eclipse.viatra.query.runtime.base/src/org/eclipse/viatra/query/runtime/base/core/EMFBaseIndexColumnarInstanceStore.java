@@ -0,0 +1,538 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.viatra.query.runtime.base.api.IEStructuralFeatureProcessor;
+import org.eclipse.viatra.query.runtime.base.core.CompressedAdjacency.PairProcessor;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.IMultiset;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
+
+/**
+ * An instance store that keeps the values of structural features in compact columnar form instead of nested hash
+ * maps: holders and values are assigned dense int ids, and the (holder, value) pairs of each feature are stored in
+ * {@link CompressedAdjacency} structures in both directions.
+ *
+ * <p>
+ * Sets and maps returned by the feature queries are snapshots, taken when the query was executed.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class EMFBaseIndexColumnarInstanceStore extends EMFBaseIndexInstanceStore {
+
+    /**
+     * marks a free slot of the id table, and the lack of an id
+     */
+    private static final int NO_ID = -1;
+
+    private static final class FeatureColumn {
+        final CompressedAdjacency holderToValues = new CompressedAdjacency();
+        final CompressedAdjacency valueToHolders = new CompressedAdjacency();
+        /**
+         * (holder id, value id) -> number of additional occurrences of the value in the value list of the holder; only
+         * used for non-unique features
+         */
+        LongIntMap duplicates = null;
+    }
+
+    private final Map<Object, FeatureColumn> columns = new HashMap<Object, FeatureColumn>();
+
+    /**
+     * open addressing hash table of the used ids, hashed and compared by the objects they represent
+     */
+    private int[] idTable = newIdTable(16);
+    private int idTableSize = 0;
+    private final List<Object> objectsOfIds = new ArrayList<Object>();
+    /**
+     * the features in which the object with the given id is a value, with the number of holders; null if none
+     */
+    private final List<IMultiset<Object>> featuresOfValueIds = new ArrayList<IMultiset<Object>>();
+    /**
+     * the number of pairs referring to each id, in any feature and direction
+     */
+    private int[] referenceCounts = new int[16];
+    private int[] freeIds = new int[16];
+    private int freeIdCount = 0;
+
+    public EMFBaseIndexColumnarInstanceStore(NavigationHelperImpl navigationHelper) {
+        super(navigationHelper);
+    }
+
+    // ********* ids *********
+
+    private static int[] newIdTable(int capacity) {
+        int[] result = new int[capacity];
+        Arrays.fill(result, NO_ID);
+        return result;
+    }
+
+    private int slotOf(Object object) {
+        int hash = (object == null ? 0 : object.hashCode()) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (idTable.length - 1);
+    }
+
+    /**
+     * @return the id of the object, or {@link #NO_ID} if it has none
+     */
+    private int idOf(Object object) {
+        for (int i = slotOf(object);; i = (i + 1) & (idTable.length - 1)) {
+            int id = idTable[i];
+            if (id == NO_ID || Objects.equals(objectsOfIds.get(id), object)) {
+                return id;
+            }
+        }
+    }
+
+    private void insertId(int id) {
+        int i = slotOf(objectsOfIds.get(id));
+        while (idTable[i] != NO_ID) {
+            i = (i + 1) & (idTable.length - 1);
+        }
+        idTable[i] = id;
+    }
+
+    private void addToIdTable(int id) {
+        if (2 * (idTableSize + 1) > idTable.length) {
+            int[] oldTable = idTable;
+            idTable = newIdTable(2 * oldTable.length);
+            for (int oldId : oldTable) {
+                if (oldId != NO_ID) {
+                    insertId(oldId);
+                }
+            }
+        }
+        insertId(id);
+        idTableSize++;
+    }
+
+    private void removeFromIdTable(int id) {
+        int i = slotOf(objectsOfIds.get(id));
+        while (idTable[i] != id) {
+            i = (i + 1) & (idTable.length - 1);
+        }
+        // backward shift deletion keeps the probe sequences of the remaining ids intact
+        int free = i;
+        for (int j = (i + 1) & (idTable.length - 1); idTable[j] != NO_ID; j = (j + 1) & (idTable.length - 1)) {
+            int home = slotOf(objectsOfIds.get(idTable[j]));
+            boolean movable = (free <= j) ? (home <= free || home > j) : (home <= free && home > j);
+            if (movable) {
+                idTable[free] = idTable[j];
+                free = j;
+            }
+        }
+        idTable[free] = NO_ID;
+        idTableSize--;
+    }
+
+    private int acquireId(Object object) {
+        int id = idOf(object);
+        if (id == NO_ID) {
+            if (freeIdCount > 0) {
+                id = freeIds[--freeIdCount];
+                objectsOfIds.set(id, object);
+            } else {
+                id = objectsOfIds.size();
+                objectsOfIds.add(object);
+                featuresOfValueIds.add(null);
+                if (id == referenceCounts.length) {
+                    referenceCounts = Arrays.copyOf(referenceCounts, 2 * id);
+                }
+            }
+            addToIdTable(id);
+        }
+        referenceCounts[id]++;
+        return id;
+    }
+
+    private void releaseId(int id) {
+        if (--referenceCounts[id] == 0) {
+            removeFromIdTable(id);
+            objectsOfIds.set(id, null);
+            if (freeIdCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, 2 * freeIdCount);
+            }
+            freeIds[freeIdCount++] = id;
+        }
+    }
+
+    private static long pairKey(int holderId, int valueId) {
+        return ((long) holderId << 32) | (valueId & 0xFFFFFFFFL);
+    }
+
+    private void addFeatureOfValue(int valueId, Object featureKey) {
+        IMultiset<Object> features = featuresOfValueIds.get(valueId);
+        if (features == null) {
+            features = CollectionsFactory.getMultiset();
+            featuresOfValueIds.set(valueId, features);
+        }
+        features.addOne(featureKey);
+    }
+
+    private void removeFeatureOfValue(int valueId, Object featureKey) {
+        IMultiset<Object> features = featuresOfValueIds.get(valueId);
+        features.removeOne(featureKey);
+        if (features.isEmpty()) {
+            featuresOfValueIds.set(valueId, null);
+        }
+    }
+
+    // ********* updates *********
+
+    @Override
+    public void insertFeatureTuple(Object featureKey, boolean unique, Object value, EObject holder) {
+        FeatureColumn column = columns.get(featureKey);
+        if (column == null) {
+            column = new FeatureColumn();
+            columns.put(featureKey, column);
+        }
+        int holderId = idOf(holder);
+        int valueId = idOf(value);
+        if (holderId != NO_ID && valueId != NO_ID && column.holderToValues.contains(holderId, valueId)) {
+            if (!unique) {
+                // duplicate occurrence in a non-unique feature, not visible outside
+                if (column.duplicates == null) {
+                    column.duplicates = new LongIntMap();
+                }
+                long key = pairKey(holderId, valueId);
+                column.duplicates.put(key, column.duplicates.get(key) + 1);
+                return;
+            }
+        } else {
+            int newHolderId = acquireId(holder);
+            int newValueId = acquireId(value);
+            column.holderToValues.add(newHolderId, newValueId);
+            column.valueToHolders.add(newValueId, newHolderId);
+            addFeatureOfValue(newValueId, featureKey);
+        }
+        featureTupleChanged(holder, featureKey, value, true);
+    }
+
+    @Override
+    public void removeFeatureTuple(Object featureKey, boolean unique, Object value, EObject holder) {
+        FeatureColumn column = columns.get(featureKey);
+        int holderId = idOf(holder);
+        int valueId = idOf(value);
+        if (column == null || holderId == NO_ID || valueId == NO_ID
+                || !column.holderToValues.contains(holderId, valueId)) {
+            return;
+        }
+        if (!unique && column.duplicates != null) {
+            long key = pairKey(holderId, valueId);
+            int count = column.duplicates.get(key);
+            if (count > 0) {
+                // one of the duplicate occurrences was removed, the value is still listed by the holder
+                column.duplicates.put(key, count - 1);
+                return;
+            }
+        }
+        column.holderToValues.remove(holderId, valueId);
+        column.valueToHolders.remove(valueId, holderId);
+        removeFeatureOfValue(valueId, featureKey);
+        if (column.holderToValues.isEmpty()) {
+            columns.remove(featureKey);
+        }
+        releaseId(holderId);
+        releaseId(valueId);
+        featureTupleChanged(holder, featureKey, value, false);
+    }
+
+    @Override
+    protected void removeFeature(final Object featureKey) {
+        FeatureColumn column = columns.remove(featureKey);
+        if (column != null) {
+            column.holderToValues.forEachPair(new PairProcessor() {
+                @Override
+                public void process(int holderId, int valueId) {
+                    removeFeatureOfValue(valueId, featureKey);
+                    releaseId(holderId);
+                    releaseId(valueId);
+                }
+            });
+        }
+    }
+
+    // ********* queries *********
+
+    @Override
+    protected Set<Object> getFeaturesOfValue(Object value) {
+        int valueId = idOf(value);
+        IMultiset<Object> features = valueId == NO_ID ? null : featuresOfValueIds.get(valueId);
+        if (features == null) {
+            return Collections.emptySet();
+        }
+        return new HashSet<Object>(features.distinctValues());
+    }
+
+    @Override
+    protected Set<EObject> getHoldersOfFeatureValue(Object featureKey, Object value) {
+        FeatureColumn column = columns.get(featureKey);
+        int valueId = idOf(value);
+        if (column == null || valueId == NO_ID) {
+            return Collections.emptySet();
+        }
+        return new IdSet<EObject>(column.valueToHolders.get(valueId));
+    }
+
+    @Override
+    protected Set<Object> getValuesOfHolderAndFeature(EObject holder, Object featureKey) {
+        FeatureColumn column = columns.get(featureKey);
+        int holderId = idOf(holder);
+        if (column == null || holderId == NO_ID) {
+            return Collections.emptySet();
+        }
+        return new IdSet<Object>(column.holderToValues.get(holderId));
+    }
+
+    @Override
+    Set<Object> getOldValuesForHolderAndFeature(EObject source, EStructuralFeature feature) {
+        return new HashSet<Object>(getValuesOfHolderAndFeature(source, navigationHelper.metaStore.toKey(feature)));
+    }
+
+    @Override
+    protected Set<EObject> getHoldersOfFeature(Object featureKey) {
+        FeatureColumn column = columns.get(featureKey);
+        if (column == null) {
+            return Collections.emptySet();
+        }
+        return new IdSet<EObject>(column.holderToValues.getRows());
+    }
+
+    @Override
+    protected Map<EObject, Set<Object>> getHolderToValuesOfFeature(Object featureKey) {
+        FeatureColumn column = columns.get(featureKey);
+        if (column == null) {
+            return Collections.emptyMap();
+        }
+        Map<EObject, Set<Object>> result = new LinkedHashMap<EObject, Set<Object>>();
+        for (int holderId : column.holderToValues.getRows()) {
+            result.put((EObject) objectsOfIds.get(holderId), new IdSet<Object>(column.holderToValues.get(holderId)));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    protected void processFeatureTuples(Object featureKey, final EStructuralFeature feature,
+            final IEStructuralFeatureProcessor processor) {
+        FeatureColumn column = columns.get(featureKey);
+        if (column != null) {
+            column.holderToValues.forEachPair(new PairProcessor() {
+                @Override
+                public void process(int holderId, int valueId) {
+                    processor.process(feature, (EObject) objectsOfIds.get(holderId), objectsOfIds.get(valueId));
+                }
+            });
+        }
+    }
+
+    // ********* memory *********
+
+    @Override
+    protected void collectFeatureFootprint(MemoryFootprint footprint) {
+        footprint.add(0, MemoryFootprint.estimateHashCollection(columns.size()));
+        for (FeatureColumn column : columns.values()) {
+            footprint.add(column.holderToValues.size(), column.holderToValues.getEstimatedBytes()
+                    + column.valueToHolders.getEstimatedBytes());
+            if (column.duplicates != null) {
+                footprint.add(0, column.duplicates.getEstimatedBytes());
+            }
+        }
+        MemoryFootprint ids = footprint.getPart("object ids");
+        ids.add(0, 4L * idTable.length + 2 * MemoryFootprint.estimateReferenceArray(objectsOfIds.size())
+                + 4L * (referenceCounts.length + freeIds.length));
+        MemoryFootprint featuresOfValues = footprint.getPart("features of values");
+        for (IMultiset<Object> features : featuresOfValueIds) {
+            if (features != null) {
+                featuresOfValues.add(0, MemoryFootprint.estimateHashCollection(features.size()));
+            }
+        }
+    }
+
+    /**
+     * A minimal open addressing hash map from long keys to positive int values, where absent keys map to 0.
+     */
+    private static final class LongIntMap {
+        private static final int INITIAL_CAPACITY = 16;
+        /**
+         * marks a free slot; as keys consist of non-negative ids, it cannot be a valid key
+         */
+        private static final long FREE = -1L;
+
+        private long[] keys = newKeys(INITIAL_CAPACITY);
+        private int[] values = new int[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private static long[] newKeys(int capacity) {
+            long[] result = new long[capacity];
+            Arrays.fill(result, FREE);
+            return result;
+        }
+
+        private int indexOf(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & (keys.length - 1);
+        }
+
+        private int find(long key) {
+            for (int i = indexOf(key);; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key || keys[i] == FREE) {
+                    return i;
+                }
+            }
+        }
+
+        long getEstimatedBytes() {
+            return 12L * keys.length;
+        }
+
+        int get(long key) {
+            int i = find(key);
+            return keys[i] == FREE ? 0 : values[i];
+        }
+
+        /**
+         * Sets the value of the key; a value of 0 removes the key.
+         */
+        void put(long key, int value) {
+            int i = find(key);
+            if (keys[i] != FREE) {
+                if (value != 0) {
+                    values[i] = value;
+                } else {
+                    remove(i);
+                }
+            } else if (value != 0) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    i = find(key);
+                }
+                keys[i] = key;
+                values[i] = value;
+                size++;
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(2 * oldKeys.length);
+            values = new int[keys.length];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != FREE) {
+                    int i = find(oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private void remove(int i) {
+            // backward shift deletion keeps the probe sequences of the remaining keys intact
+            int free = i;
+            for (int j = (i + 1) & (keys.length - 1); keys[j] != FREE; j = (j + 1) & (keys.length - 1)) {
+                int home = indexOf(keys[j]);
+                boolean movable = (free <= j) ? (home <= free || home > j) : (home <= free && home > j);
+                if (movable) {
+                    keys[free] = keys[j];
+                    values[free] = values[j];
+                    free = j;
+                }
+            }
+            keys[free] = FREE;
+            size--;
+        }
+    }
+
+    /**
+     * An unmodifiable set of the objects with the given ids. The objects are resolved when the set is created, so the
+     * set is not affected by later changes of the store, including the reuse of released ids.
+     */
+    private final class IdSet<T> extends AbstractSet<T> {
+        /**
+         * Sets up to this size are searched linearly
+         */
+        private static final int LINEAR_SEARCH_LIMIT = 8;
+
+        private final Object[] objects;
+        private Set<Object> lookup = null;
+
+        IdSet(int[] ids) {
+            objects = new Object[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                objects[i] = objectsOfIds.get(ids[i]);
+            }
+        }
+
+        @Override
+        public int size() {
+            return objects.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (objects.length <= LINEAR_SEARCH_LIMIT) {
+                for (Object object : objects) {
+                    if (object.equals(o)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (lookup == null) {
+                lookup = new HashSet<Object>(Arrays.asList(objects));
+            }
+            return lookup.contains(o);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < objects.length;
+                }
+
+                @SuppressWarnings("unchecked")
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return (T) objects[next++];
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+}
@@ -11,6 +11,7 @@
 package org.eclipse.viatra.query.runtime.base.core;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -21,6 +22,8 @@ import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EClassifier;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.viatra.query.runtime.base.api.IEStructuralFeatureProcessor;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultiset;
@@ -38,7 +41,7 @@ import com.google.common.collect.Table.Cell;
  */
 public class EMFBaseIndexInstanceStore {
     
-    private NavigationHelperImpl navigationHelper;
+    final NavigationHelperImpl navigationHelper;
     public EMFBaseIndexInstanceStore(NavigationHelperImpl navigationHelper) {
         super();
         this.navigationHelper = navigationHelper;
@@ -194,8 +197,7 @@ public class EMFBaseIndexInstanceStore {
                 addToDirectFeatureMap(holder, featureKey, value);
             }
 
-            isDirty = true;
-            navigationHelper.notifyFeatureListeners(holder, featureKey, value, true);
+            featureTupleChanged(holder, featureKey, value, true);
         }
     }
 
@@ -209,8 +211,100 @@ public class EMFBaseIndexInstanceStore {
                 removeFromDirectFeatureMap(holder, featureKey, value);
             }
 
-            isDirty = true;
-            navigationHelper.notifyFeatureListeners(holder, featureKey, value, false);
+            featureTupleChanged(holder, featureKey, value, false);
+        }
+    }
+
+    void featureTupleChanged(final EObject holder, final Object featureKey, final Object value, boolean isInsertion) {
+        isDirty = true;
+        navigationHelper.notifyFeatureListeners(holder, featureKey, value, isInsertion);
+    }
+
+    /**
+     * @return the keys of the features (String id or EStructuralFeature) in which some holder has the given value
+     * @since 1.6
+     */
+    protected Set<Object> getFeaturesOfValue(final Object value) {
+        return Collections.unmodifiableSet(valueToFeatureToHolderMap.row(value).keySet());
+    }
+
+    /**
+     * @return the holders that have the given value in the given feature (String id or EStructuralFeature), never null
+     * @since 1.6
+     */
+    protected Set<EObject> getHoldersOfFeatureValue(final Object featureKey, final Object value) {
+        final Collection<EObject> holders = valueToFeatureToHolderMap.get(value, featureKey);
+        if (holders == null) {
+            return Collections.emptySet();
+        } else {
+            return Collections.unmodifiableSet(holderCollectionToUniqueSet(holders));
+        }
+    }
+
+    /**
+     * @return the values of the given feature (String id or EStructuralFeature) of the holder, never null
+     * @since 1.6
+     */
+    protected Set<Object> getValuesOfHolderAndFeature(final EObject holder, final Object featureKey) {
+        final Set<Object> values = getHolderToFeatureToValueMap().get(holder, featureKey);
+        if (values == null) {
+            return Collections.emptySet();
+        } else {
+            return Collections.unmodifiableSet(values);
+        }
+    }
+
+    /**
+     * @return the holders with at least one value of the given feature (String id or EStructuralFeature), never null
+     * @since 1.6
+     */
+    protected Set<EObject> getHoldersOfFeature(final Object featureKey) {
+        final Multiset<EObject> holders = getFeatureToHolderMap().get(featureKey);
+        if (holders == null) {
+            return Collections.emptySet();
+        } else {
+            return Collections.unmodifiableSet(holders.elementSet());
+        }
+    }
+
+    /**
+     * @return the values of the given feature (String id or EStructuralFeature) for each holder, never null
+     * @since 1.6
+     */
+    protected Map<EObject, Set<Object>> getHolderToValuesOfFeature(final Object featureKey) {
+        return Collections.unmodifiableMap(getHolderToFeatureToValueMap().column(featureKey));
+    }
+
+    /**
+     * Invokes the processor on each holder and value of the given feature.
+     * 
+     * @param featureKey
+     *            the String id or EStructuralFeature
+     * @param feature
+     *            the feature passed to the processor
+     * @since 1.6
+     */
+    protected void processFeatureTuples(final Object featureKey, final EStructuralFeature feature,
+            final IEStructuralFeatureProcessor processor) {
+        final Map<Object, Collection<EObject>> valueToHolders = valueToFeatureToHolderMap.column(featureKey);
+        for (Entry<Object, Collection<EObject>> entry : valueToHolders.entrySet()) {
+            for (EObject holder : holderCollectionToUniqueSet(entry.getValue())) {
+                processor.process(feature, holder, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Forgets all values of the given feature (String id or EStructuralFeature), without notifying listeners.
+     * @since 1.6
+     */
+    protected void removeFeature(final Object featureKey) {
+        valueToFeatureToHolderMap.column(featureKey).clear();
+        if (featureToHolderMap != null) {
+            featureToHolderMap.remove(featureKey);
+        }
+        if (holderToFeatureToValueMap != null) {
+            holderToFeatureToValueMap.column(featureKey).clear();
         }
     }
 
@@ -365,6 +459,56 @@ public class EMFBaseIndexInstanceStore {
         }
     }
 
+    /**
+     * Records the indexed tuples and the estimated size of the index structures, as the parts "instances", "data type
+     * values" and "feature values" of the given entry. Model elements and values are not included in the estimates.
+     * 
+     * @since 1.6
+     */
+    public void collectMemoryFootprint(MemoryFootprint footprint) {
+        MemoryFootprint instances = footprint.getPart("instances");
+        instances.add(0, MemoryFootprint.estimateHashCollection(instanceMap.size()));
+        for (Set<EObject> instanceSet : instanceMap.values()) {
+            instances.add(instanceSet.size(), MemoryFootprint.estimateHashCollection(instanceSet.size()));
+        }
+        MemoryFootprint dataTypes = footprint.getPart("data type values");
+        dataTypes.add(0, MemoryFootprint.estimateHashCollection(dataTypeMap.size()));
+        for (Map<Object, Integer> values : dataTypeMap.values()) {
+            dataTypes.add(values.size(), MemoryFootprint.estimateHashCollection(values.size()));
+        }
+        collectFeatureFootprint(footprint.getPart("feature values"));
+    }
+
+    /**
+     * Records the (holder, feature, value) tuples and the estimated size of the structures indexing them; the maps
+     * constructed on demand are reported as parts, without tuples.
+     * 
+     * @since 1.6
+     */
+    protected void collectFeatureFootprint(MemoryFootprint footprint) {
+        footprint.add(0, MemoryFootprint.estimateHashCollection(valueToFeatureToHolderMap.rowKeySet().size())
+                + MemoryFootprint.estimateHashCollection(valueToFeatureToHolderMap.size()));
+        for (Collection<EObject> holders : valueToFeatureToHolderMap.values()) {
+            footprint.add(holderCollectionToUniqueSet(holders).size(),
+                    MemoryFootprint.estimateHashCollection(holders.size()));
+        }
+        if (featureToHolderMap != null) {
+            MemoryFootprint reversed = footprint.getPart("holders of features");
+            reversed.add(0, MemoryFootprint.estimateHashCollection(featureToHolderMap.size()));
+            for (Multiset<EObject> holders : featureToHolderMap.values()) {
+                reversed.add(0, MemoryFootprint.estimateHashCollection(holders.elementSet().size()));
+            }
+        }
+        if (holderToFeatureToValueMap != null) {
+            MemoryFootprint direct = footprint.getPart("values of holders");
+            direct.add(0, MemoryFootprint.estimateHashCollection(holderToFeatureToValueMap.rowKeySet().size())
+                    + MemoryFootprint.estimateHashCollection(holderToFeatureToValueMap.size()));
+            for (Set<Object> values : holderToFeatureToValueMap.values()) {
+                direct.add(0, MemoryFootprint.estimateHashCollection(values.size()));
+            }
+        }
+    }
+
     /**
      * Returns all EClasses that currently have direct instances cached by the index.
      * <p>
@@ -12,6 +12,9 @@ package org.eclipse.viatra.query.runtime.base.core;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,6 +28,7 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.notify.Notification;
@@ -61,6 +65,8 @@ import org.eclipse.viatra.query.runtime.base.api.filters.IBaseIndexResourceFilte
 import org.eclipse.viatra.query.runtime.base.comprehension.EMFModelComprehension;
 import org.eclipse.viatra.query.runtime.base.comprehension.EMFVisitor;
 import org.eclipse.viatra.query.runtime.base.exception.ViatraBaseException;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
@@ -69,11 +75,10 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 
-public class NavigationHelperImpl implements NavigationHelper {
+public class NavigationHelperImpl implements NavigationHelper, IMemoryFootprintProvider {
 
     /**
      * This is never null.
@@ -150,6 +155,22 @@ public class NavigationHelperImpl implements NavigationHelper {
     private final BaseIndexOptions baseIndexOptions;
 
     private EMFModelComprehension comprehension;
+    /**
+     * created on demand, if parallel traversal is enabled
+     */
+    private ForkJoinPool traversalPool;
+    /**
+     * if not null, the next traversal visits these notifiers instead of the model roots
+     */
+    private Collection<Notifier> nextTraversalRestriction;
+    /**
+     * null unless adaptive feature indexing is enabled
+     */
+    private final AdaptiveFeatureIndexing adaptiveIndexing;
+    /**
+     * not null while listener notifications are coalesced
+     */
+    private NotificationBuffer notificationBuffer;
     
     private boolean loggedRegistrationMessage = false;
 
@@ -241,8 +262,11 @@ public class NavigationHelperImpl implements NavigationHelper {
         this.observedDataTypes = new HashMap<Object, IndexingLevel>();
 
         metaStore = new EMFBaseIndexMetaStore(this);
-        instanceStore = new EMFBaseIndexInstanceStore(this);
+        instanceStore = baseIndexOptions.isColumnarFeatureStorage() 
+                ? new EMFBaseIndexColumnarInstanceStore(this) 
+                : new EMFBaseIndexInstanceStore(this);
         statsStore = new EMFBaseIndexStatisticsStore();
+        adaptiveIndexing = baseIndexOptions.isAdaptiveFeatureIndexing() ? new AdaptiveFeatureIndexing(this) : null;
 
         this.contentAdapter = new NavigationHelperContentAdapter(this);
         this.baseIndexChangeListeners = new HashSet<EMFBaseIndexChangeListener>();
@@ -268,11 +292,15 @@ public class NavigationHelperImpl implements NavigationHelper {
         try{
             IndexingLevel mergedLevel = NavigationHelperImpl.this.wildcardMode.merge(level);
             if (mergedLevel != NavigationHelperImpl.this.wildcardMode){
+                NavigationHelperVisitor.ObservedTypes existing = getObservedTypesSnapshot();
                 NavigationHelperImpl.this.wildcardMode = mergedLevel;
 
                 // force traversal upon change of wildcard level
                 final NavigationHelperVisitor visitor = new NavigationHelperVisitor.TraversingVisitor(this,
-                        Collections.<Object, IndexingLevel>emptyMap(), Collections.<Object, IndexingLevel>emptyMap(), Collections.<Object, IndexingLevel>emptyMap(), Collections.<Object, IndexingLevel>emptyMap());
+                        new NavigationHelperVisitor.ObservedTypes(mergedLevel,
+                                Collections.<Object, IndexingLevel>emptyMap(), Collections.<Object, IndexingLevel>emptyMap(),
+                                Collections.<Object, IndexingLevel>emptyMap()),
+                        existing);
                 coalesceTraversals(new Callable<Void>() {
 
                     @Override
@@ -298,16 +326,38 @@ public class NavigationHelperImpl implements NavigationHelper {
         return observedFeatures;
     }
 
+    /**
+     * @return a copy of the wildcard mode and the directly observed types, not affected by later registrations
+     */
+    NavigationHelperVisitor.ObservedTypes getObservedTypesSnapshot() {
+        return new NavigationHelperVisitor.ObservedTypes(wildcardMode,
+                new HashMap<Object, IndexingLevel>(observedFeatures),
+                new HashMap<Object, IndexingLevel>(directlyObservedClasses),
+                new HashMap<Object, IndexingLevel>(observedDataTypes));
+    }
+
     public boolean isFeatureResolveIgnored(EStructuralFeature feature) {
         return ignoreResolveNotificationFeatures.contains(toKey(feature));
     }
 
+    /**
+     * @since 1.6
+     */
+    @Override
+    public void collectMemoryFootprint(MemoryFootprint footprint) {
+        instanceStore.collectMemoryFootprint(footprint);
+    }
+
     @Override
     public void dispose() {
         ensureNoListenersForDispose();
         for (Notifier root : modelRoots) {
             contentAdapter.removeAdapter(root);
         }
+        if (traversalPool != null) {
+            traversalPool.shutdown();
+            traversalPool = null;
+        }
     }
 
     @Override
@@ -325,12 +375,10 @@ public class NavigationHelperImpl implements NavigationHelper {
     public Set<Setting> findByAttributeValue(Object value_) {
         Object value = toCanonicalValueRepresentation(value_);
         Set<Setting> retSet = new HashSet<Setting>();
-        Map<Object, Collection<EObject>> valMap = instanceStore.getValueToFeatureToHolderMap().row(value);
 
-        for (Entry<Object, Collection<EObject>> entry : valMap.entrySet()) {
-            final Collection<EObject> holders = entry.getValue();
-            EStructuralFeature feature = metaStore.getKnownFeatureForKey(entry.getKey());
-            for (EObject holder : EMFBaseIndexInstanceStore.holderCollectionToUniqueSet(holders)) {
+        for (Object featureKey : instanceStore.getFeaturesOfValue(value)) {
+            EStructuralFeature feature = metaStore.getKnownFeatureForKey(featureKey);
+            for (EObject holder : instanceStore.getHoldersOfFeatureValue(featureKey, value)) {
                 retSet.add(new NavigationHelperSetting(feature, holder, value));
             }
         }
@@ -342,15 +390,10 @@ public class NavigationHelperImpl implements NavigationHelper {
     public Set<Setting> findByAttributeValue(Object value_, Collection<EAttribute> attributes) {
         Object value = toCanonicalValueRepresentation(value_);
         Set<Setting> retSet = new HashSet<Setting>();
-        Map<Object, Collection<EObject>> valMap = instanceStore.getValueToFeatureToHolderMap().row(value);
 
         for (EAttribute attr : attributes) {
-            Object feature = toKey(attr);
-            final Collection<EObject> holders = valMap.get(feature);
-            if (holders != null) {
-                for (EObject holder : EMFBaseIndexInstanceStore.holderCollectionToUniqueSet(holders)) {
-                    retSet.add(new NavigationHelperSetting(attr, holder, value));
-                }
+            for (EObject holder : getHoldersOfFeatureValue(attr, value)) {
+                retSet.add(new NavigationHelperSetting(attr, holder, value));
             }
         }
 
@@ -360,26 +403,34 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Set<EObject> findByAttributeValue(Object value_, EAttribute attribute) {
         Object value = toCanonicalValueRepresentation(value_);
-        Map<Object, Collection<EObject>> valMap = instanceStore.getValueToFeatureToHolderMap().row(value);
-        Object feature = toKey(attribute);
-        final Collection<EObject> holders = valMap.get(feature);
-        if (holders == null) {
-            return Collections.emptySet();
-        } else {
-            return Collections.unmodifiableSet(EMFBaseIndexInstanceStore.holderCollectionToUniqueSet(holders));
-        }
+        return getHoldersOfFeatureValue(attribute, value);
     }
 
     @Override
     public void processAllFeatureInstances(EStructuralFeature feature, IEStructuralFeatureProcessor processor) {
-        final Map<Object, Collection<EObject>> instanceMap = instanceStore.getValueToFeatureToHolderMap()
-                .column(toKey(feature));
-        for (Entry<Object, Collection<EObject>> entry : instanceMap.entrySet()) {
-            final Collection<EObject> holders = entry.getValue();
-            for (EObject src : EMFBaseIndexInstanceStore.holderCollectionToUniqueSet(holders)) {
-                processor.process(feature, src, entry.getKey());
+        if (adaptiveIndexing != null && !adaptiveIndexing.useIndex(feature, true)) {
+            for (Entry<EObject, Set<Object>> entry : adaptiveIndexing.getHolderToValues(feature).entrySet()) {
+                for (Object value : entry.getValue()) {
+                    processor.process(feature, entry.getKey(), value);
+                }
             }
+            return;
         }
+        instanceStore.processFeatureTuples(toKey(feature), feature, processor);
+    }
+
+    /**
+     * Retrieves the holders of the given value from the index, or by direct navigation in adaptive mode if the feature
+     * is not indexed.
+     * 
+     * @param value
+     *            in canonical representation
+     */
+    private Set<EObject> getHoldersOfFeatureValue(EStructuralFeature feature, Object value) {
+        if (adaptiveIndexing != null && !adaptiveIndexing.useIndex(feature, true)) {
+            return adaptiveIndexing.getHolders(feature, value);
+        }
+        return instanceStore.getHoldersOfFeatureValue(toKey(feature), value);
     }
 
     @Override
@@ -424,12 +475,10 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Set<Setting> getInverseReferences(EObject target) {
         Set<Setting> retSet = new HashSet<Setting>();
-        Map<Object, Collection<EObject>> valMap = instanceStore.getValueToFeatureToHolderMap().row(target);
 
-        for (Entry<Object, Collection<EObject>> entry : valMap.entrySet()) {
-            final Collection<EObject> holders = entry.getValue();
-            for (EObject source : EMFBaseIndexInstanceStore.holderCollectionToUniqueSet(holders)) {
-                EStructuralFeature feature = metaStore.getKnownFeatureForKey(entry.getKey());
+        for (Object featureKey : instanceStore.getFeaturesOfValue(target)) {
+            EStructuralFeature feature = metaStore.getKnownFeatureForKey(featureKey);
+            for (EObject source : instanceStore.getHoldersOfFeatureValue(featureKey, target)) {
                 retSet.add(new NavigationHelperSetting(feature, source, target));
             }
         }
@@ -440,15 +489,10 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Set<Setting> getInverseReferences(EObject target, Collection<EReference> references) {
         Set<Setting> retSet = new HashSet<Setting>();
-        Map<Object, Collection<EObject>> valMap = instanceStore.getValueToFeatureToHolderMap().row(target);
 
         for (EReference ref : references) {
-            Object feature = toKey(ref);
-            final Collection<EObject> holders = valMap.get(feature);
-            if (holders != null) {
-                for (EObject source : EMFBaseIndexInstanceStore.holderCollectionToUniqueSet(holders)) {
-                    retSet.add(new NavigationHelperSetting(ref, source, target));
-                }
+            for (EObject source : getHoldersOfFeatureValue(ref, target)) {
+                retSet.add(new NavigationHelperSetting(ref, source, target));
             }
         }
 
@@ -457,14 +501,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public Set<EObject> getInverseReferences(EObject target, EReference reference) {
-        Object feature = toKey(reference);
-        Map<Object, Collection<EObject>> valMap = instanceStore.getValueToFeatureToHolderMap().row(target);
-        final Collection<EObject> holders = valMap.get(feature);
-        if (holders == null) {
-            return Collections.emptySet();
-        } else {
-            return Collections.unmodifiableSet(EMFBaseIndexInstanceStore.holderCollectionToUniqueSet(holders));
-        }
+        return getHoldersOfFeatureValue(reference, target);
     }
 
     @Override
@@ -476,24 +513,20 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public Set<Object> getFeatureTargets(EObject source, EStructuralFeature _feature) {
-        Object feature = toKey(_feature);
-        final Set<Object> valSet = instanceStore.getHolderToFeatureToValueMap().get(source, feature);
-        if (valSet == null) {
-            return Collections.emptySet();
-        } else {
-            return Collections.unmodifiableSet(valSet);
+        if (adaptiveIndexing != null && !adaptiveIndexing.useIndex(_feature, false)) {
+            return adaptiveIndexing.getValues(source, _feature);
         }
+        Object feature = toKey(_feature);
+        return instanceStore.getValuesOfHolderAndFeature(source, feature);
     }
 
     @Override
     public Map<EObject, Set<Object>> getFeatureInstances(EStructuralFeature _feature) {
-        Object feature = toKey(_feature);
-        final Map<EObject, Set<Object>> valMap = instanceStore.getHolderToFeatureToValueMap().column(feature);
-        if (valMap == null) {
-            return Collections.emptyMap();
-        } else {
-            return Collections.unmodifiableMap(valMap);
+        if (adaptiveIndexing != null && !adaptiveIndexing.useIndex(_feature, true)) {
+            return adaptiveIndexing.getHolderToValues(_feature);
         }
+        Object feature = toKey(_feature);
+        return instanceStore.getHolderToValuesOfFeature(feature);
     }
 
     @Override
@@ -545,29 +578,21 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Set<EObject> findByFeatureValue(Object value_, EStructuralFeature _feature) {
         Object value = toCanonicalValueRepresentation(value_);
-        Object feature = toKey(_feature);
-        Set<EObject> retSet = new HashSet<EObject>();
-        Map<Object, Collection<EObject>> valMap = instanceStore.getValueToFeatureToHolderMap().row(value);
-        final Collection<EObject> holders = valMap.get(feature);
-        if (holders != null) {
-            retSet.addAll(EMFBaseIndexInstanceStore.holderCollectionToUniqueSet(holders));
-        }
-        return retSet;
+        return new HashSet<EObject>(getHoldersOfFeatureValue(_feature, value));
     }
 
     @Override
     public Set<EObject> getHoldersOfFeature(EStructuralFeature _feature) {
-        Object feature = toKey(_feature);
-        Multiset<EObject> holders = instanceStore.getFeatureToHolderMap().get(feature);
-        if (holders == null) {
-            return Collections.emptySet();
-        } else {
-            return Collections.unmodifiableSet(holders.elementSet());
+        if (adaptiveIndexing != null && !adaptiveIndexing.useIndex(_feature, true)) {
+            return adaptiveIndexing.getHolderToValues(_feature).keySet();
         }
+        Object feature = toKey(_feature);
+        return instanceStore.getHoldersOfFeature(feature);
     }
 
     @Override
     public void addInstanceListener(Collection<EClass> classes, InstanceListener listener) {
+        flushNotificationBuffer();
         Set<EClass> registered = this.subscribedInstanceListeners.get(listener);
         if (registered == null) {
             registered = new HashSet<EClass>();
@@ -592,6 +617,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public void removeInstanceListener(Collection<EClass> classes, InstanceListener listener) {
+        flushNotificationBuffer();
         Set<EClass> restriction = this.subscribedInstanceListeners.get(listener);
         if (restriction != null) {
             boolean changed = restriction.removeAll(classes);
@@ -605,6 +631,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public void addFeatureListener(Collection<? extends EStructuralFeature> features, FeatureListener listener) {
+        flushNotificationBuffer();
         Set<EStructuralFeature> registered = this.subscribedFeatureListeners.get(listener);
         if (registered == null) {
             registered = new HashSet<EStructuralFeature>();
@@ -623,6 +650,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public void removeFeatureListener(Collection<? extends EStructuralFeature> features, FeatureListener listener) {
+        flushNotificationBuffer();
         Collection<EStructuralFeature> restriction = this.subscribedFeatureListeners.get(listener);
         if (restriction != null) {
             boolean changed = restriction.removeAll(features);
@@ -636,6 +664,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public void addDataTypeListener(Collection<EDataType> types, DataTypeListener listener) {
+        flushNotificationBuffer();
         Set<EDataType> registered = this.subscribedDataTypeListeners.get(listener);
         if (registered == null) {
             registered = new HashSet<EDataType>();
@@ -654,6 +683,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public void removeDataTypeListener(Collection<EDataType> types, DataTypeListener listener) {
+        flushNotificationBuffer();
         Collection<EDataType> restriction = this.subscribedDataTypeListeners.get(listener);
         if (restriction != null) {
             boolean changed = restriction.removeAll(types);
@@ -702,7 +732,22 @@ public class NavigationHelperImpl implements NavigationHelper {
         return lightweightObservers;
     }
 
+    /**
+     * Delivers the changes buffered by {@link #coalesceNotifications(Callable)} before a listener is added or removed,
+     * so that each listener only receives the changes made while it is subscribed. Otherwise a listener added while
+     * notifications are coalesced would receive the changes already reflected by the index it initializes from.
+     */
+    private void flushNotificationBuffer() {
+        if (notificationBuffer != null && !notificationBuffer.isEmpty()) {
+            notificationBuffer.flush(this);
+        }
+    }
+
     public void notifyBaseIndexChangeListeners() {
+        if (notificationBuffer != null) {
+            // delayed until the end of the coalesced notifications
+            return;
+        }
         notifyBaseIndexChangeListeners(instanceStore.isDirty);
         if (instanceStore.isDirty) {
             instanceStore.isDirty = false;
@@ -730,6 +775,15 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     void notifyDataTypeListeners(final Object typeKey, final Object value, final boolean isInsertion,
             final boolean firstOrLastOccurrence) {
+        if (notificationBuffer != null) {
+            notificationBuffer.dataTypeChanged(typeKey, value, isInsertion, firstOrLastOccurrence);
+        } else {
+            deliverDataTypeListeners(typeKey, value, isInsertion, firstOrLastOccurrence);
+        }
+    }
+
+    void deliverDataTypeListeners(final Object typeKey, final Object value, final boolean isInsertion,
+            final boolean firstOrLastOccurrence) {
         for (final Entry<DataTypeListener, Set<EDataType>> entry : getDataTypeListeners().row(typeKey).entrySet()) {
             final DataTypeListener listener = entry.getKey();
             for (final EDataType subscriptionType : entry.getValue()) {
@@ -744,6 +798,15 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     void notifyFeatureListeners(final EObject host, final Object featureKey, final Object value,
             final boolean isInsertion) {
+        if (notificationBuffer != null) {
+            notificationBuffer.featureChanged(host, featureKey, value, isInsertion);
+        } else {
+            deliverFeatureListeners(host, featureKey, value, isInsertion);
+        }
+    }
+
+    void deliverFeatureListeners(final EObject host, final Object featureKey, final Object value,
+            final boolean isInsertion) {
         for (final Entry<FeatureListener, Set<EStructuralFeature>> entry : getFeatureListeners().row(featureKey)
                 .entrySet()) {
             final FeatureListener listener = entry.getKey();
@@ -758,6 +821,14 @@ public class NavigationHelperImpl implements NavigationHelper {
     }
 
     void notifyInstanceListeners(final Object clazzKey, final EObject instance, final boolean isInsertion) {
+        if (notificationBuffer != null) {
+            notificationBuffer.instanceChanged(clazzKey, instance, isInsertion);
+        } else {
+            deliverInstanceListeners(clazzKey, instance, isInsertion);
+        }
+    }
+
+    void deliverInstanceListeners(final Object clazzKey, final EObject instance, final boolean isInsertion) {
         for (final Entry<InstanceListener, Set<EClass>> entry : getInstanceListeners().row(clazzKey).entrySet()) {
             final InstanceListener listener = entry.getKey();
             for (final EClass subscriptionType : entry.getValue()) {
@@ -1019,6 +1090,9 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public void registerObservedTypes(Set<EClass> classes, Set<EDataType> dataTypes,
             Set<? extends EStructuralFeature> features, final IndexingLevel level) {
+        if (adaptiveIndexing != null) {
+            adaptiveIndexing.featuresRegistered(features);
+        }
         if (isRegistrationNecessary(level) && (classes != null || features != null || dataTypes != null)) {
             final Set<Object> resolvedFeatures = resolveFeaturesToKey(features);
             final Set<Object> resolvedClasses = resolveClassifiersToKey(classes);
@@ -1061,6 +1135,9 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public void registerEStructuralFeatures(Set<? extends EStructuralFeature> features, final IndexingLevel level) {
+        if (adaptiveIndexing != null) {
+            adaptiveIndexing.featuresRegistered(features);
+        }
         if (isRegistrationNecessary(level) && features != null) {
             final Set<Object> resolved = resolveFeaturesToKey(features);
 
@@ -1095,13 +1172,7 @@ public class NavigationHelperImpl implements NavigationHelper {
             observedFeatures.keySet().removeAll(resolved);
             delayedFeatures.keySet().removeAll(resolved);
             for (Object f : resolved) {
-                instanceStore.getValueToFeatureToHolderMap().column(f).clear();
-                if (instanceStore.peekFeatureToHolderMap() != null) {
-                    instanceStore.peekFeatureToHolderMap().remove(f);
-                }
-                if (instanceStore.peekHolderToFeatureToValueMap() != null) {
-                    instanceStore.peekHolderToFeatureToValueMap().column(f).clear();
-                }
+                instanceStore.removeFeature(f);
                 statsStore.removeType(f);
             }
         }
@@ -1230,6 +1301,9 @@ public class NavigationHelperImpl implements NavigationHelper {
                 try {
                     delayTraversals = true;
 
+                    if (firstRun && adaptiveIndexing != null) {
+                        adaptiveIndexing.maintain(delayedFeatures);
+                    }
                     V result = callable.call();
                     if (firstRun) {
                         firstRun = false;
@@ -1292,8 +1366,7 @@ public class NavigationHelperImpl implements NavigationHelper {
                             .difference(delayedClasses, getAllObservedClassesInternal()).areEqual();
 
                     if (!delayedClasses.isEmpty() || !delayedFeatures.isEmpty() || !delayedDataTypes.isEmpty()) {
-                        final HashMap<Object, IndexingLevel> oldClasses = new HashMap<Object, IndexingLevel>(
-                                directlyObservedClasses);
+                        final NavigationHelperVisitor.ObservedTypes existing = getObservedTypesSnapshot();
                         startObservingClasses(delayedClasses);
                         observedDataTypes.putAll(delayedDataTypes);
                         observedFeatures.putAll(delayedFeatures);
@@ -1311,7 +1384,9 @@ public class NavigationHelperImpl implements NavigationHelper {
                         if (classesWarrantTraversal || !toGatherFeatures.isEmpty() || !toGatherDataTypes.isEmpty()) {
                             // repeat the cycle with this visit
                             final NavigationHelperVisitor visitor = new NavigationHelperVisitor.TraversingVisitor(this,
-                                    toGatherFeatures, toGatherClasses, oldClasses, toGatherDataTypes);
+                                    new NavigationHelperVisitor.ObservedTypes(wildcardMode, toGatherFeatures,
+                                            toGatherClasses, toGatherDataTypes),
+                                    existing);
 
                             callable = new Callable<V>() {
                                 @Override
@@ -1341,6 +1416,34 @@ public class NavigationHelperImpl implements NavigationHelper {
         return finalResult;
     }
     
+    @Override
+    public <V> V coalesceNotifications(Callable<V> callable) throws InvocationTargetException {
+        if (notificationBuffer != null) { // reentrant case, no special action needed
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        final NotificationBuffer buffer = new NotificationBuffer();
+        notificationBuffer = buffer;
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            throw new InvocationTargetException(e);
+        } finally {
+            notificationBuffer = null;
+            try {
+                buffer.flush(this);
+            } catch (Exception ex) {
+                notifyFatalListener(
+                        "VIATRA Base encountered an error in delivering notifications about changes. ", ex);
+            }
+            notifyBaseIndexChangeListeners();
+        }
+    }
+    
     private void executeTraversalCallbacks() throws InvocationTargetException{
         final Runnable[] callbacks = traversalCallbacks.toArray(new Runnable[traversalCallbacks.size()]);
         traversalCallbacks.clear();
@@ -1361,12 +1464,50 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     private void traverse(final NavigationHelperVisitor visitor) {
         // Cloning model roots avoids a concurrent modification exception
-        for (Notifier root : new HashSet<Notifier>(modelRoots)) {
-            comprehension.traverseModel(visitor, root);
+        final Collection<Notifier> roots;
+        if (nextTraversalRestriction != null) {
+            roots = nextTraversalRestriction;
+            nextTraversalRestriction = null;
+        } else {
+            roots = new HashSet<Notifier>(modelRoots);
+        }
+        if (baseIndexOptions.isParallelTraversal()) {
+            if (traversalPool == null) {
+                traversalPool = new ForkJoinPool();
+            }
+            new ParallelModelTraversal(baseIndexOptions, comprehension, traversalPool).traverse(visitor, roots);
+        } else {
+            for (Notifier root : roots) {
+                comprehension.traverseModel(visitor, root);
+            }
         }
         notifyBaseIndexChangeListeners();
     }
 
+    /**
+     * Restricts the next traversal to the given resources or model elements, which must be pre-filtered.
+     * 
+     * @param notifiers
+     *            the notifiers to traverse, or null to traverse the model roots
+     */
+    void restrictNextTraversal(Collection<Notifier> notifiers) {
+        nextTraversalRestriction = notifiers;
+    }
+
+    @Override
+    public void saveSnapshot(OutputStream out) throws IOException {
+        BaseIndexSnapshot.write(this, out);
+    }
+
+    @Override
+    public void loadSnapshot(InputStream in) throws IOException {
+        try {
+            BaseIndexSnapshot.read(this, in);
+        } catch (InvocationTargetException ex) {
+            processingFatal(ex.getCause(), "load a base index snapshot");
+        }
+    }
+
     @Override
     public void addRoot(Notifier emfRoot) throws ViatraBaseException {
         addRootInternal(emfRoot);
@@ -1566,11 +1707,19 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public int countFeatureTargets(EObject seedSource, EStructuralFeature feature) {
-        return instanceStore.getHolderToFeatureToValueMap().get(seedSource, toKey(feature)).size();
+        return getFeatureTargets(seedSource, feature).size();
     }
 
     @Override
     public int countFeatures(EStructuralFeature feature) {
+        if (adaptiveIndexing != null && getIndexingLevel(feature) == IndexingLevel.NONE
+                && !adaptiveIndexing.useIndex(feature, true)) {
+            int count = 0;
+            for (Set<Object> values : adaptiveIndexing.getHolderToValues(feature).values()) {
+                count += values.size();
+            }
+            return count;
+        }
         return statsStore.countFeatures(toKey(feature));
     }
 
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.base.core;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -92,26 +93,65 @@ public abstract class NavigationHelperVisitor extends EMFVisitor {
         }
     }
 
+    /**
+     * The indexing levels of the types observed by a base index, explicitly or by the wildcard mode.
+     */
+    public static final class ObservedTypes {
+        private final IndexingLevel wildcardMode;
+        private final Map<Object, IndexingLevel> features;
+        private final Map<Object, IndexingLevel> classes;
+        private final Map<Object, IndexingLevel> dataTypes;
+
+        public ObservedTypes(IndexingLevel wildcardMode, Map<Object, IndexingLevel> features,
+                Map<Object, IndexingLevel> classes, Map<Object, IndexingLevel> dataTypes) {
+            this.wildcardMode = wildcardMode;
+            this.features = features;
+            this.classes = classes;
+            this.dataTypes = dataTypes;
+        }
+
+        /**
+         * @return the state of a base index observing no types at all
+         */
+        public static ObservedTypes none() {
+            return new ObservedTypes(IndexingLevel.NONE, Collections.<Object, IndexingLevel> emptyMap(),
+                    Collections.<Object, IndexingLevel> emptyMap(), Collections.<Object, IndexingLevel> emptyMap());
+        }
+    }
+
     /**
      * A visitor for a single-pass traversal of the whole model, processing only the given types and inserting them.
+     * Types are only inserted (or counted) if they were not indexed (or counted) before the traversal, either
+     * explicitly or by the wildcard mode; otherwise raising a type from {@link IndexingLevel#STATISTICS} to
+     * {@link IndexingLevel#FULL} would count its instances twice.
      */
     public static class TraversingVisitor extends NavigationHelperVisitor {
         private final IndexingLevel wildcardMode;
+        private final IndexingLevel oldWildcardMode;
         Map<Object, IndexingLevel> features;
+        Map<Object, IndexingLevel> oldFeatures;
         Map<Object, IndexingLevel> newClasses;
         Map<Object, IndexingLevel> oldClasses; // if decends from an old class, no need to add!
-        Map<Object, IndexingLevel> classObservationMap; // true for a class even if only a supertype is included in classes;
         Map<Object, IndexingLevel> dataTypes;
-
-        public TraversingVisitor(NavigationHelperImpl navigationHelper, Map<Object, IndexingLevel> features, Map<Object, IndexingLevel> newClasses,
-                Map<Object, IndexingLevel> oldClasses, Map<Object, IndexingLevel> dataTypes) {
+        Map<Object, IndexingLevel> oldDataTypes;
+
+        /**
+         * @param requested
+         *            the wildcard mode after the traversal, and the types to process
+         * @param existing
+         *            the types observed before the traversal; they are not processed again
+         */
+        public TraversingVisitor(NavigationHelperImpl navigationHelper, ObservedTypes requested,
+                ObservedTypes existing) {
             super(navigationHelper, true, true);
-            wildcardMode = navigationHelper.getWildcardLevel();
-            this.features = features;
-            this.newClasses = newClasses;
-            this.oldClasses = oldClasses;
-            this.classObservationMap = new HashMap<Object, IndexingLevel>();
-            this.dataTypes = dataTypes;
+            this.wildcardMode = requested.wildcardMode;
+            this.oldWildcardMode = existing.wildcardMode;
+            this.features = requested.features;
+            this.oldFeatures = existing.features;
+            this.newClasses = requested.classes;
+            this.oldClasses = existing.classes;
+            this.dataTypes = requested.dataTypes;
+            this.oldDataTypes = existing.dataTypes;
         }
 
         private IndexingLevel getExistingIndexingLevel(Object eClass){
@@ -144,54 +184,42 @@ public abstract class NavigationHelperVisitor extends EMFVisitor {
             return result;
         }
         
-        private IndexingLevel getTraversalIndexing(Object eClass){
-            IndexingLevel level = classObservationMap.get(eClass);
-            if (level == null){
-                IndexingLevel existing = getExistingIndexingLevel(eClass);
-                IndexingLevel requested = getRequestedIndexingLevel(eClass);
-                
-                // Calculate the type of indexing which needs to be executed to reach requested indexing state
-                // Considering indexes which are already available
-                if (existing == requested || existing == IndexingLevel.FULL) return IndexingLevel.NONE;
-                if (requested == IndexingLevel.FULL) return IndexingLevel.FULL;
-                if (requested.hasStatistics() == existing.hasStatistics()) return IndexingLevel.NONE;
-                if (requested.hasStatistics()) return IndexingLevel.STATISTICS;
-                return IndexingLevel.NONE;
-            }
-            return level;
-        }
-        
         @Override
         protected boolean observesClass(Object eClass) {
-            if (wildcardMode.hasInstances()) {
-                return true;
-            }
-            return IndexingLevel.FULL == getTraversalIndexing(eClass);
+            IndexingLevel existing = oldWildcardMode.merge(getExistingIndexingLevel(eClass));
+            IndexingLevel requested = wildcardMode.merge(getRequestedIndexingLevel(eClass));
+            return requested.hasInstances() && !existing.hasInstances();
         }
         
         @Override
         protected boolean countsClass(Object eClass) {
-            return wildcardMode.hasStatistics() || getTraversalIndexing(eClass).hasStatistics();
+            IndexingLevel existing = oldWildcardMode.merge(getExistingIndexingLevel(eClass));
+            IndexingLevel requested = wildcardMode.merge(getRequestedIndexingLevel(eClass));
+            return requested.hasStatistics() && !existing.hasStatistics();
         }
 
         @Override
         protected boolean observesDataType(Object type) {
-            return wildcardMode.hasInstances() || (IndexingLevel.FULL == dataTypes.get(type));
+            return wildcardMode.merge(dataTypes.get(type)).hasInstances()
+                    && !oldWildcardMode.merge(oldDataTypes.get(type)).hasInstances();
         }
 
         @Override
         protected boolean observesFeature(Object feature) {
-            return wildcardMode.hasInstances() || (IndexingLevel.FULL == features.get(feature));
+            return wildcardMode.merge(features.get(feature)).hasInstances()
+                    && !oldWildcardMode.merge(oldFeatures.get(feature)).hasInstances();
         }
         
         @Override
         protected boolean countsDataType(Object type) {
-            return wildcardMode.hasStatistics() || dataTypes.containsKey(type) && dataTypes.get(type).hasStatistics();
+            return wildcardMode.merge(dataTypes.get(type)).hasStatistics()
+                    && !oldWildcardMode.merge(oldDataTypes.get(type)).hasStatistics();
         }
         
         @Override
         protected boolean countsFeature(Object feature) {
-            return wildcardMode.hasStatistics() || features.containsKey(feature) && features.get(feature).hasStatistics();
+            return wildcardMode.merge(features.get(feature)).hasStatistics()
+                    && !oldWildcardMode.merge(oldFeatures.get(feature)).hasStatistics();
         }
 
         @Override
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.emf.ecore.EObject;
+
+import com.google.common.base.Objects;
+
+/**
+ * Collects the changes to be delivered to the instance, feature and data type listeners of a
+ * {@link NavigationHelperImpl} while notifications are coalesced. Insertions and deletions of the same element cancel
+ * each other out, so that only the net changes are delivered when the buffer is flushed.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class NotificationBuffer {
+
+    private static final byte INSTANCE = 0;
+    private static final byte FEATURE = 1;
+    private static final byte DATA_TYPE = 2;
+
+    private static final class Change {
+        final byte kind;
+        final Object typeKey;
+        final Object element;
+        final Object value;
+
+        Change(byte kind, Object typeKey, Object element, Object value) {
+            this.kind = kind;
+            this.typeKey = typeKey;
+            this.element = element;
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(kind, typeKey, element, value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Change))
+                return false;
+            Change other = (Change) obj;
+            return kind == other.kind && Objects.equal(typeKey, other.typeKey)
+                    && Objects.equal(element, other.element) && Objects.equal(value, other.value);
+        }
+    }
+
+    /**
+     * The net number of insertions of each change (negative for deletions), and for data type values, whether the
+     * value was present before the first buffered change.
+     */
+    private static final class NetChange {
+        int count = 0;
+        boolean presentBefore;
+    }
+
+    private final Map<Change, NetChange> changes = new LinkedHashMap<Change, NetChange>();
+
+    private NetChange record(Change change, boolean isInsertion) {
+        NetChange netChange = changes.get(change);
+        if (netChange == null) {
+            netChange = new NetChange();
+            changes.put(change, netChange);
+        }
+        netChange.count += isInsertion ? 1 : -1;
+        return netChange;
+    }
+
+    void instanceChanged(Object classKey, EObject instance, boolean isInsertion) {
+        record(new Change(INSTANCE, classKey, instance, null), isInsertion);
+    }
+
+    void featureChanged(EObject host, Object featureKey, Object value, boolean isInsertion) {
+        record(new Change(FEATURE, featureKey, host, value), isInsertion);
+    }
+
+    void dataTypeChanged(Object typeKey, Object value, boolean isInsertion, boolean firstOrLastOccurrence) {
+        Change change = new Change(DATA_TYPE, typeKey, null, value);
+        boolean firstChange = !changes.containsKey(change);
+        NetChange netChange = record(change, isInsertion);
+        if (firstChange) {
+            netChange.presentBefore = !(isInsertion && firstOrLastOccurrence);
+        }
+    }
+
+    boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Delivers the net changes to the listeners, deletions first, and clears the buffer.
+     */
+    void flush(NavigationHelperImpl navigationHelper) {
+        List<Entry<Change, NetChange>> netChanges = new ArrayList<Entry<Change, NetChange>>(changes.entrySet());
+        changes.clear();
+        for (Entry<Change, NetChange> entry : netChanges) {
+            if (entry.getValue().count < 0) {
+                deliver(navigationHelper, entry.getKey(), entry.getValue());
+            }
+        }
+        for (Entry<Change, NetChange> entry : netChanges) {
+            if (entry.getValue().count > 0) {
+                deliver(navigationHelper, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void deliver(NavigationHelperImpl navigationHelper, Change change, NetChange netChange) {
+        boolean isInsertion = netChange.count > 0;
+        int times = Math.abs(netChange.count);
+        switch (change.kind) {
+        case INSTANCE:
+            for (int i = 0; i < times; ++i) {
+                navigationHelper.deliverInstanceListeners(change.typeKey, (EObject) change.element, isInsertion);
+            }
+            break;
+        case FEATURE:
+            for (int i = 0; i < times; ++i) {
+                navigationHelper.deliverFeatureListeners((EObject) change.element, change.typeKey, change.value,
+                        isInsertion);
+            }
+            break;
+        default:
+            Map<Object, Integer> values = navigationHelper.instanceStore.getDataTypeMap(change.typeKey);
+            boolean presentAfter = values != null && values.containsKey(change.value);
+            for (int i = 0; i < times; ++i) {
+                // the first insertion may be a first occurrence, the last deletion may be a last occurrence
+                boolean firstOrLastOccurrence = isInsertion ? (i == 0 && !netChange.presentBefore)
+                        : (i == times - 1 && !presentAfter);
+                navigationHelper.deliverDataTypeListeners(change.typeKey, change.value, isInsertion,
+                        firstOrLastOccurrence);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,422 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.comprehension.EMFModelComprehension;
+import org.eclipse.viatra.query.runtime.base.comprehension.EMFVisitor;
+
+/**
+ * Traverses the model roots with multiple threads. The traversal starts with a task for each top-level element of each
+ * resource; once a task has recorded {@value #SPLIT_THRESHOLD} visits, further contained subtrees it reaches are forked
+ * as separate tasks (while the pool has few queued tasks), so a single large containment tree is also split among the
+ * workers.
+ *
+ * <p>
+ * The workers do the reflective navigation of the model: iterating the structural features and their values, applying
+ * the object filter and the pruning decisions of the visitor, and recognizing the proxies to be resolved. Each task
+ * records the visited elements, attributes and references into its own buffer. The buffers are replayed into the
+ * actual visitor on the calling thread, in the same order as a sequential traversal would visit them, so the index
+ * stores and the listeners of the base index are only accessed by a single thread; the replay of a buffer overlaps with
+ * the traversal of the remaining tasks.
+ *
+ * <p>
+ * Proxies are resolved as in a sequential traversal, but on the calling thread: if the actual visitor asks for the
+ * resolution of a proxy reference, the worker records the proxy and the replay resolves it and traverses the resolved
+ * target in place of the proxy. Thus resources are only loaded (and the resulting notifications delivered) on the
+ * calling thread.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class ParallelModelTraversal {
+
+    /**
+     * The number of visits a task records before forking the subtrees it reaches.
+     */
+    static final int SPLIT_THRESHOLD = 1024;
+
+    /**
+     * Forking stops while the current worker has at least this many queued tasks that were not stolen by others.
+     */
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    private final EMFModelComprehension comprehension;
+    private final SplittingComprehension splittingComprehension;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param options
+     *            the options of the base index, used by the workers to traverse the model
+     * @param comprehension
+     *            the comprehension of the base index, used to traverse the resolved proxies on the calling thread
+     */
+    ParallelModelTraversal(BaseIndexOptions options, EMFModelComprehension comprehension, ForkJoinPool pool) {
+        this.comprehension = comprehension;
+        this.splittingComprehension = new SplittingComprehension(options);
+        this.pool = pool;
+    }
+
+    /**
+     * Traverses the given model roots, with the same effect on the visitor as
+     * {@link EMFModelComprehension#traverseModel(EMFVisitor, Notifier)} invoked for each root.
+     */
+    void traverse(EMFVisitor visitor, Collection<Notifier> roots) {
+        List<TraversalTask> tasks = new ArrayList<TraversalTask>();
+        Map<EStructuralFeature, Boolean> prunedFeatures = new ConcurrentHashMap<EStructuralFeature, Boolean>();
+        for (Notifier root : roots) {
+            if (root instanceof ResourceSet) {
+                for (Resource resource : new ArrayList<Resource>(((ResourceSet) root).getResources())) {
+                    if (!comprehension.isFiltered(resource)) {
+                        addResourceTasks(tasks, visitor, prunedFeatures, resource);
+                    }
+                }
+            } else if (root instanceof Resource) {
+                // model roots are pre-filtered
+                addResourceTasks(tasks, visitor, prunedFeatures, (Resource) root);
+            } else {
+                tasks.add(new TraversalTask(new RecordingVisitor(visitor, prunedFeatures), root, false));
+            }
+        }
+
+        for (TraversalTask task : tasks) {
+            pool.execute(task);
+        }
+        // replay each buffer as soon as it is available, so that it can be released early
+        for (TraversalTask task : tasks) {
+            task.joinAndReplay();
+        }
+    }
+
+    private void addResourceTasks(List<TraversalTask> tasks, EMFVisitor visitor,
+            Map<EStructuralFeature, Boolean> prunedFeatures, Resource resource) {
+        if (visitor.pruneSubtrees(resource)) {
+            return;
+        }
+        for (EObject element : new ArrayList<EObject>(resource.getContents())) {
+            tasks.add(new TraversalTask(new RecordingVisitor(visitor, prunedFeatures), element, true));
+        }
+    }
+
+    private final class TraversalTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RecordingVisitor recorder;
+        private final Notifier root;
+        /**
+         * whether the root is a contained element that has to be checked against the filters
+         */
+        private final boolean filterRoot;
+
+        TraversalTask(RecordingVisitor recorder, Notifier root, boolean filterRoot) {
+            this.recorder = recorder;
+            this.root = root;
+            this.filterRoot = filterRoot;
+        }
+
+        @Override
+        protected void compute() {
+            if (filterRoot) {
+                splittingComprehension.traverseObjectIfUnfiltered(recorder, (EObject) root);
+            } else {
+                splittingComprehension.traverseModel(recorder, root);
+            }
+        }
+
+        /**
+         * Waits for the task to finish, then replays its buffer. Must be called on the calling thread of the traversal.
+         */
+        void joinAndReplay() {
+            join();
+            recorder.replay();
+        }
+    }
+
+    /**
+     * The model comprehension of the workers, which forks subtrees into new tasks and leaves the resolution of proxies
+     * to the replay.
+     */
+    private final class SplittingComprehension extends EMFModelComprehension {
+
+        SplittingComprehension(BaseIndexOptions options) {
+            super(options);
+        }
+
+        @Override
+        public void traverseObjectIfUnfiltered(EMFVisitor visitor, EObject targetObject) {
+            RecordingVisitor recorder = (RecordingVisitor) visitor;
+            if (recorder.shouldSplit()) {
+                TraversalTask subtask = new TraversalTask(recorder.createSubtaskRecorder(), targetObject, true);
+                recorder.recordSubtask(subtask);
+                subtask.fork();
+            } else {
+                super.traverseObjectIfUnfiltered(visitor, targetObject);
+            }
+        }
+
+        @Override
+        protected void traverseFeatureTargets(EMFVisitor visitor, EObject source, EStructuralFeature feature,
+                boolean visitorPrunes) {
+            if (!(feature instanceof EReference) || !((EReference) feature).isResolveProxies()) {
+                super.traverseFeatureTargets(visitor, source, feature, visitorPrunes);
+                return;
+            }
+            RecordingVisitor recorder = (RecordingVisitor) visitor;
+            EReference reference = (EReference) feature;
+            // the targets are not resolved here, see RecordingVisitor#attemptProxyResolutions
+            if (reference.isMany()) {
+                Iterator<?> iterator = ((InternalEList<?>) source.eGet(reference)).basicIterator();
+                int position = 0;
+                while (iterator.hasNext()) {
+                    traverseReferenceTarget(recorder, source, reference, (EObject) iterator.next(), position++);
+                }
+            } else {
+                EObject target = (EObject) source.eGet(reference, false);
+                if (target != null) {
+                    traverseReferenceTarget(recorder, source, reference, target, null);
+                }
+            }
+        }
+
+        private void traverseReferenceTarget(RecordingVisitor recorder, EObject source, EReference reference,
+                EObject target, Integer position) {
+            if (target.eIsProxy() && recorder.resolvesProxies(source, reference)) {
+                recorder.recordResolution(source, reference, target, position);
+            } else {
+                // the feature is traversable and was not pruned, otherwise it would not have been iterated
+                traverseFeature(recorder, source, reference, target, position);
+            }
+        }
+    }
+
+    /**
+     * Records the visits of a traversal to be replayed into the actual visitor later. Decisions of the actual visitor
+     * are requested while holding its lock, and the pruned features are shared between the recorders of a traversal.
+     */
+    private final class RecordingVisitor extends EMFVisitor {
+        private static final byte ELEMENT = 0;
+        private static final byte ATTRIBUTE = 1;
+        private static final byte CONTAINMENT = 2;
+        private static final byte NON_CONTAINMENT = 3;
+        private static final byte PROXY = 4;
+        private static final byte RESOLVE = 5;
+        private static final byte SUBTASK = 6;
+
+        private final EMFVisitor visitor;
+        private final Map<EStructuralFeature, Boolean> prunedFeatures;
+
+        private byte[] kinds = new byte[16];
+        /**
+         * the source, feature and target of each recorded visit
+         */
+        private Object[] operands = new Object[48];
+        private int size = 0;
+
+        RecordingVisitor(EMFVisitor visitor, Map<EStructuralFeature, Boolean> prunedFeatures) {
+            super(visitor.preOrder());
+            this.visitor = visitor;
+            this.prunedFeatures = prunedFeatures;
+        }
+
+        RecordingVisitor createSubtaskRecorder() {
+            return new RecordingVisitor(visitor, prunedFeatures);
+        }
+
+        private void record(byte kind, Object source, Object feature, Object target) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, 2 * size);
+                operands = Arrays.copyOf(operands, 6 * size);
+            }
+            kinds[size] = kind;
+            operands[3 * size] = source;
+            operands[3 * size + 1] = feature;
+            operands[3 * size + 2] = target;
+            size++;
+        }
+
+        boolean shouldSplit() {
+            return size >= SPLIT_THRESHOLD && ForkJoinTask.getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS;
+        }
+
+        void recordSubtask(TraversalTask subtask) {
+            record(SUBTASK, null, null, subtask);
+        }
+
+        void recordResolution(EObject source, EReference reference, EObject proxy, Integer position) {
+            record(RESOLVE, source, reference, new Object[] { proxy, position });
+        }
+
+        /**
+         * Replays the recorded visits into the actual visitor, then releases the buffer. The lock of the visitor is
+         * released while waiting for subtasks, as the workers may need it to request decisions of the visitor.
+         */
+        void replay() {
+            int i = 0;
+            while (i < size) {
+                synchronized (visitor) {
+                    for (; i < size && kinds[i] != SUBTASK; ++i) {
+                        replayVisit(i);
+                    }
+                }
+                if (i < size) {
+                    ((TraversalTask) operands[3 * i + 2]).joinAndReplay();
+                    ++i;
+                }
+            }
+            kinds = null;
+            operands = null;
+            size = 0;
+        }
+
+        private void replayVisit(int i) {
+            EObject source = (EObject) operands[3 * i];
+            Object feature = operands[3 * i + 1];
+            Object target = operands[3 * i + 2];
+            switch (kinds[i]) {
+            case ELEMENT:
+                visitor.visitElement(source);
+                break;
+            case ATTRIBUTE:
+                visitor.visitAttribute(source, (EAttribute) feature, target);
+                break;
+            case CONTAINMENT:
+                visitor.visitInternalContainment(source, (EReference) feature, (EObject) target);
+                break;
+            case NON_CONTAINMENT:
+                visitor.visitNonContainmentReference(source, (EReference) feature, (EObject) target);
+                break;
+            case PROXY:
+                Object[] proxy = (Object[]) target;
+                visitor.visitProxyReference(source, (EReference) feature, (EObject) proxy[0], (Integer) proxy[1]);
+                break;
+            case RESOLVE:
+                Object[] unresolved = (Object[]) target;
+                EReference reference = (EReference) feature;
+                Integer position = (Integer) unresolved[1];
+                EObject resolved = resolve(source, reference, (EObject) unresolved[0], position);
+                comprehension.traverseFeature(visitor, source, reference, resolved, position);
+                break;
+            default:
+                throw new IllegalStateException("Unknown visit kind " + kinds[i]);
+            }
+        }
+
+        /**
+         * Resolves the proxy through the reference, so that the resolved target is also stored by the source.
+         */
+        private EObject resolve(EObject source, EReference reference, EObject proxy, Integer position) {
+            if (!reference.isMany()) {
+                if (source.eGet(reference, false) == proxy) {
+                    return (EObject) source.eGet(reference, true);
+                }
+            } else if (position != null) {
+                @SuppressWarnings("unchecked")
+                EList<EObject> targets = (EList<EObject>) source.eGet(reference);
+                if (position < targets.size() && ((InternalEList<EObject>) targets).basicGet(position) == proxy) {
+                    return targets.get(position);
+                }
+            }
+            return EcoreUtil.resolve(proxy, source);
+        }
+
+        @Override
+        public void visitElement(EObject source) {
+            record(ELEMENT, source, null, null);
+        }
+
+        @Override
+        public void visitAttribute(EObject source, EAttribute feature, Object target) {
+            record(ATTRIBUTE, source, feature, target);
+        }
+
+        @Override
+        public void visitInternalContainment(EObject source, EReference feature, EObject target) {
+            record(CONTAINMENT, source, feature, target);
+        }
+
+        @Override
+        public void visitNonContainmentReference(EObject source, EReference feature, EObject target) {
+            record(NON_CONTAINMENT, source, feature, target);
+        }
+
+        @Override
+        public void visitProxyReference(EObject source, EReference reference, EObject targetObject, Integer position) {
+            record(PROXY, source, reference, new Object[] { targetObject, position });
+        }
+
+        /**
+         * Workers never resolve proxies themselves; the proxies the actual visitor would resolve are recorded by
+         * {@link #recordResolution(EObject, EReference, EObject, Integer)} instead.
+         */
+        @Override
+        public boolean attemptProxyResolutions(EObject source, EReference feature) {
+            return false;
+        }
+
+        /**
+         * Whether the actual visitor would resolve the proxies of the reference in a sequential traversal.
+         */
+        boolean resolvesProxies(EObject source, EReference reference) {
+            synchronized (visitor) {
+                return visitor.attemptProxyResolutions(source, reference);
+            }
+        }
+
+        @Override
+        public boolean pruneFeature(EStructuralFeature feature) {
+            Boolean pruned = prunedFeatures.get(feature);
+            if (pruned == null) {
+                synchronized (visitor) {
+                    pruned = visitor.pruneFeature(feature);
+                }
+                prunedFeatures.put(feature, pruned);
+            }
+            return pruned;
+        }
+
+        @Override
+        public boolean pruneSubtrees(EObject source) {
+            return visitor.pruneSubtrees(source);
+        }
+
+        @Override
+        public boolean pruneSubtrees(Resource source) {
+            return visitor.pruneSubtrees(source);
+        }
+
+        @Override
+        public boolean avoidTransientContainmentLink(EObject source, EReference reference, EObject targetObject) {
+            return visitor.avoidTransientContainmentLink(source, reference, targetObject);
+        }
+    }
+
+}
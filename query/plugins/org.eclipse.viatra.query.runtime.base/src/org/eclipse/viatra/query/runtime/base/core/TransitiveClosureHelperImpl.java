@@ -12,8 +12,10 @@
 package org.eclipse.viatra.query.runtime.base.core;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.emf.ecore.EClass;
@@ -25,14 +27,20 @@ import org.eclipse.viatra.query.runtime.base.api.FeatureListener;
 import org.eclipse.viatra.query.runtime.base.api.InstanceListener;
 import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
 import org.eclipse.viatra.query.runtime.base.api.TransitiveClosureHelper;
-import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IncSCCAlg;
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCIndexAlg;
 import org.eclipse.viatra.query.runtime.base.itc.alg.misc.IGraphPathFinder;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphObserver;
 import org.eclipse.viatra.query.runtime.base.itc.igraph.ITcObserver;
 
 /**
  * Implementation class for the {@link TransitiveClosureHelper}.
  * It uses a {@link NavigationHelper} instance to wrap an EMF model 
- * and make it suitable for the {@link IncSCCAlg} algorithm. 
+ * and make it suitable for the {@link IntIncSCCIndexAlg} algorithm. 
+ * The graph of the {@link EMFDataSource} is mirrored into an {@link IntGraph}, 
+ * so that only a compact reachability index is kept instead of the reachable pairs. 
+ * The helper only observes the algorithm while it has observers itself, 
+ * as the algorithm has to compute the changed pairs on each update for its observers. 
  * 
  * @author Tamas Szabo
  * 
@@ -40,7 +48,48 @@ import org.eclipse.viatra.query.runtime.base.itc.igraph.ITcObserver;
 public class TransitiveClosureHelperImpl extends EContentAdapter implements TransitiveClosureHelper,
         ITcObserver<EObject>, FeatureListener, InstanceListener {
 
-    private IncSCCAlg<EObject> sccAlg;
+    /**
+     * Forwards the changes of the data source to the mirrored graph.
+     */
+    private static final class GraphMirror implements IGraphObserver<EObject> {
+        private static final long serialVersionUID = 4712396351208873466L;
+        private final IntGraph<EObject> graph;
+
+        GraphMirror(EMFDataSource dataSource, IntGraph<EObject> graph) {
+            this.graph = graph;
+            for (EObject node : dataSource.getAllNodes()) {
+                graph.insertNode(node);
+            }
+            for (EObject source : dataSource.getAllNodes()) {
+                for (EObject target : dataSource.getTargetNodes(source)) {
+                    graph.insertEdge(source, target);
+                }
+            }
+        }
+
+        @Override
+        public void edgeInserted(EObject source, EObject target) {
+            graph.insertEdge(source, target);
+        }
+
+        @Override
+        public void edgeDeleted(EObject source, EObject target) {
+            graph.deleteEdge(source, target);
+        }
+
+        @Override
+        public void nodeInserted(EObject n) {
+            graph.insertNode(n);
+        }
+
+        @Override
+        public void nodeDeleted(EObject n) {
+            graph.deleteNode(n);
+        }
+    }
+
+    private IntIncSCCIndexAlg<EObject> sccAlg;
+    private GraphMirror graphMirror;
     private Set<EStructuralFeature> features;
     private Set<EClass> classes;
     private EMFDataSource dataSource;
@@ -65,8 +114,9 @@ public class TransitiveClosureHelperImpl extends EContentAdapter implements Tran
 		
 		this.dataSource = new EMFDataSource(navigationHelper, references, classes);
 		
-        this.sccAlg = new IncSCCAlg<EObject>(dataSource);
-        this.sccAlg.attachObserver(this);
+        this.graphMirror = new GraphMirror(dataSource, new IntGraph<EObject>());
+        this.dataSource.attachObserver(graphMirror);
+        this.sccAlg = new IntIncSCCIndexAlg<EObject>(graphMirror.graph);
     }
     
 	private Set<EClass> collectEClasses() {
@@ -80,12 +130,17 @@ public class TransitiveClosureHelperImpl extends EContentAdapter implements Tran
 
     @Override
     public void attachObserver(ITcObserver<EObject> to) {
+        if (this.tcObservers.isEmpty()) {
+            this.sccAlg.attachObserver(this);
+        }
         this.tcObservers.add(to);
     }
 
     @Override
     public void detachObserver(ITcObserver<EObject> to) {
-        this.tcObservers.remove(to);
+        if (this.tcObservers.remove(to) && this.tcObservers.isEmpty()) {
+            this.sccAlg.detachObserver(this);
+        }
     }
 
     @Override
@@ -93,6 +148,11 @@ public class TransitiveClosureHelperImpl extends EContentAdapter implements Tran
         return this.sccAlg.getAllReachableTargets(source);
     }
 
+    @Override
+    public Map<EObject, Set<EObject>> getAllReachableTargetsOfEach(Collection<EObject> sources) {
+        return this.sccAlg.getAllReachableTargetsOfEach(sources);
+    }
+
     @Override
     public Set<EObject> getAllReachableSources(EObject target) {
         return this.sccAlg.getAllReachableSources(target);
@@ -120,6 +180,7 @@ public class TransitiveClosureHelperImpl extends EContentAdapter implements Tran
     @Override
     public void dispose() {
         this.sccAlg.dispose();
+        this.dataSource.detachObserver(graphMirror);
         this.navigationHelper.removeInstanceListener(classes, this);
         this.navigationHelper.removeFeatureListener(features, this);
         
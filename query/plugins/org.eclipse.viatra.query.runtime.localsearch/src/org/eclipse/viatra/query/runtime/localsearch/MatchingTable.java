@@ -19,8 +19,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 
-import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
@@ -40,7 +40,7 @@ public class MatchingTable extends AbstractCollection<Tuple> {
 
             @Override
             public Tuple apply(MatchingKey input) {
-                return new FlatTuple(input.keys);
+                return Tuples.flatTupleOf(input.keys);
             }
         }).iterator();
     }
@@ -12,13 +12,20 @@
 package org.eclipse.viatra.query.runtime.localsearch.matcher;
 
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.eclipse.viatra.query.runtime.localsearch.MatchingFrame;
+import org.eclipse.viatra.query.runtime.localsearch.MatchingKey;
 import org.eclipse.viatra.query.runtime.localsearch.MatchingTable;
 import org.eclipse.viatra.query.runtime.localsearch.exceptions.LocalSearchException;
 import org.eclipse.viatra.query.runtime.localsearch.plan.IPlanDescriptor;
+import org.eclipse.viatra.query.runtime.localsearch.plan.ISearchPlanExecutorFactory;
 import org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlanExecutor;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
@@ -38,6 +45,7 @@ public class LocalSearchMatcher implements ILocalSearchAdaptable {
     private int frameSize;
     private IPlanDescriptor planDescriptor;
     private List<ILocalSearchAdapter> adapters = Lists.newLinkedList();
+    private ParallelPlanExecution parallelExecution = null;
 
     public ImmutableList<SearchPlanExecutor> getPlan() {
         return plan;
@@ -113,6 +121,56 @@ public class LocalSearchMatcher implements ILocalSearchAdaptable {
 
     }
 
+    /**
+     * Returns the frames produced by a {@link PlanExecutionIterator}, skipping the ones with an already returned key.
+     */
+    private class MatchIterator extends UnmodifiableIterator<Tuple> {
+
+        private final PlanExecutionIterator frames;
+        /**
+         * The keys of the matches returned so far, or null if the plan cannot produce duplicates
+         */
+        private final Set<MatchingKey> returnedKeys;
+        private MatchingFrame nextMatch;
+        private boolean finished;
+
+        public MatchIterator(PlanExecutionIterator frames, boolean filterDuplicates) {
+            this.frames = frames;
+            this.returnedKeys = filterDuplicates ? new HashSet<MatchingKey>() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextMatch != null) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+            while (frames.hasNext()) {
+                MatchingFrame match = frames.next();
+                if (returnedKeys == null || returnedKeys.add(match.getKey())) {
+                    nextMatch = match;
+                    return true;
+                }
+            }
+            finished = true;
+            matchingFinished();
+            return false;
+        }
+
+        @Override
+        public Tuple next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more matches available.");
+            }
+            MatchingFrame match = nextMatch;
+            nextMatch = null;
+            return match;
+        }
+
+    }
+
     /**
      * If a descendant initializes a matcher using the default constructor, it is expected that it also calls the
      * {@link #setPlan(SearchPlanExecutor)} and {@link #setFramesize(int)} methods manually.
@@ -192,6 +250,47 @@ public class LocalSearchMatcher implements ILocalSearchAdaptable {
         this.frameSize = frameSize;
     }
 
+    /**
+     * Enables collecting matches with multiple threads in {@link #getAllMatches(MatchingFrame)} and
+     * {@link #countMatches(MatchingFrame)}: disjunct bodies are executed in parallel, and iterations over all instances
+     * of a class or feature at the start of a body are split into subtasks.
+     * 
+     * <p>
+     * Matches are still collected sequentially if adapters are registered (as they observe a single executor at a
+     * time), or if the matcher is invoked from within a parallel search (e.g. by a pattern call).
+     * 
+     * @param pool
+     *            the pool executing the search tasks
+     * @param executorFactory
+     *            provides an independent copy of the executors of this matcher for each subtask
+     * @since 1.6
+     */
+    public void enableParallelExecution(ForkJoinPool pool, ISearchPlanExecutorFactory executorFactory) {
+        Preconditions.checkArgument(pool != null, "Pool must not be null.");
+        Preconditions.checkArgument(executorFactory != null, "Executor factory must not be null.");
+        this.parallelExecution = new ParallelPlanExecution(pool, executorFactory);
+    }
+
+    private boolean isParallelExecutionApplicable() {
+        return parallelExecution != null && adapters.isEmpty() && !ForkJoinTask.inForkJoinPool();
+    }
+
+    private MatchingTable collectMatches(final MatchingFrame initialFrame) throws LocalSearchException {
+        MatchingTable results = new MatchingTable();
+        if (isParallelExecutionApplicable()) {
+            for (MatchingFrame frame : parallelExecution.collectMatches(plan, initialFrame)) {
+                results.put(frame.getKey(), frame);
+            }
+        } else {
+            PlanExecutionIterator it = new PlanExecutionIterator(plan, initialFrame);
+            while (it.hasNext()) {
+                final MatchingFrame frame = it.next();
+                results.put(frame.getKey(), frame);
+            }
+        }
+        return results;
+    }
+
     public MatchingFrame editableMatchingFrame() {
         return new MatchingFrame(null, frameSize);
     }
@@ -216,13 +315,7 @@ public class LocalSearchMatcher implements ILocalSearchAdaptable {
 
     public int countMatches(MatchingFrame initialFrame) throws LocalSearchException {
     	matchingStarted();
-        PlanExecutionIterator it = new PlanExecutionIterator(plan, initialFrame);
-        
-        MatchingTable results = new MatchingTable();
-        while (it.hasNext()) {
-            final MatchingFrame frame = it.next();
-            results.put(frame.getKey(), frame);
-        }
+        MatchingTable results = collectMatches(initialFrame);
         
         int result = results.size();
         
@@ -267,15 +360,27 @@ public class LocalSearchMatcher implements ILocalSearchAdaptable {
 		}		
 	}
 
+    /**
+     * Returns the matches conforming to the given initial frame lazily: the search plan is only executed as far as
+     * needed to produce the match requested from the returned iterator. Each match is returned only once.
+     * 
+     * <p>
+     * The iterator uses the search operations of this matcher, so no other search may be executed with them (e.g. via
+     * another iterator) until the iterator is exhausted or abandoned. Adapters are notified that the matching has
+     * finished only when the iterator is exhausted.
+     * 
+     * @since 1.6
+     */
+    public Iterator<Tuple> iterateMatches(final MatchingFrame initialFrame) {
+        matchingStarted();
+        // with a single body binding nothing but the parameters, every frame is a distinct match
+        boolean filterDuplicates = plan.size() > 1 || frameSize > getParameterCount();
+        return new MatchIterator(new PlanExecutionIterator(plan, initialFrame), filterDuplicates);
+    }
+
 	public Collection<Tuple> getAllMatches(final MatchingFrame initialFrame) throws LocalSearchException {
         matchingStarted();
-		PlanExecutionIterator it = new PlanExecutionIterator(plan, initialFrame);        
-        
-        MatchingTable results = new MatchingTable();
-        while (it.hasNext()) {
-            final MatchingFrame frame = it.next();
-            results.put(frame.getKey(), frame);
-        }
+        MatchingTable results = collectMatches(initialFrame);
         matchingFinished();
         return ImmutableList.copyOf(results.iterator());
     }
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.matcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.eclipse.viatra.query.runtime.localsearch.MatchingFrame;
+import org.eclipse.viatra.query.runtime.localsearch.exceptions.LocalSearchException;
+import org.eclipse.viatra.query.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.viatra.query.runtime.localsearch.operations.check.CheckOperation;
+import org.eclipse.viatra.query.runtime.localsearch.operations.extend.IterateOverEClassInstances;
+import org.eclipse.viatra.query.runtime.localsearch.operations.extend.IterateOverEStructuralFeatureInstances;
+import org.eclipse.viatra.query.runtime.localsearch.plan.ISearchPlanExecutorFactory;
+import org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlan;
+import org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlanExecutor;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+
+/**
+ * Collects all matches of a search plan with multiple threads. Each disjunct body is executed as a separate task;
+ * furthermore, if the first extend operation of a body iterates over all instances of a class or feature, its results
+ * are split into chunks that are processed by separate subtasks.
+ * 
+ * <p>
+ * Every subtask works on its own copy of the matching frame and with its own search operations, obtained from an
+ * {@link ISearchPlanExecutorFactory}.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class ParallelPlanExecution {
+
+    /**
+     * The number of chunks per worker thread the top-level extend is split into, to balance uneven workloads.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final ISearchPlanExecutorFactory executorFactory;
+
+    ParallelPlanExecution(ForkJoinPool pool, ISearchPlanExecutorFactory executorFactory) {
+        this.pool = pool;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * @return all frames found by the given executors, possibly containing duplicates
+     * @throws LocalSearchException
+     *             the first exception thrown by a search operation in any of the subtasks
+     */
+    List<MatchingFrame> collectMatches(List<SearchPlanExecutor> executors, MatchingFrame initialFrame)
+            throws LocalSearchException {
+        try {
+            return pool.invoke(new DisjunctionTask(executors, initialFrame));
+        } catch (SearchTaskException e) {
+            // the fork-join framework may rethrow a copy of the exception, which has the original as its cause
+            Throwable cause = e;
+            while (cause instanceof SearchTaskException) {
+                cause = cause.getCause();
+            }
+            throw (LocalSearchException) cause;
+        }
+    }
+
+    private static List<MatchingFrame> executeSequentially(SearchPlanExecutor executor, MatchingFrame frame)
+            throws LocalSearchException {
+        List<MatchingFrame> result = new ArrayList<MatchingFrame>();
+        executor.resetPlan();
+        while (executor.execute(frame)) {
+            result.add(frame.clone());
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the first operation that is not a check, if it can be split; -1 otherwise
+     */
+    private static int findSplittableExtend(List<ISearchOperation> operations) {
+        for (int i = 0; i < operations.size(); ++i) {
+            ISearchOperation operation = operations.get(i);
+            if (!(operation instanceof CheckOperation)) {
+                boolean splittable = operation instanceof IterateOverEClassInstances
+                        || operation instanceof IterateOverEStructuralFeatureInstances;
+                return splittable ? i : -1;
+            }
+        }
+        return -1;
+    }
+
+    private final class DisjunctionTask extends RecursiveTask<List<MatchingFrame>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<SearchPlanExecutor> executors;
+        private final MatchingFrame initialFrame;
+
+        DisjunctionTask(List<SearchPlanExecutor> executors, MatchingFrame initialFrame) {
+            this.executors = executors;
+            this.initialFrame = initialFrame;
+        }
+
+        @Override
+        protected List<MatchingFrame> compute() {
+            List<BodyTask> bodyTasks = new ArrayList<BodyTask>(executors.size());
+            for (SearchPlanExecutor executor : executors) {
+                bodyTasks.add(new BodyTask(executor, initialFrame));
+            }
+            invokeAll(bodyTasks);
+            List<MatchingFrame> result = new ArrayList<MatchingFrame>();
+            for (BodyTask task : bodyTasks) {
+                result.addAll(task.join());
+            }
+            return result;
+        }
+    }
+
+    private final class BodyTask extends RecursiveTask<List<MatchingFrame>> {
+        private static final long serialVersionUID = 1L;
+
+        private final SearchPlanExecutor executor;
+        private final MatchingFrame initialFrame;
+
+        BodyTask(SearchPlanExecutor executor, MatchingFrame initialFrame) {
+            this.executor = executor;
+            this.initialFrame = initialFrame;
+        }
+
+        @Override
+        protected List<MatchingFrame> compute() {
+            try {
+                List<ISearchOperation> operations = executor.getSearchPlan().getOperations();
+                int splitIndex = findSplittableExtend(operations);
+                if (splitIndex < 0) {
+                    return executeSequentially(executor, initialFrame.clone());
+                }
+                ISearchOperation extend = operations.get(splitIndex);
+                Map<Integer, PVariable> variables = executor.getVariableMapping();
+                List<Integer> positions = extend.getVariablePositions();
+                PVariable[] boundVariables = new PVariable[positions.size()];
+                for (int i = 0; i < boundVariables.length; ++i) {
+                    boundVariables[i] = variables.get(positions.get(i));
+                }
+                List<Object[]> bindings = enumerateBindings(operations, splitIndex);
+                List<ChunkTask> chunkTasks = new ArrayList<ChunkTask>();
+                int chunkSize = Math.max(1, bindings.size() / (pool.getParallelism() * CHUNKS_PER_THREAD));
+                for (int from = 0; from < bindings.size(); from += chunkSize) {
+                    int to = Math.min(bindings.size(), from + chunkSize);
+                    chunkTasks.add(new ChunkTask(executor, splitIndex, boundVariables, bindings.subList(from, to),
+                            initialFrame));
+                }
+                invokeAll(chunkTasks);
+                List<MatchingFrame> result = new ArrayList<MatchingFrame>();
+                for (ChunkTask task : chunkTasks) {
+                    result.addAll(task.join());
+                }
+                return result;
+            } catch (LocalSearchException e) {
+                throw new SearchTaskException(e);
+            }
+        }
+
+        /**
+         * Executes the leading checks and the splittable extend operation of the body, recording the values assigned
+         * by the extend to the variables at its {@link ISearchOperation#getVariablePositions()}, in that order.
+         */
+        private List<Object[]> enumerateBindings(List<ISearchOperation> operations, int splitIndex)
+                throws LocalSearchException {
+            List<Object[]> bindings = new ArrayList<Object[]>();
+            ISearchContext context = executor.getContext();
+            // the operations are executed directly, but their state must not be kept from a previous execution
+            executor.resetPlan();
+            MatchingFrame frame = initialFrame.clone();
+            for (int i = 0; i < splitIndex; ++i) {
+                ISearchOperation check = operations.get(i);
+                check.onInitialize(frame, context);
+                if (!check.execute(frame, context)) {
+                    return bindings;
+                }
+            }
+            ISearchOperation extend = operations.get(splitIndex);
+            List<Integer> positions = extend.getVariablePositions();
+            extend.onInitialize(frame, context);
+            while (extend.execute(frame, context)) {
+                Object[] binding = new Object[positions.size()];
+                for (int i = 0; i < binding.length; ++i) {
+                    binding[i] = frame.getValue(positions.get(i));
+                }
+                bindings.add(binding);
+            }
+            extend.onBacktrack(frame, context);
+            return bindings;
+        }
+    }
+
+    private final class ChunkTask extends RecursiveTask<List<MatchingFrame>> {
+        private static final long serialVersionUID = 1L;
+
+        private final SearchPlanExecutor template;
+        private final int splitIndex;
+        private final PVariable[] boundVariables;
+        private final List<Object[]> bindings;
+        private final MatchingFrame initialFrame;
+
+        ChunkTask(SearchPlanExecutor template, int splitIndex, PVariable[] boundVariables, List<Object[]> bindings,
+                MatchingFrame initialFrame) {
+            this.template = template;
+            this.splitIndex = splitIndex;
+            this.boundVariables = boundVariables;
+            this.bindings = bindings;
+            this.initialFrame = initialFrame;
+        }
+
+        @Override
+        protected List<MatchingFrame> compute() {
+            try {
+                SearchPlanExecutor copy = executorFactory.createExecutor(template);
+                // the extend operation is replaced by the pre-bound values of the chunk
+                List<ISearchOperation> operations = new ArrayList<ISearchOperation>(copy.getSearchPlan().getOperations());
+                operations.remove(splitIndex);
+                SearchPlan remainder = new SearchPlan();
+                remainder.addOperations(operations);
+                Map<PVariable, Integer> positions = copy.getVariableMapping().inverse();
+                SearchPlanExecutor executor = new SearchPlanExecutor(remainder, copy.getContext(), positions);
+                int[] boundPositions = new int[boundVariables.length];
+                for (int i = 0; i < boundPositions.length; ++i) {
+                    boundPositions[i] = positions.get(boundVariables[i]);
+                }
+
+                List<MatchingFrame> result = new ArrayList<MatchingFrame>();
+                MatchingFrame frame = initialFrame.clone();
+                // the plan is only reset once for the whole chunk, so operations may reuse their state between bindings
+                executor.resetPlan();
+                for (Object[] binding : bindings) {
+                    for (int i = 0; i < boundPositions.length; ++i) {
+                        frame.setValue(boundPositions[i], binding[i]);
+                    }
+                    // an exhausted plan starts from its first operation again
+                    while (executor.execute(frame)) {
+                        result.add(frame.clone());
+                    }
+                }
+                return result;
+            } catch (LocalSearchException e) {
+                throw new SearchTaskException(e);
+            }
+        }
+    }
+
+    /**
+     * Carries a {@link LocalSearchException} out of a search task; unwrapped by
+     * {@link ParallelPlanExecution#collectMatches(List, MatchingFrame)}.
+     */
+    private static final class SearchTaskException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SearchTaskException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+}
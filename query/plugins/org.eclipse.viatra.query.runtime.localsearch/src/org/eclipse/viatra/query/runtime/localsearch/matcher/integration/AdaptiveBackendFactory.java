@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
+
+import org.eclipse.viatra.query.runtime.matchers.backend.IMatcherCapability;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.context.IQueryBackendContext;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+
+/**
+ * Creates {@link AdaptiveQueryBackend}s, which evaluate each query with local search, and switch to incremental
+ * evaluation for the queries that are queried often enough to amortize the construction of a Rete network. See
+ * {@link AdaptiveBackendHintOptions} for the parameters of the decision.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public enum AdaptiveBackendFactory implements IQueryBackendFactory {
+
+    INSTANCE;
+
+    @Override
+    public IQueryBackend create(IQueryBackendContext context) {
+        return new AdaptiveQueryBackend(context);
+    }
+
+    @Override
+    public Class<? extends IQueryBackend> getBackendClass() {
+        return AdaptiveQueryBackend.class;
+    }
+
+    /**
+     * As long as a query is evaluated by local search, the capabilities of the local search matcher are required.
+     */
+    @Override
+    public IMatcherCapability calculateRequiredCapability(PQuery query, QueryEvaluationHint hint) {
+        return LocalSearchHints.parse(hint);
+    }
+
+}
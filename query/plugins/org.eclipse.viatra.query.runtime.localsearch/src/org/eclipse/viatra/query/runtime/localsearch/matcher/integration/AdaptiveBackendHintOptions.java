@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
+
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryHintOption;
+
+/**
+ * Hint options of the {@link AdaptiveBackendFactory adaptive backend}; the local search options of
+ * {@link LocalSearchHintOptions} apply as well, while a query is evaluated by local search.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class AdaptiveBackendHintOptions {
+
+    /**
+     * A query is switched to incremental evaluation once the estimated cost of its local search executions exceeds
+     * this many times the estimated cost of building its Rete network. The cost of an execution is estimated from
+     * the number of model elements to be scanned, depending on which parameters are bound (and what they determine
+     * functionally); the cost of building the network is estimated as that of an execution without bound
+     * parameters.
+     */
+    public static final QueryHintOption<Double> INCREMENTAL_COST_FACTOR = 
+            hintOption("INCREMENTAL_COST_FACTOR", 4.0);
+
+    /**
+     * An incrementally evaluated query without update listeners is switched back to local search if it was not
+     * queried while the queries of the backend were queried this many times. Once no query is evaluated
+     * incrementally, the Rete network is disposed to free its memory. Non-positive values disable switching back.
+     */
+    public static final QueryHintOption<Integer> IDLE_CALL_LIMIT = 
+            hintOption("IDLE_CALL_LIMIT", 10000);
+
+    // internal helper for conciseness
+    private static <T> QueryHintOption<T> hintOption(String hintKeyLocalName, T defaultValue) {
+        return new QueryHintOption<T>(AdaptiveBackendHintOptions.class, hintKeyLocalName, defaultValue);
+    }
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
+
+import java.util.Collection;
+
+import org.eclipse.viatra.query.runtime.matchers.backend.IBatchingQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IMatcherCapability;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.context.IQueryBackendContext;
+import org.eclipse.viatra.query.runtime.matchers.planning.QueryProcessingException;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * A query backend that evaluates each query by local search at first, and decides per query, based on model
+ * statistics and the observed calls, whether to switch to incremental evaluation by a Rete network owned by this
+ * backend; see {@link AdaptiveBackendHintOptions}. Queries with update listeners are always evaluated incrementally.
+ *
+ * <p>
+ * Incrementally evaluated queries that are not queried for a while are switched back to local search. As the Rete
+ * network cannot release the nodes of individual queries, its memory is freed by disposing it once no query is
+ * evaluated incrementally; it is rebuilt on demand.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class AdaptiveQueryBackend implements IBatchingQueryBackend, IMemoryFootprintProvider {
+
+    /**
+     * The number of calls between two checks for idle incrementally evaluated queries.
+     */
+    private static final int IDLE_CHECK_INTERVAL = 1024;
+
+    private final IQueryBackendContext context;
+    private final LocalSearchBackend localSearchBackend;
+    private IQueryBackend reteBackend = null;
+
+    private final Multimap<PQuery, AdaptiveResultProvider> resultProviderCache = ArrayListMultimap.create();
+
+    /**
+     * The number of calls to the result providers of this backend, used as a logical clock.
+     */
+    private long clock = 0;
+
+    /**
+     * The number of batches currently open, see {@link #beginBatch()}.
+     */
+    private int batchDepth = 0;
+
+    public AdaptiveQueryBackend(IQueryBackendContext context) {
+        this.context = context;
+        this.localSearchBackend = new LocalSearchBackend(context);
+    }
+
+    @Override
+    public boolean isCaching() {
+        return false;
+    }
+
+    @Override
+    public IQueryResultProvider getResultProvider(PQuery query) throws QueryProcessingException {
+        return getResultProvider(query, null);
+    }
+
+    @Override
+    public synchronized IQueryResultProvider getResultProvider(PQuery query, QueryEvaluationHint hints)
+            throws QueryProcessingException {
+        IMatcherCapability requestedCapability = context.getHintProvider().getQueryEvaluationHint(query)
+                .overrideBy(hints).calculateRequiredCapability(query);
+        for (AdaptiveResultProvider existingResultProvider : resultProviderCache.get(query)) {
+            if (requestedCapability.canBeSubstitute(existingResultProvider.getCapabilites())) {
+                return existingResultProvider;
+            }
+        }
+        LocalSearchResultProvider localSearchProvider = (LocalSearchResultProvider) localSearchBackend
+                .getResultProvider(query, hints);
+        AdaptiveResultProvider resultProvider = new AdaptiveResultProvider(this, context, query, hints,
+                localSearchProvider);
+        resultProviderCache.put(query, resultProvider);
+        return resultProvider;
+    }
+
+    @Override
+    public synchronized IQueryResultProvider peekExistingResultProvider(PQuery query) {
+        Collection<AdaptiveResultProvider> existingResultProviders = resultProviderCache.get(query);
+        return existingResultProviders.isEmpty() ? null : existingResultProviders.iterator().next();
+    }
+
+    @Override
+    public synchronized void dispose() {
+        resultProviderCache.clear();
+        localSearchBackend.dispose();
+        if (reteBackend != null) {
+            reteBackend.dispose();
+            reteBackend = null;
+        }
+    }
+
+    /**
+     * Batches are forwarded to the Rete network; a network created during a batch joins the open batches.
+     */
+    @Override
+    public synchronized void beginBatch() {
+        batchDepth++;
+        if (reteBackend instanceof IBatchingQueryBackend) {
+            ((IBatchingQueryBackend) reteBackend).beginBatch();
+        }
+    }
+
+    @Override
+    public synchronized void endBatch() {
+        if (batchDepth == 0)
+            throw new IllegalStateException("No batch has been started");
+        batchDepth--;
+        if (reteBackend instanceof IBatchingQueryBackend) {
+            ((IBatchingQueryBackend) reteBackend).endBatch();
+        }
+    }
+
+    /**
+     * Reports the memory used by the Rete network, if there is one.
+     */
+    @Override
+    public synchronized void collectMemoryFootprint(MemoryFootprint footprint) {
+        if (reteBackend instanceof IMemoryFootprintProvider) {
+            ((IMemoryFootprintProvider) reteBackend).collectMemoryFootprint(footprint);
+        }
+    }
+
+    /**
+     * @return the local search backend evaluating the queries that are not evaluated incrementally
+     */
+    public LocalSearchBackend getLocalSearchBackend() {
+        return localSearchBackend;
+    }
+
+    /**
+     * @return the backend evaluating the queries incrementally, created on demand
+     */
+    synchronized IQueryBackend getReteBackend() {
+        if (reteBackend == null) {
+            reteBackend = new ReteBackendFactory().create(context);
+            if (reteBackend instanceof IBatchingQueryBackend) {
+                for (int i = 0; i < batchDepth; i++) {
+                    ((IBatchingQueryBackend) reteBackend).beginBatch();
+                }
+            }
+        }
+        return reteBackend;
+    }
+
+    /**
+     * Registers a call to one of the result providers, and periodically switches idle incrementally evaluated queries
+     * back to local search. The result providers of this backend synchronize on the backend as well.
+     *
+     * @return the current time of the logical clock
+     */
+    synchronized long tick() {
+        clock++;
+        if (clock % IDLE_CHECK_INTERVAL == 0) {
+            releaseIdleQueries();
+        }
+        return clock;
+    }
+
+    private void releaseIdleQueries() {
+        boolean reteInUse = false;
+        for (AdaptiveResultProvider resultProvider : resultProviderCache.values()) {
+            if (resultProvider.isIncremental()) {
+                int idleLimit = resultProvider.getIdleCallLimit();
+                if (idleLimit > 0 && clock - resultProvider.getLastAccess() > idleLimit
+                        && resultProvider.switchToLocalSearch()) {
+                    context.getLogger().debug(
+                            "Switched idle query " + resultProvider.getQuery().getFullyQualifiedName()
+                                    + " back to local search");
+                } else {
+                    reteInUse = true;
+                }
+            }
+        }
+        if (!reteInUse && reteBackend != null) {
+            reteBackend.dispose();
+            reteBackend = null;
+        }
+    }
+
+}
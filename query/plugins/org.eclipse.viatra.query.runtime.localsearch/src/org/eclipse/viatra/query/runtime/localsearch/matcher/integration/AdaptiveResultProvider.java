@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.backend.IMatcherCapability;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.IStreamingQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.IUpdateable;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.context.IInputKey;
+import org.eclipse.viatra.query.runtime.matchers.context.IQueryBackendContext;
+import org.eclipse.viatra.query.runtime.matchers.context.IQueryRuntimeContext;
+import org.eclipse.viatra.query.runtime.matchers.context.IndexingService;
+import org.eclipse.viatra.query.runtime.matchers.planning.QueryProcessingException;
+import org.eclipse.viatra.query.runtime.matchers.planning.helpers.FunctionalDependencyHelper;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PBody;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.TypeConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+
+/**
+ * The result provider of the {@link AdaptiveQueryBackend}, which delegates to a local search result provider until
+ * the query is switched to incremental evaluation, and to a Rete result provider afterwards. The state of the
+ * providers of a backend is guarded by the lock of the backend.
+ *
+ * <p>
+ * The cost of each local search execution is estimated by the adornment of the call: if the bound parameters
+ * functionally determine all parameters (according to the {@link org.eclipse.viatra.query.runtime.matchers.psystem.analysis.QueryAnalyzer}),
+ * the execution is a check of cost 1; if no parameters are bound, the whole model relevant to the query has to be
+ * scanned, whose size is estimated from the base index statistics; otherwise the square root of the latter is taken.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class AdaptiveResultProvider implements IStreamingQueryResultProvider {
+
+    private final AdaptiveQueryBackend backend;
+    private final IQueryBackendContext context;
+    private final PQuery query;
+    private final QueryEvaluationHint hints;
+    private final LocalSearchResultProvider localSearchProvider;
+
+    private IQueryResultProvider incrementalProvider = null;
+    /**
+     * true if the query could not be evaluated incrementally; it is not attempted again
+     */
+    private boolean incrementalFailed = false;
+    private final Set<Object> listenerTags = new HashSet<Object>();
+
+    /**
+     * estimated cost of local search executions by the bound parameter indices
+     */
+    private final Map<Set<Integer>, Double> costOfAdornments = new HashMap<Set<Integer>, Double>();
+    private double scanCost = -1;
+    private double accumulatedCost = 0;
+    private long lastAccess = 0;
+
+    AdaptiveResultProvider(AdaptiveQueryBackend backend, IQueryBackendContext context, PQuery query,
+            QueryEvaluationHint hints, LocalSearchResultProvider localSearchProvider) {
+        this.backend = backend;
+        this.context = context;
+        this.query = query;
+        this.hints = hints;
+        this.localSearchProvider = localSearchProvider;
+    }
+
+    public PQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return true if the query is currently evaluated incrementally
+     */
+    public boolean isIncremental() {
+        synchronized (backend) {
+            return incrementalProvider != null;
+        }
+    }
+
+    IMatcherCapability getCapabilites() {
+        return localSearchProvider.getCapabilites();
+    }
+
+    long getLastAccess() {
+        synchronized (backend) {
+            return lastAccess;
+        }
+    }
+
+    int getIdleCallLimit() {
+        return AdaptiveBackendHintOptions.IDLE_CALL_LIMIT.getValueOrDefault(getHints());
+    }
+
+    private QueryEvaluationHint getHints() {
+        return context.getHintProvider().getQueryEvaluationHint(query).overrideBy(hints);
+    }
+
+    // ********* delegation *********
+
+    @Override
+    public int countMatches(Object[] parameters) {
+        return selectProvider(parameters).countMatches(parameters);
+    }
+
+    @Override
+    public Tuple getOneArbitraryMatch(Object[] parameters) {
+        return selectProvider(parameters).getOneArbitraryMatch(parameters);
+    }
+
+    @Override
+    public Collection<? extends Tuple> getAllMatches(Object[] parameters) {
+        return selectProvider(parameters).getAllMatches(parameters);
+    }
+
+    /**
+     * Matches are streamed while the query is evaluated by local search; the matches of a Rete result provider are
+     * already stored, so they are iterated directly.
+     */
+    @Override
+    public Iterator<? extends Tuple> iterateMatches(Object[] parameters) {
+        IQueryResultProvider provider = selectProvider(parameters);
+        if (provider instanceof IStreamingQueryResultProvider) {
+            return ((IStreamingQueryResultProvider) provider).iterateMatches(parameters);
+        } else {
+            return provider.getAllMatches(parameters).iterator();
+        }
+    }
+
+    /**
+     * @return the backend currently evaluating the query
+     */
+    @Override
+    public IQueryBackend getQueryBackend() {
+        synchronized (backend) {
+            return (incrementalProvider == null) ? localSearchProvider.getQueryBackend()
+                    : incrementalProvider.getQueryBackend();
+        }
+    }
+
+    /**
+     * Switches the query to incremental evaluation, as local search cannot deliver updates.
+     */
+    @Override
+    public void addUpdateListener(IUpdateable listener, Object listenerTag, boolean fireNow) {
+        IQueryResultProvider provider;
+        synchronized (backend) {
+            listenerTags.add(listenerTag);
+            provider = switchToIncremental() ? incrementalProvider : localSearchProvider;
+        }
+        provider.addUpdateListener(listener, listenerTag, fireNow);
+    }
+
+    @Override
+    public void removeUpdateListener(Object listenerTag) {
+        IQueryResultProvider provider;
+        synchronized (backend) {
+            listenerTags.remove(listenerTag);
+            provider = (incrementalProvider == null) ? localSearchProvider : incrementalProvider;
+        }
+        provider.removeUpdateListener(listenerTag);
+    }
+
+    // ********* adaptation *********
+
+    /**
+     * Accounts for a call with the given parameters, and selects the provider to evaluate it.
+     */
+    private IQueryResultProvider selectProvider(Object[] parameters) {
+        synchronized (backend) {
+            lastAccess = backend.tick();
+            if (incrementalProvider == null && !incrementalFailed) {
+                accumulatedCost += estimateCost(parameters);
+                double threshold = AdaptiveBackendHintOptions.INCREMENTAL_COST_FACTOR.getValueOrDefault(getHints())
+                        * getScanCost();
+                if (accumulatedCost > threshold) {
+                    switchToIncremental();
+                }
+            }
+            return (incrementalProvider == null) ? localSearchProvider : incrementalProvider;
+        }
+    }
+
+    /**
+     * Must be called while holding the lock of the backend.
+     * 
+     * @return true if the query is evaluated incrementally
+     */
+    private boolean switchToIncremental() {
+        if (incrementalProvider == null && !incrementalFailed) {
+            try {
+                incrementalProvider = backend.getReteBackend().getResultProvider(query, hints);
+                context.getLogger().debug(
+                        "Switched query " + query.getFullyQualifiedName() + " to incremental evaluation");
+            } catch (QueryProcessingException e) {
+                incrementalFailed = true;
+                context.getLogger().warn(
+                        "Query " + query.getFullyQualifiedName()
+                                + " could not be evaluated incrementally, falling back to local search", e);
+            }
+        }
+        return incrementalProvider != null;
+    }
+
+    /**
+     * Switches the query back to local search, unless it has update listeners. Must be called while holding the lock
+     * of the backend.
+     *
+     * @return true if the query was switched
+     */
+    boolean switchToLocalSearch() {
+        if (incrementalProvider == null || !listenerTags.isEmpty()) {
+            return false;
+        }
+        incrementalProvider = null;
+        accumulatedCost = 0;
+        scanCost = -1;
+        return true;
+    }
+
+    private double estimateCost(Object[] parameters) {
+        Set<Integer> boundParameters = new HashSet<Integer>();
+        for (int i = 0; i < parameters.length; ++i) {
+            if (parameters[i] != null) {
+                boundParameters.add(i);
+            }
+        }
+        Double cost = costOfAdornments.get(boundParameters);
+        if (cost == null) {
+            Set<Integer> determined = FunctionalDependencyHelper.closureOf(boundParameters, context
+                    .getQueryAnalyzer().getProjectedFunctionalDependencies(query, false));
+            if (determined.size() == parameters.length) {
+                cost = 1.0;
+            } else if (boundParameters.isEmpty()) {
+                cost = getScanCost();
+            } else {
+                cost = Math.sqrt(getScanCost());
+            }
+            costOfAdornments.put(boundParameters, cost);
+        }
+        return cost;
+    }
+
+    /**
+     * Estimates the number of model elements scanned by an execution without bound parameters: for each body, the
+     * size of the smallest indexed type it enumerates.
+     */
+    private double getScanCost() {
+        if (scanCost < 0) {
+            IQueryRuntimeContext runtimeContext = context.getRuntimeContext();
+            double result = 0;
+            for (PBody body : query.getDisjunctBodies().getBodies()) {
+                double bodyCost = Double.POSITIVE_INFINITY;
+                for (TypeConstraint constraint : body.getConstraintsOfType(TypeConstraint.class)) {
+                    IInputKey key = constraint.getSupplierKey();
+                    if (key.isEnumerable() && runtimeContext.isIndexed(key, IndexingService.STATISTICS)) {
+                        bodyCost = Math.min(bodyCost, runtimeContext.countTuples(key, null));
+                    }
+                }
+                result += Double.isInfinite(bodyCost) ? 1 : Math.max(1, bodyCost);
+            }
+            scanCost = Math.max(1, result);
+            costOfAdornments.clear();
+        }
+        return scanCost;
+    }
+
+}
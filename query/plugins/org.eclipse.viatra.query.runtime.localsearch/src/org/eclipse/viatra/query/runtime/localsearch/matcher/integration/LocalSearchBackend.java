@@ -12,6 +12,7 @@ package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EClass;
@@ -52,6 +53,8 @@ public class LocalSearchBackend implements IQueryBackend {
     
 	private final Multimap<PQuery, LocalSearchResultProvider> resultProviderCache = ArrayListMultimap.create();
 	
+	private ForkJoinPool parallelExecutionPool = null;
+	
     /**
      * @since 1.5
      */
@@ -72,7 +75,7 @@ public class LocalSearchBackend implements IQueryBackend {
      * @since 1.4
      */
     @Override
-    public IQueryResultProvider getResultProvider(PQuery query, QueryEvaluationHint hints)
+    public synchronized IQueryResultProvider getResultProvider(PQuery query, QueryEvaluationHint hints)
             throws QueryProcessingException {
         
         IMatcherCapability requestedCapability = getHintProvider().getQueryEvaluationHint(query).overrideBy(hints).calculateRequiredCapability(query);
@@ -89,9 +92,13 @@ public class LocalSearchBackend implements IQueryBackend {
     }
     
     @Override
-    public void dispose() {  
+    public synchronized void dispose() {  
         eAttributesByTypeForEClass.clear();
         resultProviderCache.clear();
+        if (parallelExecutionPool != null) {
+            parallelExecutionPool.shutdown();
+            parallelExecutionPool = null;
+        }
     }
 
 	@Override
@@ -159,4 +166,17 @@ public class LocalSearchBackend implements IQueryBackend {
         return context;
     }
     
+    /**
+     * Returns the pool used by matchers with {@link LocalSearchHintOptions#PARALLEL_EXECUTION} enabled. The pool is
+     * created on first access, and shut down when the backend is disposed.
+     * 
+     * @since 1.6
+     */
+    public synchronized ForkJoinPool getParallelExecutionPool() {
+        if (parallelExecutionPool == null) {
+            parallelExecutionPool = new ForkJoinPool();
+        }
+        return parallelExecutionPool;
+    }
+    
 }
@@ -48,6 +48,25 @@ public class LocalSearchHintOptions {
     public static final QueryHintOption<IAdornmentProvider> ADORNMENT_PROVIDER = 
             hintOption("ADORNMENT_PROVIDER", (IAdornmentProvider)new AllValidAdornments());
     
+    /**
+     * If true, all matches are collected with multiple threads: disjunct bodies are executed in parallel, and
+     * iterations over all instances of a class or feature at the start of a body are split into subtasks. Has no
+     * effect on retrieving a single match. The model must not be modified while matches are collected.
+     * @since 1.6
+     */
+    public static final QueryHintOption<Boolean> PARALLEL_EXECUTION = 
+            hintOption("PARALLEL_EXECUTION", false);
+    
+    /**
+     * A cached search plan is recalculated if the size of some model element type or feature, on which the costs of
+     * the plan were based, has changed by more than this factor since planning (e.g. 2.0 means that the size has at
+     * least doubled or halved). Only applies to cost functions based on model statistics; values not greater than 1
+     * disable re-planning.
+     * @since 1.6
+     */
+    public static final QueryHintOption<Double> REPLANNING_THRESHOLD = 
+            hintOption("REPLANNING_THRESHOLD", 2.0);
+    
     // internal helper for conciseness
     private static <T> QueryHintOption<T> hintOption(String hintKeyLocalName, T defaultValue) {
         return new QueryHintOption<T>(LocalSearchHintOptions.class, hintKeyLocalName, defaultValue);
@@ -11,8 +11,10 @@
 package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
 
 import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.FLATTEN_CALL_PREDICATE;
+import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.PARALLEL_EXECUTION;
 import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.PLANNER_COST_FUNCTION;
 import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.PLANNER_TABLE_ROW_COUNT;
+import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.REPLANNING_THRESHOLD;
 import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.USE_BASE_INDEX;
 import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.ADORNMENT_PROVIDER;
 
@@ -50,6 +52,10 @@ public final class LocalSearchHints implements IMatcherCapability {
     
     private IAdornmentProvider adornmentProvider = null;
     
+    private Boolean parallelExecution = null;
+    
+    private Double replanningThreshold = null;
+    
     private LocalSearchHints() {}
 
     /**
@@ -69,6 +75,8 @@ public final class LocalSearchHints implements IMatcherCapability {
         result.costFunction = PLANNER_COST_FUNCTION.getDefaultValue();
         result.flattenCallPredicate = FLATTEN_CALL_PREDICATE.getDefaultValue();
         result.adornmentProvider = ADORNMENT_PROVIDER.getDefaultValue();
+        result.parallelExecution = PARALLEL_EXECUTION.getDefaultValue();
+        result.replanningThreshold = REPLANNING_THRESHOLD.getDefaultValue();
         return result;
     }
     
@@ -83,6 +91,8 @@ public final class LocalSearchHints implements IMatcherCapability {
         result.costFunction = new IndexerBasedConstraintCostFunction();
         result.flattenCallPredicate = new DefaultFlattenCallPredicate();
         result.adornmentProvider = ADORNMENT_PROVIDER.getDefaultValue();
+        result.parallelExecution = PARALLEL_EXECUTION.getDefaultValue();
+        result.replanningThreshold = REPLANNING_THRESHOLD.getDefaultValue();
         return result;
     }
     
@@ -96,6 +106,8 @@ public final class LocalSearchHints implements IMatcherCapability {
         result.costFunction = new VariableBindingBasedCostFunction();
         result.flattenCallPredicate = new NeverFlattenCallPredicate();
         result.adornmentProvider = ADORNMENT_PROVIDER.getDefaultValue();
+        result.parallelExecution = PARALLEL_EXECUTION.getDefaultValue();
+        result.replanningThreshold = REPLANNING_THRESHOLD.getDefaultValue();
         return result;
     }
     
@@ -107,6 +119,8 @@ public final class LocalSearchHints implements IMatcherCapability {
         result.flattenCallPredicate = FLATTEN_CALL_PREDICATE.getValueOrNull(hint);
         result.costFunction = PLANNER_COST_FUNCTION.getValueOrNull(hint);
         result.adornmentProvider = ADORNMENT_PROVIDER.getValueOrNull(hint);
+        result.parallelExecution = PARALLEL_EXECUTION.getValueOrNull(hint);
+        result.replanningThreshold = REPLANNING_THRESHOLD.getValueOrNull(hint);
         
         return result;
     }
@@ -129,6 +143,12 @@ public final class LocalSearchHints implements IMatcherCapability {
         if (adornmentProvider != null){
             ADORNMENT_PROVIDER.insertOverridingValue(map, adornmentProvider);
         }
+        if (parallelExecution != null){
+            PARALLEL_EXECUTION.insertOverridingValue(map, parallelExecution);
+        }
+        if (replanningThreshold != null){
+            REPLANNING_THRESHOLD.insertOverridingValue(map, replanningThreshold);
+        }
         return new QueryEvaluationHint(map, LocalSearchBackendFactory.INSTANCE);
     }
     
@@ -162,6 +182,20 @@ public final class LocalSearchHints implements IMatcherCapability {
     public IAdornmentProvider getAdornmentProvider() {
         return adornmentProvider;
     }
+    
+    /**
+     * @since 1.6
+     */
+    public boolean isParallelExecution() {
+        return parallelExecution;
+    }
+    
+    /**
+     * @since 1.6
+     */
+    public double getReplanningThreshold() {
+        return replanningThreshold;
+    }
 
     /**
      * @deprecated allow inverse was deprecated in 1.4; its uses are ignored 
@@ -199,6 +233,22 @@ public final class LocalSearchHints implements IMatcherCapability {
         return this;
     }
     
+    /**
+     * @since 1.6
+     */
+    public LocalSearchHints setParallelExecution(boolean parallelExecution) {
+        this.parallelExecution = parallelExecution;
+        return this;
+    }
+    
+    /**
+     * @since 1.6
+     */
+    public LocalSearchHints setReplanningThreshold(double replanningThreshold) {
+        this.replanningThreshold = replanningThreshold;
+        return this;
+    }
+    
     public static LocalSearchHints customizeUseBase(boolean useBase){
         return new LocalSearchHints().setUseBase(useBase);
     }
@@ -225,6 +275,20 @@ public final class LocalSearchHints implements IMatcherCapability {
     public static LocalSearchHints customizeAdornmentProvider(IAdornmentProvider adornmentProvider){
         return new LocalSearchHints().setAdornmentProvider(adornmentProvider);
     }
+    
+    /**
+     * @since 1.6
+     */
+    public static LocalSearchHints customizeParallelExecution(boolean parallelExecution){
+        return new LocalSearchHints().setParallelExecution(parallelExecution);
+    }
+    
+    /**
+     * @since 1.6
+     */
+    public static LocalSearchHints customizeReplanningThreshold(double replanningThreshold){
+        return new LocalSearchHints().setReplanningThreshold(replanningThreshold);
+    }
 
     @Override
     public boolean canBeSubstitute(IMatcherCapability capability) {
@@ -11,16 +11,26 @@
 package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
 
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
 import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
 import org.eclipse.viatra.query.runtime.localsearch.MatchingFrame;
 import org.eclipse.viatra.query.runtime.localsearch.exceptions.LocalSearchException;
@@ -29,13 +39,17 @@ import org.eclipse.viatra.query.runtime.localsearch.matcher.LocalSearchMatcher;
 import org.eclipse.viatra.query.runtime.localsearch.matcher.MatcherReference;
 import org.eclipse.viatra.query.runtime.localsearch.plan.IPlanDescriptor;
 import org.eclipse.viatra.query.runtime.localsearch.plan.IPlanProvider;
+import org.eclipse.viatra.query.runtime.localsearch.plan.ISearchPlanExecutorFactory;
 import org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlan;
 import org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlanExecutor;
+import org.eclipse.viatra.query.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.viatra.query.runtime.localsearch.planner.POperationCompiler;
 import org.eclipse.viatra.query.runtime.localsearch.planner.util.SearchPlanForBody;
 import org.eclipse.viatra.query.runtime.matchers.backend.IMatcherCapability;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendHintProvider;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.IStreamingQueryResultProvider;
 import org.eclipse.viatra.query.runtime.matchers.backend.IUpdateable;
 import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
 import org.eclipse.viatra.query.runtime.matchers.backend.QueryHintOption;
@@ -56,13 +70,14 @@ import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
  * @author Marton Bur, Zoltan Ujhelyi
  *
  */
-public class LocalSearchResultProvider implements IQueryResultProvider {
+public class LocalSearchResultProvider implements IStreamingQueryResultProvider {
 
     private final LocalSearchBackend backend;
     private final IQueryBackendHintProvider hintProvider;
@@ -74,25 +89,49 @@ public class LocalSearchResultProvider implements IQueryResultProvider {
 
     private final IPlanProvider planProvider;
     private final ISearchContext searchContext;
+    private final Map<MatcherReference, MatcherPool> matcherPools = Maps.newHashMap();
 
     private IQueryRuntimeContext getRuntimeContext(){
         return ((LocalSearchBackend)backend).getRuntimeContext();
     }
     
-    private LocalSearchMatcher createMatcher(IPlanDescriptor plan, final ISearchContext searchContext){
-        Collection<SearchPlanForBody> compiledPlans = Lists.newArrayList(plan.getPlan());
+    private static SearchPlanExecutor createExecutor(SearchPlanForBody body, ISearchContext searchContext) {
+        final SearchPlan plan = new SearchPlan();
+        plan.addOperations(body.getCompiledOperations());
 
-        Collection<SearchPlanExecutor> executors = Collections2.transform(compiledPlans,
-                new Function<SearchPlanForBody, SearchPlanExecutor>() {
+        return new SearchPlanExecutor(plan, searchContext, body.getVariableKeys());
+    }
 
-                    @Override
-                    public SearchPlanExecutor apply(SearchPlanForBody input) {
-                        final SearchPlan plan = new SearchPlan();
-                        plan.addOperations(input.getCompiledOperations());
+    /**
+     * Compiles the plan of the body again, so that the returned executor does not share its search operations (and
+     * their iteration state) with any other executor.
+     */
+    private SearchPlanExecutor createIndependentExecutor(IPlanDescriptor plan, SearchPlanForBody body,
+            ISearchContext searchContext) throws LocalSearchException {
+        POperationCompiler compiler = new POperationCompiler(runtimeContext, backend, overrideDefaultHints(query).isUseBase());
+        try {
+            List<ISearchOperation> operations = compiler.compile(body.getPlan(), plan.getAdornment());
+            SearchPlanForBody copy = new SearchPlanForBody(body.getBody(), compiler.getVariableMappings(),
+                    body.getPlan(), operations, compiler.getDependencies());
+            return createExecutor(copy, searchContext);
+        } catch (QueryProcessingException e) {
+            throw new LocalSearchException("Could not compile search plan again for " + query.getFullyQualifiedName(), e);
+        }
+    }
 
-                        return new SearchPlanExecutor(plan, searchContext, input.getVariableKeys());
-                    }
-                });
+    private LocalSearchMatcher createMatcher(IPlanDescriptor plan, final ISearchContext searchContext,
+            boolean independentOperations) throws LocalSearchException {
+        Collection<SearchPlanForBody> compiledPlans = Lists.newArrayList(plan.getPlan());
+
+        final Map<SearchPlanExecutor, SearchPlanForBody> bodiesOfExecutors = new IdentityHashMap<SearchPlanExecutor, SearchPlanForBody>();
+        List<SearchPlanExecutor> executors = Lists.newArrayListWithCapacity(compiledPlans.size());
+        for (SearchPlanForBody body : compiledPlans) {
+            SearchPlanExecutor executor = independentOperations
+                    ? createIndependentExecutor(plan, body, searchContext)
+                    : createExecutor(body, searchContext);
+            bodiesOfExecutors.put(executor, body);
+            executors.add(executor);
+        }
 
         final Collection<Integer> parameterSizes = Collections2.transform(compiledPlans,
                 new Function<SearchPlanForBody, Integer>() {
@@ -105,8 +144,92 @@ public class LocalSearchResultProvider implements IQueryResultProvider {
                     }
                 });
 
-        return new LocalSearchMatcher(plan, executors,
+        LocalSearchMatcher matcher = new LocalSearchMatcher(plan, executors,
                 Collections.max(parameterSizes));
+        if (overrideDefaultHints(query).isParallelExecution()) {
+            matcher.enableParallelExecution(backend.getParallelExecutionPool(),
+                    new RecompilingExecutorFactory(plan, bodiesOfExecutors));
+        }
+        return matcher;
+    }
+    
+    /**
+     * Compiles the plans of the bodies again, so that each executor gets its own search operations and its own
+     * {@link WorkerSearchContext}. The called queries are resolved when the factory is created, so the parallel search
+     * tasks do not need to access the query engine.
+     */
+    private final class RecompilingExecutorFactory implements ISearchPlanExecutorFactory {
+        private final IPlanDescriptor plan;
+        private final Map<SearchPlanExecutor, SearchPlanForBody> bodiesOfExecutors;
+        private final Map<MatcherReference, IQueryResultProvider> calledMatchers = Maps.newHashMap();
+
+        RecompilingExecutorFactory(IPlanDescriptor plan, Map<SearchPlanExecutor, SearchPlanForBody> bodiesOfExecutors)
+                throws LocalSearchException {
+            this.plan = plan;
+            this.bodiesOfExecutors = bodiesOfExecutors;
+            for (SearchPlanForBody body : plan.getPlan()) {
+                for (MatcherReference dependency : body.getDependencies()) {
+                    calledMatchers.put(dependency, searchContext.getMatcher(dependency));
+                }
+            }
+        }
+
+        @Override
+        public synchronized SearchPlanExecutor createExecutor(SearchPlanExecutor template) throws LocalSearchException {
+            SearchPlanForBody body = bodiesOfExecutors.get(template);
+            if (body == null) {
+                throw new IllegalArgumentException("Unknown executor: " + template);
+            }
+            return createIndependentExecutor(plan, body, new WorkerSearchContext(this));
+        }
+
+        synchronized IQueryResultProvider getCalledMatcher(MatcherReference reference) throws LocalSearchException {
+            IQueryResultProvider matcher = calledMatchers.get(reference);
+            if (matcher == null) {
+                // not called by the plan itself; resolved by one task at a time
+                matcher = searchContext.getMatcher(reference);
+                calledMatchers.put(reference, matcher);
+            }
+            return matcher;
+        }
+
+        NavigationHelper getBaseIndex() {
+            return searchContext.getBaseIndex();
+        }
+    }
+
+    /**
+     * The search context of a single parallel search task. The types used by the search are indexed before the search
+     * is split into tasks (see {@link MatcherPool#acquire()}), so the tasks only read the base index.
+     */
+    private static final class WorkerSearchContext implements ISearchContext {
+        private final RecompilingExecutorFactory factory;
+        private final Map<MatcherReference, IQueryResultProvider> matchers = Maps.newHashMap();
+
+        WorkerSearchContext(RecompilingExecutorFactory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public NavigationHelper getBaseIndex() {
+            return factory.getBaseIndex();
+        }
+
+        @Override
+        public void registerObservedTypes(Set<EClass> classes, Set<EDataType> dataTypes,
+                Set<EStructuralFeature> features) {
+            throw new IllegalStateException("Types must be indexed before starting a parallel search");
+        }
+
+        @Override
+        public IQueryResultProvider getMatcher(MatcherReference reference) throws LocalSearchException {
+            IQueryResultProvider matcher = matchers.get(reference);
+            if (matcher == null) {
+                matcher = factory.getCalledMatcher(reference);
+                matchers.put(reference, matcher);
+            }
+            return matcher;
+        }
     }
     
     private IPlanDescriptor createPlan(MatcherReference key, IPlanProvider planProvider) throws QueryProcessingException {
@@ -270,28 +393,19 @@ public class LocalSearchResultProvider implements IQueryResultProvider {
         return result;
     }
 
-    private LocalSearchMatcher initializeMatcher(Object[] parameters) {
+    public LocalSearchMatcher newLocalSearchMatcher(Object[] parameters)
+            throws ViatraQueryException, QueryProcessingException {
         try {
-            return newLocalSearchMatcher(parameters);
-        } catch (QueryProcessingException e) {
-            throw new RuntimeException(e);
-        } catch (ViatraQueryException e) {
-            throw new RuntimeException(e);
+            return newLocalSearchMatcher(parameters, false);
+        } catch (LocalSearchException e) {
+            throw new ViatraQueryException("Could not create matcher", "Could not create matcher", e);
         }
-
     }
 
-    public LocalSearchMatcher newLocalSearchMatcher(Object[] parameters)
-            throws ViatraQueryException, QueryProcessingException {
-
-        final Set<PParameter> adornment = Sets.newHashSet();
-        for (int i = 0; i < parameters.length; i++) {
-            if (parameters[i] != null) {
-                adornment.add(query.getParameters().get(i));
-            }
-        }
+    private LocalSearchMatcher newLocalSearchMatcher(Object[] parameters, boolean independentOperations)
+            throws ViatraQueryException, QueryProcessingException, LocalSearchException {
 
-        final MatcherReference reference = new MatcherReference(query, adornment, userHints);
+        final MatcherReference reference = createReference(parameters);
         
         IPlanDescriptor plan = createPlan(reference, planProvider);
         if (overrideDefaultHints(reference.getQuery()).isUseBase()){
@@ -302,11 +416,21 @@ public class LocalSearchResultProvider implements IQueryResultProvider {
             }
         }
         
-        LocalSearchMatcher matcher = createMatcher(plan, searchContext);
+        LocalSearchMatcher matcher = createMatcher(plan, searchContext, independentOperations);
         matcher.addAdapters(backend.getAdapters());
         return matcher;
     }
     
+    private MatcherReference createReference(Object[] parameters) {
+        final Set<PParameter> adornment = Sets.newHashSet();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] != null) {
+                adornment.add(query.getParameters().get(i));
+            }
+        }
+        return new MatcherReference(query, adornment, userHints);
+    }
+
     private void indexKeys(final Iterable<IInputKey> keys) throws InvocationTargetException{
         final IQueryRuntimeContext qrc = getRuntimeContext();
         qrc.coalesceTraversals(new Callable<Void>() {
@@ -321,40 +445,221 @@ public class LocalSearchResultProvider implements IQueryResultProvider {
         });
     }
 
-    @Override
-    public Tuple getOneArbitraryMatch(Object[] parameters) {
+    /**
+     * A call executed with a matcher borrowed from the pool of its adornment.
+     */
+    private interface MatcherCall<T> {
+        T execute(LocalSearchMatcher matcher, MatchingFrame frame) throws LocalSearchException;
+    }
+
+    /**
+     * Executes the given call with a matcher that has its own search operations. The lock of this result provider is
+     * only held while looking up the pool and borrowing and returning the matcher, so calls from multiple threads (e.g.
+     * from parallel search tasks calling this query) are executed concurrently.
+     */
+    private <T> T executeWithPooledMatcher(Object[] parameters, MatcherCall<T> call) {
+        final MatcherReference reference = createReference(parameters);
+        final MatcherPool pool = getMatcherPool(reference);
+        final LocalSearchMatcher matcher = pool.acquire();
         try {
-            final LocalSearchMatcher matcher = initializeMatcher(parameters);
             final MatchingFrame frame = matcher.editableMatchingFrame();
             frame.setParameterValues(parameters);
-            return matcher.getOneArbitraryMatch(frame);
+            return call.execute(matcher, frame);
         } catch (LocalSearchException e) {
             throw new RuntimeException(e);
+        } finally {
+            pool.release(matcher);
         }
     }
 
+    @Override
+    public Tuple getOneArbitraryMatch(Object[] parameters) {
+        return executeWithPooledMatcher(parameters, new MatcherCall<Tuple>() {
+            @Override
+            public Tuple execute(LocalSearchMatcher matcher, MatchingFrame frame) throws LocalSearchException {
+                return matcher.getOneArbitraryMatch(frame);
+            }
+        });
+    }
+
     @Override
     public int countMatches(Object[] parameters) {
-        try {
-            final LocalSearchMatcher matcher = initializeMatcher(parameters);
-            final MatchingFrame frame = matcher.editableMatchingFrame();
-            frame.setParameterValues(parameters);
-            return matcher.countMatches(frame);
-        } catch (LocalSearchException e) {
-            throw new RuntimeException(e);
-        }
+        return executeWithPooledMatcher(parameters, new MatcherCall<Integer>() {
+            @Override
+            public Integer execute(LocalSearchMatcher matcher, MatchingFrame frame) throws LocalSearchException {
+                return matcher.countMatches(frame);
+            }
+        });
     }
 
     @Override
     public Collection<? extends Tuple> getAllMatches(Object[] parameters) {
+        return executeWithPooledMatcher(parameters, new MatcherCall<Collection<? extends Tuple>>() {
+            @Override
+            public Collection<? extends Tuple> execute(LocalSearchMatcher matcher, MatchingFrame frame)
+                    throws LocalSearchException {
+                return matcher.getAllMatches(frame);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * The returned iterator works with its own copy of the search operations, so it may be interleaved with other
+     * calls to this result provider; however, it must only be consumed by a single thread. The copy is not taken from
+     * (or returned to) the matchers reused by the other calls, as the iterator may be abandoned before it is
+     * exhausted; it is released together with the iterator.
+     * 
+     * @since 1.6
+     */
+    @Override
+    public Iterator<? extends Tuple> iterateMatches(Object[] parameters) {
+        final MatcherReference reference = createReference(parameters);
+        final LocalSearchMatcher matcher = getMatcherPool(reference).createUnpooled();
+        final MatchingFrame frame = matcher.editableMatchingFrame();
+        frame.setParameterValues(parameters);
+        return matcher.iterateMatches(frame);
+    }
+
+    /**
+     * Returns the matchers available for the given adornment, dropping the idle matchers if the plan has changed since
+     * they were compiled.
+     */
+    private synchronized MatcherPool getMatcherPool(MatcherReference reference) {
+        IPlanDescriptor plan;
         try {
-            final LocalSearchMatcher matcher = initializeMatcher(parameters);
-            final MatchingFrame frame = matcher.editableMatchingFrame();
-            frame.setParameterValues(parameters);
-            return matcher.getAllMatches(frame);
-        } catch (LocalSearchException e) {
+            plan = createPlan(reference, planProvider);
+        } catch (QueryProcessingException e) {
             throw new RuntimeException(e);
         }
+        MatcherPool pool = matcherPools.get(reference);
+        if (pool == null || pool.plan != plan) {
+            pool = new MatcherPool(reference, plan);
+            matcherPools.put(reference, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Matchers with their own search operations, compiled from the same plan, that are not in use by any call of this
+     * result provider. The idle matchers are accessed while holding the lock of the result provider;
+     * the indexes are prepared and new matchers are compiled without holding it, so that recursively called queries
+     * do not lock each other.
+     */
+    private final class MatcherPool {
+        private final MatcherReference reference;
+        private final IPlanDescriptor plan;
+        private final Deque<LocalSearchMatcher> idleMatchers = new ArrayDeque<LocalSearchMatcher>();
+
+        MatcherPool(MatcherReference reference, IPlanDescriptor plan) {
+            this.reference = reference;
+            this.plan = plan;
+        }
+
+        LocalSearchMatcher acquire() {
+            prepare();
+            LocalSearchMatcher matcher;
+            synchronized (LocalSearchResultProvider.this) {
+                matcher = idleMatchers.poll();
+            }
+            if (matcher == null) {
+                matcher = compile();
+            } else {
+                matcher.removeAdapters(Lists.newArrayList(matcher.getAdapters()));
+            }
+            matcher.addAdapters(backend.getAdapters());
+            return matcher;
+        }
+
+        /**
+         * Returns a matcher that is not reused by the pool; it is not passed to {@link #release(LocalSearchMatcher)}.
+         */
+        LocalSearchMatcher createUnpooled() {
+            prepare();
+            LocalSearchMatcher matcher = compile();
+            matcher.addAdapters(backend.getAdapters());
+            return matcher;
+        }
+
+        private void prepare() {
+            LocalSearchHints hints = overrideDefaultHints(query);
+            if (hints.isUseBase()) {
+                try {
+                    ensureIndexed(plan);
+                    if (hints.isParallelExecution() && !ForkJoinTask.inForkJoinPool()) {
+                        prepareCalledQueries(plan, new HashSet<MatcherReference>());
+                    }
+                } catch (LocalSearchException e) {
+                    throw new RuntimeException(e);
+                } catch (ViatraQueryException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        private LocalSearchMatcher compile() {
+            try {
+                return createMatcher(plan, searchContext, true);
+            } catch (LocalSearchException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void release(LocalSearchMatcher matcher) {
+            synchronized (LocalSearchResultProvider.this) {
+                // matchers of an outdated plan are discarded
+                if (matcherPools.get(reference) == this) {
+                    idleMatchers.push(matcher);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the keys iterated by the given plan, unless all of them are indexed already; in that case, the base index
+     * is only read, so this may be called from parallel search tasks.
+     */
+    private void ensureIndexed(IPlanDescriptor plan) throws ViatraQueryException {
+        for (IInputKey key : plan.getIteratedKeys()) {
+            if (!runtimeContext.isIndexed(key, IndexingService.INSTANCES)) {
+                try {
+                    indexKeys(plan.getIteratedKeys());
+                } catch (InvocationTargetException e) {
+                    throw new ViatraQueryException("Could not index keys", "Could not index keys", e);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Indexes the keys iterated by the local search queries called by the given plan, transitively, before a parallel
+     * search is split into tasks. This also creates the result providers of the called queries, so the tasks only
+     * look them up.
+     */
+    private void prepareCalledQueries(IPlanDescriptor plan, Set<MatcherReference> visited)
+            throws ViatraQueryException, LocalSearchException {
+        for (SearchPlanForBody body : plan.getPlan()) {
+            for (MatcherReference dependency : body.getDependencies()) {
+                if (visited.add(dependency)) {
+                    IQueryResultProvider calledMatcher = searchContext.getMatcher(dependency);
+                    if (calledMatcher instanceof LocalSearchResultProvider) {
+                        ((LocalSearchResultProvider) calledMatcher).prepareForCall(dependency, visited);
+                    }
+                }
+            }
+        }
+    }
+
+    private void prepareForCall(MatcherReference reference, Set<MatcherReference> visited)
+            throws ViatraQueryException, LocalSearchException {
+        IPlanDescriptor plan = getMatcherPool(reference).plan;
+        if (overrideDefaultHints(query).isUseBase()) {
+            ensureIndexed(plan);
+        }
+        prepareCalledQueries(plan, visited);
     }
 
     @Override
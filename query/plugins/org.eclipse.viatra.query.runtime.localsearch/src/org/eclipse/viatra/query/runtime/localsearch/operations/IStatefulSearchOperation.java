@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.operations;
+
+/**
+ * Denotes a {@link ISearchOperation} which keeps state computed from the model between its executions, to be reused
+ * during a single execution of its search plan.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ *
+ */
+public interface IStatefulSearchOperation extends ISearchOperation {
+
+    /**
+     * Called by {@link org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlanExecutor#resetPlan()} before the
+     * search plan is executed again. As the model may have changed since the previous execution, the operation must
+     * discard its state.
+     */
+    void onPlanReset();
+
+}
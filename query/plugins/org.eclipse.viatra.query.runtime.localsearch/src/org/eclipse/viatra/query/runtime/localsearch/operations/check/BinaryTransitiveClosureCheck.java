@@ -10,7 +10,10 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.localsearch.operations.check;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.viatra.query.runtime.localsearch.MatchingFrame;
@@ -19,27 +22,72 @@ import org.eclipse.viatra.query.runtime.localsearch.matcher.ISearchContext;
 import org.eclipse.viatra.query.runtime.localsearch.matcher.MatcherReference;
 import org.eclipse.viatra.query.runtime.localsearch.operations.CallOperationHelper;
 import org.eclipse.viatra.query.runtime.localsearch.operations.CallOperationHelper.PatternCall;
-import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.localsearch.operations.IStatefulSearchOperation;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
  * Checking for a transitive closure expressed as a local search pattern matcher. The matched pattern must have two
  * parameters of the same model type.
  * 
+ * <p>
+ * The targets reachable from a source are searched breadth first over the matches of the called pattern, stopping as
+ * soon as the checked target is found. The progress of the search is kept for each source until the search plan is
+ * reset, so later frames with the same source continue it instead of starting over.
+ * 
  * @author Zoltan Ujhelyi
  * 
  */
-public class BinaryTransitiveClosureCheck extends CheckOperation{
+public class BinaryTransitiveClosureCheck extends CheckOperation implements IStatefulSearchOperation {
 
     private final CallOperationHelper helper;
     private PatternCall call;
     private final int sourcePosition;
     private final int targetPosition;
+    /**
+     * The partial searches started from the sources evaluated since the search plan was reset, which happens before
+     * each search execution (a matcher call, or a chunk of a parallel search with its own copy of the operations), so
+     * the model does not change while they are reused.
+     */
+    private final Map<Object, Reachability> reachability = Maps.newHashMap();
+
+    /**
+     * A breadth first search from a source that can be continued later.
+     */
+    private final class Reachability {
+        private final Set<Object> reached = Sets.newHashSet();
+        private final Deque<Object> unexpanded = new ArrayDeque<Object>();
+
+        Reachability(Object source) {
+            unexpanded.add(source);
+        }
+
+        boolean reaches(Object target) {
+            if (reached.contains(target)) {
+                return true;
+            }
+            while (!unexpanded.isEmpty()) {
+                Object current = unexpanded.poll();
+                boolean found = false;
+                for (Tuple match : call.getAllMatches(new Object[] { current, null })) {
+                    Object foundTarget = match.get(1);
+                    if (reached.add(foundTarget)) {
+                        unexpanded.add(foundTarget);
+                        found |= target.equals(foundTarget);
+                    }
+                }
+                if (found) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
     
     /**
      * The source position will be matched in the called pattern to the first parameter; while target to the second.
@@ -66,27 +114,23 @@ public class BinaryTransitiveClosureCheck extends CheckOperation{
 		call = helper.createCall(ImmutableSet.of(0), context);
     }
     
+    /**
+     * @since 1.6
+     */
+    @Override
+    public void onPlanReset() {
+        reachability.clear();
+    }
+
     @Override
     protected boolean check(MatchingFrame frame) throws LocalSearchException {
-        Object targetValue = frame.get(targetPosition);
-        Set<Object> sourcesToEvaluate = Sets.newLinkedHashSet();
-        sourcesToEvaluate.add(frame.get(sourcePosition));
-        Set<Object> sourceEvaluated = Sets.newHashSet();
-        do {
-            Object currentValue = sourcesToEvaluate.iterator().next();
-            sourcesToEvaluate.remove(currentValue);
-            sourceEvaluated.add(currentValue);
-            final Object[] mappedFrame = new Object[]{currentValue, null};
-            for (Tuple match : call.getAllMatches(mappedFrame)) {
-                Object foundTarget = match.get(1);
-                if (targetValue.equals(foundTarget)) {
-                    return true;
-                } else if (!sourceEvaluated.contains(foundTarget)) {
-                    sourcesToEvaluate.add(foundTarget);
-                }
-            }
-        } while (!sourcesToEvaluate.isEmpty());
-        return false;
+        Object sourceValue = frame.get(sourcePosition);
+        Reachability sourceReachability = reachability.get(sourceValue);
+        if (sourceReachability == null) {
+            sourceReachability = new Reachability(sourceValue);
+            reachability.put(sourceValue, sourceReachability);
+        }
+        return sourceReachability.reaches(frame.get(targetPosition));
     }
     
     @Override
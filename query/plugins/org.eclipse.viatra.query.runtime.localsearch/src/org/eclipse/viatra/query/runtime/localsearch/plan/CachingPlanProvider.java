@@ -11,20 +11,41 @@
 package org.eclipse.viatra.query.runtime.localsearch.plan;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 import org.eclipse.viatra.query.runtime.localsearch.matcher.MatcherReference;
 import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchBackend;
 import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
 import org.eclipse.viatra.query.runtime.localsearch.planner.LocalSearchPlanner;
+import org.eclipse.viatra.query.runtime.localsearch.planner.cost.impl.StatisticsBasedConstraintCostFunction;
 import org.eclipse.viatra.query.runtime.localsearch.planner.util.SearchPlanForBody;
+import org.eclipse.viatra.query.runtime.matchers.context.IInputKey;
+import org.eclipse.viatra.query.runtime.matchers.context.IQueryRuntimeContext;
+import org.eclipse.viatra.query.runtime.matchers.context.IndexingService;
+import org.eclipse.viatra.query.runtime.matchers.context.InputKeyImplication;
 import org.eclipse.viatra.query.runtime.matchers.planning.QueryProcessingException;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.TypeConstraint;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
- * A plan provider implementation which caches previously calculated plans to avoid re-planning for the same adornment
+ * A plan provider implementation which caches previously calculated plans to avoid re-planning for the same adornment.
+ * 
+ * <p>
+ * If the plan was calculated by a cost function based on model statistics, the plan is calculated again as soon as
+ * the statistics it was based on have changed significantly (see {@link LocalSearchHints#getReplanningThreshold()}).
+ * To keep cache hits cheap, the statistics of a cached plan are compared to the model at most once per statistics
+ * check interval; in between, the cached plan is returned without querying the model.
+ * 
+ * <p>
+ * The number of cached plans is bounded; if the limit is reached, the least recently used plan is evicted.
  * 
  * @author Grill Balázs
  * @since 1.4
@@ -32,32 +53,232 @@ import com.google.common.collect.Multimap;
  */
 public class CachingPlanProvider implements IPlanProvider {
 
-    private final Multimap<MatcherReference, IPlanDescriptor> cache = ArrayListMultimap.create();
+    /**
+     * Smaller changes of a statistic are ignored when checking whether a plan is outdated, as relative changes of small
+     * counts are not significant.
+     */
+    private static final int MINIMAL_STATISTICS_CHANGE = 16;
+    
+    /**
+     * The default maximum number of cached plans
+     * @since 1.6
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    /**
+     * The default minimum time between two checks of the statistics of a cached plan, in milliseconds
+     * @since 1.6
+     */
+    public static final long DEFAULT_STATISTICS_CHECK_INTERVAL = 1000;
+    
+    private static final class CacheEntry {
+        final IPlanDescriptor plan;
+        /**
+         * The model statistics the plan was calculated with; null if not calculated by a statistics-based cost function
+         */
+        final Map<IInputKey, Integer> statistics;
+        /**
+         * The value of {@link System#nanoTime()} before which the statistics are not checked again
+         */
+        long nextCheck;
+
+        CacheEntry(IPlanDescriptor plan, Map<IInputKey, Integer> statistics, long nextCheck) {
+            this.plan = plan;
+            this.statistics = statistics;
+            this.nextCheck = nextCheck;
+        }
+    }
+    
+    private final Map<MatcherReference, CacheEntry> cache;
     
     private final Logger logger;
     
+    private final long statisticsCheckIntervalNanos;
+    
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long invalidationCount = 0;
+    
     public CachingPlanProvider(Logger logger) {
+        this(logger, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param capacity the maximum number of cached plans, must be positive
+     * @since 1.6
+     */
+    public CachingPlanProvider(Logger logger, final int capacity) {
+        this(logger, capacity, DEFAULT_STATISTICS_CHECK_INTERVAL);
+    }
+    
+    /**
+     * @param capacity the maximum number of cached plans, must be positive
+     * @param statisticsCheckInterval the minimum time between two checks of the statistics of a cached plan in
+     *            milliseconds; if 0, the statistics are checked on every request
+     * @since 1.6
+     */
+    public CachingPlanProvider(Logger logger, final int capacity, long statisticsCheckInterval) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive.");
+        Preconditions.checkArgument(statisticsCheckInterval >= 0, "Statistics check interval must not be negative.");
         this.logger = logger;
+        this.statisticsCheckIntervalNanos = TimeUnit.MILLISECONDS.toNanos(statisticsCheckInterval);
+        // access order is used to evict the least recently used plan
+        this.cache = new LinkedHashMap<MatcherReference, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<MatcherReference, CacheEntry> eldest) {
+                if (size() > capacity) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
     }
     
     @Override
-    public IPlanDescriptor getPlan(LocalSearchBackend backend, final LocalSearchHints configuration, MatcherReference key)
+    public synchronized IPlanDescriptor getPlan(LocalSearchBackend backend, final LocalSearchHints configuration, MatcherReference key)
             throws QueryProcessingException {
         
-        if (cache.containsKey(key)){
+        CacheEntry cachedEntry = cache.get(key);
+        if (cachedEntry != null && !isOutdated(backend, configuration, cachedEntry)) {
             
-            return cache.get(key).iterator().next();
+            hitCount++;
+            return cachedEntry.plan;
             
-        }else{
+        } else {
+            if (cachedEntry != null) {
+                invalidationCount++;
+                logger.debug("Model statistics changed significantly, recalculating " + cachedEntry.plan);
+            }
+            missCount++;
             LocalSearchPlanner planner = new LocalSearchPlanner(backend, logger, configuration);
             
             Collection<SearchPlanForBody> plansForBodies = planner.plan(key.getQuery(), key.getAdornment());
           
             IPlanDescriptor plan = new PlanDescriptor(key.getQuery(), plansForBodies, key.getAdornment());
-            cache.put(key, plan);
+            Map<IInputKey, Integer> statistics = isStatisticsBased(configuration) 
+                    ? collectStatistics(backend.getRuntimeContext(), plan) 
+                    : null;
+            cache.put(key, new CacheEntry(plan, statistics, System.nanoTime() + statisticsCheckIntervalNanos));
             return plan;
 
         }
     }
+    
+    private static boolean isStatisticsBased(LocalSearchHints configuration) {
+        return configuration.getReplanningThreshold() > 1
+                && configuration.getCostFunction() instanceof StatisticsBasedConstraintCostFunction;
+    }
+    
+    /**
+     * Collects the sizes of the enumerable input keys that are referenced by the type constraints of the plan, or are
+     * implied by them; these are the statistics the costs of the plan were calculated from. Keys that are not indexed
+     * are skipped, as counting them would register them to the base index and trigger a model traversal; the cost
+     * function has already indexed the keys it relied on.
+     */
+    private static Map<IInputKey, Integer> collectStatistics(IQueryRuntimeContext runtimeContext, IPlanDescriptor plan) {
+        Set<IInputKey> keys = Sets.newHashSet();
+        for (SearchPlanForBody bodyPlan : plan.getPlan()) {
+            for (TypeConstraint constraint : bodyPlan.getBody().getConstraintsOfType(TypeConstraint.class)) {
+                IInputKey key = constraint.getSupplierKey();
+                if (key.isEnumerable()) {
+                    keys.add(key);
+                    for (InputKeyImplication implication : runtimeContext.getMetaContext().getImplications(key)) {
+                        keys.add(implication.getImpliedKey());
+                    }
+                }
+            }
+        }
+        Map<IInputKey, Integer> statistics = Maps.newHashMap();
+        for (IInputKey key : keys) {
+            if (isIndexed(runtimeContext, key)) {
+                statistics.put(key, runtimeContext.countTuples(key, null));
+            }
+        }
+        return statistics;
+    }
+    
+    private static boolean isIndexed(IQueryRuntimeContext runtimeContext, IInputKey key) {
+        return runtimeContext.isIndexed(key, IndexingService.STATISTICS)
+                || runtimeContext.isIndexed(key, IndexingService.INSTANCES);
+    }
+    
+    private boolean isOutdated(LocalSearchBackend backend, LocalSearchHints configuration, CacheEntry cachedEntry) {
+        Map<IInputKey, Integer> statistics = cachedEntry.statistics;
+        if (statistics == null || !isStatisticsBased(configuration)) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now - cachedEntry.nextCheck < 0) {
+            return false;
+        }
+        cachedEntry.nextCheck = now + statisticsCheckIntervalNanos;
+        double threshold = configuration.getReplanningThreshold();
+        IQueryRuntimeContext runtimeContext = backend.getRuntimeContext();
+        for (Entry<IInputKey, Integer> entry : statistics.entrySet()) {
+            if (!isIndexed(runtimeContext, entry.getKey())) {
+                // the key is not indexed any more; counting it would register it again
+                continue;
+            }
+            int planned = entry.getValue();
+            int current = runtimeContext.countTuples(entry.getKey(), null);
+            if (Math.abs(current - planned) >= MINIMAL_STATISTICS_CHANGE
+                    && Math.max(current, planned) > threshold * Math.max(1, Math.min(current, planned))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Removes all cached plans; the statistics of the cache are kept.
+     * @since 1.6
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+    
+    /**
+     * @return the number of currently cached plans
+     * @since 1.6
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+    
+    /**
+     * @return the number of plan requests served from the cache
+     * @since 1.6
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    
+    /**
+     * @return the number of plan requests that required planning, including the ones caused by invalidation
+     * @since 1.6
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    
+    /**
+     * @return the number of plans removed from the cache due to its limited capacity
+     * @since 1.6
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    /**
+     * @return the number of cached plans that were recalculated because the model statistics have changed
+     * @since 1.6
+     */
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
 
 }
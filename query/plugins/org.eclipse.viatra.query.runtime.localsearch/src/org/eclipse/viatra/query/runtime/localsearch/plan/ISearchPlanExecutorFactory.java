@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.plan;
+
+import org.eclipse.viatra.query.runtime.localsearch.exceptions.LocalSearchException;
+
+/**
+ * Creates independent copies of search plan executors. Search operations keep their iteration state internally, so
+ * a single executor can not be used by multiple threads at the same time; parallel execution requires each task to
+ * work with its own copy.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface ISearchPlanExecutorFactory {
+
+    /**
+     * Creates a new executor for the same body as the given one, with its own search operation instances. The
+     * operations and the variable mapping of the result are in the same order as those of the template.
+     * 
+     * @param template
+     *            an executor created for the matcher this factory was registered with
+     * @throws LocalSearchException
+     *             if the plan cannot be compiled again
+     */
+    public SearchPlanExecutor createExecutor(SearchPlanExecutor template) throws LocalSearchException;
+
+}
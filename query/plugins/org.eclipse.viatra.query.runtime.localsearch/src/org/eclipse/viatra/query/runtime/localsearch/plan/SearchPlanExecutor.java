@@ -24,6 +24,7 @@ import org.eclipse.viatra.query.runtime.localsearch.matcher.ILocalSearchAdaptabl
 import org.eclipse.viatra.query.runtime.localsearch.matcher.ILocalSearchAdapter;
 import org.eclipse.viatra.query.runtime.localsearch.matcher.ISearchContext;
 import org.eclipse.viatra.query.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.viatra.query.runtime.localsearch.operations.IStatefulSearchOperation;
 import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
 
 import com.google.common.base.Joiner;
@@ -143,8 +144,18 @@ public class SearchPlanExecutor implements ILocalSearchAdaptable{
 		return matchFound;
     }
     
+    /**
+     * Prepares the plan to be executed from its first operation. The state kept by {@link IStatefulSearchOperation}s
+     * is discarded, so the frames passed to the following calls of {@link #execute(MatchingFrame)} belong to a new
+     * search execution.
+     */
     public void resetPlan() {
     	currentOperation = -1;
+        for (ISearchOperation operation : operations) {
+            if (operation instanceof IStatefulSearchOperation) {
+                ((IStatefulSearchOperation) operation).onPlanReset();
+            }
+        }
     }
     
     public void printDebugInformation() {
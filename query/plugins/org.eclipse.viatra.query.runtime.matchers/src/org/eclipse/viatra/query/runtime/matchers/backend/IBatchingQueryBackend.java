@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.backend;
+
+/**
+ * A query backend that is able to collect the model changes reported between {@link #beginBatch()} and
+ * {@link #endBatch()}, and to process them in bulk afterwards instead of one by one.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface IBatchingQueryBackend extends IQueryBackend {
+
+    /**
+     * Starts a batch: until the matching call to {@link #endBatch()}, model changes may be collected instead of being
+     * processed immediately. Batches may be nested.
+     */
+    public void beginBatch();
+
+    /**
+     * Ends a batch; at the end of the outermost batch, the collected model changes are processed, and the results of
+     * the backend are up to date again when this method returns.
+     */
+    public void endBatch();
+
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.backend;
+
+import java.util.Iterator;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+
+/**
+ * A result provider that is able to deliver the matches of a query lazily, one by one, instead of collecting all of
+ * them in advance. This is beneficial for backends that compute matches on demand (such as local search), as the
+ * consumer may stop the computation early.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface IStreamingQueryResultProvider extends IQueryResultProvider {
+
+    /**
+     * Returns an iterator over all matches of the pattern that conform to the given fixed values of some parameters.
+     * Each match is computed only when it is requested from the iterator, and each match is returned only once.
+     * 
+     * <p>
+     * <b>Caution: </b> the model must not be modified while the iterator is in use.
+     * 
+     * @param parameters
+     *            array where each non-null element binds the corresponding pattern parameter to a fixed value.
+     * @pre size of input array must be equal to the number of parameters.
+     * @return matches represented in the internal {@link Tuple} representation.
+     */
+    public Iterator<? extends Tuple> iterateMatches(Object[] parameters);
+
+}
@@ -31,7 +31,20 @@ public class FlatTuple extends Tuple {
      *            array of substitution values
      */
     public FlatTuple(Object... elements) {
-        this.elements = Arrays.copyOf(elements, elements.length);
+        this(Arrays.copyOf(elements, elements.length), null);
+    }
+
+    /**
+     * Creates a Tuple instance that takes ownership of the given array, without copying it. The array must not be
+     * modified afterwards.
+     * 
+     * @param elements
+     *            freshly created array of substitution values
+     * @param unused
+     *            only used to distinguish this constructor from the public one
+     */
+    FlatTuple(Object[] elements, Void unused) {
+        this.elements = elements;
         calcHash();
     }
 
@@ -58,4 +71,9 @@ public class FlatTuple extends Tuple {
             return super.internalEquals(other);
     }
 
+    @Override
+    boolean isImmutable() {
+        return true;
+    }
+
 }
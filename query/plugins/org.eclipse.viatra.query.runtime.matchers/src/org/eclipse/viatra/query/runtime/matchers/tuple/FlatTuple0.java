@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.tuple;
+
+/**
+ * Flat tuple with no elements, stored in fields instead of an array.
+ * 
+ * <p> Instantiate through {@link Tuples}.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class FlatTuple0 extends Tuple {
+
+    FlatTuple0() {
+        calcHash();
+    }
+
+    @Override
+    public int getSize() {
+        return 0;
+    }
+
+    @Override
+    public Object get(int index) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+    }
+
+    @Override
+    public Object[] getElements() {
+        return new Object[0];
+    }
+
+    @Override
+    void calcHash() {
+        cachedHash = 1;
+    }
+
+    @Override
+    protected boolean internalEquals(Tuple other) {
+        if (other instanceof FlatTuple0) {
+            return true;
+        } else
+            return super.internalEquals(other);
+    }
+
+    @Override
+    boolean isImmutable() {
+        return true;
+    }
+
+}
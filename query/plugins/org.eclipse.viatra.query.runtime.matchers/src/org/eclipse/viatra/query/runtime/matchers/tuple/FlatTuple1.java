@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.tuple;
+
+/**
+ * Flat tuple with a single element, stored in fields instead of an array.
+ * 
+ * <p> Instantiate through {@link Tuples}.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+final class FlatTuple1 extends Tuple {
+    private final Object element0;
+
+    FlatTuple1(Object element0) {
+        this.element0 = element0;
+        calcHash();
+    }
+
+    @Override
+    public int getSize() {
+        return 1;
+    }
+
+    @Override
+    public Object get(int index) {
+        switch (index) {
+        case 0:
+            return element0;
+        default:
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+    }
+
+    @Override
+    public Object[] getElements() {
+        return new Object[] { element0 };
+    }
+
+    @Override
+    void calcHash() {
+        final int PRIME = 31;
+        int hash = 1;
+        hash = PRIME * hash + (element0 == null ? 0 : element0.hashCode());
+        cachedHash = hash;
+    }
+
+    @Override
+    protected boolean internalEquals(Tuple other) {
+        if (other instanceof FlatTuple1) {
+            FlatTuple1 that = (FlatTuple1) other;
+            return equal(element0, that.element0);
+        } else
+            return super.internalEquals(other);
+    }
+
+    private static boolean equal(Object ours, Object theirs) {
+        return ours == null ? theirs == null : ours.equals(theirs);
+    }
+
+    @Override
+    boolean isImmutable() {
+        return true;
+    }
+
+}
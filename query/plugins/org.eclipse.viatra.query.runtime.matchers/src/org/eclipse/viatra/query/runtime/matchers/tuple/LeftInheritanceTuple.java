@@ -167,4 +167,9 @@ public class LeftInheritanceTuple extends Tuple {
     // return retVal;
     // }
 
+    @Override
+    boolean isImmutable() {
+        return true;
+    }
+
 }
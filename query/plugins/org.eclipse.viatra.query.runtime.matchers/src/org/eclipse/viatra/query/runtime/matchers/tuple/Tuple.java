@@ -66,13 +66,22 @@ public abstract class Tuple {
     @SuppressWarnings("unchecked")
     public <T> Set<T> getDistinctElements() {
         Set<T> result = new HashSet<T>();
-        Object[] elements = getElements();
-        for (Object object : elements) {
-            result.add((T) object);
+        for (int i = 0; i < getSize(); ++i) {
+            result.add((T) get(i));
         }
         return result;
     }
 
+    /**
+     * Tells whether this tuple is known to be immutable, so that it can be reused instead of copied. Subclasses outside
+     * this package (e.g. mutable frames of local search) are conservatively treated as mutable.
+     * 
+     * @since 1.6
+     */
+    boolean isImmutable() {
+        return false;
+    }
+
     /**
      * Hash calculation. Overrides should keep semantics.
      */
@@ -178,7 +187,8 @@ public abstract class Tuple {
     public String toString() {
         StringBuilder s = new StringBuilder();
         s.append("T(");
-        for (Object o : getElements()) {
+        for (int i = 0; i < getSize(); ++i) {
+            Object o = get(i);
             s.append(o == null ? "null" : o.toString());
             s.append(';');
         }
@@ -187,12 +197,12 @@ public abstract class Tuple {
     }
 
     public Tuple replaceAll(Object obsolete, Object replacement) {
-        Object[] oldElements = getElements();
-        Object[] newElements = new Object[oldElements.length];
-        for (int i = 0; i < oldElements.length; ++i) {
-            newElements[i] = obsolete.equals(oldElements[i]) ? replacement : oldElements[i];
+        Object[] newElements = new Object[getSize()];
+        for (int i = 0; i < newElements.length; ++i) {
+            Object element = get(i);
+            newElements[i] = obsolete.equals(element) ? replacement : element;
         }
-        return new FlatTuple(newElements);
+        return Tuples.wrapFreshArray(newElements);
     }
 
 }
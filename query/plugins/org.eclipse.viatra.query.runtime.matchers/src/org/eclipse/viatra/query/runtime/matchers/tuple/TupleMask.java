@@ -36,6 +36,10 @@ public class TupleMask {
      * the size of the tuple this mask is applied to
      */
     public int sourceWidth;
+    /**
+     * true if indices[i] == i for all i, i.e. the mask keeps a prefix of the tuple intact
+     */
+    private final boolean linear;
 
     /**
      * Creates a TupleMask instance with the given indices array
@@ -44,6 +48,14 @@ public class TupleMask {
         this.sourceWidth = sourceWidth;
         this.indices = indices;
         indicesSorted = null;
+        linear = isLinear(indices);
+    }
+
+    private static boolean isLinear(int[] indices) {
+        for (int i = 0; i < indices.length; ++i)
+            if (indices[i] != i)
+                return false;
+        return true;
     }
 
     /**
@@ -99,6 +111,7 @@ public class TupleMask {
             if (keep[k])
                 indices[l++] = k;
         indicesSorted = null;
+        linear = isLinear(indices);
     }
 
     /**
@@ -158,12 +171,33 @@ public class TupleMask {
 
     /**
      * Generates a masked view of the original tuple.
+     * 
+     * <p>
+     * If the mask keeps an immutable tuple intact, the original tuple is returned instead of a copy; masked views of
+     * small arity are built without allocating an intermediate array.
      */
     public Tuple transform(Tuple original) {
-        Object signature[] = new Object[indices.length];
-        for (int i = 0; i < indices.length; ++i)
-            signature[i] = original.get(indices[i]);
-        return new FlatTuple(signature);
+        if (linear && indices.length == original.getSize() && original.isImmutable())
+            return original;
+        switch (indices.length) {
+        case 0:
+            return Tuples.staticArityFlatTupleOf();
+        case 1:
+            return Tuples.staticArityFlatTupleOf(original.get(indices[0]));
+        case 2:
+            return Tuples.staticArityFlatTupleOf(original.get(indices[0]), original.get(indices[1]));
+        case 3:
+            return Tuples.staticArityFlatTupleOf(original.get(indices[0]), original.get(indices[1]),
+                    original.get(indices[2]));
+        case 4:
+            return Tuples.staticArityFlatTupleOf(original.get(indices[0]), original.get(indices[1]),
+                    original.get(indices[2]), original.get(indices[3]));
+        default:
+            Object signature[] = new Object[indices.length];
+            for (int i = 0; i < indices.length; ++i)
+                signature[i] = original.get(indices[i]);
+            return Tuples.wrapFreshArray(signature);
+        }
     }
 
     /**
@@ -255,7 +289,7 @@ public class TupleMask {
                     combined[cPos++] = masked.get(i);
         }
 
-        return useInheritance ? new LeftInheritanceTuple(unmasked, combined) : new FlatTuple(combined);
+        return useInheritance ? new LeftInheritanceTuple(unmasked, combined) : Tuples.wrapFreshArray(combined);
     }
 
     @Override
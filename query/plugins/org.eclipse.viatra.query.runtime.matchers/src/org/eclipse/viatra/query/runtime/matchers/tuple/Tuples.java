@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.tuple;
+
+/**
+ * Factory methods for flat tuples.
+ * 
+ * <p>
+ * Tuples of small arity (up to {@value #MAX_STATIC_ARITY}) are represented by specialized implementations that store
+ * their elements in fields, which saves the backing array and its header. All tuples created here are equal to (and
+ * have the same hash code as) any other {@link Tuple} with the same elements, regardless of representation.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public final class Tuples {
+
+    /**
+     * The largest arity that has a specialized, array-free representation.
+     */
+    public static final int MAX_STATIC_ARITY = 4;
+
+    private static final Tuple EMPTY = new FlatTuple0();
+
+    private Tuples() {
+        // utility class
+    }
+
+    /**
+     * Creates a flat tuple consisting of the given elements. The array is copied if necessary, so it may be reused by
+     * the caller.
+     */
+    public static Tuple flatTupleOf(Object... elements) {
+        switch (elements.length) {
+        case 0:
+            return EMPTY;
+        case 1:
+            return new FlatTuple1(elements[0]);
+        case 2:
+            return new FlatTuple2(elements[0], elements[1]);
+        case 3:
+            return new FlatTuple3(elements[0], elements[1], elements[2]);
+        case 4:
+            return new FlatTuple4(elements[0], elements[1], elements[2], elements[3]);
+        default:
+            return new FlatTuple(elements);
+        }
+    }
+
+    /**
+     * Creates a flat tuple consisting of the elements of the given array, which is taken over without copying. For
+     * internal use on freshly allocated arrays only.
+     */
+    static Tuple wrapFreshArray(Object[] elements) {
+        if (elements.length <= MAX_STATIC_ARITY)
+            return flatTupleOf(elements);
+        else
+            return new FlatTuple(elements, null);
+    }
+
+    /**
+     * @return the empty tuple
+     */
+    public static Tuple staticArityFlatTupleOf() {
+        return EMPTY;
+    }
+
+    /**
+     * @return a flat tuple of a single element
+     */
+    public static Tuple staticArityFlatTupleOf(Object element0) {
+        return new FlatTuple1(element0);
+    }
+
+    /**
+     * @return a flat tuple of two elements
+     */
+    public static Tuple staticArityFlatTupleOf(Object element0, Object element1) {
+        return new FlatTuple2(element0, element1);
+    }
+
+    /**
+     * @return a flat tuple of three elements
+     */
+    public static Tuple staticArityFlatTupleOf(Object element0, Object element1, Object element2) {
+        return new FlatTuple3(element0, element1, element2);
+    }
+
+    /**
+     * @return a flat tuple of four elements
+     */
+    public static Tuple staticArityFlatTupleOf(Object element0, Object element1, Object element2, Object element3) {
+        return new FlatTuple4(element0, element1, element2, element3);
+    }
+
+}
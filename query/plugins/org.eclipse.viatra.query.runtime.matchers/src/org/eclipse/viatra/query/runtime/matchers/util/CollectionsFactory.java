@@ -41,6 +41,12 @@ public class CollectionsFactory
 
     public enum CollectionsFramework {
         Java,
+        /**
+         * Self-contained open addressing implementations, see {@link OpenHashMap} and {@link OpenHashSet}
+         * 
+         * @since 1.6
+         */
+        OpenAddressing,
         HPPC,
         GS,
         FastUtil,
@@ -55,6 +61,7 @@ public class CollectionsFactory
         switch (mode) {
         default:
         case Java: return new HashMap<K, V>();
+        case OpenAddressing: return new OpenHashMap<K, V>();
 //        case HPPC: return new HPPCHashMap<K, V>(); // non-thread-safe
 //        case GS: return new UnifiedMap<K,V>();
 //        case FastUtil: return new Object2ReferenceOpenHashMap<K,V>();
@@ -70,6 +77,7 @@ public class CollectionsFactory
         switch (mode) {
         default:
         case Java: return new HashSet<E>();
+        case OpenAddressing: return new OpenHashSet<E>();
 //        case GS: return new UnifiedSet<E>();
 //        case FastUtil: return new ObjectOpenHashSet<E>();
 //        case Trove: return new THashSet<E>();
@@ -85,4 +93,14 @@ public class CollectionsFactory
         return r;
     }
     
+    /**
+     * Multisets are always backed by {@link OpenHashMultiset}, regardless of {@link #mode}, as it stores occurrence
+     * counts without boxing, and only when some value actually occurs more than once.
+     * 
+     * @since 1.6
+     */
+    public static <T> IMultiset<T> getMultiset() {
+        return new OpenHashMultiset<T>();
+    }
+    
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+/**
+ * Implemented by the owners of tuple storage (memories, indexes, query backends) that can report their memory usage.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface IMemoryFootprintProvider {
+
+    /**
+     * Records the tuples and estimated bytes owned by this object into the given entry, possibly broken down into
+     * parts of the entry.
+     */
+    void collectMemoryFootprint(MemoryFootprint footprint);
+
+}
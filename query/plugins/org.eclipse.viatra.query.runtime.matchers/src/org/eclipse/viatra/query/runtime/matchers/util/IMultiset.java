@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.Set;
+
+/**
+ * A multiset that counts the number of occurrences of each distinct value.
+ * Obtain instances through {@link CollectionsFactory#getMultiset()}.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface IMultiset<T> {
+
+    /**
+     * Adds a single occurrence of the value.
+     * 
+     * @return true if the value was not present before
+     */
+    boolean addOne(T value);
+
+    /**
+     * Removes a single occurrence of the value.
+     * 
+     * @return true if this was the last occurrence of the value
+     * @throws IllegalStateException
+     *             if the value had no occurrences
+     */
+    boolean removeOne(T value);
+
+    /**
+     * @return the number of occurrences of the value, 0 if absent
+     */
+    int getCount(T value);
+
+    /**
+     * @return true if the value has at least one occurrence
+     */
+    boolean containsNonZero(Object value);
+
+    /**
+     * @return the number of distinct values
+     */
+    int size();
+
+    boolean isEmpty();
+
+    void clear();
+
+    /**
+     * The set of distinct values with nonzero occurrence. 
+     * Removing a value from the returned view removes all of its occurrences.
+     */
+    Set<T> distinctValues();
+
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A named entry of a memory usage report, with the number of tuples stored and an estimate of the bytes retained by
+ * the owner of the entry; entries are organized in a tree, where the totals of an entry include those of its parts.
+ *
+ * <p>
+ * The byte estimates are computed from the sizes of the data structures, assuming a 64-bit JVM with compressed
+ * references; the objects stored in the tuples (e.g. model elements) and the sharing of interned tuples between
+ * owners are not taken into account. The estimates are meant to compare the footprint of queries and indexes, not to
+ * predict the heap usage precisely.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public final class MemoryFootprint {
+
+    /**
+     * The estimated size of an object header.
+     */
+    public static final int OBJECT_HEADER = 12;
+    /**
+     * The estimated size of an object reference.
+     */
+    public static final int REFERENCE = 4;
+    /**
+     * The estimated size of an entry of a hash-based collection, including its share of the table.
+     */
+    public static final int HASH_ENTRY = 40;
+
+    private final String name;
+    private long ownTupleCount = 0;
+    private long ownEstimatedBytes = 0;
+    private final Map<String, MemoryFootprint> parts = new LinkedHashMap<String, MemoryFootprint>();
+
+    public MemoryFootprint(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the size of an object with the given size of fields, aligned to 8 bytes
+     */
+    public static long estimateObject(long fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /**
+     * @return the size of an array of references of the given length, aligned to 8 bytes
+     */
+    public static long estimateReferenceArray(int length) {
+        return align(OBJECT_HEADER + 4 + (long) length * REFERENCE);
+    }
+
+    /**
+     * @return the size of a flat tuple of the given arity, including its array of elements
+     */
+    public static long estimateTuple(int arity) {
+        return estimateObject(REFERENCE + 4) + estimateReferenceArray(arity);
+    }
+
+    /**
+     * @return the size of a hash-based collection with the given number of entries, excluding the keys and values
+     */
+    public static long estimateHashCollection(int size) {
+        return estimateObject(4 * REFERENCE) + (long) size * HASH_ENTRY;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records tuples and bytes owned directly by this entry.
+     */
+    public void add(long tupleCount, long estimatedBytes) {
+        this.ownTupleCount += tupleCount;
+        this.ownEstimatedBytes += estimatedBytes;
+    }
+
+    /**
+     * @return the part with the given name, created if it does not exist yet
+     */
+    public MemoryFootprint getPart(String partName) {
+        MemoryFootprint part = parts.get(partName);
+        if (part == null) {
+            part = new MemoryFootprint(partName);
+            parts.put(partName, part);
+        }
+        return part;
+    }
+
+    /**
+     * @return the parts of this entry, in the order of their creation
+     */
+    public Collection<MemoryFootprint> getParts() {
+        return Collections.unmodifiableCollection(parts.values());
+    }
+
+    /**
+     * @return the number of tuples stored by this entry and its parts
+     */
+    public long getTupleCount() {
+        long result = ownTupleCount;
+        for (MemoryFootprint part : parts.values()) {
+            result += part.getTupleCount();
+        }
+        return result;
+    }
+
+    /**
+     * @return the estimated bytes retained by this entry and its parts
+     */
+    public long getEstimatedBytes() {
+        long result = ownEstimatedBytes;
+        for (MemoryFootprint part : parts.values()) {
+            result += part.getEstimatedBytes();
+        }
+        return result;
+    }
+
+    /**
+     * @return the estimated bytes of the parts of this entry, by name
+     */
+    public Map<String, Long> getEstimatedBytesOfParts() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (MemoryFootprint part : parts.values()) {
+            result.put(part.getName(), part.getEstimatedBytes());
+        }
+        return result;
+    }
+
+    /**
+     * Appends an indented dump of this entry and its parts, one line per entry, with the largest parts first.
+     */
+    public void dump(StringBuilder builder) {
+        dump(builder, 0);
+    }
+
+    private void dump(StringBuilder builder, int depth) {
+        for (int i = 0; i < depth; ++i) {
+            builder.append("  ");
+        }
+        builder.append(name).append(": ").append(getEstimatedBytes()).append(" bytes, ").append(getTupleCount())
+                .append(" tuples\n");
+        MemoryFootprint[] sortedParts = parts.values().toArray(new MemoryFootprint[parts.size()]);
+        Arrays.sort(sortedParts, new Comparator<MemoryFootprint>() {
+            @Override
+            public int compare(MemoryFootprint left, MemoryFootprint right) {
+                return Long.compare(right.getEstimatedBytes(), left.getEstimatedBytes());
+            }
+        });
+        for (MemoryFootprint part : sortedParts) {
+            part.dump(builder, depth + 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        dump(builder);
+        return builder.toString();
+    }
+
+}
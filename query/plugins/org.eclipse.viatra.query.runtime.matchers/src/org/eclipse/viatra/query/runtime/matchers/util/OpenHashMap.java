@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Hash map with open addressing and linear probing. Keys and values are stored in two parallel arrays, so no entry
+ * objects are allocated per mapping.
+ *
+ * <p> Entries returned by {@link #entrySet()} are snapshots; {@link java.util.Map.Entry#setValue(Object)} writes
+ * through to the map.
+ *
+ * <p> Not thread-safe.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class OpenHashMap<K, V> extends AbstractMap<K, V> {
+
+    private final Table table;
+
+    private Set<K> keySetView;
+    private Collection<V> valuesView;
+    private Set<Map.Entry<K, V>> entrySetView;
+
+    public OpenHashMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize
+     *            the number of mappings that can be stored without resizing
+     */
+    public OpenHashMap(int expectedSize) {
+        table = new Table(expectedSize);
+    }
+
+    @Override
+    public int size() {
+        return table.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return table.findSlot(OpenHashTable.maskNull(key)) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        int slot = table.findSlot(OpenHashTable.maskNull(key));
+        return slot < 0 ? null : (V) table.values[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(K key, V value) {
+        Object maskedKey = OpenHashTable.maskNull(key);
+        int slot = table.findSlotOrInsertionPoint(maskedKey);
+        if (slot >= 0) {
+            V old = (V) table.values[slot];
+            table.values[slot] = value;
+            return old;
+        } else {
+            int insertionPoint = -1 - slot;
+            table.values[insertionPoint] = value;
+            table.insertAt(insertionPoint, maskedKey);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        int slot = table.findSlot(OpenHashTable.maskNull(key));
+        if (slot < 0)
+            return null;
+        V old = (V) table.values[slot];
+        table.removeSlot(slot);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        table.clearTable();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        if (keySetView == null)
+            keySetView = new KeySet();
+        return keySetView;
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (valuesView == null)
+            valuesView = new Values();
+        return valuesView;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySetView == null)
+            entrySetView = new EntrySet();
+        return entrySetView;
+    }
+
+    private static final class Table extends OpenHashTable {
+        Object[] values;
+
+        Table(int expectedSize) {
+            super(expectedSize);
+        }
+
+        @Override
+        void allocatePayload(int capacity) {
+            values = new Object[capacity];
+        }
+
+        @Override
+        Object detachPayload() {
+            return values;
+        }
+
+        @Override
+        void transferPayload(Object detachedPayload, int fromSlot, int toSlot) {
+            values[toSlot] = ((Object[]) detachedPayload)[fromSlot];
+        }
+
+        @Override
+        void movePayload(int fromSlot, int toSlot) {
+            values[toSlot] = values[fromSlot];
+        }
+
+        @Override
+        void clearPayload(int slot) {
+            values[slot] = null;
+        }
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+        @Override
+        public Iterator<K> iterator() {
+            return table.new KeyIterator<K>();
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int slot = table.findSlot(OpenHashTable.maskNull(o));
+            if (slot < 0)
+                return false;
+            table.removeSlot(slot);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            OpenHashMap.this.clear();
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return table.new SlotIterator<V>() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public V next() {
+                    return (V) table.values[nextSlot()];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+
+        @Override
+        public void clear() {
+            OpenHashMap.this.clear();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return table.new SlotIterator<Map.Entry<K, V>>() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public Map.Entry<K, V> next() {
+                    int slot = nextSlot();
+                    return new Entry((K) OpenHashTable.unmaskNull(table.keys[slot]), (V) table.values[slot]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            int slot = table.findSlot(OpenHashTable.maskNull(entry.getKey()));
+            return slot >= 0 && Objects.equals(table.values[slot], entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            table.removeSlot(table.findSlot(OpenHashTable.maskNull(((Map.Entry<?, ?>) o).getKey())));
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            OpenHashMap.this.clear();
+        }
+    }
+
+    private final class Entry extends AbstractMap.SimpleEntry<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        Entry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+}
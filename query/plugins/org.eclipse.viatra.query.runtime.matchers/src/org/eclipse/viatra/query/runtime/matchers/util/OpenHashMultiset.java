@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Multiset with open addressing, storing occurrence counts in a primitive array parallel to the values,
+ * so that no boxed counters are allocated.
+ *
+ * <p> As long as every value occurs exactly once (the common case for Rete memories), the count array is not
+ * allocated at all, and the multiset costs no more than a set. The array is created when a value first gains a second
+ * occurrence, and dropped again once every count has stayed at one for as many updates as the table has slots, so that
+ * a value alternating between one and two occurrences does not reallocate the array on every update.
+ *
+ * <p> Not thread-safe.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class OpenHashMultiset<T> implements IMultiset<T> {
+
+    private final Table table;
+    private Set<T> distinctValuesView;
+
+    public OpenHashMultiset() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize
+     *            the number of distinct values that can be stored without resizing
+     */
+    public OpenHashMultiset(int expectedSize) {
+        table = new Table(expectedSize);
+    }
+
+    @Override
+    public boolean addOne(T value) {
+        Object maskedKey = OpenHashTable.maskNull(value);
+        int slot = table.findSlotOrInsertionPoint(maskedKey);
+        if (slot >= 0) {
+            if (table.counts == null)
+                table.materializeCounts();
+            if (table.counts[slot]++ == 1)
+                table.multipleOccurrences++;
+            return false;
+        } else {
+            int insertionPoint = -1 - slot;
+            if (table.counts != null)
+                table.counts[insertionPoint] = 1;
+            table.insertAt(insertionPoint, maskedKey);
+            table.releaseIdleCounts();
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeOne(T value) {
+        int slot = table.findSlot(OpenHashTable.maskNull(value));
+        if (slot < 0)
+            throw new IllegalStateException(String.format("Cannot remove %s, as it has no occurrences", value));
+        if (table.counts == null) {
+            table.removeSlot(slot);
+            return true;
+        }
+        int newCount = --table.counts[slot];
+        if (newCount == 0) {
+            table.removeSlot(slot);
+            table.releaseIdleCounts();
+            return true;
+        }
+        if (newCount == 1)
+            table.singleOccurrenceRestored();
+        else
+            table.releaseIdleCounts();
+        return false;
+    }
+
+    @Override
+    public int getCount(T value) {
+        int slot = table.findSlot(OpenHashTable.maskNull(value));
+        return slot < 0 ? 0 : table.countAt(slot);
+    }
+
+    @Override
+    public boolean containsNonZero(Object value) {
+        return table.findSlot(OpenHashTable.maskNull(value)) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return table.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.size == 0;
+    }
+
+    @Override
+    public void clear() {
+        table.counts = null;
+        table.multipleOccurrences = 0;
+        table.updatesWithSingleOccurrences = 0;
+        table.clearTable();
+    }
+
+    @Override
+    public Set<T> distinctValues() {
+        if (distinctValuesView == null)
+            distinctValuesView = new DistinctValues();
+        return distinctValuesView;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        String separator = "";
+        for (int i = 0; i < table.keys.length; ++i) {
+            if (table.keys[i] != null) {
+                sb.append(separator).append(OpenHashTable.unmaskNull(table.keys[i])).append('=').append(table.countAt(i));
+                separator = ", ";
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    private static final class Table extends OpenHashTable {
+        /**
+         * null if every value occurs exactly once
+         */
+        int[] counts;
+        /**
+         * the number of values occurring more than once
+         */
+        int multipleOccurrences;
+        /**
+         * the number of updates since every count returned to one, while the count array is still allocated
+         */
+        int updatesWithSingleOccurrences;
+
+        Table(int expectedSize) {
+            super(expectedSize);
+        }
+
+        int countAt(int slot) {
+            return counts == null ? 1 : counts[slot];
+        }
+
+        /**
+         * Switches from the all-ones representation to explicit counts.
+         */
+        void materializeCounts() {
+            updatesWithSingleOccurrences = 0;
+            counts = new int[keys.length];
+            for (int i = 0; i < keys.length; ++i) {
+                if (keys[i] != null)
+                    counts[i] = 1;
+            }
+        }
+
+        /**
+         * To be called when a value goes from two occurrences down to one.
+         */
+        void singleOccurrenceRestored() {
+            if (--multipleOccurrences == 0)
+                updatesWithSingleOccurrences = 0;
+        }
+
+        /**
+         * Drops the count array once every count has been one for as many updates as there are slots; as allocating
+         * the array costs time proportional to the number of slots, this keeps the cost of switching representations
+         * amortized constant per update.
+         */
+        void releaseIdleCounts() {
+            if (counts != null && multipleOccurrences == 0 && ++updatesWithSingleOccurrences >= keys.length)
+                counts = null;
+        }
+
+        /**
+         * Also used when all occurrences of a value are removed at once, e.g. through {@link #distinctValues()}.
+         */
+        @Override
+        void removeSlot(int slot) {
+            boolean hadMultipleOccurrences = counts != null && counts[slot] > 1;
+            super.removeSlot(slot);
+            if (hadMultipleOccurrences)
+                singleOccurrenceRestored();
+        }
+
+        @Override
+        void allocatePayload(int capacity) {
+            if (counts != null)
+                counts = new int[capacity];
+        }
+
+        @Override
+        Object detachPayload() {
+            return counts;
+        }
+
+        @Override
+        void transferPayload(Object detachedPayload, int fromSlot, int toSlot) {
+            if (detachedPayload != null)
+                counts[toSlot] = ((int[]) detachedPayload)[fromSlot];
+        }
+
+        @Override
+        void movePayload(int fromSlot, int toSlot) {
+            if (counts != null)
+                counts[toSlot] = counts[fromSlot];
+        }
+
+        @Override
+        void clearPayload(int slot) {
+            if (counts != null)
+                counts[slot] = 0;
+        }
+    }
+
+    private final class DistinctValues extends AbstractSet<T> {
+        @Override
+        public Iterator<T> iterator() {
+            return table.new KeyIterator<T>();
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsNonZero(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int slot = table.findSlot(OpenHashTable.maskNull(o));
+            if (slot < 0)
+                return false;
+            table.removeSlot(slot);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            OpenHashMultiset.this.clear();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * Hash set with open addressing and linear probing, storing its elements directly in a single array.
+ *
+ * <p> Not thread-safe.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class OpenHashSet<E> extends AbstractSet<E> {
+
+    private final Table table;
+
+    public OpenHashSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize
+     *            the number of elements that can be stored without resizing
+     */
+    public OpenHashSet(int expectedSize) {
+        table = new Table(expectedSize);
+    }
+
+    @Override
+    public int size() {
+        return table.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return table.findSlot(OpenHashTable.maskNull(o)) >= 0;
+    }
+
+    @Override
+    public boolean add(E e) {
+        Object maskedKey = OpenHashTable.maskNull(e);
+        int slot = table.findSlotOrInsertionPoint(maskedKey);
+        if (slot >= 0)
+            return false;
+        table.insertAt(-1 - slot, maskedKey);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int slot = table.findSlot(OpenHashTable.maskNull(o));
+        if (slot < 0)
+            return false;
+        table.removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        table.clearTable();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return table.new KeyIterator<E>();
+    }
+
+    private static final class Table extends OpenHashTable {
+        Table(int expectedSize) {
+            super(expectedSize);
+        }
+
+        @Override
+        void allocatePayload(int capacity) {
+            // no payload
+        }
+
+        @Override
+        Object detachPayload() {
+            return null;
+        }
+
+        @Override
+        void transferPayload(Object detachedPayload, int fromSlot, int toSlot) {
+            // no payload
+        }
+
+        @Override
+        void movePayload(int fromSlot, int toSlot) {
+            // no payload
+        }
+
+        @Override
+        void clearPayload(int slot) {
+            // no payload
+        }
+    }
+
+}
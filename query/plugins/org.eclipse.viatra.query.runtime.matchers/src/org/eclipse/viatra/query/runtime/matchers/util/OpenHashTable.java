@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Common skeleton of the open-addressing hash structures in this package.
+ *
+ * <p> Keys are stored in a single power-of-two sized array and collisions are resolved by linear probing.
+ * Deletion uses backward shifting, so no tombstones are left behind and lookups never degrade after churn.
+ * Subclasses may store per-key payload in parallel arrays, which are kept in sync through the slot hooks.
+ *
+ * <p> Null keys are supported by masking them with a sentinel.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+abstract class OpenHashTable {
+
+    static final Object NULL_KEY = new Object();
+    static final int MIN_CAPACITY = 4;
+    static final float LOAD_FACTOR = 0.75f;
+
+    Object[] keys;
+    int size;
+    int mask;
+    int threshold;
+    int modCount;
+
+    OpenHashTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    static Object unmaskNull(Object key) {
+        return key == NULL_KEY ? null : key;
+    }
+
+    /**
+     * Spreads the bits of the hash code, as tuple and EObject hashes tend to differ in the high bits only.
+     */
+    static int hash(Object maskedKey) {
+        int h = maskedKey.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Allocates key and payload storage for the given (power of two) capacity. The table is left empty.
+     */
+    void allocate(int capacity) {
+        keys = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+        allocatePayload(capacity);
+    }
+
+    /**
+     * Allocates the parallel payload arrays, if any.
+     */
+    abstract void allocatePayload(int capacity);
+
+    /**
+     * Detaches the current payload arrays (before reallocation), to be passed to {@link #transferPayload(Object, int, int)}.
+     */
+    abstract Object detachPayload();
+
+    /**
+     * Copies the payload of a slot of the detached storage into a slot of the current storage.
+     */
+    abstract void transferPayload(Object detachedPayload, int fromSlot, int toSlot);
+
+    /**
+     * Moves the payload between two slots of the current storage.
+     */
+    abstract void movePayload(int fromSlot, int toSlot);
+
+    /**
+     * Releases the payload of the slot, which has become empty.
+     */
+    abstract void clearPayload(int slot);
+
+    /**
+     * @return the slot containing the key, or -1 if absent
+     */
+    int findSlot(Object maskedKey) {
+        int i = hash(maskedKey) & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k == maskedKey || k.equals(maskedKey))
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the slot containing the key, or (-1 - insertion point) if absent
+     */
+    int findSlotOrInsertionPoint(Object maskedKey) {
+        int i = hash(maskedKey) & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k == maskedKey || k.equals(maskedKey))
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1 - i;
+    }
+
+    /**
+     * Stores a new key at the insertion point previously returned by {@link #findSlotOrInsertionPoint(Object)}. The
+     * payload of the slot must be written by the caller BEFORE calling this method, as the table may be resized.
+     */
+    void insertAt(int insertionPoint, Object maskedKey) {
+        keys[insertionPoint] = maskedKey;
+        ++modCount;
+        if (++size > threshold)
+            rehash(keys.length << 1);
+    }
+
+    void rehash(int newCapacity) {
+        Object[] oldKeys = keys;
+        Object oldPayload = detachPayload();
+        allocate(newCapacity);
+        for (int j = 0; j < oldKeys.length; ++j) {
+            Object k = oldKeys[j];
+            if (k != null) {
+                int i = hash(k) & mask;
+                while (keys[i] != null)
+                    i = (i + 1) & mask;
+                keys[i] = k;
+                transferPayload(oldPayload, j, i);
+            }
+        }
+    }
+
+    /**
+     * Empties the given slot, shifting back subsequent entries of the probe sequence to fill the hole.
+     */
+    void removeSlot(int slot) {
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            int ideal = hash(k) & mask;
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                movePayload(i, hole);
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[hole] = null;
+        clearPayload(hole);
+        --size;
+        ++modCount;
+    }
+
+    void clearTable() {
+        if (size > 0) {
+            allocate(MIN_CAPACITY);
+            size = 0;
+            ++modCount;
+        }
+    }
+
+    /**
+     * Iterates over occupied slots.
+     *
+     * <p> If an element is removed through the iterator, the traversal continues over a copy of the key array,
+     * since the backward shift of the live table could otherwise move unvisited keys behind the cursor.
+     */
+    abstract class SlotIterator<T> implements Iterator<T> {
+        private Object[] traversedKeys = keys;
+        private boolean detached = false;
+        private int nextIndex;
+        private int lastReturnedIndex = -1;
+        private int expectedModCount = modCount;
+
+        SlotIterator() {
+            advance(0);
+        }
+
+        private void advance(int from) {
+            int i = from;
+            while (i < traversedKeys.length && traversedKeys[i] == null)
+                ++i;
+            nextIndex = i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < traversedKeys.length;
+        }
+
+        /**
+         * @return the live slot of the next key
+         */
+        int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastReturnedIndex = nextIndex;
+            advance(nextIndex + 1);
+            return detached ? findSlot(traversedKeys[lastReturnedIndex]) : lastReturnedIndex;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturnedIndex < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!detached) {
+                traversedKeys = traversedKeys.clone();
+                detached = true;
+            }
+            removeSlot(findSlot(traversedKeys[lastReturnedIndex]));
+            lastReturnedIndex = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator<K> extends SlotIterator<K> {
+        @SuppressWarnings("unchecked")
+        @Override
+        public K next() {
+            return (K) unmaskNull(keys[nextSlot()]);
+        }
+    }
+
+}
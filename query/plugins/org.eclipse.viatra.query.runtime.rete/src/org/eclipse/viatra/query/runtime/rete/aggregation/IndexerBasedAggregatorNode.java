@@ -20,6 +20,8 @@ import org.eclipse.viatra.query.runtime.matchers.tuple.LeftInheritanceTuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 import org.eclipse.viatra.query.runtime.rete.index.DefaultIndexerListener;
 import org.eclipse.viatra.query.runtime.rete.index.Indexer;
 import org.eclipse.viatra.query.runtime.rete.index.ProjectionIndexer;
@@ -37,7 +39,7 @@ import org.eclipse.viatra.query.runtime.rete.traceability.TraceInfo;
  * @author Gabor Bergmann
  * @since 1.4
  */
-public abstract class IndexerBasedAggregatorNode extends StandardNode implements IAggregatorNode {
+public abstract class IndexerBasedAggregatorNode extends StandardNode implements IAggregatorNode, IMemoryFootprintProvider {
 
     ProjectionIndexer projection;
     IndexerBasedAggregatorNode me;
@@ -76,6 +78,20 @@ public abstract class IndexerBasedAggregatorNode extends StandardNode implements
     	});
     }
 
+    /**
+     * Only the aggregate results are accounted for; the aggregated groups are stored by the projection indexer.
+     * 
+     * @since 1.6
+     */
+    @Override
+    public void collectMemoryFootprint(MemoryFootprint footprint) {
+        long bytes = MemoryFootprint.estimateHashCollection(mainAggregates.size());
+        for (Tuple signature : mainAggregates.keySet()) {
+            bytes += MemoryFootprint.estimateTuple(signature.getSize());
+        }
+        footprint.add(mainAggregates.size(), bytes);
+    }
+
     /**
      * Aggregates (reduces) a group of tuples. The group can be null.
      */
@@ -18,6 +18,8 @@ import org.eclipse.viatra.query.runtime.matchers.context.IQueryRuntimeContext;
 import org.eclipse.viatra.query.runtime.matchers.context.IQueryRuntimeContextListener;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.rete.matcher.ReteEngine;
+import org.eclipse.viatra.query.runtime.rete.network.BatchReceiver;
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
 import org.eclipse.viatra.query.runtime.rete.network.Direction;
 import org.eclipse.viatra.query.runtime.rete.network.Network;
 import org.eclipse.viatra.query.runtime.rete.network.Receiver;
@@ -34,7 +36,7 @@ import org.eclipse.viatra.query.runtime.rete.remote.Address;
  * @author Bergmann Gabor
  *
  */
-public class ExternalInputEnumeratorNode extends StandardNode implements Disconnectable, Receiver, IQueryRuntimeContextListener {
+public class ExternalInputEnumeratorNode extends StandardNode implements Disconnectable, BatchReceiver, IQueryRuntimeContextListener {
 
 	private IQueryRuntimeContext context = null;
 	private IInputKey inputKey;
@@ -43,6 +45,7 @@ public class ExternalInputEnumeratorNode extends StandardNode implements Disconn
 	private Network network;
 	private Address<? extends Receiver> myAddress;
 	private boolean parallelExecutionEnabled;
+	private DeltaBag pendingBatch = null;
 
 	public ExternalInputEnumeratorNode(ReteContainer reteContainer) {
 		super(reteContainer);
@@ -90,7 +93,14 @@ public class ExternalInputEnumeratorNode extends StandardNode implements Disconn
 	/* Update from runtime context */
 	@Override
 	public void update(IInputKey key, Tuple updateTuple, boolean isInsertion) {
-		if (parallelExecutionEnabled) {
+		if (network.isBatching()) {
+			// collect the update, to be propagated at the end of the batch
+			if (pendingBatch == null) {
+				pendingBatch = new DeltaBag();
+				network.registerPendingBatch(this);
+			}
+			pendingBatch.add(direction(isInsertion), updateTuple);
+		} else if (parallelExecutionEnabled) {
 			// send back to myself as an official external update, and then propagate it transparently
 			network.sendExternalUpdate(myAddress, direction(isInsertion), updateTuple);			
 		} else {
@@ -104,12 +114,34 @@ public class ExternalInputEnumeratorNode extends StandardNode implements Disconn
     	return isInsertion ? Direction.INSERT : Direction.REVOKE;
     }
     
+	/**
+	 * Propagates the updates collected during the current batch; to be called by the network at the end of the batch.
+	 * @since 1.6
+	 */
+	public void flushBatch() {
+		DeltaBag delta = pendingBatch;
+		pendingBatch = null;
+		if (delta == null)
+			return;
+		if (parallelExecutionEnabled) {
+			network.sendExternalBatchUpdate(myAddress, delta);
+		} else {
+			propagateUpdates(delta);
+		}
+	}
+
 	/* Self-addressed from network */
 	@Override
 	public void update(Direction direction, Tuple updateElement) {
 		propagateUpdate(direction, updateElement);
 	}
 
+	/* Self-addressed from network */
+	@Override
+	public void batchUpdate(DeltaBag delta) {
+		propagateUpdates(delta);
+	}
+
 	@Override
 	public void appendParent(Supplier supplier) {
 		throw new UnsupportedOperationException("Input nodes can't have parents");
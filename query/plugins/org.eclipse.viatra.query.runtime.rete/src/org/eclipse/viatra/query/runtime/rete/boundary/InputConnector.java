@@ -10,13 +10,17 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.rete.boundary;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 
 import org.eclipse.viatra.query.runtime.matchers.context.IInputKey;
-import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
 import org.eclipse.viatra.query.runtime.rete.network.Network;
 import org.eclipse.viatra.query.runtime.rete.network.Node;
+import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 import org.eclipse.viatra.query.runtime.rete.recipes.InputFilterRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.InputRecipe;
 import org.eclipse.viatra.query.runtime.rete.remote.Address;
@@ -33,7 +37,10 @@ import com.google.common.collect.Table;
 public final class InputConnector {
 	Network network;
 	
-    protected Table<IInputKey, Tuple, Address<ExternalInputEnumeratorNode>> externalInputRoots = HashBasedTable.create(100, 1);
+    /**
+     * The input nodes of each container; in a partitioned network, each container owns its own input nodes.
+     */
+    protected Map<ReteContainer, Table<IInputKey, Tuple, Address<ExternalInputEnumeratorNode>>> externalInputRoots = CollectionsFactory.getMap();
 	
 //    /*
 //     * arity:1 used as simple entity constraints label is the object representing the type null label means all entities
@@ -90,7 +97,7 @@ public final class InputConnector {
 		IInputKey inputKey = (IInputKey) recipe.getInputKey();
 		Tuple seed = nopSeed(inputKey); // no preseeding as of now
 		final Address<ExternalInputEnumeratorNode> freshAddress = Address.of(inputNode);
-		externalInputRoots.put(inputKey, seed, freshAddress);
+		getExternalInputRoots(inputNode.getContainer()).put(inputKey, seed, freshAddress);
 		inputNode.connectThroughContext(network.getEngine(), inputKey, seed);
 		
 //		final Address<Tunnel> freshAddress = Address.of((Tunnel)freshNode);
@@ -186,23 +193,70 @@ public final class InputConnector {
 //	}
 
     
+    private Table<IInputKey, Tuple, Address<ExternalInputEnumeratorNode>> getExternalInputRoots(ReteContainer container) {
+    	Table<IInputKey, Tuple, Address<ExternalInputEnumeratorNode>> roots = externalInputRoots.get(container);
+    	if (roots == null) {
+    		roots = HashBasedTable.create(100, 1);
+    		externalInputRoots.put(container, roots);
+    	}
+    	return roots;
+    }
+
+    /**
+     * @return the input nodes of all containers
+     */
     public Collection<Address<ExternalInputEnumeratorNode>> getAllExternalInputNodes() {
-    	return externalInputRoots.values();
+    	Collection<Address<ExternalInputEnumeratorNode>> result = new ArrayList<Address<ExternalInputEnumeratorNode>>();
+    	for (Table<IInputKey, Tuple, Address<ExternalInputEnumeratorNode>> roots : externalInputRoots.values()) {
+    		result.addAll(roots.values());
+    	}
+    	return result;
     }
+    /**
+     * @return the input nodes of all containers for the given key
+     */
     public Collection<Address<ExternalInputEnumeratorNode>> getAllExternalInputNodesForKey(IInputKey inputKey) {
-    	return externalInputRoots.row(inputKey).values();
+    	Collection<Address<ExternalInputEnumeratorNode>> result = new ArrayList<Address<ExternalInputEnumeratorNode>>();
+    	for (Table<IInputKey, Tuple, Address<ExternalInputEnumeratorNode>> roots : externalInputRoots.values()) {
+    		result.addAll(roots.row(inputKey).values());
+    	}
+    	return result;
     }
+    /**
+     * @return the unseeded input node of the head container for the given key, or of any container if the head
+     *         container has none
+     */
     public Address<ExternalInputEnumeratorNode> getExternalInputNodeForKeyUnseeded(IInputKey inputKey) {
-    	return externalInputRoots.get(inputKey, null);
+    	return getExternalInputNode(inputKey, null);
     }
+    /**
+     * @return the input node of the head container for the given key and seed, or of any container if the head
+     *         container has none
+     */
     public Address<ExternalInputEnumeratorNode> getExternalInputNode(IInputKey inputKey, Tuple seed) {
+    	Address<ExternalInputEnumeratorNode> result = getExternalInputNode(network.getHeadContainer(), inputKey, seed);
+    	if (result == null) {
+    		for (ReteContainer container : externalInputRoots.keySet()) {
+    			result = getExternalInputNode(container, inputKey, seed);
+    			if (result != null)
+    				break;
+    		}
+    	}
+    	return result;
+    }
+    /**
+     * @return the input node of the given container for the given key and seed, or null if there is none
+     * @since 1.6
+     */
+    public Address<ExternalInputEnumeratorNode> getExternalInputNode(ReteContainer container, IInputKey inputKey, Tuple seed) {
     	if (seed == null) seed = nopSeed(inputKey);
-    	return externalInputRoots.get(inputKey, seed);
+    	Table<IInputKey, Tuple, Address<ExternalInputEnumeratorNode>> roots = externalInputRoots.get(container);
+    	return roots == null ? null : roots.get(inputKey, seed);
     }
 
 
 	Tuple nopSeed(IInputKey inputKey) {
-		return new FlatTuple(new Object[inputKey.getArity()]);
+		return Tuples.flatTupleOf(new Object[inputKey.getArity()]);
 	}
     
     
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.rete.index;
+
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
+
+/**
+ * An indexer listener that can be notified of a whole batch of updates at once. An indexer will only process a batch
+ * in bulk if all of its listeners accept batches; otherwise the updates are indexed and notified one by one.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface BatchIndexerListener extends IndexerListener {
+    /**
+     * Notifies recipient that the indexer has just received a batch of updates. Contract: indexer already reflects the
+     * updated state, including all updates of the batch.
+     * 
+     * @param delta
+     *            the batch of updates, must not be modified.
+     */
+    void notifyIndexerBatchUpdate(DeltaBag delta);
+}
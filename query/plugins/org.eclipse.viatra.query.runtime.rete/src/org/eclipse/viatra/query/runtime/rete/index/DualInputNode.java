@@ -12,9 +12,14 @@
 package org.eclipse.viatra.query.runtime.rete.index;
 
 import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
 import org.eclipse.viatra.query.runtime.rete.network.Direction;
 import org.eclipse.viatra.query.runtime.rete.network.Receiver;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
@@ -104,42 +109,16 @@ public abstract class DualInputNode extends StandardNode /* implements Pullable
         // attach listeners
         // if there is syncing, do this after the flush done for pulling, but before syncing updates
         coincidence = primarySlot.equals(secondarySlot); 
-        final DualInputNode me = this;
         if (!coincidence) { // regular case
-            primarySlot.attachListener(new DefaultIndexerListener(this) {
-                public void notifyIndexerUpdate(Direction direction, Tuple updateElement, Tuple signature,
-                        boolean change) {
-                    notifyUpdate(Side.PRIMARY, direction, updateElement, signature, change);
-                }
-
-                @Override
-                public String toString() {
-                    return "primary@" + me;
-                }
-            });
-            secondarySlot.attachListener(new DefaultIndexerListener(this) {
-                public void notifyIndexerUpdate(Direction direction, Tuple updateElement, Tuple signature,
-                        boolean change) {
-                    notifyUpdate(Side.SECONDARY, direction, updateElement, signature, change);
-                }
-
-                @Override
-                public String toString() {
-                    return "secondary@" + me;
-                }
-            });
+            if (acceptsBatchUpdates()) {
+                primarySlot.attachListener(new BatchSlotListener(Side.PRIMARY));
+                secondarySlot.attachListener(new BatchSlotListener(Side.SECONDARY));
+            } else {
+                primarySlot.attachListener(new SlotListener(Side.PRIMARY));
+                secondarySlot.attachListener(new SlotListener(Side.SECONDARY));
+            }
         } else { // if the two slots are the same, updates have to be handéed carefully
-            primarySlot.attachListener(new DefaultIndexerListener(this) {
-                public void notifyIndexerUpdate(Direction direction, Tuple updateElement, Tuple signature,
-                        boolean change) {
-                    notifyUpdate(Side.BOTH, direction, updateElement, signature, change);
-                }
-
-                @Override
-                public String toString() {
-                    return "both@" + me;
-                }
-            });
+            primarySlot.attachListener(new SlotListener(Side.BOTH));
         }
         
         // synch contents to receivers now... if any
@@ -232,6 +211,63 @@ public abstract class DualInputNode extends StandardNode /* implements Pullable
     public abstract void notifyUpdate(Side side, Direction direction, Tuple updateElement, Tuple signature,
             boolean change);
 
+    /**
+     * Tells whether the node is able to process a whole batch of updates on one of its sides at once, see
+     * {@link #notifyBatchUpdate(Side, DeltaBag)}. Batches are never delivered if the two slots coincide.
+     * 
+     * @since 1.6
+     */
+    protected boolean acceptsBatchUpdates() {
+        return false;
+    }
+
+    /**
+     * Handler for a batch of update events on a single side; only invoked if {@link #acceptsBatchUpdates()}.
+     * <p>
+     * The default implementation replays the batch as individual calls to
+     * {@link #notifyUpdate(Side, Direction, Tuple, Tuple, boolean)}, revocations first, reconstructing the
+     * <code>change</code> flags from the contents of the slot; subclasses should override it to process the batch at
+     * once.
+     * 
+     * @param side
+     *            The side on which the events occured; never {@link Side#BOTH}.
+     * @param delta
+     *            The batch of updates; the slot already reflects all of them.
+     * @since 1.6
+     */
+    protected void notifyBatchUpdate(Side side, DeltaBag delta) {
+        final Indexer slot = getSlot(side);
+        final TupleMask mask = slot.getMask();
+        // number of tuples per signature in the slot, as of before the batch
+        final Map<Tuple, Integer> counts = CollectionsFactory.getMap();
+        for (Entry<Tuple, Integer> entry : delta.entrySet()) {
+            final Tuple signature = mask.transform(entry.getKey());
+            Integer count = counts.get(signature);
+            if (count == null) {
+                final Collection<Tuple> contents = slot.get(signature);
+                count = (contents == null) ? 0 : contents.size();
+            }
+            counts.put(signature, count - entry.getValue());
+        }
+        for (Entry<Tuple, Integer> entry : delta.entrySet()) {
+            for (int i = entry.getValue(); i < 0; ++i)
+                replayUpdate(side, Direction.REVOKE, entry.getKey(), mask.transform(entry.getKey()), counts);
+        }
+        for (Entry<Tuple, Integer> entry : delta.entrySet()) {
+            for (int i = entry.getValue(); i > 0; --i)
+                replayUpdate(side, Direction.INSERT, entry.getKey(), mask.transform(entry.getKey()), counts);
+        }
+    }
+
+    private void replayUpdate(Side side, Direction direction, Tuple updateElement, Tuple signature,
+            Map<Tuple, Integer> counts) {
+        final int oldCount = counts.get(signature);
+        final int newCount = (direction == Direction.INSERT) ? oldCount + 1 : oldCount - 1;
+        counts.put(signature, newCount);
+        final boolean change = (direction == Direction.INSERT) ? oldCount == 0 : newCount == 0;
+        notifyUpdate(side, direction, updateElement, signature, change);
+    }
+
     /**
      * Simulates the behaviour of the node for calibration purposes only.
      */
@@ -255,6 +291,36 @@ public abstract class DualInputNode extends StandardNode /* implements Pullable
             return primarySlot;
     }
     
+    private class SlotListener extends DefaultIndexerListener {
+        protected final Side side;
+
+        public SlotListener(Side side) {
+            super(DualInputNode.this);
+            this.side = side;
+        }
+
+        @Override
+        public void notifyIndexerUpdate(Direction direction, Tuple updateElement, Tuple signature, boolean change) {
+            notifyUpdate(side, direction, updateElement, signature, change);
+        }
+
+        @Override
+        public String toString() {
+            return side.name().toLowerCase(Locale.ENGLISH) + "@" + DualInputNode.this;
+        }
+    }
+
+    private class BatchSlotListener extends SlotListener implements BatchIndexerListener {
+        public BatchSlotListener(Side side) {
+            super(side);
+        }
+
+        @Override
+        public void notifyIndexerBatchUpdate(DeltaBag delta) {
+            notifyBatchUpdate(side, delta);
+        }
+    }
+
     @Override
     public void assignTraceInfo(TraceInfo traceInfo) {
     	super.assignTraceInfo(traceInfo);
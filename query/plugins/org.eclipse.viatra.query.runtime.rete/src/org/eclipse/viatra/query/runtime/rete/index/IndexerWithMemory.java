@@ -13,11 +13,15 @@ package org.eclipse.viatra.query.runtime.rete.index;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map.Entry;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
+import org.eclipse.viatra.query.runtime.rete.network.BatchReceiver;
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
 import org.eclipse.viatra.query.runtime.rete.network.Direction;
-import org.eclipse.viatra.query.runtime.rete.network.Receiver;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 import org.eclipse.viatra.query.runtime.rete.network.Supplier;
 import org.eclipse.viatra.query.runtime.rete.tuple.MaskedTupleMemory;
@@ -26,7 +30,7 @@ import org.eclipse.viatra.query.runtime.rete.tuple.MaskedTupleMemory;
  * @author Gabor Bergmann
  * 
  */
-public abstract class IndexerWithMemory extends StandardIndexer implements Receiver {
+public abstract class IndexerWithMemory extends StandardIndexer implements BatchReceiver, IMemoryFootprintProvider {
 
     protected MaskedTupleMemory memory;
 
@@ -34,13 +38,21 @@ public abstract class IndexerWithMemory extends StandardIndexer implements Recei
         return memory;
     }
 
+    /**
+     * @since 1.6
+     */
+    @Override
+    public void collectMemoryFootprint(MemoryFootprint footprint) {
+        memory.collectMemoryFootprint(footprint);
+    }
+
     /**
      * @param reteContainer
      * @param mask
      */
     public IndexerWithMemory(ReteContainer reteContainer, TupleMask mask) {
         super(reteContainer, mask);
-        this.memory = new MaskedTupleMemory(mask);
+        this.memory = new MaskedTupleMemory(mask, reteContainer.getNetwork().getTupleInterner());
         reteContainer.registerClearable(memory);
     }
 
@@ -52,6 +64,29 @@ public abstract class IndexerWithMemory extends StandardIndexer implements Recei
         update(direction, updateElement, signature, change);
     }
 
+    /**
+     * The whole batch is indexed before notifying listeners, if they all accept batches; otherwise the updates are
+     * processed one by one.
+     * 
+     * @since 1.6
+     */
+    @Override
+    public void batchUpdate(DeltaBag delta) {
+        if (!canPropagateBatch()) {
+            delta.replayInto(this);
+            return;
+        }
+        for (Entry<Tuple, Integer> entry : delta.entrySet()) {
+            Tuple updateElement = entry.getKey();
+            Tuple signature = mask.transform(updateElement);
+            for (int i = entry.getValue(); i < 0; ++i)
+                memory.remove(updateElement, signature);
+            for (int i = entry.getValue(); i > 0; --i)
+                memory.add(updateElement, signature);
+        }
+        propagateBatch(delta);
+    }
+
     /**
      * Refined version of update
      */
@@ -12,9 +12,11 @@
 package org.eclipse.viatra.query.runtime.rete.index;
 
 import java.util.Collection;
+import java.util.Map.Entry;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
 import org.eclipse.viatra.query.runtime.rete.network.Direction;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 
@@ -76,6 +78,30 @@ public class JoinNode extends DualInputNode {
         }
     }
 
+    @Override
+    protected boolean acceptsBatchUpdates() {
+        return true;
+    }
+
+    /**
+     * Joins the whole batch against the opposite slot, and propagates the results as a single batch.
+     */
+    @Override
+    protected void notifyBatchUpdate(Side side, DeltaBag delta) {
+        TupleMask mask = getSlot(side).getMask();
+        DeltaBag result = new DeltaBag();
+        for (Entry<Tuple, Integer> entry : delta.entrySet()) {
+            Tuple updateElement = entry.getKey();
+            Collection<Tuple> opposites = retrieveOpposites(side, mask.transform(updateElement));
+            if (opposites != null) {
+                for (Tuple opposite : opposites) {
+                    result.add(unify(side, updateElement, opposite), entry.getValue());
+                }
+            }
+        }
+        propagateUpdates(result);
+    }
+
     @Override
     public void pullInto(Collection<Tuple> collector) {
     	if (primarySlot == null || secondarySlot == null) return;
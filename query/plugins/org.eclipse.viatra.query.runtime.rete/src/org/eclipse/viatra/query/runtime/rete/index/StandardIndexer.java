@@ -18,6 +18,7 @@ import java.util.List;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
 import org.eclipse.viatra.query.runtime.rete.network.BaseNode;
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
 import org.eclipse.viatra.query.runtime.rete.network.Direction;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 import org.eclipse.viatra.query.runtime.rete.network.Supplier;
@@ -48,6 +49,28 @@ public abstract class StandardIndexer extends BaseNode implements Indexer {
         }
     }
 
+    /**
+     * @return true if all listeners are able to process batches, see {@link BatchIndexerListener}
+     * @since 1.6
+     */
+    protected boolean canPropagateBatch() {
+        for (IndexerListener listener : listeners) {
+            if (!(listener instanceof BatchIndexerListener))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @pre {@link #canPropagateBatch()}
+     * @since 1.6
+     */
+    protected void propagateBatch(DeltaBag delta) {
+        for (IndexerListener listener : listeners) {
+            ((BatchIndexerListener) listener).notifyIndexerBatchUpdate(delta);
+        }
+    }
+
     /**
      * @return the mask
      */
@@ -24,7 +24,24 @@ public class ReteBackendFactory implements IQueryBackendFactory {
     /**
      * EXPERIMENTAL
      */
-    private final static int reteThreads = 0;
+    private final int reteThreads;
+
+    public ReteBackendFactory() {
+        this(0);
+    }
+
+    /**
+     * EXPERIMENTAL
+     * 
+     * @param reteThreads
+     *            the number of threads to operate the RETE network with; 0 means single-threaded operation, 1 starts
+     *            an asynchronous thread to operate the RETE net, >1 partitions the network between multiple RETE
+     *            containers, each propagating updates on its own thread.
+     * @since 1.6
+     */
+    public ReteBackendFactory(int reteThreads) {
+        this.reteThreads = reteThreads;
+    }
     
     /**
      * @since 1.5
@@ -55,7 +72,7 @@ public class ReteBackendFactory implements IQueryBackendFactory {
 
 	@Override
 	public int hashCode() {
-		return ReteBackendFactory.class.hashCode();
+		return 31 * ReteBackendFactory.class.hashCode() + reteThreads;
 	}
 
 	@Override
@@ -69,7 +86,7 @@ public class ReteBackendFactory implements IQueryBackendFactory {
 		if (!(obj instanceof ReteBackendFactory)) {
 			return false;
 		}
-		return true;
+		return reteThreads == ((ReteBackendFactory) obj).reteThreads;
 	}
 
     /**
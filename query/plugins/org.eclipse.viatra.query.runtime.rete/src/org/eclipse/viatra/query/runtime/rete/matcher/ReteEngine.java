@@ -18,7 +18,7 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.apache.log4j.Logger;
-import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IBatchingQueryBackend;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendHintProvider;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
 import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
@@ -28,6 +28,8 @@ import org.eclipse.viatra.query.runtime.matchers.planning.QueryProcessingExcepti
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 import org.eclipse.viatra.query.runtime.rete.boundary.Disconnectable;
 import org.eclipse.viatra.query.runtime.rete.boundary.ReteBoundary;
 import org.eclipse.viatra.query.runtime.rete.construction.RetePatternBuildException;
@@ -36,12 +38,13 @@ import org.eclipse.viatra.query.runtime.rete.index.Indexer;
 import org.eclipse.viatra.query.runtime.rete.network.Network;
 import org.eclipse.viatra.query.runtime.rete.network.NodeProvisioner;
 import org.eclipse.viatra.query.runtime.rete.traceability.RecipeTraceInfo;
+import org.eclipse.viatra.query.runtime.rete.util.ReteHintOptions;
 
 /**
  * @author Gabor Bergmann
  *
  */
-public class ReteEngine implements IQueryBackend {
+public class ReteEngine implements IBatchingQueryBackend, IMemoryFootprintProvider {
 
     protected Network reteNet;
     protected final int reteThreads;
@@ -76,7 +79,8 @@ public class ReteEngine implements IQueryBackend {
      *            the context of the pattern matcher, conveying all information from the outside world.
      * @param reteThreads
      *            the number of threads to operate the RETE network with; 0 means single-threaded operation, 1 starts an
-     *            asynchronous thread to operate the RETE net, >1 uses multiple RETE containers.
+     *            asynchronous thread to operate the RETE net, >1 uses multiple RETE containers, with the subnetworks
+     *            of different patterns assigned to different containers; see {@link Network#isPartitioned()}.
      */
     public ReteEngine(IQueryBackendContext context, int reteThreads) {
         super();
@@ -185,6 +189,7 @@ public class ReteEngine implements IQueryBackend {
         // String fqn = namespace + "." + name;
         matcher = matchers.get(query);
         if (matcher == null) {
+            enableTupleInterningIfRequested(query);
             constructionWrapper(new Callable<Void>() {
         		@Override
         		public Void call() throws QueryProcessingException {
@@ -219,6 +224,9 @@ public class ReteEngine implements IQueryBackend {
     public synchronized void buildMatchersCoalesced(final Collection<PQuery> specifications)
             throws QueryProcessingException {
     	ensureInitialized();
+    	for (PQuery specification : specifications) {
+    	    enableTupleInterningIfRequested(specification);
+    	}
     	constructionWrapper(new Callable<Void>() {
     		@Override
     		public Void call() throws QueryProcessingException {
@@ -230,10 +238,18 @@ public class ReteEngine implements IQueryBackend {
     	});
     }
 
+    private void enableTupleInterningIfRequested(PQuery query) {
+        if (ReteHintOptions.internTuples.getValueOrDefault(hintConfigurator.getQueryEvaluationHint(query)))
+            reteNet.getTupleInterner().enable();
+    }
+
 	private void constructionWrapper(final Callable<Void> payload)
 			throws RetePatternBuildException {
 //		context.modelReadLock();
 //		    try {
+		        // new nodes pull the current model contents, so updates collected by a batch must not be held back
+		        if (reteNet.isBatching())
+		            reteNet.flushBatch();
 		        if (parallelExecutionEnabled)
 		            reteNet.getStructuralChangeLock().lock();
 		        try {
@@ -384,6 +400,48 @@ public class ReteEngine implements IQueryBackend {
         reteNet.waitForReteTermination(action);
     }
 
+    /**
+     * Executes the given callable with batched delta propagation: model changes performed in the callable are
+     * collected per input relation, and propagated through the network in bulk after the outermost batched call
+     * terminates, cancelling out insertions and deletions of the same tuple. Recommended for bulk modifications, such
+     * as loading large resources or undoing large commands.
+     *
+     * <p>
+     * <b>Caution: </b> results of the pattern matchers are not updated until the end of the outermost batched call.
+     *
+     * @throws InvocationTargetException
+     *             if the callable throws an exception; updates collected so far are propagated nevertheless
+     * @since 1.6
+     */
+    public <V> V executeBatched(Callable<V> callable) throws InvocationTargetException {
+        beginBatch();
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            throw new InvocationTargetException(e);
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * @since 1.6
+     */
+    @Override
+    public void beginBatch() {
+        ensureInitialized();
+        reteNet.beginBatch();
+    }
+
+    /**
+     * @since 1.6
+     */
+    @Override
+    public void endBatch() {
+        ensureInitialized();
+        reteNet.endBatch();
+    }
+
     // /**
     // * @return the framework
     // */
@@ -529,6 +587,27 @@ public class ReteEngine implements IQueryBackend {
 		return true;
 	}
 
+    /**
+     * Records the memory usage of the Rete network, broken down by patterns and nodes; see
+     * {@link Network#collectMemoryFootprint(MemoryFootprint)}. The network is not modified while the nodes are visited.
+     * 
+     * @since 1.6
+     */
+    @Override
+    public synchronized void collectMemoryFootprint(MemoryFootprint footprint) {
+        if (disposedOrUninitialized) {
+            return;
+        }
+        if (parallelExecutionEnabled)
+            reteNet.getStructuralChangeLock().lock();
+        try {
+            reteNet.collectMemoryFootprint(footprint);
+        } finally {
+            if (parallelExecutionEnabled)
+                reteNet.getStructuralChangeLock().unlock();
+        }
+    }
+
     /**
      * @since 1.5
      * @noreference Internal API, subject to change
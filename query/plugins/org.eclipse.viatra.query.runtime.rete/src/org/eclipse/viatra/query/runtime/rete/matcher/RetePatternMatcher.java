@@ -19,9 +19,9 @@ import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
 import org.eclipse.viatra.query.runtime.matchers.backend.IUpdateable;
 import org.eclipse.viatra.query.runtime.matchers.context.IQueryRuntimeContext;
-import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
 import org.eclipse.viatra.query.runtime.rete.index.Indexer;
 import org.eclipse.viatra.query.runtime.rete.network.Node;
@@ -83,7 +83,7 @@ public class RetePatternMatcher extends TransformerNode implements IQueryResultP
     public ArrayList<Tuple> matchAll(Object[] inputMapping, boolean[] fixed) {
         // retrieving the projection
         TupleMask mask = new TupleMask(fixed);
-        Tuple inputSignature = mask.transform(new FlatTuple(inputMapping));
+        Tuple inputSignature = mask.transform(Tuples.flatTupleOf(inputMapping));
 
         AllMatchFetcher fetcher = new AllMatchFetcher(engine.accessProjection(productionNodeTrace, mask),
         		context.wrapTuple(inputSignature));
@@ -101,7 +101,7 @@ public class RetePatternMatcher extends TransformerNode implements IQueryResultP
     public Tuple matchOne(Object[] inputMapping, boolean[] fixed) {
         // retrieving the projection
         TupleMask mask = new TupleMask(fixed);
-        Tuple inputSignature = mask.transform(new FlatTuple(inputMapping));
+        Tuple inputSignature = mask.transform(Tuples.flatTupleOf(inputMapping));
 
         SingleMatchFetcher fetcher = new SingleMatchFetcher(engine.accessProjection(productionNodeTrace, mask),
         		context.wrapTuple(inputSignature));
@@ -116,7 +116,7 @@ public class RetePatternMatcher extends TransformerNode implements IQueryResultP
      */
     public int count(Object[] inputMapping, boolean[] fixed) {
         TupleMask mask = new TupleMask(fixed);
-        Tuple inputSignature = mask.transform(new FlatTuple(inputMapping));
+        Tuple inputSignature = mask.transform(Tuples.flatTupleOf(inputMapping));
 
         CountFetcher fetcher = new CountFetcher(engine.accessProjection(productionNodeTrace, mask),
         		context.wrapTuple(inputSignature));
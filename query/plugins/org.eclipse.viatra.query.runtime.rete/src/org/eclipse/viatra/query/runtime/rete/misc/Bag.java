@@ -12,17 +12,18 @@
 package org.eclipse.viatra.query.runtime.rete.misc;
 
 import java.util.Collection;
-import java.util.LinkedList;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.rete.network.Direction;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 
+import com.google.common.collect.HashMultiset;
+
 /**
  * @author Gabor Bergmann
  * 
- *         A bag is a container that tuples can be dumped into. Does NOT propagate updates! Optimized for small contents
- *         size OR positive updates only.
+ *         A bag is a container that tuples can be dumped into. Does NOT propagate updates! Duplicates are retained,
+ *         and the contents are stored in a hash-based multiset, so that revocations take constant time.
  */
 public class Bag extends SimpleReceiver {
 
@@ -30,7 +31,7 @@ public class Bag extends SimpleReceiver {
 
     public Bag(ReteContainer reteContainer) {
         super(reteContainer);
-        contents = new LinkedList<Tuple>();
+        contents = HashMultiset.create();
     }
 
     @Override
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.rete.network;
+
+/**
+ * A receiver that is able to process a whole batch of updates in a single call. Receivers not implementing this
+ * interface are sent the contents of the batch as individual updates instead.
+ *
+ * ALL METHODS: FOR INTERNAL USE ONLY; ONLY INVOKE FROM {@link ReteContainer}
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface BatchReceiver extends Receiver {
+
+    /**
+     * updates the receiver with a batch of newly found or lost partial matchings; the effect must be equivalent to
+     * receiving the contents of the batch via {@link #update(Direction, org.eclipse.viatra.query.runtime.matchers.tuple.Tuple)}
+     *
+     * @param delta
+     *            the batch of updates, must not be modified
+     */
+    public void batchUpdate(DeltaBag delta);
+
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.rete.network;
+
+/**
+ * A message carrying a whole batch of updates. Receivers that do not process batches get the individual updates.
+ * 
+ * @author Kristof Marussy
+ */
+class BatchUpdateMessage extends UpdateMessage {
+    public DeltaBag delta;
+
+    public BatchUpdateMessage(Receiver receiver, DeltaBag delta) {
+        super(receiver, null, null);
+        this.delta = delta;
+    }
+
+    @Override
+    void deliver() {
+        if (receiver instanceof BatchReceiver)
+            ((BatchReceiver) receiver).batchUpdate(delta);
+        else
+            delta.replayInto(receiver);
+    }
+
+    @Override
+    public String toString() {
+        return "M.BATCH: " + delta + " -> " + receiver;
+    }
+
+}
@@ -25,7 +25,6 @@ import org.eclipse.viatra.query.runtime.rete.recipes.BetaRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.ConstantRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.ExpressionEnforcerRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.IndexerBasedAggregatorRecipe;
-import org.eclipse.viatra.query.runtime.rete.recipes.IndexerRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.InputRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.MultiParentNodeRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.ProductionRecipe;
@@ -97,19 +96,20 @@ class ConnectionFactory {
 			beta.connectToIndexers(slots.primary, slots.secondary);
 		} else if (recipe instanceof IndexerBasedAggregatorRecipe) {
 			final IndexerBasedAggregatorNode aggregator = (IndexerBasedAggregatorNode) freshNode;
-			final IndexerBasedAggregatorRecipe aggregatorRecipe = (IndexerBasedAggregatorRecipe) recipe;
-			aggregator.initializeWith((ProjectionIndexer) resolveIndexer(aggregatorRecipe.getParent()));
+			aggregator.initializeWith((ProjectionIndexer) resolveIndexer(recipeTrace.getParentRecipeTraces().iterator().next()));
 		}
 		// TODO Beta nodes are already connected?
 	}
 
-	private Indexer resolveIndexer(final IndexerRecipe indexerRecipe) {
-		final Address<? extends Node> address = reteContainer.getNetwork().getExistingNodeByRecipe(indexerRecipe);
-		return (Indexer) reteContainer.resolveLocal(address);
+	/**
+	 * The indexer may have been built in a different partition; in that case, a local indexer is obtained instead.
+	 */
+	private Indexer resolveIndexer(final RecipeTraceInfo indexerTrace) {
+		return reteContainer.getProvisioner().resolveLocalIndexer(indexerTrace);
 	}
 	
 	private void connectToParent(ReteNodeRecipe recipe, Receiver freshNode, ReteNodeRecipe parentRecipe) {
-		final Address<? extends Supplier> parentAddress = (Address<? extends Supplier>) reteContainer.getNetwork().getExistingNodeByRecipe(parentRecipe);
+		final Address<? extends Supplier> parentAddress = reteContainer.getProvisioner().getExistingSupplierByRecipe(parentRecipe);
 		final Supplier parentSupplier = reteContainer.getProvisioner().asSupplier(parentAddress);
 		
 		// special synch
@@ -138,8 +138,8 @@ class ConnectionFactory {
     private Slots avoidActiveNodeConflict(final RecipeTraceInfo primarySlot, final RecipeTraceInfo secondarySlot) {
         Slots result = new Slots() {
             {
-                primary = (IterableIndexer) resolveIndexer((ProjectionIndexerRecipe) primarySlot.getRecipe());
-                secondary = resolveIndexer((IndexerRecipe) secondarySlot.getRecipe());
+                primary = (IterableIndexer) resolveIndexer(primarySlot);
+                secondary = resolveIndexer(secondarySlot);
             }
         };
         if (activeNodeConflict(result.primary, result.secondary))
@@ -152,7 +152,7 @@ class ConnectionFactory {
 	private Indexer resolveActiveIndexer(final RecipeTraceInfo inactiveIndexerTrace) {
 		final RecipeTraceInfo activeIndexerTrace = reteContainer.getProvisioner().accessActiveIndexer(inactiveIndexerTrace);
 		reteContainer.getProvisioner().getOrCreateNodeByRecipe(activeIndexerTrace);
-		return resolveIndexer((ProjectionIndexerRecipe) activeIndexerTrace.getRecipe());
+		return resolveIndexer(activeIndexerTrace);
 	}
 
     private static class Slots {
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.rete.network;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+
+/**
+ * A batch of updates, represented as a bag of tuples with signed multiplicities: a positive multiplicity stands for
+ * that many insertions, a negative one for revocations.
+ *
+ * <p>
+ * An insertion and a revocation of the same tuple cancel each other out as soon as they are added to the bag, so they
+ * are never propagated. Tuples with zero net multiplicity are not stored.
+ *
+ * <p>
+ * A delta bag must not be modified once it has been propagated, as it may be shared by several receivers.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public final class DeltaBag {
+
+    private final Map<Tuple, Integer> multiplicities = CollectionsFactory.getMap();
+
+    /**
+     * Adds a single insertion or revocation of the given tuple.
+     */
+    public void add(Direction direction, Tuple tuple) {
+        add(tuple, direction == Direction.INSERT ? 1 : -1);
+    }
+
+    /**
+     * Adds the given signed multiplicity to the net multiplicity of the tuple.
+     */
+    public void add(Tuple tuple, int multiplicity) {
+        if (multiplicity == 0)
+            return;
+        Integer old = multiplicities.get(tuple);
+        int result = (old == null) ? multiplicity : old + multiplicity;
+        if (result == 0)
+            multiplicities.remove(tuple);
+        else
+            multiplicities.put(tuple, result);
+    }
+
+    /**
+     * @return the net multiplicity of the tuple, negative for revocations; 0 if not contained
+     */
+    public int getMultiplicity(Tuple tuple) {
+        Integer result = multiplicities.get(tuple);
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * @return the number of distinct tuples with a non-zero net multiplicity
+     */
+    public int size() {
+        return multiplicities.size();
+    }
+
+    public boolean isEmpty() {
+        return multiplicities.isEmpty();
+    }
+
+    /**
+     * @return a read-only view of the tuples and their (non-zero) net multiplicities
+     */
+    public Set<Entry<Tuple, Integer>> entrySet() {
+        return Collections.unmodifiableMap(multiplicities).entrySet();
+    }
+
+    /**
+     * Delivers the contents of this batch as individual updates to a receiver that does not process batches. All
+     * revocations are delivered before the insertions.
+     */
+    public void replayInto(Receiver receiver) {
+        for (Entry<Tuple, Integer> entry : multiplicities.entrySet()) {
+            for (int i = entry.getValue(); i < 0; ++i)
+                receiver.update(Direction.REVOKE, entry.getKey());
+        }
+        for (Entry<Tuple, Integer> entry : multiplicities.entrySet()) {
+            for (int i = entry.getValue(); i > 0; --i)
+                receiver.update(Direction.INSERT, entry.getKey());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Delta" + multiplicities;
+    }
+
+}
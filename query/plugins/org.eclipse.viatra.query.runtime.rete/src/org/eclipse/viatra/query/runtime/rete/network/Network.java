@@ -14,6 +14,7 @@ package org.eclipse.viatra.query.runtime.rete.network;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -24,18 +25,22 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
+import org.eclipse.viatra.query.runtime.rete.boundary.ExternalInputEnumeratorNode;
 import org.eclipse.viatra.query.runtime.rete.boundary.InputConnector;
 import org.eclipse.viatra.query.runtime.rete.matcher.ReteEngine;
 import org.eclipse.viatra.query.runtime.rete.recipes.ReteNodeRecipe;
 import org.eclipse.viatra.query.runtime.rete.remote.Address;
 import org.eclipse.viatra.query.runtime.rete.traceability.RecipeTraceInfo;
+import org.eclipse.viatra.query.runtime.rete.tuple.TupleInterner;
 import org.eclipse.viatra.query.runtime.rete.util.Options;
 
 /**
  * @author Gabor Bergmann
  * 
  */
-public class Network {
+public class Network implements IMemoryFootprintProvider {
     final int threads;
 
     protected ArrayList<ReteContainer> containers;
@@ -51,10 +56,15 @@ public class Network {
                                                 // is to
     // be changed
 
+    // batched delta propagation
+    private int batchDepth = 0;
+    private Set<ExternalInputEnumeratorNode> pendingBatchInputs = new LinkedHashSet<ExternalInputEnumeratorNode>();
+
     // Knowledge of the outside world
     private ReteEngine engine;
     protected NodeFactory nodeFactory;
     protected InputConnector inputConnector;
+    private final TupleInterner tupleInterner = new TupleInterner();
 
     // Node and recipe administration
     // incl. addresses for existing nodes by recipe (where available)
@@ -132,6 +142,16 @@ public class Network {
         return headContainer;
     }
 
+    /**
+     * Tells whether the network is operated by multiple RETE containers. In this case, the subnetworks of different
+     * patterns are assigned to different containers, while production nodes reside in the head container.
+     * 
+     * @since 1.6
+     */
+    public boolean isPartitioned() {
+        return threads > 1;
+    }
+
     /**
      * Returns the next container in round-robin fashion. Configurable not to yield head container.
      */
@@ -203,6 +223,98 @@ public class Network {
         }
     }
 
+    /**
+     * Sends a batch of updates to the receiver node as a single message. The node may reside in any of the containers
+     * associated with this network. To be called from a user thread during normal operation, NOT during construction.
+     * 
+     * @since 1.6
+     */
+    public void sendExternalBatchUpdate(Address<? extends Receiver> receiver, DeltaBag delta) {
+        if (delta.isEmpty())
+            return;
+        ReteContainer affectedContainer = receiver.getContainer();
+        if (threads > 0) {
+            try {
+                updateLock.lock();
+                synchronized (globalTerminationCriteria) {
+                    long newCriterion = affectedContainer.sendBatchUpdateToLocalAddress(receiver, delta);
+                    terminationCriterion(affectedContainer, newCriterion);
+                }
+            } finally {
+                updateLock.unlock();
+            }
+        } else {
+            affectedContainer.sendBatchUpdateToLocalAddressSingleThreaded(receiver, delta);
+        }
+    }
+
+    /**
+     * Starts a batch: until the matching call to {@link #endBatch()}, external updates are collected by the input
+     * nodes instead of being propagated one by one. Batches may be nested.
+     * 
+     * <p>
+     * To be called from the user thread that modifies the model.
+     * 
+     * @since 1.6
+     */
+    public synchronized void beginBatch() {
+        ++batchDepth;
+    }
+
+    /**
+     * Ends a batch; at the end of the outermost batch, the updates collected by each input node are propagated as a
+     * single batch, with insertions and revocations of the same tuple cancelled out, and the method waits for the
+     * network to reach a steady state.
+     * 
+     * @since 1.6
+     */
+    public void endBatch() {
+        synchronized (this) {
+            if (batchDepth == 0)
+                throw new IllegalStateException("No batch has been started");
+            if (--batchDepth > 0)
+                return;
+        }
+        flushBatch();
+    }
+
+    /**
+     * Propagates the updates collected so far in the current batch without ending it, and waits for the network to
+     * reach a steady state. Must be called before new nodes are connected to the network during a batch, as they pull
+     * the current contents of the model, which already reflect the collected updates.
+     * 
+     * @since 1.6
+     */
+    public void flushBatch() {
+        ExternalInputEnumeratorNode[] pendingInputs;
+        synchronized (this) {
+            pendingInputs = pendingBatchInputs.toArray(new ExternalInputEnumeratorNode[pendingBatchInputs.size()]);
+            pendingBatchInputs.clear();
+        }
+        for (ExternalInputEnumeratorNode input : pendingInputs) {
+            input.flushBatch();
+        }
+        waitForReteTermination();
+    }
+
+    /**
+     * @return true if external updates are currently collected into batches, see {@link #beginBatch()}
+     * @since 1.6
+     */
+    public synchronized boolean isBatching() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Input nodes use this method to report that they have collected updates to be propagated at the end of the
+     * current batch.
+     * 
+     * @since 1.6
+     */
+    public synchronized void registerPendingBatch(ExternalInputEnumeratorNode input) {
+        pendingBatchInputs.add(input);
+    }
+
     /**
      * Sends an update message to the receiver node, indicating a newly found or lost partial matching. The node may
      * reside in any of the containers associated with this network. To be called from a user thread during
@@ -395,6 +507,19 @@ public class Network {
         return Collections.unmodifiableList(containers);
     }
 
+    /**
+     * Records the memory usage of the nodes of all containers, see
+     * {@link ReteContainer#collectMemoryFootprint(MemoryFootprint, String)}.
+     * 
+     * @since 1.6
+     */
+    @Override
+    public void collectMemoryFootprint(MemoryFootprint footprint) {
+        for (int i = 0; i < containers.size(); ++i) {
+            containers.get(i).collectMemoryFootprint(footprint, isPartitioned() ? "container " + i + " " : "");
+        }
+    }
+
     public Lock getStructuralChangeLock() {
         return structuralChangeLock;
     }
@@ -411,4 +536,12 @@ public class Network {
         return engine;
     }
 
+    /**
+     * @return the pool of canonical tuple instances shared by the memories of this network
+     * @since 1.6
+     */
+    public TupleInterner getTupleInterner() {
+        return tupleInterner;
+    }
+
 }
@@ -18,8 +18,8 @@ import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.EMap;
 import org.eclipse.viatra.query.runtime.matchers.psystem.IExpressionEvaluator;
 import org.eclipse.viatra.query.runtime.matchers.psystem.aggregations.IMultisetAggregationOperator;
-import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
 import org.eclipse.viatra.query.runtime.rete.aggregation.ColumnAggregatorNode;
 import org.eclipse.viatra.query.runtime.rete.aggregation.CountNode;
 import org.eclipse.viatra.query.runtime.rete.aggregation.IAggregatorNode;
@@ -237,7 +237,7 @@ class NodeFactory {
 	private Supplier instantiateNode(ReteContainer reteContainer, ConstantRecipe recipe) {
 		final List<Object> constantValues = recipe.getConstantValues();
 		final Object[] constantArray = constantValues.toArray(new Object[constantValues.size()]);
-		return new ConstantNode(reteContainer, new FlatTuple(constantArray));
+		return new ConstantNode(reteContainer, Tuples.flatTupleOf(constantArray));
 	}
 
     private Supplier instantiateNode(ReteContainer reteContainer, DiscriminatorBucketRecipe recipe) {
@@ -299,7 +299,7 @@ class NodeFactory {
 			return toMask(mask);
 	}
 	/** Mask is non-null. */
-	private TupleMask toMask(Mask mask) {
+	TupleMask toMask(Mask mask) {
 		return new TupleMask(integersToIntArray(mask.getSourceIndices()), mask.getSourceArity());
 	}
 	private int[] integersToIntArray(final List<Integer> integers) {
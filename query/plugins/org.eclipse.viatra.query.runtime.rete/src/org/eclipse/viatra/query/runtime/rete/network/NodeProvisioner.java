@@ -11,6 +11,7 @@
 
 package org.eclipse.viatra.query.runtime.rete.network;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,6 +26,7 @@ import org.eclipse.viatra.query.runtime.rete.index.ProjectionIndexer;
 import org.eclipse.viatra.query.runtime.rete.recipes.IndexerRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.InputFilterRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.InputRecipe;
+import org.eclipse.viatra.query.runtime.rete.recipes.ProductionRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.ProjectionIndexerRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.RecipesFactory;
 import org.eclipse.viatra.query.runtime.rete.recipes.ReteNodeRecipe;
@@ -67,6 +69,16 @@ public class NodeProvisioner {
                                                                                                    // Supplier>,
                                                                                                    // RemoteSupplier>();
 
+    /**
+     * Nodes that are private to the partition of this container; only used if the network is partitioned.
+     * <p>
+     * Written only while holding the lock of this provisioner, but read by the provisioners of other partitions (see
+     * {@link #peekLocalNodeByRecipe(ReteNodeRecipe)}); the map is therefore synchronized on its own, so that lookups
+     * across partitions never have to acquire the lock of another provisioner.
+     */
+    private final Map<ReteNodeRecipe, Address<? extends Node>> localNodesByRecipe = Collections
+            .synchronizedMap(CollectionsFactory.<ReteNodeRecipe, Address<? extends Node>> getMap());
+
     private RecipeRecognizer recognizer = new RecipeRecognizer();
 
     /**
@@ -86,7 +98,11 @@ public class NodeProvisioner {
 
     public synchronized Address<? extends Node> getOrCreateNodeByRecipe(RecipeTraceInfo recipeTrace) {
         ReteNodeRecipe recipe = recipeTrace.getRecipe();
-        Address<? extends Node> result = getNodesByRecipe().get(recipe);
+        if (isSharedAcrossPartitions(recipe) && reteContainer != reteContainer.network.getHeadContainer()) {
+            // productions of a partitioned network are owned by the head container
+            return reteContainer.network.getHeadContainer().getProvisioner().getOrCreateNodeByRecipe(recipeTrace);
+        }
+        Address<? extends Node> result = getNodesByRecipe(recipe).get(recipe);
         if (result != null) {
             // NODE ALREADY CONSTRUCTED FOR RECIPE, only needs to add trace
             if (getRecipeTraces().add(recipeTrace))
@@ -97,11 +113,11 @@ public class NodeProvisioner {
             ReteNodeRecipe canonicalRecipe = recognizer.canonicalizeRecipe(recipe);
             if (canonicalRecipe != recipe) {
                 // FOUND EQUIVALENT RECIPE
-                result = getNodesByRecipe().get(canonicalRecipe);
+                result = getNodesByRecipe(canonicalRecipe).get(canonicalRecipe);
                 if (result != null) {
                     // NODE ALREADY CONSTRUCTED FOR EQUIVALENT RECIPE
                     recipeTrace.shadowWithEquivalentRecipe(canonicalRecipe);
-                    getNodesByRecipe().put(recipe, result);
+                    getNodesByRecipe(recipe).put(recipe, result);
                     if (getRecipeTraces().add(recipeTrace))
                         result.getNodeCache().assignTraceInfo(recipeTrace);
                     // Bug 491922: ensure that recipe shadowing propagates to
@@ -147,13 +163,12 @@ public class NodeProvisioner {
             ensureParents(recipeTrace);
             final ReteNodeRecipe parentRecipe = recipeTrace.getParentRecipeTraces().iterator().next().getRecipe();
             final Indexer result = nodeFactory.createIndexer(reteContainer, (IndexerRecipe) recipe,
-                    asSupplier(
-                            (Address<? extends Supplier>) reteContainer.network.getExistingNodeByRecipe(parentRecipe)),
+                    asSupplier(getExistingSupplierByRecipe(parentRecipe)),
                     recipeTrace);
 
             // REMEMBER
             if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER) {
-                getNodesByRecipe().put(recipe, reteContainer.makeAddress(result));
+                getNodesByRecipe(recipe).put(recipe, reteContainer.makeAddress(result));
             }
 
             return result;
@@ -164,7 +179,7 @@ public class NodeProvisioner {
 
             // REMEMBER
             if (Options.nodeSharingOption == Options.NodeSharingOption.ALL) {
-                getNodesByRecipe().put(recipe, reteContainer.makeAddress(result));
+                getNodesByRecipe(recipe).put(recipe, reteContainer.makeAddress(result));
             }
 
             // HOOK UP
@@ -174,15 +189,102 @@ public class NodeProvisioner {
             } else {
                 if (recipe instanceof InputFilterRecipe)
                     inputConnector.connectInputFilter((InputFilterRecipe) recipe, result);
-                ensureParents(recipeTrace);
+                getParentProvisioner(recipe).ensureParents(recipeTrace);
                 connectionFactory.connectToParents(recipeTrace, result);
             }
             return result;
         }
     }
 
-    private Map<ReteNodeRecipe, Address<? extends Node>> getNodesByRecipe() {
-        return reteContainer.network.nodesByRecipe;
+    private Map<ReteNodeRecipe, Address<? extends Node>> getNodesByRecipe(ReteNodeRecipe recipe) {
+        return isSharedAcrossPartitions(recipe) ? reteContainer.network.nodesByRecipe : localNodesByRecipe;
+    }
+
+    /**
+     * In a partitioned network, only production nodes are shared between partitions (and owned by the head
+     * container); all other nodes are private to the partition that requested them. Unpartitioned networks share
+     * everything.
+     */
+    private boolean isSharedAcrossPartitions(ReteNodeRecipe recipe) {
+        return !reteContainer.network.isPartitioned() || recipe instanceof ProductionRecipe;
+    }
+
+    /**
+     * The subnetwork feeding a production node is built in the next partition, so that independent patterns are
+     * propagated by different containers.
+     */
+    private NodeProvisioner getParentProvisioner(ReteNodeRecipe recipe) {
+        if (reteContainer.network.isPartitioned() && recipe instanceof ProductionRecipe)
+            return reteContainer.network.getNextContainer().getProvisioner();
+        else
+            return this;
+    }
+
+    /**
+     * Looks up the node built for the given recipe, preferring a node local to this container. In a partitioned
+     * network, the node may also reside in a different partition.
+     *
+     * @throws IllegalStateException
+     *             if no node has been constructed for the recipe
+     * @since 1.6
+     */
+    public Address<? extends Node> getExistingNodeByRecipe(ReteNodeRecipe recipe) {
+        final Network network = reteContainer.network;
+        if (isSharedAcrossPartitions(recipe))
+            return network.getExistingNodeByRecipe(recipe);
+        Address<? extends Node> result = peekLocalNodeByRecipe(recipe);
+        if (result == null) {
+            for (ReteContainer container : network.getContainers()) {
+                result = container.getProvisioner().peekLocalNodeByRecipe(recipe);
+                if (result != null)
+                    break;
+            }
+        }
+        if (result == null)
+            throw new IllegalStateException(String.format("Rete node for recipe %s not constructed yet.", recipe));
+        return result;
+    }
+
+    /**
+     * Looks up the node built for the given parent recipe, see {@link #getExistingNodeByRecipe(ReteNodeRecipe)}.
+     *
+     * @since 1.6
+     */
+    public Address<? extends Supplier> getExistingSupplierByRecipe(ReteNodeRecipe recipe) {
+        // the recipe of a parent always describes a supplier node, so the address refers to a supplier
+        @SuppressWarnings("unchecked")
+        final Address<? extends Supplier> result = (Address<? extends Supplier>) getExistingNodeByRecipe(recipe);
+        return result;
+    }
+
+    /**
+     * Looks up a node private to the partition of this container, without acquiring the lock of this provisioner.
+     *
+     * @return the node built for the recipe in this partition, or null if there is none
+     */
+    Address<? extends Node> peekLocalNodeByRecipe(ReteNodeRecipe recipe) {
+        return localNodesByRecipe.get(recipe);
+    }
+
+    /**
+     * Resolves the indexer built for the given recipe trace as a node of this container. If the indexer was built in a
+     * different partition, an equivalent indexer is constructed in this container, fed through a
+     * {@link RemoteSupplier} from the (remote) parent of the original indexer.
+     *
+     * @since 1.6
+     */
+    public synchronized Indexer resolveLocalIndexer(RecipeTraceInfo indexerTrace) {
+        final IndexerRecipe recipe = (IndexerRecipe) indexerTrace.getRecipe();
+        final Address<? extends Node> address = getExistingNodeByRecipe(recipe);
+        if (reteContainer.isLocal(address))
+            return (Indexer) reteContainer.resolveLocal(address);
+
+        final Address<? extends Supplier> parentAddress = getExistingSupplierByRecipe(recipe.getParent());
+        // outer indexers of a remote aggregator node are replaced by projections of its (remotely received) output
+        final Indexer result = asSupplier(parentAddress).constructIndex(nodeFactory.toMask(recipe.getMask()),
+                indexerTrace);
+        localNodesByRecipe.put(recipe, reteContainer.makeAddress(result));
+        return result;
     }
 
     private void ensureParents(RecipeTraceInfo recipeTrace) {
@@ -191,42 +293,37 @@ public class NodeProvisioner {
         }
     }
 
-    //// Remoting - TODO eliminate?
+    //// Remoting - used by partitioned networks only
 
     synchronized RemoteReceiver accessRemoteReceiver(Address<? extends Supplier> address) {
-        throw new UnsupportedOperationException("Multi-container Rete not supported yet");
-        // if (!reteContainer.isLocal(address))
-        // return
-        // address.getContainer().getProvisioner().accessRemoteReceiver(address);
-        // Supplier localSupplier = reteContainer.resolveLocal(address);
-        // RemoteReceiver result = remoteReceivers.get(localSupplier);
-        // if (result == null) {
-        // result = new RemoteReceiver(reteContainer);
-        // reteContainer.connect(localSupplier, result); // stateless node, no
-        // // synch required
-        //
-        // if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER)
-        // remoteReceivers.put(localSupplier, result);
-        // }
-        // return result;
+        if (!reteContainer.isLocal(address))
+            return address.getContainer().getProvisioner().accessRemoteReceiver(address);
+        Supplier localSupplier = reteContainer.resolveLocal(address);
+        RemoteReceiver result = remoteReceivers.get(localSupplier);
+        if (result == null) {
+            result = new RemoteReceiver(reteContainer);
+            reteContainer.connect(localSupplier, result); // stateless node, no synch required
+
+            if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER)
+                remoteReceivers.put(localSupplier, result);
+        }
+        return result;
     }
 
     /**
      * @pre: address is NOT local
      */
     synchronized RemoteSupplier accessRemoteSupplier(Address<? extends Supplier> address) {
-        throw new UnsupportedOperationException("Multi-container Rete not supported yet");
-        // RemoteSupplier result = remoteSuppliers.get(address);
-        // if (result == null) {
-        // result = new RemoteSupplier(reteContainer,
-        // address.getContainer().getProvisioner()
-        // .accessRemoteReceiver(address));
-        // // network.connectAndSynchronize(supplier, result);
-        //
-        // if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER)
-        // remoteSuppliers.put(address, result);
-        // }
-        // return result;
+        RemoteSupplier result = remoteSuppliers.get(address);
+        if (result == null) {
+            result = new RemoteSupplier(reteContainer, address.getContainer().getProvisioner()
+                    .accessRemoteReceiver(address));
+            // stateless proxy; receivers synchronize through RemoteSupplier.pullInto()
+
+            if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER)
+                remoteSuppliers.put(address, result);
+        }
+        return result;
     }
 
     /**
@@ -274,7 +371,8 @@ public class NodeProvisioner {
 
     // local, read-only version
     public synchronized ProjectionIndexer peekProjectionIndexer(RecipeTraceInfo supplierTrace, TupleMask mask) {
-        final Address<? extends Node> address = getNodesByRecipe().get(projectionIndexerRecipe(supplierTrace, mask));
+        final ProjectionIndexerRecipe indexerRecipe = projectionIndexerRecipe(supplierTrace, mask);
+        final Address<? extends Node> address = getNodesByRecipe(indexerRecipe).get(indexerRecipe);
         return address == null ? null : (ProjectionIndexer) reteContainer.resolveLocal(address);
     }
 
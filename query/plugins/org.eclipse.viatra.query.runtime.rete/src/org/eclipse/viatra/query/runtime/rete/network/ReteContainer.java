@@ -14,14 +14,24 @@ package org.eclipse.viatra.query.runtime.rete.network;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 import org.eclipse.viatra.query.runtime.rete.boundary.InputConnector;
 import org.eclipse.viatra.query.runtime.rete.remote.Address;
 import org.eclipse.viatra.query.runtime.rete.single.SingleInputNode;
+import org.eclipse.viatra.query.runtime.rete.traceability.PatternTraceInfo;
+import org.eclipse.viatra.query.runtime.rete.traceability.RecipeTraceInfo;
+import org.eclipse.viatra.query.runtime.rete.traceability.TraceInfo;
 import org.eclipse.viatra.query.runtime.rete.tuple.Clearable;
 
 /**
@@ -239,6 +249,15 @@ public final class ReteContainer {
 
     }
 
+    /**
+     * Sends a batch of updates to the receiver node as a single message. NOT to be called from user threads.
+     * 
+     * @since 1.6
+     */
+    public void sendBatchUpdateInternal(Receiver receiver, DeltaBag delta) {
+        internalMessageQueue.add(new BatchUpdateMessage(receiver, delta));
+    }
+
     /**
      * Sends an update message to the receiver node, indicating a newly found or lost partial matching. The receiver is
      * indicated by the Address. Designed to be called by the Network, DO NOT use in any other way. @pre:
@@ -292,6 +311,34 @@ public final class ReteContainer {
         return timestamp;
     }
 
+    /**
+     * Sends a batch of updates to the receiver node as a single message. The receiver is indicated by the Address.
+     * Designed to be called by the Network, DO NOT use in any other way. @pre: address.container == this, e.g. address
+     * MUST be local
+     *
+     * @return the value of the container's clock at the time when the message was accepted into the local message queue
+     */
+    long sendBatchUpdateToLocalAddress(Address<? extends Receiver> address, DeltaBag delta) {
+        long timestamp;
+        Receiver receiver = resolveLocal(address);
+        UpdateMessage message = new BatchUpdateMessage(receiver, delta);
+        synchronized (externalMessageLock) {
+            externalMessageQueue.add(message);
+            timestamp = clock;
+            externalMessageLock.notifyAll();
+        }
+
+        return timestamp;
+    }
+
+    /**
+     * Sends a batch of updates to the receiver node as a single message. The receiver is indicated by the Address.
+     * Designed to be called by the Network in single-threaded operation, DO NOT use in any other way.
+     */
+    void sendBatchUpdateToLocalAddressSingleThreaded(Address<? extends Receiver> address, DeltaBag delta) {
+        internalMessageQueue.add(new BatchUpdateMessage(resolveLocal(address), delta));
+    }
+
     /**
      * Sends an update message to the receiver node, indicating a newly found or lost partial matching. The receiver is
      * indicated by the Address. Designed to be called by the Network in single-threaded operation, DO NOT use in any
@@ -447,7 +494,7 @@ public final class ReteContainer {
             }
 
             // now we have a message to deliver
-            message.receiver.update(message.direction, message.updateElement);
+            message.deliver();
         }
     }
 
@@ -458,7 +505,7 @@ public final class ReteContainer {
         while (!internalMessageQueue.isEmpty()) // deliver messages on and on and on....
         {
             UpdateMessage message = internalMessageQueue.removeFirst();
-            message.receiver.update(message.direction, message.updateElement);
+            message.deliver();
         }
     }
 
@@ -603,6 +650,62 @@ public final class ReteContainer {
         return nodesById.values();
     }
 
+    /**
+     * Records the memory usage of the nodes of this container that store tuples, as parts of the given entry: one part
+     * per pattern (by fully qualified name), and within it, one part per node, named after the node and its recipe.
+     * 
+     * <p>
+     * A node is attributed to the patterns of its trace, or if there are none (e.g. indexers), to those of the nearest
+     * parent recipe traces; a node shared by several patterns is attributed to the first of them in alphabetical
+     * order, so that it is counted only once.
+     * 
+     * @param namePrefix
+     *            prepended to the names of the node entries, to distinguish the nodes of different containers
+     * @since 1.6
+     */
+    public void collectMemoryFootprint(MemoryFootprint footprint, String namePrefix) {
+        for (Node node : new TreeMap<Long, Node>(nodesById).values()) {
+            if (node instanceof IMemoryFootprintProvider) {
+                MemoryFootprint patternPart = footprint.getPart(getAttributedPattern(node));
+                ((IMemoryFootprintProvider) node).collectMemoryFootprint(patternPart.getPart(namePrefix
+                        + describeNode(node)));
+            }
+        }
+    }
+
+    private static String getAttributedPattern(Node node) {
+        Set<TraceInfo> traces = node.getTraceInfos();
+        Set<TraceInfo> visited = new HashSet<TraceInfo>();
+        while (!traces.isEmpty()) {
+            SortedSet<String> patternNames = new TreeSet<String>();
+            Set<TraceInfo> parentTraces = new HashSet<TraceInfo>();
+            for (TraceInfo trace : traces) {
+                if (trace instanceof PatternTraceInfo) {
+                    patternNames.add(((PatternTraceInfo) trace).getPatternName());
+                } else if (trace instanceof RecipeTraceInfo && visited.add(trace)) {
+                    parentTraces.addAll(((RecipeTraceInfo) trace).getParentRecipeTraces());
+                }
+            }
+            if (!patternNames.isEmpty()) {
+                return patternNames.first();
+            }
+            traces = parentTraces;
+        }
+        return "<unattributed>";
+    }
+
+    private static String describeNode(Node node) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[').append(node.getNodeId()).append(']').append(node.getClass().getSimpleName());
+        for (TraceInfo trace : node.getTraceInfos()) {
+            if (trace instanceof RecipeTraceInfo && ((RecipeTraceInfo) trace).getRecipe() != null) {
+                sb.append(" (").append(((RecipeTraceInfo) trace).getRecipe().eClass().getName()).append(')');
+                break;
+            }
+        }
+        return sb.toString();
+    }
+
 	public InputConnector getInputConnectionFactory() {
 		return network.getInputConnector();
 	}
@@ -41,6 +41,18 @@ public abstract class StandardNode extends BaseNode implements Supplier {
             reteContainer.sendUpdateInternal(r, direction, updateElement);
     }
 
+    /**
+     * Propagates a whole batch of updates to the children, as a single message per child.
+     * 
+     * @since 1.6
+     */
+    protected void propagateUpdates(DeltaBag delta) {
+        if (delta.isEmpty())
+            return;
+        for (Receiver r : children)
+            reteContainer.sendBatchUpdateInternal(r, delta);
+    }
+
     @Override
     public void appendChild(Receiver receiver) {
         children.add(receiver);
@@ -24,6 +24,13 @@ class UpdateMessage {
         this.updateElement = updateElement;
     }
 
+    /**
+     * Delivers the update to the receiver.
+     */
+    void deliver() {
+        receiver.update(direction, updateElement);
+    }
+
     @Override
     public String toString() {
         return "M." + direction + ": " + updateElement + " -> " + receiver;
@@ -12,12 +12,12 @@ package org.eclipse.viatra.query.runtime.rete.single;
 
 import java.util.Collection;
 
-import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IncSCCAlg;
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCAlg;
 import org.eclipse.viatra.query.runtime.base.itc.alg.misc.Tuple;
-import org.eclipse.viatra.query.runtime.base.itc.graphimpl.Graph;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
 import org.eclipse.viatra.query.runtime.base.itc.igraph.ITcDataSource;
 import org.eclipse.viatra.query.runtime.base.itc.igraph.ITcObserver;
-import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
 import org.eclipse.viatra.query.runtime.rete.network.Direction;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 import org.eclipse.viatra.query.runtime.rete.tuple.Clearable;
@@ -32,7 +32,7 @@ import org.eclipse.viatra.query.runtime.rete.tuple.Clearable;
  */
 public class TransitiveClosureNode extends SingleInputNode implements Clearable, ITcObserver<Object> {
 
-    private Graph<Object> graphDataSource;
+    private IntGraph<Object> graphDataSource;
     private ITcDataSource<Object> transitiveClosureAlgorithm;
 
     /**
@@ -46,8 +46,8 @@ public class TransitiveClosureNode extends SingleInputNode implements Clearable,
      */
     public TransitiveClosureNode(ReteContainer reteContainer) {
         super(reteContainer);
-        graphDataSource = new Graph<Object>();
-        transitiveClosureAlgorithm = new IncSCCAlg<Object>(graphDataSource);
+        graphDataSource = new IntGraph<Object>();
+        transitiveClosureAlgorithm = new IntIncSCCAlg<Object>(graphDataSource);
         transitiveClosureAlgorithm.attachObserver(this);
         reteContainer.registerClearable(this);
     }
@@ -70,8 +70,8 @@ public class TransitiveClosureNode extends SingleInputNode implements Clearable,
 
     @Override
     public void pullInto(Collection<org.eclipse.viatra.query.runtime.matchers.tuple.Tuple> collector) {
-        for (Tuple<Object> tuple : ((IncSCCAlg<Object>) transitiveClosureAlgorithm).getTcRelation()) {
-            collector.add(new FlatTuple(tuple.getSource(), tuple.getTarget()));
+        for (Tuple<Object> tuple : ((IntIncSCCAlg<Object>) transitiveClosureAlgorithm).getTcRelation()) {
+            collector.add(Tuples.staticArityFlatTupleOf(tuple.getSource(), tuple.getTarget()));
         }
     }
 
@@ -89,10 +89,10 @@ public class TransitiveClosureNode extends SingleInputNode implements Clearable,
             if (direction == Direction.REVOKE) {
                 graphDataSource.deleteEdge(source, target);
 
-                if (((IncSCCAlg<Object>) transitiveClosureAlgorithm).isIsolated(source)) {
+                if (((IntIncSCCAlg<Object>) transitiveClosureAlgorithm).isIsolated(source)) {
                     graphDataSource.deleteNode(source);
                 }
-                if (!source.equals(target) && ((IncSCCAlg<Object>) transitiveClosureAlgorithm).isIsolated(target)) {
+                if (!source.equals(target) && ((IntIncSCCAlg<Object>) transitiveClosureAlgorithm).isIsolated(target)) {
                     graphDataSource.deleteNode(target);
                 }
             }
@@ -102,19 +102,19 @@ public class TransitiveClosureNode extends SingleInputNode implements Clearable,
     @Override
     public void clear() {
         transitiveClosureAlgorithm.dispose();
-        graphDataSource = new Graph<Object>();
-        transitiveClosureAlgorithm = new IncSCCAlg<Object>(graphDataSource);
+        graphDataSource = new IntGraph<Object>();
+        transitiveClosureAlgorithm = new IntIncSCCAlg<Object>(graphDataSource);
     }
 
     @Override
     public void tupleInserted(Object source, Object target) {
-        org.eclipse.viatra.query.runtime.matchers.tuple.Tuple tuple = new FlatTuple(source, target);
+        org.eclipse.viatra.query.runtime.matchers.tuple.Tuple tuple = Tuples.staticArityFlatTupleOf(source, target);
         propagateUpdate(Direction.INSERT, tuple);
     }
 
     @Override
     public void tupleDeleted(Object source, Object target) {
-        org.eclipse.viatra.query.runtime.matchers.tuple.Tuple tuple = new FlatTuple(source, target);
+        org.eclipse.viatra.query.runtime.matchers.tuple.Tuple tuple = Tuples.staticArityFlatTupleOf(source, target);
         propagateUpdate(Direction.REVOKE, tuple);
     }
 
@@ -14,6 +14,7 @@ package org.eclipse.viatra.query.runtime.rete.single;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
+import org.eclipse.viatra.query.runtime.rete.tuple.TupleInterner;
 
 /**
  * Trims the matchings as specified by a mask.
@@ -24,6 +25,7 @@ import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 public class TrimmerNode extends TransformerNode {
 
     protected TupleMask mask;
+    private final TupleInterner interner;
 
     /**
      * @param reteContainer
@@ -33,11 +35,13 @@ public class TrimmerNode extends TransformerNode {
     public TrimmerNode(ReteContainer reteContainer, TupleMask mask) {
         super(reteContainer);
         this.mask = mask;
+        this.interner = reteContainer.getNetwork().getTupleInterner();
     }
 
     public TrimmerNode(ReteContainer reteContainer) {
         super(reteContainer);
         this.mask = null;
+        this.interner = reteContainer.getNetwork().getTupleInterner();
     }
 
     /**
@@ -57,7 +61,7 @@ public class TrimmerNode extends TransformerNode {
 
     @Override
     protected Tuple transform(Tuple input) {
-        return mask.transform(input);
+        return interner.intern(mask.transform(input));
     }
 
 }
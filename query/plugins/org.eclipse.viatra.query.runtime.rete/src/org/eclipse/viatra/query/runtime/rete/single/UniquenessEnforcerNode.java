@@ -13,18 +13,24 @@ package org.eclipse.viatra.query.runtime.rete.single;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map.Entry;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 import org.eclipse.viatra.query.runtime.rete.index.MemoryIdentityIndexer;
 import org.eclipse.viatra.query.runtime.rete.index.MemoryNullIndexer;
 import org.eclipse.viatra.query.runtime.rete.index.ProjectionIndexer;
+import org.eclipse.viatra.query.runtime.rete.network.BatchReceiver;
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
 import org.eclipse.viatra.query.runtime.rete.network.Direction;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 import org.eclipse.viatra.query.runtime.rete.network.StandardNode;
 import org.eclipse.viatra.query.runtime.rete.network.Supplier;
 import org.eclipse.viatra.query.runtime.rete.network.Tunnel;
 import org.eclipse.viatra.query.runtime.rete.traceability.TraceInfo;
+import org.eclipse.viatra.query.runtime.rete.tuple.TupleInterner;
 import org.eclipse.viatra.query.runtime.rete.tuple.TupleMemory;
 import org.eclipse.viatra.query.runtime.rete.util.Options;
 
@@ -34,7 +40,7 @@ import org.eclipse.viatra.query.runtime.rete.util.Options;
  * 
  * @author Gabor Bergmann
  */
-public class UniquenessEnforcerNode extends StandardNode implements Tunnel {
+public class UniquenessEnforcerNode extends StandardNode implements Tunnel, BatchReceiver, IMemoryFootprintProvider {
 
     protected Collection<Supplier> parents;
     protected TupleMemory memory;
@@ -43,17 +49,27 @@ public class UniquenessEnforcerNode extends StandardNode implements Tunnel {
         return memory;
     }
 
+    /**
+     * @since 1.6
+     */
+    @Override
+    public void collectMemoryFootprint(MemoryFootprint footprint) {
+        memory.collectMemoryFootprint(footprint);
+    }
+
     protected MemoryNullIndexer memoryNullIndexer;
     protected MemoryIdentityIndexer memoryIdentityIndexer;
     protected final int tupleWidth;
 
     private final TupleMask nullMask;
     private final TupleMask identityMask;
+    private final TupleInterner interner;
 
     public UniquenessEnforcerNode(ReteContainer reteContainer, int tupleWidth) {
         super(reteContainer);
         parents = new ArrayList<Supplier>();
         memory = new TupleMemory();
+        interner = reteContainer.getNetwork().getTupleInterner();
         this.tupleWidth = tupleWidth;
         reteContainer.registerClearable(memory);
         nullMask = TupleMask.linear(0, tupleWidth);
@@ -70,22 +86,10 @@ public class UniquenessEnforcerNode extends StandardNode implements Tunnel {
     public void update(Direction direction, Tuple updateElement) {
         boolean change;
         if (direction == Direction.INSERT) {
+            updateElement = interner.intern(updateElement);
             change = memory.add(updateElement);
         } else { // REVOKE
-            try {
-                change = memory.remove(updateElement);
-            } catch (java.lang.NullPointerException ex) {
-                // TODO UGLY, but will it find our problems?
-                change = false;
-                reteContainer
-                        .getNetwork()
-                        .getEngine()
-                        .getLogger()
-                        .error(
-                                "[INTERNAL ERROR] Duplicate deletion of " + updateElement
-                                        + " was detected in UniquenessEnforcer " + this 
-                                        + " for pattern(s) " + getTraceInfoPatternsEnumerated(), ex);
-            }
+            change = revokeFromMemory(updateElement);
         }
         if (change) {
             propagateUpdate(direction, updateElement);
@@ -99,6 +103,55 @@ public class UniquenessEnforcerNode extends StandardNode implements Tunnel {
         }
     }
 
+    /**
+     * Only the changes of the set of distinct tuples are propagated, as a single batch. If any trivial indexers are in
+     * use, the updates are processed one by one instead.
+     * 
+     * @since 1.6
+     */
+    @Override
+    public void batchUpdate(DeltaBag delta) {
+        if (memoryIdentityIndexer != null || memoryNullIndexer != null) {
+            delta.replayInto(this);
+            return;
+        }
+        DeltaBag changes = new DeltaBag();
+        for (Entry<Tuple, Integer> entry : delta.entrySet()) {
+            Tuple updateElement = entry.getKey();
+            for (int i = entry.getValue(); i < 0; ++i) {
+                if (revokeFromMemory(updateElement))
+                    changes.add(Direction.REVOKE, updateElement);
+            }
+            if (entry.getValue() > 0)
+                updateElement = interner.intern(updateElement);
+            for (int i = entry.getValue(); i > 0; --i) {
+                if (memory.add(updateElement))
+                    changes.add(Direction.INSERT, updateElement);
+            }
+        }
+        propagateUpdates(changes);
+    }
+
+    /**
+     * @return true if the last occurrence was revoked
+     */
+    private boolean revokeFromMemory(Tuple updateElement) {
+        try {
+            return memory.remove(updateElement);
+        } catch (IllegalStateException ex) {
+            // TODO UGLY, but will it find our problems?
+            reteContainer
+                    .getNetwork()
+                    .getEngine()
+                    .getLogger()
+                    .error(
+                            "[INTERNAL ERROR] Duplicate deletion of " + updateElement
+                                    + " was detected in UniquenessEnforcer " + this 
+                                    + " for pattern(s) " + getTraceInfoPatternsEnumerated(), ex);
+            return false;
+        }
+    }
+
     @Override
     public ProjectionIndexer constructIndex(TupleMask mask, TraceInfo... traces) {
         if (Options.employTrivialIndexers) {
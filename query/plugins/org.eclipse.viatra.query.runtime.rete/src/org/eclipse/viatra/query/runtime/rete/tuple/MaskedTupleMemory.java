@@ -15,19 +15,22 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 
 /**
  * @author Gabor Bergmann
  * 
  *         Indexes a collection of Tuples according to their masks.
  */
-public class MaskedTupleMemory implements Clearable, Iterable<Tuple> {
+public class MaskedTupleMemory implements Clearable, Iterable<Tuple>, IMemoryFootprintProvider {
     /**
      * Counts the number of occurences of each pattern. Element is deleted if # of occurences drops to 0.
      */
@@ -39,12 +42,32 @@ public class MaskedTupleMemory implements Clearable, Iterable<Tuple> {
     protected TupleMask mask;
 
     /**
+     * Provides the canonical instances of stored tuples and signatures
+     */
+    protected TupleInterner interner;
+
+    /**
+     * Creates a memory that does not intern its tuples; memories of a Rete network should use the interner of the
+     * network instead, see {@link #MaskedTupleMemory(TupleMask, TupleInterner)}.
+     * 
      * @param mask
      *            The mask used to index the matchings
      */
     public MaskedTupleMemory(TupleMask mask) {
+        this(mask, TupleInterner.NONE);
+    }
+
+    /**
+     * @param mask
+     *            The mask used to index the matchings
+     * @param interner
+     *            provides canonical instances for the stored tuples and signatures
+     * @since 1.6
+     */
+    public MaskedTupleMemory(TupleMask mask, TupleInterner interner) {
         super();
         this.mask = mask;
+        this.interner = interner;
         matchings = CollectionsFactory.getMap();//new HashMap<Tuple, Collection<Tuple>>();
     }
 
@@ -74,9 +97,9 @@ public class MaskedTupleMemory implements Clearable, Iterable<Tuple> {
 
         if (change) {
             coll = new TupleMemory();
-            matchings.put(signature, coll);
+            matchings.put(interner.intern(signature), coll);
         }
-        if (!coll.add(ps)) {
+        if (!coll.add(interner.intern(ps))) {
             throw new IllegalStateException();
         }
 
@@ -172,6 +195,26 @@ public class MaskedTupleMemory implements Clearable, Iterable<Tuple> {
 
     }
 
+    /**
+     * The signatures are accounted for by this memory, the tuples by the memories of the individual signatures.
+     * 
+     * @since 1.6
+     */
+    @Override
+    public void collectMemoryFootprint(MemoryFootprint footprint) {
+        footprint.add(0, MemoryFootprint.estimateObject(3 * MemoryFootprint.REFERENCE)
+                + MemoryFootprint.estimateHashCollection(matchings.size()));
+        for (Entry<Tuple, Collection<Tuple>> entry : matchings.entrySet()) {
+            footprint.add(0, MemoryFootprint.estimateTuple(entry.getKey().getSize()));
+            Collection<Tuple> tuples = entry.getValue();
+            if (tuples instanceof IMemoryFootprintProvider) {
+                ((IMemoryFootprintProvider) tuples).collectMemoryFootprint(footprint);
+            } else {
+                footprint.add(tuples.size(), MemoryFootprint.estimateHashCollection(tuples.size()));
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "MTM<" + mask + "|" + matchings + ">";
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.rete.tuple;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * A pool of canonical tuple instances, shared by the memories of a Rete network. Equal tuples passed through
+ * {@link #intern(Tuple)} are replaced by a single instance, so that they are stored only once, and equality checks
+ * among them succeed on identity.
+ * 
+ * <p>
+ * The pool only holds weak references, so that tuples no longer stored in any memory can be garbage collected.
+ * Interning is disabled by default, in which case {@link #intern(Tuple)} returns its argument. As interning never
+ * changes tuple equality, it is safe to enable it at any time.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ * @see org.eclipse.viatra.query.runtime.rete.util.ReteHintOptions#internTuples
+ */
+public class TupleInterner {
+
+    /**
+     * An interner that never replaces tuples, for memories that are not part of a Rete network. As it is shared by
+     * unrelated memories, enabling it has no effect.
+     */
+    public static final TupleInterner NONE = new TupleInterner() {
+        @Override
+        public void enable() {
+            // remains disabled
+        }
+    };
+
+    private volatile Interner<Tuple> pool = null;
+
+    /**
+     * @return true if tuples are replaced by canonical instances
+     */
+    public boolean isEnabled() {
+        return pool != null;
+    }
+
+    /**
+     * Starts replacing tuples by canonical instances. Has no effect if already enabled.
+     */
+    public synchronized void enable() {
+        if (pool == null)
+            pool = Interners.newWeakInterner();
+    }
+
+    /**
+     * @return the canonical instance equal to the given tuple, or the tuple itself if interning is disabled
+     */
+    public Tuple intern(Tuple tuple) {
+        Interner<Tuple> currentPool = pool;
+        return currentPool == null ? tuple : currentPool.intern(tuple);
+    }
+
+}
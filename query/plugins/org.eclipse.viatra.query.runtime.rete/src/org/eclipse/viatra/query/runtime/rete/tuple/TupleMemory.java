@@ -13,22 +13,28 @@ package org.eclipse.viatra.query.runtime.rete.tuple;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Map;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.IMultiset;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 
 /**
  * Multiset for tuples. Can contain duplicate occurrences of the same matching.
  * 
+ * <p> The multiset is obtained from {@link CollectionsFactory#getMultiset()}. Occurrence counts are kept in a primitive
+ * array, which is only allocated once a tuple occurs more than once; as long as all tuples are distinct, the memory is
+ * as compact as a set.
+ * 
  * @author Gabor Bergmann.
  * 
  */
-public class TupleMemory implements Clearable, Collection<Tuple> {
+public class TupleMemory implements Clearable, Collection<Tuple>, IMemoryFootprintProvider {
     /**
      * Counts the number of occurences of each pattern. Element is deleted if # of occurences drops to 0.
      */
-    protected Map<Tuple, Integer> occurences;
+    protected IMultiset<Tuple> occurences;
 
     /**
 	 * 
@@ -36,7 +42,7 @@ public class TupleMemory implements Clearable, Collection<Tuple> {
     public TupleMemory() {
         super();
         occurences = //new HashMap<Tuple, Integer>();
-                CollectionsFactory.getMap();
+                CollectionsFactory.getMultiset();
     }
 
     /**
@@ -46,31 +52,17 @@ public class TupleMemory implements Clearable, Collection<Tuple> {
      */
     @Override
     public boolean add(Tuple ps) {
-        boolean exists = occurences.containsKey(ps);
-
-        if (exists)
-            occurences.put(ps, occurences.get(ps) + 1);
-        else
-            occurences.put(ps, 1);
-
-        return !exists;
+        return occurences.addOne(ps);
     }
 
     /**
      * Removes a pattern occurence from the memory
      * 
      * @return true if this was the the last occurence of pattern
+     * @throws IllegalStateException if the pattern had no occurences
      */
     public boolean remove(Tuple ps) {
-        int rest = occurences.get(ps) - 1;
-        boolean empty = rest == 0;
-
-        if (!empty)
-            occurences.put(ps, rest);
-        else
-            occurences.remove(ps);
-
-        return empty;
+        return occurences.removeOne(ps);
     }
 
     @Override
@@ -81,7 +73,7 @@ public class TupleMemory implements Clearable, Collection<Tuple> {
 
     @Override
     public Iterator<Tuple> iterator() {
-        return occurences.keySet().iterator();
+        return occurences.distinctValues().iterator();
     }
 
     @Override
@@ -94,12 +86,12 @@ public class TupleMemory implements Clearable, Collection<Tuple> {
 
     @Override
     public boolean contains(Object arg0) {
-        return occurences.containsKey(arg0);
+        return occurences.containsNonZero(arg0);
     }
 
     @Override
     public boolean containsAll(Collection<?> arg0) {
-        return occurences.keySet().containsAll(arg0);
+        return occurences.distinctValues().containsAll(arg0);
         // for (Object o : arg0)
         // if (!occurences.containsKey(o))
         // return false;
@@ -126,7 +118,7 @@ public class TupleMemory implements Clearable, Collection<Tuple> {
 
     @Override
     public boolean retainAll(Collection<?> arg0) {
-        return occurences.keySet().retainAll(arg0);
+        return occurences.distinctValues().retainAll(arg0);
         // HashSet<Tuple> obsolete = new HashSet<Tuple>();
         // for (Tuple key : occurences.keySet())
         // if (!arg0.contains(key))
@@ -154,7 +146,7 @@ public class TupleMemory implements Clearable, Collection<Tuple> {
     // @SuppressWarnings("unchecked")
     @Override
     public <T> T[] toArray(T[] arg0) {
-        return occurences.keySet().toArray(arg0);
+        return occurences.distinctValues().toArray(arg0);
         // int length = size();
         // T[] result = (T[]) java.lang.reflect.Array.newInstance(arg0.getClass()
         // .getComponentType(), length);
@@ -166,9 +158,22 @@ public class TupleMemory implements Clearable, Collection<Tuple> {
         // return result;
     }
 
+    /**
+     * @since 1.6
+     */
+    @Override
+    public void collectMemoryFootprint(MemoryFootprint footprint) {
+        long bytes = MemoryFootprint.estimateObject(MemoryFootprint.REFERENCE)
+                + MemoryFootprint.estimateHashCollection(occurences.size());
+        for (Tuple tuple : occurences.distinctValues()) {
+            bytes += MemoryFootprint.estimateTuple(tuple.getSize());
+        }
+        footprint.add(occurences.size(), bytes);
+    }
+
     @Override
     public String toString() {
-        return "TM" + occurences.keySet();
+        return "TM" + occurences.distinctValues();
     }
 
 }
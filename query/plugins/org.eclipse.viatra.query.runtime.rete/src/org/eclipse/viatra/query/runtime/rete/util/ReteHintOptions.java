@@ -28,6 +28,15 @@ public class ReteHintOptions {
 
     public static final QueryHintOption<Boolean> cacheOutputOfEvaluatorsByDefault = 
             hintOption("cacheOutputOfEvaluatorsByDefault", false);
+
+    /**
+     * If true, Rete memories store canonical tuple instances drawn from a weak interning pool shared by the whole
+     * engine. Once enabled for any query, it stays enabled for the entire engine; use it as an engine default hint.
+     * 
+     * @since 1.6
+     */
+    public static final QueryHintOption<Boolean> internTuples = 
+            hintOption("internTuples", false);
     
     // internal helper for conciseness
     private static <T> QueryHintOption<T> hintOption(String hintKeyLocalName, T defaultValue) {
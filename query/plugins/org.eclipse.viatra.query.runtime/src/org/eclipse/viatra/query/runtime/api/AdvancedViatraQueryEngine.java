@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.api;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Callable;
+
 import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
 import org.eclipse.viatra.query.runtime.emf.EMFScope;
 import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
@@ -19,6 +22,7 @@ import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
 import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 
 /**
  * Advanced interface to a VIATRA incremental evaluation engine.
@@ -340,4 +344,48 @@ public abstract class AdvancedViatraQueryEngine extends ViatraQueryEngine {
 	 * @noreference This method is considered internal API
 	 */
 	public abstract IQueryResultProvider getResultProviderOfMatcher(ViatraQueryMatcher<? extends IPatternMatch> matcher);
+
+	/**
+	 * Executes the given callable with batched change propagation: model changes performed in the callable are
+	 * collected per input relation by the Rete networks of the engine, and propagated in bulk after the outermost
+	 * batched call terminates, cancelling out insertions and deletions of the same tuple. Recommended for bulk
+	 * modifications, such as loading large resources or undoing large commands.
+	 * <p>
+	 * <b>Caution: </b> results of Rete-based matchers are not updated until the end of the outermost batched call.
+	 * Query backends without batching support, as well as backends created during the call, propagate changes
+	 * immediately. Creating a matcher during the call propagates the changes collected so far, as the new matcher
+	 * reads the current state of the model. The default implementation simply invokes the callable.
+	 * 
+	 * @throws InvocationTargetException
+	 *             if the callable throws an exception; updates collected so far are propagated nevertheless
+	 * @since 1.6
+	 */
+	public <V> V executeBatched(Callable<V> callable) throws InvocationTargetException {
+		try {
+			return callable.call();
+		} catch (Exception e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	/**
+	 * The name of the entry of the base index in the report returned by {@link #getMemoryFootprint()}.
+	 * 
+	 * @since 1.6
+	 */
+	public static final String MEMORY_FOOTPRINT_BASE_INDEX = "base index";
+
+	/**
+	 * Reports the tuples stored by the engine and an estimate of their memory usage. The entry of the base index (if
+	 * it can report its footprint), named {@link #MEMORY_FOOTPRINT_BASE_INDEX}, is followed by one entry per query backend that can report its footprint, broken
+	 * down by query specifications (by their fully qualified names) and by the internal structures of the backend.
+	 * The report is computed on each invocation, by traversing the indexes of the engine. The default implementation
+	 * returns a report without entries.
+	 * 
+	 * @return the root entry of the report
+	 * @since 1.6
+	 */
+	public MemoryFootprint getMemoryFootprint() throws ViatraQueryException {
+		return new MemoryFootprint("VIATRA Query engine on " + getScope());
+	}
 }
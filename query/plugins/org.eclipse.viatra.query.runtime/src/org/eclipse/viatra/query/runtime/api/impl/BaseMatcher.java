@@ -14,6 +14,7 @@ package org.eclipse.viatra.query.runtime.api.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -27,12 +28,15 @@ import org.eclipse.viatra.query.runtime.internal.apiimpl.QueryResultWrapper;
 import org.eclipse.viatra.query.runtime.internal.apiimpl.ViatraQueryEngineImpl;
 import org.eclipse.viatra.query.runtime.matchers.backend.IMatcherCapability;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.IStreamingQueryResultProvider;
 import org.eclipse.viatra.query.runtime.matchers.planning.QueryProcessingException;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery.PQueryStatus;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.QueryInitializationException;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 
 /**
  * Base implementation of ViatraQueryMatcher.
@@ -168,6 +172,63 @@ public abstract class BaseMatcher<Match extends IPatternMatch> extends QueryResu
         return rawGetAllMatches(partialMatch.toArray());
     }
 
+    /**
+     * Returns an iterator over all matches of the pattern. If the query backend supports it, the matches are computed
+     * lazily, only when requested from the iterator; this way, the computation of a large result set can be stopped
+     * early without collecting all matches.
+     * 
+     * <p>
+     * <b>Caution: </b> the model must not be modified while the iterator is in use.
+     * 
+     * @return an iterator over the matches represented as Match objects.
+     * @since 1.6
+     */
+    public Iterator<Match> iterateMatches() {
+        return rawIterateMatches(emptyArray());
+    }
+
+    /**
+     * Returns an iterator over all matches of the pattern that conform to the given fixed values of some parameters.
+     * If the query backend supports it, the matches are computed lazily, only when requested from the iterator.
+     * 
+     * <p>
+     * <b>Caution: </b> the model must not be modified while the iterator is in use.
+     * 
+     * @param partialMatch
+     *            a partial match of the pattern where each non-null field binds the corresponding pattern parameter to
+     *            a fixed value.
+     * @return an iterator over the matches represented as Match objects.
+     * @since 1.6
+     */
+    public Iterator<Match> iterateMatches(Match partialMatch) {
+        return rawIterateMatches(partialMatch.toArray());
+    }
+
+    /**
+     * Returns an iterator over all matches of the pattern that conform to the given fixed values of some parameters.
+     *
+     * @param parameters
+     *            array where each non-null element binds the corresponding pattern parameter to a fixed value.
+     * @pre size of input array must be equal to the number of parameters.
+     * @return an iterator over the matches represented as Match objects.
+     * @since 1.6
+     */
+    protected Iterator<Match> rawIterateMatches(Object[] parameters) {
+        Iterator<? extends Tuple> tuples;
+        if (backend instanceof IStreamingQueryResultProvider) {
+            tuples = ((IStreamingQueryResultProvider) backend).iterateMatches(parameters);
+        } else {
+            tuples = backend.getAllMatches(parameters).iterator();
+        }
+        return Iterators.transform(Iterators.unmodifiableIterator(tuples), new Function<Tuple, Match>() {
+
+            @Override
+            public Match apply(Tuple t) {
+                return tupleToMatch(t);
+            }
+        });
+    }
+
     // with input binding as pattern-specific parameters: not declared in interface
 
     @Override
@@ -208,6 +269,10 @@ public abstract class BaseMatcher<Match extends IPatternMatch> extends QueryResu
      * @return true if the input is a valid (partial) match of the pattern.
      */
     protected boolean rawHasMatch(Object[] parameters) {
+        if (!backend.getQueryBackend().isCaching()) {
+            // non-caching backends can stop searching at the first match instead of counting all of them
+            return backend.getOneArbitraryMatch(parameters) != null;
+        }
         return backend.countMatches(parameters) > 0;
     }
 
@@ -26,13 +26,15 @@ import org.eclipse.viatra.query.runtime.base.api.EMFBaseIndexChangeListener;
 import org.eclipse.viatra.query.runtime.base.api.IEMFIndexingErrorListener;
 import org.eclipse.viatra.query.runtime.base.api.LightweightEObjectObserver;
 import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 
 /**
  * Wraps the EMF base index into the IBaseIndex interface.
  * @author Bergmann Gabor
  *
  */
-public class EMFBaseIndexWrapper implements IBaseIndex {
+public class EMFBaseIndexWrapper implements IBaseIndex, IMemoryFootprintProvider {
 
 	private final NavigationHelper navigationHelper;
 	/**
@@ -49,6 +51,16 @@ public class EMFBaseIndexWrapper implements IBaseIndex {
 		this.navigationHelper = navigationHelper;
 	}
 
+	/**
+	 * @since 1.6
+	 */
+	@Override
+	public void collectMemoryFootprint(MemoryFootprint footprint) {
+		if (navigationHelper instanceof IMemoryFootprintProvider) {
+			((IMemoryFootprintProvider) navigationHelper).collectMemoryFootprint(footprint);
+		}
+	}
+
 	@Override
 	public void resampleDerivedFeatures() {
 		navigationHelper.resampleDerivedFeatures();
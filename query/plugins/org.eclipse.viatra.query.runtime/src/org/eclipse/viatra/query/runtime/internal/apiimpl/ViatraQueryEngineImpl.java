@@ -15,8 +15,10 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -41,6 +43,7 @@ import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
 import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
 import org.eclipse.viatra.query.runtime.internal.engine.LifecycleProvider;
 import org.eclipse.viatra.query.runtime.internal.engine.ModelUpdateProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.IBatchingQueryBackend;
 import org.eclipse.viatra.query.runtime.matchers.backend.IMatcherCapability;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
@@ -58,6 +61,8 @@ import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQueries;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery.PQueryStatus;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryFootprintProvider;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
 import org.eclipse.viatra.query.runtime.registry.IDefaultRegistryView;
 import org.eclipse.viatra.query.runtime.registry.IQuerySpecificationRegistry;
 import org.eclipse.viatra.query.runtime.registry.QuerySpecificationRegistry;
@@ -238,6 +243,46 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine imple
         return engineContext.getBaseIndex();
     }
 
+    @Override
+    public MemoryFootprint getMemoryFootprint() throws ViatraQueryException {
+        Preconditions.checkState(!disposed, QUERY_ON_DISPOSED_ENGINE_MESSAGE);
+        MemoryFootprint footprint = new MemoryFootprint("VIATRA Query engine on " + scope);
+        IBaseIndex baseIndex = getBaseIndex();
+        if (baseIndex instanceof IMemoryFootprintProvider) {
+            ((IMemoryFootprintProvider) baseIndex).collectMemoryFootprint(footprint.getPart(MEMORY_FOOTPRINT_BASE_INDEX));
+        }
+        for (IQueryBackend backend : queryBackends.values()) {
+            if (backend instanceof IMemoryFootprintProvider) {
+                ((IMemoryFootprintProvider) backend).collectMemoryFootprint(footprint.getPart(backend.getClass()
+                        .getSimpleName()));
+            }
+        }
+        return footprint;
+    }
+
+    @Override
+    public <V> V executeBatched(Callable<V> callable) throws InvocationTargetException {
+        Preconditions.checkState(!disposed, QUERY_ON_DISPOSED_ENGINE_MESSAGE);
+        List<IBatchingQueryBackend> batchingBackends = new ArrayList<IBatchingQueryBackend>();
+        for (IQueryBackend backend : queryBackends.values()) {
+            if (backend instanceof IBatchingQueryBackend) {
+                batchingBackends.add((IBatchingQueryBackend) backend);
+            }
+        }
+        for (IBatchingQueryBackend backend : batchingBackends) {
+            backend.beginBatch();
+        }
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            throw new InvocationTargetException(e);
+        } finally {
+            for (IBatchingQueryBackend backend : batchingBackends) {
+                backend.endBatch();
+            }
+        }
+    }
+
 	public final Logger getLogger() {
         if (logger == null) {
             final int hash = System.identityHashCode(this);
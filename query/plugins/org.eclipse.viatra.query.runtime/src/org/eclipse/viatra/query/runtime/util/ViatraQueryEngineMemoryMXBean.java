@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.util;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing the memory usage of a VIATRA Query engine over JMX; see
+ * {@link org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine#getMemoryFootprint()} for the contents of the
+ * report. All attributes are read from the last snapshot taken by {@link ViatraQueryEngineMemoryMonitor} on the
+ * thread of the engine, so reading them never touches the indexes of the engine.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface ViatraQueryEngineMemoryMXBean {
+
+    /**
+     * @return the time the reported figures were computed at, in milliseconds since the epoch
+     */
+    long getSnapshotTime();
+
+    /**
+     * @return the estimated bytes used by the base index and the query backends of the engine
+     */
+    long getEstimatedBytes();
+
+    /**
+     * @return the number of tuples stored by the base index and the query backends of the engine
+     */
+    long getTupleCount();
+
+    /**
+     * @return the estimated bytes used by the query backends, by the fully qualified names of the queries
+     */
+    Map<String, Long> getEstimatedBytesByQuery();
+
+    /**
+     * @return an indented text dump of the full report
+     */
+    String getReport();
+
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.IPatternMatch;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineLifecycleListener;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryMatcher;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryModelUpdateListener;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
+
+/**
+ * Exposes the memory usage of a VIATRA Query engine as a {@link ViatraQueryEngineMemoryMXBean}. Use
+ * {@link #register(AdvancedViatraQueryEngine, String)} to publish it in the platform MBean server; the bean is
+ * unregistered when the engine is disposed.
+ * 
+ * <p>
+ * The indexes of the engine are not thread-safe, so the footprint is never computed by the thread of the JMX client.
+ * Instead, the monitor takes a snapshot on the thread of the engine: when it is created, when {@link #refresh()} is
+ * called, and, for registered monitors, after the updates of the model, at most once per refresh interval. The
+ * attributes of the bean are read from the last snapshot; see {@link #getSnapshotTime()} for its age.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class ViatraQueryEngineMemoryMonitor implements ViatraQueryEngineMemoryMXBean {
+
+    /**
+     * The domain of the object names of the registered beans.
+     */
+    public static final String DOMAIN = "org.eclipse.viatra.query.runtime";
+
+    /**
+     * The default minimum time between two snapshots taken after model updates, in milliseconds.
+     */
+    public static final long DEFAULT_REFRESH_INTERVAL = 1000;
+
+    /**
+     * An immutable memory report along with the time it was taken.
+     */
+    private static final class Snapshot {
+        private final MemoryFootprint footprint;
+        private final Map<String, Long> estimatedBytesByQuery;
+        private final long time;
+
+        public Snapshot(MemoryFootprint footprint, long time) {
+            this.footprint = footprint;
+            this.time = time;
+            Map<String, Long> byQuery = new TreeMap<String, Long>();
+            for (MemoryFootprint part : footprint.getParts()) {
+                if (!AdvancedViatraQueryEngine.MEMORY_FOOTPRINT_BASE_INDEX.equals(part.getName())) {
+                    for (Map.Entry<String, Long> entry : part.getEstimatedBytesOfParts().entrySet()) {
+                        Long previous = byQuery.get(entry.getKey());
+                        byQuery.put(entry.getKey(),
+                                (previous == null) ? entry.getValue() : previous + entry.getValue());
+                    }
+                }
+            }
+            this.estimatedBytesByQuery = Collections.unmodifiableMap(byQuery);
+        }
+    }
+
+    private final AdvancedViatraQueryEngine engine;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Creates a monitor of the given engine and takes its first snapshot. Must be called on the thread of the engine.
+     * 
+     * @throws ViatraQueryException
+     *             if the base index of the engine could not be accessed
+     */
+    public ViatraQueryEngineMemoryMonitor(AdvancedViatraQueryEngine engine) throws ViatraQueryException {
+        this.engine = engine;
+        refresh();
+    }
+
+    /**
+     * Registers a monitor of the given engine in the platform MBean server, which is refreshed after the updates of
+     * the model at most once per {@link #DEFAULT_REFRESH_INTERVAL}, and unregistered when the engine is disposed. Must
+     * be called on the thread of the engine.
+     * 
+     * @param name
+     *            distinguishes the engine from the other monitored engines
+     * @return the object name of the registered bean
+     * @throws JMException
+     *             if the bean could not be registered, e.g. because the name is already in use
+     * @throws ViatraQueryException
+     *             if the base index of the engine could not be accessed
+     */
+    public static ObjectName register(AdvancedViatraQueryEngine engine, String name)
+            throws JMException, ViatraQueryException {
+        return register(engine, name, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Registers a monitor of the given engine in the platform MBean server, which is refreshed after the updates of
+     * the model at most once per the given interval, and unregistered when the engine is disposed. Must be called on
+     * the thread of the engine.
+     * 
+     * @param name
+     *            distinguishes the engine from the other monitored engines
+     * @param refreshInterval
+     *            the minimum time between two snapshots taken after model updates, in milliseconds
+     * @return the object name of the registered bean
+     * @throws JMException
+     *             if the bean could not be registered, e.g. because the name is already in use
+     * @throws ViatraQueryException
+     *             if the base index of the engine could not be accessed
+     */
+    public static ObjectName register(AdvancedViatraQueryEngine engine, String name, final long refreshInterval)
+            throws JMException, ViatraQueryException {
+        final ObjectName objectName = new ObjectName(DOMAIN + ":type=QueryEngineMemory,name=" + ObjectName.quote(name));
+        final ViatraQueryEngineMemoryMonitor monitor = new ViatraQueryEngineMemoryMonitor(engine);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, objectName);
+        engine.addModelUpdateListener(new ViatraQueryModelUpdateListener() {
+
+            @Override
+            public void notifyChanged(ChangeLevel changeLevel) {
+                if (System.currentTimeMillis() - monitor.getSnapshotTime() >= refreshInterval) {
+                    try {
+                        monitor.refresh();
+                    } catch (ViatraQueryException e) {
+                        ViatraQueryLoggingUtil.getDefaultLogger().warn("Could not refresh " + objectName, e);
+                    }
+                }
+            }
+
+            @Override
+            public ChangeLevel getLevel() {
+                return ChangeLevel.INDEX;
+            }
+        });
+        engine.addLifecycleListener(new ViatraQueryEngineLifecycleListener() {
+
+            @Override
+            public void matcherInstantiated(ViatraQueryMatcher<? extends IPatternMatch> matcher) {
+            }
+
+            @Override
+            public void engineBecameTainted(String message, Throwable t) {
+            }
+
+            @Override
+            public void engineWiped() {
+            }
+
+            @Override
+            public void engineDisposed() {
+                unregister(objectName);
+            }
+        });
+        return objectName;
+    }
+
+    /**
+     * Unregisters the bean with the given name from the platform MBean server, if it is registered.
+     */
+    public static void unregister(ObjectName objectName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            ViatraQueryLoggingUtil.getDefaultLogger().warn("Could not unregister " + objectName, e);
+        }
+    }
+
+    /**
+     * Replaces the reported figures with the current footprint of the engine. Must be called on the thread of the
+     * engine, while it is not being updated.
+     * 
+     * @throws ViatraQueryException
+     *             if the base index of the engine could not be accessed
+     */
+    public void refresh() throws ViatraQueryException {
+        snapshot = new Snapshot(engine.getMemoryFootprint(), System.currentTimeMillis());
+    }
+
+    @Override
+    public long getSnapshotTime() {
+        return snapshot.time;
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return snapshot.footprint.getEstimatedBytes();
+    }
+
+    @Override
+    public long getTupleCount() {
+        return snapshot.footprint.getTupleCount();
+    }
+
+    @Override
+    public Map<String, Long> getEstimatedBytesByQuery() {
+        return snapshot.estimatedBytesByQuery;
+    }
+
+    @Override
+    public String getReport() {
+        return snapshot.footprint.toString();
+    }
+
+}
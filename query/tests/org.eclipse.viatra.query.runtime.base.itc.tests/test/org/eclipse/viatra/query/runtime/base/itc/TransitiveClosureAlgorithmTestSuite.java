@@ -18,6 +18,11 @@ import org.eclipse.viatra.query.runtime.base.itc.dred.DRedGraphsTestCase;
 import org.eclipse.viatra.query.runtime.base.itc.incscc.IncSCCCompleteGraphTestCase;
 import org.eclipse.viatra.query.runtime.base.itc.incscc.IncSCCGraphsTestCase;
 import org.eclipse.viatra.query.runtime.base.itc.incscc.IncSCCPathConstructionTestCase;
+import org.eclipse.viatra.query.runtime.base.itc.incscc.IntIncSCCCompleteGraphTestCase;
+import org.eclipse.viatra.query.runtime.base.itc.incscc.IntIncSCCGraphsTestCase;
+import org.eclipse.viatra.query.runtime.base.itc.incscc.IntIncSCCIndexTestCase;
+import org.eclipse.viatra.query.runtime.base.itc.incscc.IntIncSCCReachableTargetsOfEachTestCase;
+import org.eclipse.viatra.query.runtime.base.itc.incscc.IntIncSCCUpdateCostTestCase;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -30,7 +35,12 @@ import org.junit.runners.Suite.SuiteClasses;
 		CountingCompleteGraphTestCase.class,
 		IncSCCGraphsTestCase.class,
 		IncSCCCompleteGraphTestCase.class,
-		IncSCCPathConstructionTestCase.class
+		IncSCCPathConstructionTestCase.class,
+		IntIncSCCGraphsTestCase.class,
+		IntIncSCCCompleteGraphTestCase.class,
+		IntIncSCCIndexTestCase.class,
+		IntIncSCCUpdateCostTestCase.class,
+		IntIncSCCReachableTargetsOfEachTestCase.class
 })
 public class TransitiveClosureAlgorithmTestSuite {
 
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.incscc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.base.itc.alg.dred.DRedTcRelation;
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCAlg;
+import org.eclipse.viatra.query.runtime.base.itc.alg.misc.Tuple;
+import org.eclipse.viatra.query.runtime.base.itc.alg.misc.dfs.DFSAlg;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.ITcObserver;
+import org.junit.Test;
+
+public class IntIncSCCCompleteGraphTestCase {
+
+    /**
+     * Collects the tuples of the notifications.
+     */
+    static class CollectingObserver implements ITcObserver<Integer> {
+        final Set<Tuple<Integer>> tuples = new HashSet<Tuple<Integer>>();
+
+        @Override
+        public void tupleInserted(Integer source, Integer target) {
+            assertTrue(tuples.add(new Tuple<Integer>(source, target)));
+        }
+
+        @Override
+        public void tupleDeleted(Integer source, Integer target) {
+            assertTrue(tuples.remove(new Tuple<Integer>(source, target)));
+        }
+    }
+
+    /**
+     * @return the tuples of the relation, and the reflexive tuples of the nodes on cycles
+     */
+    static Set<Tuple<Integer>> withCycles(DRedTcRelation<Integer> tc) {
+        Set<Tuple<Integer>> tuples = new HashSet<Tuple<Integer>>();
+        for (Integer source : tc.getTupleStarts()) {
+            for (Integer target : tc.getTupleEnds(source)) {
+                tuples.add(new Tuple<Integer>(source, target));
+                if (tc.containsTuple(target, source)) {
+                    tuples.add(new Tuple<Integer>(source, source));
+                }
+            }
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testResult() {
+
+        final int nodeCount = 10;
+        IntGraph<Integer> graph = new IntGraph<Integer>();
+        DFSAlg<Integer> dfsAlg = new DFSAlg<Integer>(graph);
+        IntIncSCCAlg<Integer> incsccAlg = new IntIncSCCAlg<Integer>(graph);
+        CollectingObserver observer = new CollectingObserver();
+        incsccAlg.attachObserver(observer);
+
+        for (int i = 0; i < nodeCount; i++) {
+            graph.insertNode(i);
+        }
+
+        for (int i = 0; i < nodeCount; i++) {
+            for (int j = 0; j < nodeCount; j++) {
+                if (i != j) {
+                    graph.insertEdge(i, j);
+                    Set<Tuple<Integer>> expected = withCycles(dfsAlg.getTcRelation());
+                    assertEquals(expected, incsccAlg.getTcRelation());
+                    assertEquals(expected, observer.tuples);
+                }
+            }
+        }
+
+        for (int i = 0; i < nodeCount; i++) {
+            for (int j = 0; j < nodeCount; j++) {
+                if (i != j) {
+                    graph.deleteEdge(i, j);
+                    Set<Tuple<Integer>> expected = withCycles(dfsAlg.getTcRelation());
+                    assertEquals(expected, incsccAlg.getTcRelation());
+                    assertEquals(expected, observer.tuples);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.incscc;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.viatra.query.runtime.base.itc.BaseTransitiveClosureAlgorithmTest;
+import org.eclipse.viatra.query.runtime.base.itc.alg.fw.FloydWarshallAlg;
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCAlg;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.eclipse.viatra.query.runtime.base.itc.graphs.TestGraph;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.IGraphObserver;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Runs {@link IntIncSCCAlg} on the graphs of {@link BaseTransitiveClosureAlgorithmTest}. As the algorithm needs an
+ * {@link IntGraph}, the modifications of the test graph are mirrored into one.
+ */
+@RunWith(Parameterized.class)
+public class IntIncSCCGraphsTestCase extends BaseTransitiveClosureAlgorithmTest {
+
+    /**
+     * Forwards the modifications of a graph to an {@link IntGraph}.
+     */
+    private static final class MirroringObserver implements IGraphObserver<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final IntGraph<Integer> mirror;
+
+        MirroringObserver(IntGraph<Integer> mirror) {
+            this.mirror = mirror;
+        }
+
+        @Override
+        public void edgeInserted(Integer source, Integer target) {
+            mirror.insertEdge(source, target);
+        }
+
+        @Override
+        public void edgeDeleted(Integer source, Integer target) {
+            mirror.deleteEdge(source, target);
+        }
+
+        @Override
+        public void nodeInserted(Integer n) {
+            mirror.insertNode(n);
+        }
+
+        @Override
+        public void nodeDeleted(Integer n) {
+            mirror.deleteNode(n);
+        }
+    }
+
+    protected TestGraph<Integer> testGraph;
+
+    public IntIncSCCGraphsTestCase(TestGraph<Integer> testGraph) {
+        this.testGraph = testGraph;
+    }
+
+    @Test
+    public void testResult() {
+        FloydWarshallAlg<Integer> fwa = new FloydWarshallAlg<Integer>(testGraph);
+        IntGraph<Integer> mirror = new IntGraph<Integer>();
+        testGraph.attachObserver(new MirroringObserver(mirror));
+        IntIncSCCAlg<Integer> alg = new IntIncSCCAlg<Integer>(mirror);
+        if (testGraph.getObserver() != null) {
+            alg.attachObserver(testGraph.getObserver());
+        }
+        testGraph.modify();
+        assertEquals(IntIncSCCCompleteGraphTestCase.withCycles(fwa.getTcRelation()), alg.getTcRelation());
+    }
+}
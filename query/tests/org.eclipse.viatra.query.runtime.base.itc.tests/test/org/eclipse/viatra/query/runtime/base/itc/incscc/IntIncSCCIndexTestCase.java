@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.incscc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCIndexAlg;
+import org.eclipse.viatra.query.runtime.base.itc.alg.misc.Tuple;
+import org.eclipse.viatra.query.runtime.base.itc.alg.misc.dfs.DFSAlg;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.eclipse.viatra.query.runtime.base.itc.incscc.IntIncSCCCompleteGraphTestCase.CollectingObserver;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntIncSCCIndexTestCase {
+
+    private static final int NODE_COUNT = 10;
+
+    private IntGraph<Integer> graph;
+    private DFSAlg<Integer> dfsAlg;
+    private IntIncSCCIndexAlg<Integer> indexAlg;
+    private CollectingObserver observer;
+
+    @Before
+    public void setUp() {
+        graph = new IntGraph<Integer>();
+        dfsAlg = new DFSAlg<Integer>(graph);
+        indexAlg = new IntIncSCCIndexAlg<Integer>(graph);
+        observer = new CollectingObserver();
+        indexAlg.attachObserver(observer);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            graph.insertNode(i);
+        }
+    }
+
+    private void check() {
+        Set<Tuple<Integer>> expected = IntIncSCCCompleteGraphTestCase.withCycles(dfsAlg.getTcRelation());
+        assertEquals(expected, indexAlg.getTcRelation());
+        assertEquals(expected, observer.tuples);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            for (int j = 0; j < NODE_COUNT; j++) {
+                assertEquals(expected.contains(new Tuple<Integer>(i, j)), indexAlg.isReachable(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testCompleteGraph() {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            for (int j = 0; j < NODE_COUNT; j++) {
+                if (i != j) {
+                    graph.insertEdge(i, j);
+                    check();
+                }
+            }
+        }
+        for (int i = 0; i < NODE_COUNT; i++) {
+            for (int j = 0; j < NODE_COUNT; j++) {
+                if (i != j) {
+                    graph.deleteEdge(i, j);
+                    check();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAcyclicGraph() {
+        // edges are inserted both in and against the order of the ranks, so the labels are maintained and recomputed
+        for (int j = 0; j < NODE_COUNT; j++) {
+            for (int i = 0; i < j; i++) {
+                graph.insertEdge((i * 7) % NODE_COUNT, (j * 7) % NODE_COUNT);
+                check();
+            }
+        }
+        for (int i = 0; i < NODE_COUNT; i++) {
+            for (int j = NODE_COUNT - 1; j > i; j--) {
+                graph.deleteEdge((i * 7) % NODE_COUNT, (j * 7) % NODE_COUNT);
+                check();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.incscc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.AbstractIntIncSCCAlg;
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCAlg;
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCIndexAlg;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the batch reachability queries of the incremental SCC algorithms with the queries for single sources. The
+ * labeled variant answers them by exploring its condensed graph from many components at once.
+ */
+public class IntIncSCCReachableTargetsOfEachTestCase {
+
+    private static final int NODE_COUNT = 150;
+
+    private IntGraph<Integer> graph;
+    private List<Integer> sources;
+
+    /**
+     * Creates a graph with both acyclic parts and cycles, and nodes without outgoing edges.
+     */
+    @Before
+    public void setUp() {
+        graph = new IntGraph<Integer>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            graph.insertNode(i);
+        }
+        for (int i = 0; i < NODE_COUNT; i++) {
+            if (2 * i + 1 < NODE_COUNT) {
+                graph.insertEdge(i, 2 * i + 1);
+            }
+            if (i % 10 == 9) {
+                graph.insertEdge(i, i - 9);
+            } else if (i % 3 == 0) {
+                graph.insertEdge(i, i + 1);
+            }
+        }
+        // more sources than explored at once, with duplicates and a node not in the graph
+        sources = new ArrayList<Integer>();
+        for (int i = 0; i < 2 * NODE_COUNT; i++) {
+            sources.add((i * 7) % NODE_COUNT);
+        }
+        sources.add(NODE_COUNT);
+    }
+
+    private void assertReachability(AbstractIntIncSCCAlg<Integer> alg) {
+        Map<Integer, Set<Integer>> reachableTargets = alg.getAllReachableTargetsOfEach(sources);
+        assertEquals(NODE_COUNT + 1, reachableTargets.size());
+        for (Integer source : sources) {
+            assertEquals(alg.getAllReachableTargets(source), reachableTargets.get(source));
+        }
+    }
+
+    @Test
+    public void testCounting() {
+        assertReachability(new IntIncSCCAlg<Integer>(graph));
+    }
+
+    @Test
+    public void testLabeled() {
+        IntIncSCCIndexAlg<Integer> alg = new IntIncSCCIndexAlg<Integer>(graph);
+        assertReachability(alg);
+        // splits the cycles, so the condensed graph changes
+        for (int i = 9; i < NODE_COUNT; i += 20) {
+            graph.deleteEdge(i, i - 9);
+        }
+        assertReachability(alg);
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.itc.incscc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCAlg;
+import org.eclipse.viatra.query.runtime.base.itc.alg.incscc.IntIncSCCIndexAlg;
+import org.eclipse.viatra.query.runtime.base.itc.graphimpl.IntGraph;
+import org.eclipse.viatra.query.runtime.base.itc.igraph.ITcObserver;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Guards the cost of updating a long chain. The Rete transitive closure node observes every change of the closure, so
+ * it uses {@link IntIncSCCAlg}; the labeled {@link IntIncSCCIndexAlg} is only fast while it has no observers, as it
+ * has to search for the changed pairs otherwise.
+ */
+public class IntIncSCCUpdateCostTestCase {
+
+    private static final int NODE_COUNT = 800;
+    private static final int UPDATE_STEP = 10;
+    private static final long TIMEOUT = 10000;
+
+    private static final class CountingObserver implements ITcObserver<Integer> {
+        private int inserted;
+        private int deleted;
+
+        @Override
+        public void tupleInserted(Integer source, Integer target) {
+            inserted++;
+        }
+
+        @Override
+        public void tupleDeleted(Integer source, Integer target) {
+            deleted++;
+        }
+    }
+
+    private IntGraph<Integer> graph;
+
+    @Before
+    public void setUp() {
+        graph = new IntGraph<Integer>();
+    }
+
+    /**
+     * Builds the chain after the algorithm is created, as the nodes of the Rete closure node arrive incrementally.
+     */
+    private void buildChain() {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            graph.insertNode(i);
+        }
+        for (int i = 0; i + 1 < NODE_COUNT; i++) {
+            graph.insertEdge(i, i + 1);
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testObservedChainUpdates() {
+        IntIncSCCAlg<Integer> alg = new IntIncSCCAlg<Integer>(graph);
+        CountingObserver observer = new CountingObserver();
+        alg.attachObserver(observer);
+        buildChain();
+        observer.inserted = 0;
+        int expected = 0;
+        for (int i = 0; i + 1 < NODE_COUNT; i += UPDATE_STEP) {
+            graph.deleteEdge(i, i + 1);
+            graph.insertEdge(i, i + 1);
+            // the pairs from the first i + 1 nodes to the rest of the chain are broken and restored
+            expected += (i + 1) * (NODE_COUNT - i - 1);
+        }
+        assertEquals(expected, observer.deleted);
+        assertEquals(expected, observer.inserted);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testUnobservedIndexChainUpdates() {
+        IntIncSCCIndexAlg<Integer> alg = new IntIncSCCIndexAlg<Integer>(graph);
+        buildChain();
+        for (int i = 0; i + 1 < NODE_COUNT; i += UPDATE_STEP) {
+            graph.deleteEdge(i, i + 1);
+            graph.insertEdge(i, i + 1);
+            assertTrue(alg.isReachable(0, NODE_COUNT - 1));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
+import org.eclipse.viatra.query.runtime.rete.network.Direction;
+import org.eclipse.viatra.query.runtime.rete.network.Receiver;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+/**
+ * Tests for {@link DeltaBag}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class DeltaBagTest {
+
+    private static final Tuple A = new FlatTuple("a");
+    private static final Tuple B = new FlatTuple("b");
+
+    @Test
+    public void testCancellation() {
+        DeltaBag delta = new DeltaBag();
+        delta.add(Direction.INSERT, A);
+        delta.add(Direction.INSERT, B);
+        delta.add(Direction.REVOKE, A);
+        assertEquals(0, delta.getMultiplicity(A));
+        assertEquals(1, delta.getMultiplicity(B));
+        assertEquals(1, delta.size());
+        delta.add(B, -1);
+        assertTrue(delta.isEmpty());
+    }
+
+    @Test
+    public void testReplayRevokesFirst() {
+        DeltaBag delta = new DeltaBag();
+        delta.add(Direction.INSERT, A);
+        delta.add(B, -2);
+        Receiver receiver = mock(Receiver.class);
+        delta.replayInto(receiver);
+        InOrder inOrder = inOrder(receiver);
+        inOrder.verify(receiver, times(2)).update(Direction.REVOKE, B);
+        inOrder.verify(receiver).update(Direction.INSERT, A);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+}
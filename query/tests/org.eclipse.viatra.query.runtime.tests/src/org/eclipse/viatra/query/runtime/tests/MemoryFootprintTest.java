@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineOptions;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.matchers.util.MemoryFootprint;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.rete.tuple.MaskedTupleMemory;
+import org.eclipse.viatra.query.runtime.rete.tuple.TupleMemory;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel.DynamicQuerySpecification;
+import org.eclipse.viatra.query.runtime.util.ViatraQueryEngineMemoryMonitor;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MemoryFootprint} and the footprint reporting of the tuple memories.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class MemoryFootprintTest {
+
+    @Test
+    public void testTotalsIncludeParts() {
+        MemoryFootprint root = new MemoryFootprint("root");
+        root.add(1, 100);
+        root.getPart("a").add(2, 200);
+        root.getPart("b").getPart("c").add(3, 300);
+        root.getPart("a").add(4, 400);
+
+        assertEquals(10, root.getTupleCount());
+        assertEquals(1000, root.getEstimatedBytes());
+        assertEquals(2, root.getParts().size());
+        assertEquals(Long.valueOf(600), root.getEstimatedBytesOfParts().get("a"));
+        assertEquals(Long.valueOf(300), root.getEstimatedBytesOfParts().get("b"));
+        assertTrue(root.toString().indexOf("a: 600 bytes, 6 tuples") < root.toString().indexOf("b: 300 bytes"));
+    }
+
+    @Test
+    public void testTupleMemories() {
+        TupleMemory memory = new TupleMemory();
+        MaskedTupleMemory maskedMemory = new MaskedTupleMemory(TupleMask.selectSingle(0, 2));
+        for (int i = 0; i < 100; i++) {
+            Tuple tuple = Tuples.staticArityFlatTupleOf(i % 10, i);
+            memory.add(tuple);
+            memory.add(tuple);
+            maskedMemory.add(tuple);
+        }
+
+        MemoryFootprint footprint = new MemoryFootprint("memory");
+        memory.collectMemoryFootprint(footprint);
+        assertEquals(100, footprint.getTupleCount());
+        assertTrue(footprint.getEstimatedBytes() >= 100 * MemoryFootprint.estimateTuple(2));
+
+        MemoryFootprint maskedFootprint = new MemoryFootprint("masked memory");
+        maskedMemory.collectMemoryFootprint(maskedFootprint);
+        assertEquals(100, maskedFootprint.getTupleCount());
+        assertTrue(maskedFootprint.getEstimatedBytes() > footprint.getEstimatedBytes());
+
+        memory.clear();
+        MemoryFootprint emptyFootprint = new MemoryFootprint("empty memory");
+        memory.collectMemoryFootprint(emptyFootprint);
+        assertEquals(0, emptyFootprint.getTupleCount());
+    }
+
+    @Test
+    public void testEngineMonitor() throws ViatraQueryException {
+        DynamicTestModel model = new DynamicTestModel();
+        AdvancedViatraQueryEngine engine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope(),
+                ViatraQueryEngineOptions.defineOptions().withDefaultBackend(new ReteBackendFactory()).build());
+        try {
+            EObject first = model.createNode();
+            EObject second = model.createNode();
+            model.link(first, second);
+            DynamicQuerySpecification edgeQuery = model.edgeQuery();
+            assertEquals(1, engine.getMatcher(edgeQuery).countMatches());
+
+            ViatraQueryEngineMemoryMonitor monitor = new ViatraQueryEngineMemoryMonitor(engine);
+            MemoryFootprint footprint = engine.getMemoryFootprint();
+            assertEquals(footprint.getTupleCount(), monitor.getTupleCount());
+            assertEquals(footprint.getEstimatedBytes(), monitor.getEstimatedBytes());
+            assertTrue(monitor.getEstimatedBytesByQuery().containsKey(edgeQuery.getFullyQualifiedName()));
+            assertTrue(monitor.getReport().contains(AdvancedViatraQueryEngine.MEMORY_FOOTPRINT_BASE_INDEX));
+
+            // the figures are only updated on refresh
+            model.link(second, model.createNode());
+            assertEquals(footprint.getTupleCount(), monitor.getTupleCount());
+            monitor.refresh();
+            assertEquals(engine.getMemoryFootprint().getTupleCount(), monitor.getTupleCount());
+            assertTrue(monitor.getTupleCount() > footprint.getTupleCount());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void testRegisteredMonitorRefreshedAfterUpdates() throws ViatraQueryException, JMException {
+        DynamicTestModel model = new DynamicTestModel();
+        AdvancedViatraQueryEngine engine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope(),
+                ViatraQueryEngineOptions.defineOptions().withDefaultBackend(new ReteBackendFactory()).build());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = ViatraQueryEngineMemoryMonitor.register(engine, "refreshTest", 0);
+        try {
+            assertEquals(0, engine.getMatcher(model.edgeQuery()).countMatches());
+            long tupleCount = (Long) server.getAttribute(objectName, "TupleCount");
+
+            model.link(model.createNode(), model.createNode());
+            long refreshedTupleCount = (Long) server.getAttribute(objectName, "TupleCount");
+            assertEquals(engine.getMemoryFootprint().getTupleCount(), refreshedTupleCount);
+            assertTrue(refreshedTupleCount > tupleCount);
+        } finally {
+            engine.dispose();
+        }
+        assertFalse(server.isRegistered(objectName));
+    }
+
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.viatra.query.runtime.matchers.util.IMultiset;
+import org.eclipse.viatra.query.runtime.matchers.util.OpenHashMap;
+import org.eclipse.viatra.query.runtime.matchers.util.OpenHashMultiset;
+import org.eclipse.viatra.query.runtime.matchers.util.OpenHashSet;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OpenHashMap}, {@link OpenHashSet} and {@link OpenHashMultiset}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class OpenHashCollectionsTest {
+
+    @Test
+    public void testMapAgainstHashMap() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        Map<Integer, Integer> actual = new OpenHashMap<Integer, Integer>();
+        for (int i = 0; i < 100000; i++) {
+            Integer key = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), actual.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), actual.put(key, i));
+            }
+        }
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testNullKey() {
+        Map<Object, String> map = new OpenHashMap<Object, String>();
+        map.put(null, "null");
+        assertTrue(map.containsKey(null));
+        assertEquals("null", map.get(null));
+        assertEquals("null", map.remove(null));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        OpenHashSet<Integer> set = new OpenHashSet<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            set.add(i);
+        }
+        Iterator<Integer> iterator = set.iterator();
+        int visited = 0;
+        while (iterator.hasNext()) {
+            Integer element = iterator.next();
+            visited++;
+            if (element % 2 == 0)
+                iterator.remove();
+        }
+        assertEquals(10000, visited);
+        assertEquals(5000, set.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i % 2 != 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testMultisetCounting() {
+        IMultiset<String> multiset = new OpenHashMultiset<String>();
+        assertTrue(multiset.addOne("a"));
+        assertFalse(multiset.addOne("a"));
+        assertTrue(multiset.addOne("b"));
+        assertEquals(2, multiset.getCount("a"));
+        assertEquals(2, multiset.size());
+        assertFalse(multiset.removeOne("a"));
+        assertTrue(multiset.removeOne("a"));
+        assertFalse(multiset.containsNonZero("a"));
+        assertEquals(0, multiset.getCount("a"));
+        assertEquals(1, multiset.distinctValues().size());
+    }
+
+    @Test
+    public void testMultisetCountsSurviveRehashAndReset() {
+        IMultiset<Integer> multiset = new OpenHashMultiset<Integer>();
+        multiset.addOne(0);
+        multiset.addOne(0);
+        for (int i = 1; i < 100; ++i)
+            multiset.addOne(i);
+        assertEquals(2, multiset.getCount(0));
+        assertEquals(1, multiset.getCount(99));
+        assertFalse(multiset.removeOne(0));
+        multiset.addOne(50);
+        multiset.distinctValues().remove(50);
+        assertEquals(0, multiset.getCount(50));
+        assertEquals(1, multiset.getCount(0));
+        assertEquals(99, multiset.size());
+    }
+
+    @Test
+    public void testMultisetCountsAfterAlternatingOccurrences() {
+        IMultiset<Integer> multiset = new OpenHashMultiset<Integer>();
+        for (int i = 0; i < 10; ++i)
+            multiset.addOne(i);
+        // alternates between one and two occurrences, then stays at one long enough for the counts to be dropped
+        for (int round = 0; round < 100; ++round) {
+            assertFalse(multiset.addOne(round % 10));
+            assertEquals(2, multiset.getCount(round % 10));
+            assertFalse(multiset.removeOne(round % 10));
+        }
+        for (int i = 10; i < 100; ++i)
+            multiset.addOne(i);
+        for (int i = 0; i < 100; ++i)
+            assertEquals(1, multiset.getCount(i));
+        assertFalse(multiset.addOne(5));
+        assertEquals(2, multiset.getCount(5));
+        assertEquals(1, multiset.getCount(6));
+        assertEquals(100, multiset.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultisetRemoveAbsent() {
+        new OpenHashMultiset<String>().removeOne("a");
+    }
+
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteEngine;
+import org.eclipse.viatra.query.runtime.rete.network.DeltaBag;
+import org.eclipse.viatra.query.runtime.rete.network.Direction;
+import org.eclipse.viatra.query.runtime.rete.network.Network;
+import org.eclipse.viatra.query.runtime.rete.single.UniquenessEnforcerNode;
+import org.eclipse.viatra.query.runtime.rete.tuple.MaskedTupleMemory;
+import org.eclipse.viatra.query.runtime.rete.tuple.TupleInterner;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TupleInterner} and its use by {@link MaskedTupleMemory} and {@link UniquenessEnforcerNode}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class TupleInternerTest {
+
+    private static final TupleMask MASK = TupleMask.selectSingle(0, 2);
+
+    @Test
+    public void testSharedInternerAcrossMemories() {
+        TupleInterner interner = new TupleInterner();
+        interner.enable();
+        MaskedTupleMemory first = new MaskedTupleMemory(MASK, interner);
+        MaskedTupleMemory second = new MaskedTupleMemory(MASK, interner);
+        first.add(new FlatTuple("a", "b"));
+        second.add(new FlatTuple("a", "b"));
+        assertSame(first.iterator().next(), second.iterator().next());
+    }
+
+    @Test
+    public void testConvenienceConstructorDoesNotIntern() {
+        MaskedTupleMemory first = new MaskedTupleMemory(MASK);
+        MaskedTupleMemory second = new MaskedTupleMemory(MASK);
+        Tuple firstTuple = new FlatTuple("a", "b");
+        Tuple secondTuple = new FlatTuple("a", "b");
+        first.add(firstTuple);
+        second.add(secondTuple);
+        assertSame(firstTuple, first.iterator().next());
+        assertSame(secondTuple, second.iterator().next());
+        assertNotSame(first.iterator().next(), second.iterator().next());
+    }
+
+    @Test
+    public void testSharedDisabledInternerIgnoresEnable() {
+        TupleInterner.NONE.enable();
+        assertFalse(TupleInterner.NONE.isEnabled());
+        Tuple tuple = new FlatTuple("a", "b");
+        assertSame(tuple, TupleInterner.NONE.intern(tuple));
+    }
+
+    @Test
+    public void testUniquenessEnforcerMemoryInterned() throws ViatraQueryException {
+        AdvancedViatraQueryEngine engine = AdvancedViatraQueryEngine
+                .createUnmanagedEngine(new DynamicTestModel().getScope());
+        try {
+            Network network = ((ReteEngine) engine.getQueryBackend(new ReteBackendFactory())).getReteNet();
+            network.getTupleInterner().enable();
+            UniquenessEnforcerNode first = new UniquenessEnforcerNode(network.getHeadContainer(), 2);
+            UniquenessEnforcerNode second = new UniquenessEnforcerNode(network.getHeadContainer(), 2);
+            first.update(Direction.INSERT, new FlatTuple("a", "b"));
+            DeltaBag delta = new DeltaBag();
+            delta.add(Direction.INSERT, new FlatTuple("a", "b"));
+            second.batchUpdate(delta);
+            assertSame(first.getMemory().iterator().next(), second.getMemory().iterator().next());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory.CollectionsFramework;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteEngine;
+import org.eclipse.viatra.query.runtime.rete.misc.Bag;
+import org.eclipse.viatra.query.runtime.rete.network.Direction;
+import org.eclipse.viatra.query.runtime.rete.tuple.TupleMemory;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TupleMemory} and {@link Bag} with duplicate tuples.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class TupleMemoryTest {
+
+    private static final Tuple A = new FlatTuple("a");
+    private static final Tuple B = new FlatTuple("b");
+
+    private final CollectionsFramework originalMode = CollectionsFactory.mode;
+
+    @After
+    public void tearDown() {
+        CollectionsFactory.mode = originalMode;
+    }
+
+    @Test
+    public void testDuplicatesCountedWithJavaCollections() {
+        CollectionsFactory.mode = CollectionsFramework.Java;
+        checkDuplicatesCounted(new TupleMemory());
+    }
+
+    @Test
+    public void testDuplicatesCountedWithOpenAddressing() {
+        CollectionsFactory.mode = CollectionsFramework.OpenAddressing;
+        checkDuplicatesCounted(new TupleMemory());
+    }
+
+    private void checkDuplicatesCounted(TupleMemory memory) {
+        assertTrue(memory.add(A));
+        assertFalse(memory.add(A));
+        assertTrue(memory.add(B));
+        // iterated once per distinct tuple
+        assertEquals(2, memory.size());
+        assertFalse(memory.remove(A));
+        assertTrue(memory.contains(A));
+        assertTrue(memory.remove(A));
+        assertFalse(memory.contains(A));
+        assertEquals(Collections.singletonList(B), new ArrayList<Tuple>(memory));
+    }
+
+    @Test
+    public void testBagRetainsDuplicates() throws ViatraQueryException {
+        AdvancedViatraQueryEngine engine = AdvancedViatraQueryEngine
+                .createUnmanagedEngine(new DynamicTestModel().getScope());
+        ReteEngine reteEngine = (ReteEngine) engine.getQueryBackend(new ReteBackendFactory());
+        Bag bag = new Bag(reteEngine.getReteNet().getHeadContainer());
+        bag.update(Direction.INSERT, A);
+        bag.update(Direction.INSERT, A);
+        bag.update(Direction.INSERT, B);
+        assertEquals(3, bag.contents.size());
+        assertEquals(Arrays.asList(A, A, B), sorted(bag.contents));
+
+        bag.update(Direction.REVOKE, A);
+        assertEquals(Arrays.asList(A, B), sorted(bag.contents));
+
+        // revoking an absent tuple is ignored
+        bag.update(Direction.REVOKE, new FlatTuple("c"));
+        bag.update(Direction.REVOKE, A);
+        bag.update(Direction.REVOKE, A);
+        assertEquals(Collections.singletonList(B), sorted(bag.contents));
+        engine.dispose();
+    }
+
+    private List<Tuple> sorted(Iterable<Tuple> tuples) {
+        List<Tuple> result = new ArrayList<Tuple>();
+        for (Tuple tuple : tuples) {
+            result.add(tuple);
+        }
+        Collections.sort(result, new Comparator<Tuple>() {
+            @Override
+            public int compare(Tuple left, Tuple right) {
+                return ((String) left.get(0)).compareTo((String) right.get(0));
+            }
+        });
+        return result;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.LeftInheritanceTuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Tuples}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class TuplesTest {
+
+    @Test
+    public void testEqualityAcrossRepresentations() {
+        for (int arity = 0; arity <= Tuples.MAX_STATIC_ARITY + 1; ++arity) {
+            Object[] elements = new Object[arity];
+            for (int i = 0; i < arity; ++i)
+                elements[i] = (i == 1) ? null : "e" + i;
+            Tuple compact = Tuples.flatTupleOf(elements);
+            Tuple flat = new FlatTuple(elements);
+            assertEquals(arity, compact.getSize());
+            assertEquals(flat, compact);
+            assertEquals(compact, flat);
+            assertEquals(flat.hashCode(), compact.hashCode());
+            assertEquals(flat.toString(), compact.toString());
+        }
+        Tuple inherited = new LeftInheritanceTuple(Tuples.staticArityFlatTupleOf("a"), new Object[] { "b", "c" });
+        Tuple compact = Tuples.staticArityFlatTupleOf("a", "b", "c");
+        assertEquals(inherited, compact);
+        assertEquals(inherited.hashCode(), compact.hashCode());
+    }
+
+    @Test
+    public void testTransform() {
+        Tuple original = Tuples.staticArityFlatTupleOf("a", "b", "c");
+        assertSame(original, TupleMask.identity(3).transform(original));
+        assertEquals(Tuples.staticArityFlatTupleOf("c", "a"),
+                new TupleMask(new int[] { 2, 0 }, 3).transform(original));
+        assertEquals(Tuples.staticArityFlatTupleOf(), TupleMask.empty(3).transform(original));
+    }
+
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.base.exception.ViatraBaseException;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests the promotion and demotion of features with adaptive feature indexing (see
+ * {@link BaseIndexOptions#withAdaptiveFeatureIndexing(boolean)}).
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class AdaptiveFeatureIndexingTest {
+
+    private static final Logger LOGGER = Logger.getLogger(AdaptiveFeatureIndexingTest.class);
+    /**
+     * Upper bound of the accesses needed to promote a feature
+     */
+    private static final int MAX_PROMOTION_ACCESSES = 1000;
+    /**
+     * Upper bound of the accesses of other features needed to demote an unused feature
+     */
+    private static final int MAX_DEMOTION_ACCESSES = 1 << 20;
+
+    private DynamicTestModel model;
+    private List<EObject> nodes;
+    private NavigationHelper index;
+
+    @Before
+    public void setUp() throws ViatraBaseException {
+        model = new DynamicTestModel();
+        nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 4; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+        model.getLabels(nodes.get(0)).add("first");
+        index = ViatraBaseFactory.getInstance().createNavigationHelper(model.root,
+                new BaseIndexOptions().withAdaptiveFeatureIndexing(true), LOGGER);
+    }
+
+    @After
+    public void tearDown() {
+        index.dispose();
+    }
+
+    @Test
+    public void testQueriesAnsweredWithoutIndex() {
+        assertEquals(Collections.<Object> singleton(nodes.get(1)), index.getFeatureTargets(nodes.get(0), model.next));
+        assertEquals(Collections.singleton(nodes.get(0)), index.getInverseReferences(nodes.get(1), model.next));
+        assertEquals(Collections.singleton(nodes.get(0)), index.findByFeatureValue("first", model.labels));
+        assertEquals(IndexingLevel.NONE, index.getIndexingLevel(model.next));
+        assertEquals(IndexingLevel.NONE, index.getIndexingLevel(model.labels));
+    }
+
+    @Test
+    public void testFrequentlyAccessedFeaturePromoted() {
+        assertEquals(4, index.countFeatures(model.next));
+        int accesses = promoteByForwardAccess(model.next);
+        assertTrue(accesses > 1);
+        assertEquals(IndexingLevel.FULL, index.getIndexingLevel(model.next));
+
+        model.link(nodes.get(4), nodes.get(0));
+        assertEquals(Collections.singleton(nodes.get(4)), index.getInverseReferences(nodes.get(0), model.next));
+        assertEquals(5, index.countFeatures(model.next));
+    }
+
+    @Test
+    public void testFeatureWithStatisticsPromotedWithoutRecounting() {
+        index.registerEStructuralFeatures(ImmutableSet.<EStructuralFeature> of(model.next), IndexingLevel.STATISTICS);
+        assertEquals(4, index.countFeatures(model.next));
+        promoteByForwardAccess(model.next);
+        assertEquals(4, index.countFeatures(model.next));
+        assertEquals(4, index.getHoldersOfFeature(model.next).size());
+    }
+
+    @Test
+    public void testTraversingQueriesPromoteFaster() {
+        int forwardAccesses = promoteByForwardAccess(model.next);
+        int inverseAccesses = 0;
+        while (index.getIndexingLevel(model.labels) != IndexingLevel.FULL) {
+            assertTrue(++inverseAccesses <= MAX_PROMOTION_ACCESSES);
+            assertEquals(Collections.singleton(nodes.get(0)), index.findByFeatureValue("first", model.labels));
+            maintain();
+        }
+        assertTrue(inverseAccesses < forwardAccesses);
+    }
+
+    @Test
+    public void testUnusedFeatureDemoted() {
+        promoteByForwardAccess(model.next);
+        accessUntilDemoted(model.next);
+        assertEquals(IndexingLevel.NONE, index.getIndexingLevel(model.next));
+        // still answered by navigation
+        assertEquals(Collections.<Object> singleton(nodes.get(1)), index.getFeatureTargets(nodes.get(0), model.next));
+    }
+
+    @Test
+    public void testRegisteredFeatureNotDemoted() {
+        promoteByForwardAccess(model.next);
+        index.registerEStructuralFeatures(ImmutableSet.of(model.next));
+        for (int i = 0; i < MAX_DEMOTION_ACCESSES; i++) {
+            index.getFeatureTargets(nodes.get(0), model.labels);
+        }
+        maintain();
+        assertEquals(IndexingLevel.FULL, index.getIndexingLevel(model.next));
+    }
+
+    @Test
+    public void testConcurrentAccessesPromoteOnMaintenance() throws InterruptedException {
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < MAX_PROMOTION_ACCESSES; j++) {
+                        index.getFeatureTargets(nodes.get(0), model.next);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // queries never change the index themselves
+        assertEquals(IndexingLevel.NONE, index.getIndexingLevel(model.next));
+        maintain();
+        assertEquals(IndexingLevel.FULL, index.getIndexingLevel(model.next));
+        assertEquals(4, index.countFeatures(model.next));
+    }
+
+    private int promoteByForwardAccess(EStructuralFeature feature) {
+        int accesses = 0;
+        while (index.getIndexingLevel(feature) != IndexingLevel.FULL) {
+            assertTrue(++accesses <= MAX_PROMOTION_ACCESSES);
+            index.getFeatureTargets(nodes.get(0), feature);
+            maintain();
+        }
+        return accesses;
+    }
+
+    private void accessUntilDemoted(EStructuralFeature feature) {
+        EStructuralFeature other = (feature == model.next) ? model.labels : model.next;
+        int accesses = 0;
+        while (index.getIndexingLevel(feature) != IndexingLevel.NONE) {
+            assertTrue(++accesses <= MAX_DEMOTION_ACCESSES);
+            index.getFeatureTargets(nodes.get(0), other);
+            if (accesses % 1024 == 0) {
+                maintain();
+            }
+        }
+    }
+
+    /**
+     * Applies the pending promotions and demotions by starting a coalesced traversal block.
+     */
+    private void maintain() {
+        try {
+            index.coalesceTraversals(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    return null;
+                }
+            });
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature.Setting;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+
+/**
+ * Assertions comparing the contents of base indexes of a {@link DynamicTestModel}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+final class BaseIndexAssert {
+
+    private BaseIndexAssert() {
+    }
+
+    /**
+     * Asserts that the given indexes return the same instances and feature values for the model.
+     */
+    static void assertSameContents(DynamicTestModel model, NavigationHelper expected, NavigationHelper actual) {
+        Set<EObject> nodes = expected.getAllInstances(model.nodeClass);
+        assertEquals(nodes, copy(actual.getAllInstances(model.nodeClass)));
+        assertEquals(expected.countAllInstances(model.nodeClass), actual.countAllInstances(model.nodeClass));
+        assertEquals(copy(expected.getHoldersOfFeature(model.next)), copy(actual.getHoldersOfFeature(model.next)));
+        assertEquals(copy(expected.getHoldersOfFeature(model.labels)),
+                copy(actual.getHoldersOfFeature(model.labels)));
+        assertEquals(copy(expected.getFeatureInstances(model.next)), copy(actual.getFeatureInstances(model.next)));
+        assertEquals(copy(expected.getFeatureInstances(model.labels)),
+                copy(actual.getFeatureInstances(model.labels)));
+        assertEquals(expected.countFeatures(model.next), actual.countFeatures(model.next));
+        assertEquals(expected.countFeatures(model.labels), actual.countFeatures(model.labels));
+        Set<Object> labels = new HashSet<Object>();
+        for (EObject node : nodes) {
+            assertEquals(copy(expected.getFeatureTargets(node, model.next)),
+                    copy(actual.getFeatureTargets(node, model.next)));
+            assertEquals(copy(expected.getInverseReferences(node, model.next)),
+                    copy(actual.getInverseReferences(node, model.next)));
+            assertEquals(copy(expected.getFeatureTargets(node, model.labels)),
+                    copy(actual.getFeatureTargets(node, model.labels)));
+            assertEquals(toLists(expected.getInverseReferences(node)), toLists(actual.getInverseReferences(node)));
+            labels.addAll(model.getLabels(node));
+        }
+        for (Object label : labels) {
+            assertEquals(copy(expected.findByFeatureValue(label, model.labels)),
+                    copy(actual.findByFeatureValue(label, model.labels)));
+            assertEquals(toLists(expected.findByAttributeValue(label)), toLists(actual.findByAttributeValue(label)));
+        }
+    }
+
+    /**
+     * Settings are compared by their contents, as they do not implement equality.
+     */
+    private static Set<List<Object>> toLists(Set<Setting> settings) {
+        Set<List<Object>> result = new HashSet<List<Object>>();
+        for (Setting setting : settings) {
+            result.add(Arrays.<Object> asList(setting.getEStructuralFeature(), setting.getEObject(), setting.get(false)));
+        }
+        return result;
+    }
+
+    private static <T> Set<T> copy(Set<T> set) {
+        return new HashSet<T>(set);
+    }
+
+    private static <K, V> Map<K, Set<V>> copy(Map<K, Set<V>> map) {
+        Map<K, Set<V>> result = new HashMap<K, Set<V>>();
+        for (Map.Entry<K, Set<V>> entry : map.entrySet()) {
+            result.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return result;
+    }
+
+}
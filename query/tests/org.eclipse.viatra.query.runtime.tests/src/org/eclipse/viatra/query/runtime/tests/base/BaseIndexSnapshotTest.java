@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.base.exception.ViatraBaseException;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests saving and loading snapshots of the base index (see {@link NavigationHelper#saveSnapshot(java.io.OutputStream)}).
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class BaseIndexSnapshotTest {
+
+    private static final Logger LOGGER = Logger.getLogger(BaseIndexSnapshotTest.class);
+    private static final long SAVED_TIME_STAMP = 1000;
+
+    private DynamicTestModel model;
+    private ResourceSet resourceSet;
+    private List<Resource> resources;
+    private List<List<EObject>> nodesOfResources;
+    private byte[] snapshot;
+    private List<NavigationHelper> indexes;
+
+    @Before
+    public void setUp() throws ViatraBaseException, IOException {
+        model = new DynamicTestModel();
+        resourceSet = new ResourceSetImpl();
+        resourceSet.getPackageRegistry().put(model.ePackage.getNsURI(), model.ePackage);
+        resources = new ArrayList<Resource>();
+        nodesOfResources = new ArrayList<List<EObject>>();
+        indexes = new ArrayList<NavigationHelper>();
+        for (int i = 0; i < 3; i++) {
+            Resource resource = new ResourceImpl(URI.createURI("test:/resource" + i));
+            resourceSet.getResources().add(resource);
+            resources.add(resource);
+            List<EObject> nodes = new ArrayList<EObject>();
+            for (int j = 0; j < 5; j++) {
+                EObject node = model.ePackage.getEFactoryInstance().create(model.nodeClass);
+                resource.getContents().add(node);
+                model.getLabels(node).add("label" + j);
+                if (j > 0) {
+                    model.link(nodes.get(j - 1), node);
+                }
+                nodes.add(node);
+            }
+            nodesOfResources.add(nodes);
+            resource.setTrackingModification(true);
+            resource.setTimeStamp(SAVED_TIME_STAMP);
+        }
+        // the section of the first resource depends on the second resource
+        model.link(nodesOfResources.get(0).get(0), nodesOfResources.get(1).get(0));
+
+        NavigationHelper savedIndex = createIndex();
+        register(savedIndex);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        savedIndex.saveSnapshot(out);
+        snapshot = out.toByteArray();
+    }
+
+    @After
+    public void tearDown() {
+        for (NavigationHelper index : indexes) {
+            index.dispose();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws ViatraBaseException, IOException {
+        NavigationHelper loadedIndex = loadIndex();
+        assertEquals(15, loadedIndex.countAllInstances(model.nodeClass));
+        assertEquals(13, loadedIndex.countFeatures(model.next));
+        BaseIndexAssert.assertSameContents(model, traversedIndex(), loadedIndex);
+    }
+
+    @Test
+    public void testModifiedResourceTraversed() throws ViatraBaseException, IOException {
+        List<EObject> nodes = nodesOfResources.get(1);
+        EObject node = model.ePackage.getEFactoryInstance().create(model.nodeClass);
+        resources.get(1).getContents().add(node);
+        model.link(nodes.get(4), node);
+        model.unlink(nodes.get(0), nodes.get(1));
+        model.getLabels(nodes.get(2)).add("new label");
+        resources.get(1).setTimeStamp(SAVED_TIME_STAMP + 1);
+
+        NavigationHelper loadedIndex = loadIndex();
+        assertEquals(16, loadedIndex.countAllInstances(model.nodeClass));
+        BaseIndexAssert.assertSameContents(model, traversedIndex(), loadedIndex);
+    }
+
+    @Test
+    public void testDirtyResourceTraversed() throws ViatraBaseException, IOException {
+        model.getLabels(nodesOfResources.get(2).get(0)).add("new label");
+        resources.get(2).setModified(true);
+
+        NavigationHelper loadedIndex = loadIndex();
+        assertEquals(Collections.singleton(nodesOfResources.get(2).get(0)),
+                loadedIndex.findByFeatureValue("new label", model.labels));
+        BaseIndexAssert.assertSameContents(model, traversedIndex(), loadedIndex);
+    }
+
+    @Test
+    public void testUnchangedResourceReused() throws ViatraBaseException, IOException {
+        // a change hidden from the snapshot shows that the section of the resource is reused instead of a traversal
+        model.getLabels(nodesOfResources.get(2).get(0)).add("new label");
+        resources.get(2).setModified(false);
+
+        NavigationHelper loadedIndex = loadIndex();
+        assertEquals(Collections.emptySet(), loadedIndex.findByFeatureValue("new label", model.labels));
+    }
+
+    @Test
+    public void testUntrackedResourceTraversed() throws ViatraBaseException, IOException {
+        // the modified flag cannot be trusted without modification tracking
+        resources.get(2).setTrackingModification(false);
+        model.getLabels(nodesOfResources.get(2).get(0)).add("new label");
+
+        NavigationHelper loadedIndex = loadIndex();
+        assertEquals(Collections.singleton(nodesOfResources.get(2).get(0)),
+                loadedIndex.findByFeatureValue("new label", model.labels));
+        BaseIndexAssert.assertSameContents(model, traversedIndex(), loadedIndex);
+    }
+
+    @Test
+    public void testChangesAfterLoadingIndexed() throws ViatraBaseException, IOException {
+        NavigationHelper loadedIndex = loadIndex();
+        List<EObject> nodes = nodesOfResources.get(2);
+        model.getLabels(nodes.get(0)).add("new label");
+        model.unlink(nodes.get(0), nodes.get(1));
+        model.deleteNode(nodes.get(3));
+        assertEquals(Collections.singleton(nodes.get(0)), loadedIndex.findByFeatureValue("new label", model.labels));
+        BaseIndexAssert.assertSameContents(model, traversedIndex(), loadedIndex);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLoadWithObservedTypesRejected() throws ViatraBaseException, IOException {
+        NavigationHelper index = createIndex();
+        register(index);
+        index.loadSnapshot(new ByteArrayInputStream(snapshot));
+    }
+
+    private NavigationHelper createIndex() throws ViatraBaseException {
+        NavigationHelper index = ViatraBaseFactory.getInstance().createNavigationHelper(resourceSet,
+                new BaseIndexOptions(), LOGGER);
+        indexes.add(index);
+        return index;
+    }
+
+    private NavigationHelper loadIndex() throws ViatraBaseException, IOException {
+        NavigationHelper index = createIndex();
+        index.loadSnapshot(new ByteArrayInputStream(snapshot));
+        return index;
+    }
+
+    private NavigationHelper traversedIndex() throws ViatraBaseException {
+        NavigationHelper index = createIndex();
+        register(index);
+        return index;
+    }
+
+    private void register(NavigationHelper index) {
+        index.registerObservedTypes(Collections.<EClass> singleton(model.nodeClass),
+                Collections.<EDataType> emptySet(), ImmutableSet.<EStructuralFeature> of(model.next, model.labels));
+    }
+
+}
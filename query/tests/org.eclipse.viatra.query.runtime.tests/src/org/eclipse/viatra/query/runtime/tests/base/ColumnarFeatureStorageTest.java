@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.base.exception.ViatraBaseException;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the columnar feature storage of the base index (see
+ * {@link BaseIndexOptions#withColumnarFeatureStorage(boolean)}) against the default storage.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class ColumnarFeatureStorageTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ColumnarFeatureStorageTest.class);
+
+    private DynamicTestModel model;
+    private List<EObject> nodes;
+    private NavigationHelper defaultIndex;
+    private NavigationHelper columnarIndex;
+
+    @Before
+    public void setUp() throws ViatraBaseException {
+        model = new DynamicTestModel();
+        nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 20; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 19; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+        BaseIndexOptions options = new BaseIndexOptions().withWildcardMode(true);
+        defaultIndex = ViatraBaseFactory.getInstance().createNavigationHelper(model.root, options, LOGGER);
+        columnarIndex = ViatraBaseFactory.getInstance().createNavigationHelper(model.root,
+                options.withColumnarFeatureStorage(true), LOGGER);
+    }
+
+    @After
+    public void tearDown() {
+        defaultIndex.dispose();
+        columnarIndex.dispose();
+    }
+
+    @Test
+    public void testSameContentsAsDefaultStorage() {
+        BaseIndexAssert.assertSameContents(model, defaultIndex, columnarIndex);
+        Random random = new Random(42);
+        for (int step = 0; step < 500; step++) {
+            EObject source = nodes.get(random.nextInt(nodes.size()));
+            EObject target = nodes.get(random.nextInt(nodes.size()));
+            switch (random.nextInt(6)) {
+            case 0:
+                model.link(source, target);
+                break;
+            case 1:
+                model.unlink(source, target);
+                break;
+            case 2:
+                // duplicate labels are allowed
+                model.getLabels(source).add("label" + random.nextInt(5));
+                break;
+            case 3:
+                model.getLabels(source).remove("label" + random.nextInt(5));
+                break;
+            case 4:
+                if (nodes.size() > 10) {
+                    model.deleteNode(source);
+                    nodes.remove(source);
+                }
+                break;
+            default:
+                nodes.add(model.createNode());
+                break;
+            }
+            if (step % 50 == 0) {
+                BaseIndexAssert.assertSameContents(model, defaultIndex, columnarIndex);
+            }
+        }
+        BaseIndexAssert.assertSameContents(model, defaultIndex, columnarIndex);
+    }
+
+    @Test
+    public void testQueriesWithLargeDeltas() {
+        // enough updates to fill the delta buffers up to the merge threshold, queried in between
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int step = 0; step < 3000; step++) {
+            EObject source = nodes.get(random.nextInt(nodes.size()));
+            EObject target = nodes.get(random.nextInt(nodes.size()));
+            if (random.nextInt(4) == 0) {
+                model.unlink(source, target);
+            } else {
+                model.link(source, target);
+            }
+            EObject queried = nodes.get(random.nextInt(nodes.size()));
+            assertEquals(defaultIndex.getFeatureTargets(queried, model.next),
+                    columnarIndex.getFeatureTargets(queried, model.next));
+            assertEquals(defaultIndex.getInverseReferences(queried, model.next),
+                    columnarIndex.getInverseReferences(queried, model.next));
+        }
+        BaseIndexAssert.assertSameContents(model, defaultIndex, columnarIndex);
+    }
+
+    @Test
+    public void testDuplicateValuesOfNonUniqueFeature() {
+        EObject node = nodes.get(0);
+        model.getLabels(node).add("a");
+        model.getLabels(node).add("a");
+        model.getLabels(node).add("b");
+        assertEquals(Collections.<Object> singleton(node), columnarIndex.findByFeatureValue("a", model.labels));
+        assertEquals(2, columnarIndex.getFeatureTargets(node, model.labels).size());
+
+        model.getLabels(node).remove("a");
+        assertTrue(columnarIndex.getFeatureTargets(node, model.labels).contains("a"));
+        model.getLabels(node).remove("a");
+        assertFalse(columnarIndex.getFeatureTargets(node, model.labels).contains("a"));
+        BaseIndexAssert.assertSameContents(model, defaultIndex, columnarIndex);
+    }
+
+    @Test
+    public void testResultsAreSnapshots() {
+        EObject source = nodes.get(0);
+        EObject target = nodes.get(1);
+        Set<Object> targets = columnarIndex.getFeatureTargets(source, model.next);
+        Set<EObject> sources = columnarIndex.getInverseReferences(target, model.next);
+        assertEquals(Collections.<Object> singleton(target), targets);
+
+        // releases the ids of the source and the target ...
+        model.deleteNode(source);
+        model.deleteNode(target);
+        // ... which are reused for the new objects
+        EObject newSource = model.createNode();
+        EObject newTarget = model.createNode();
+        model.link(newSource, newTarget);
+        model.getLabels(newTarget).add("label");
+
+        assertEquals(1, targets.size());
+        assertTrue(targets.contains(target));
+        assertFalse(targets.contains(newTarget));
+        assertEquals(target, targets.iterator().next());
+        assertEquals(Collections.<EObject> singleton(source), sources);
+        assertFalse(sources.contains(newSource));
+    }
+
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.base.exception.ViatraBaseException;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the statistics of the base index are kept when the indexing level of a type, or the wildcard level, is
+ * raised from {@link IndexingLevel#STATISTICS} to {@link IndexingLevel#FULL}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class IndexingLevelUpgradeTest {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexingLevelUpgradeTest.class);
+
+    private DynamicTestModel model;
+    private NavigationHelper index;
+
+    @Before
+    public void setUp() throws ViatraBaseException {
+        model = new DynamicTestModel();
+        List<EObject> nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 4; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+        model.getLabels(nodes.get(0)).add("first");
+        model.getLabels(nodes.get(1)).add("second");
+        index = ViatraBaseFactory.getInstance().createNavigationHelper(model.root, new BaseIndexOptions(), LOGGER);
+    }
+
+    @After
+    public void tearDown() {
+        index.dispose();
+    }
+
+    @Test
+    public void testFeatureStatisticsNotCountedTwice() {
+        index.registerEStructuralFeatures(Collections.<EStructuralFeature> singleton(model.next),
+                IndexingLevel.STATISTICS);
+        assertEquals(4, index.countFeatures(model.next));
+        index.registerEStructuralFeatures(Collections.<EStructuralFeature> singleton(model.next), IndexingLevel.FULL);
+        assertEquals(4, index.countFeatures(model.next));
+        assertEquals(4, index.getHoldersOfFeature(model.next).size());
+    }
+
+    @Test
+    public void testClassStatisticsNotCountedTwice() {
+        index.registerEClasses(Collections.singleton(model.nodeClass), IndexingLevel.STATISTICS);
+        assertEquals(6, index.countAllInstances(model.nodeClass));
+        index.registerEClasses(Collections.singleton(model.nodeClass), IndexingLevel.FULL);
+        assertEquals(6, index.countAllInstances(model.nodeClass));
+        assertEquals(6, index.getAllInstances(model.nodeClass).size());
+    }
+
+    @Test
+    public void testDataTypeStatisticsNotCountedTwice() {
+        EDataType type = model.labels.getEAttributeType();
+        index.registerEDataTypes(Collections.singleton(type), IndexingLevel.STATISTICS);
+        assertEquals(2, index.countDataTypeInstances(type));
+        index.registerEDataTypes(Collections.singleton(type), IndexingLevel.FULL);
+        assertEquals(2, index.countDataTypeInstances(type));
+    }
+
+    @Test
+    public void testWildcardStatisticsNotCountedTwice() {
+        index.setWildcardLevel(IndexingLevel.STATISTICS);
+        assertEquals(4, index.countFeatures(model.next));
+        assertEquals(6, index.countAllInstances(model.nodeClass));
+        index.registerEStructuralFeatures(Collections.<EStructuralFeature> singleton(model.next), IndexingLevel.FULL);
+        assertEquals(4, index.countFeatures(model.next));
+        index.setWildcardLevel(IndexingLevel.FULL);
+        assertEquals(4, index.countFeatures(model.next));
+        assertEquals(6, index.countAllInstances(model.nodeClass));
+        assertEquals(6, index.getAllInstances(model.nodeClass).size());
+    }
+
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.DataTypeListener;
+import org.eclipse.viatra.query.runtime.base.api.FeatureListener;
+import org.eclipse.viatra.query.runtime.base.api.InstanceListener;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.base.exception.ViatraBaseException;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel.DynamicQuerySpecification;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests the net changes delivered to the listeners of the base index by
+ * {@link NavigationHelper#coalesceNotifications(Callable)}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class NotificationCoalescingTest {
+
+    private static final Logger LOGGER = Logger.getLogger(NotificationCoalescingTest.class);
+
+    private DynamicTestModel model;
+    private List<EObject> nodes;
+    private NavigationHelper index;
+    private final List<String> events = new ArrayList<String>();
+    private final InstanceListener instanceListener = new InstanceListener() {
+        @Override
+        public void instanceInserted(EClass clazz, EObject instance) {
+            events.add("+" + name(instance));
+        }
+
+        @Override
+        public void instanceDeleted(EClass clazz, EObject instance) {
+            events.add("-" + name(instance));
+        }
+    };
+    private final FeatureListener featureListener = new FeatureListener() {
+        @Override
+        public void featureInserted(EObject host, EStructuralFeature feature, Object value) {
+            events.add("+" + name(host) + "." + feature.getName() + "=" + name(value));
+        }
+
+        @Override
+        public void featureDeleted(EObject host, EStructuralFeature feature, Object value) {
+            events.add("-" + name(host) + "." + feature.getName() + "=" + name(value));
+        }
+    };
+    private final DataTypeListener dataTypeListener = new DataTypeListener() {
+        @Override
+        public void dataTypeInstanceInserted(EDataType type, Object instance, boolean firstOccurrence) {
+            events.add("+" + instance + (firstOccurrence ? " first" : ""));
+        }
+
+        @Override
+        public void dataTypeInstanceDeleted(EDataType type, Object instance, boolean lastOccurrence) {
+            events.add("-" + instance + (lastOccurrence ? " last" : ""));
+        }
+    };
+
+    @Before
+    public void setUp() throws ViatraBaseException {
+        model = new DynamicTestModel();
+        nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 3; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+        model.getLabels(nodes.get(0)).add("once");
+        model.getLabels(nodes.get(0)).add("twice");
+        model.getLabels(nodes.get(1)).add("twice");
+        index = ViatraBaseFactory.getInstance().createNavigationHelper(model.root,
+                new BaseIndexOptions().withWildcardMode(true), LOGGER);
+        index.addInstanceListener(Collections.singleton(model.nodeClass), instanceListener);
+        index.addFeatureListener(ImmutableSet.of(model.children, model.next), featureListener);
+        index.addDataTypeListener(Collections.<EDataType> singleton(EcorePackage.Literals.ESTRING), dataTypeListener);
+    }
+
+    @After
+    public void tearDown() {
+        index.removeInstanceListener(Collections.singleton(model.nodeClass), instanceListener);
+        index.removeFeatureListener(ImmutableSet.of(model.children, model.next), featureListener);
+        index.removeDataTypeListener(Collections.<EDataType> singleton(EcorePackage.Literals.ESTRING),
+                dataTypeListener);
+        index.dispose();
+    }
+
+    @Test
+    public void testMoveDeliveredAsContainmentChange() throws InvocationTargetException {
+        index.coalesceNotifications(new Callable<Void>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Void call() {
+                ((List<EObject>) nodes.get(0).eGet(model.children)).add(nodes.get(2));
+                return null;
+            }
+        });
+        // the instance, its references and labels are removed and added back by the move
+        assertEquals(Arrays.asList("-root.children=n2", "+n0.children=n2"), events);
+    }
+
+    @Test
+    public void testRemoveManyCancelledByAddMany() throws InvocationTargetException {
+        final EObject node = nodes.get(0);
+        model.link(node, nodes.get(2));
+        model.link(node, nodes.get(3));
+        events.clear();
+        index.coalesceNotifications(new Callable<Void>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Void call() {
+                List<EObject> targets = (List<EObject>) node.eGet(model.next);
+                List<EObject> removed = new ArrayList<EObject>(targets);
+                targets.removeAll(removed);
+                targets.addAll(removed.subList(1, removed.size()));
+                return null;
+            }
+        });
+        assertEquals(Arrays.asList("-n0.next=n1"), events);
+    }
+
+    @Test
+    public void testAddManyCancelledByRemoveMany() throws InvocationTargetException {
+        final EObject node = nodes.get(3);
+        index.coalesceNotifications(new Callable<Void>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Void call() {
+                List<EObject> targets = (List<EObject>) node.eGet(model.next);
+                targets.addAll(Arrays.asList(nodes.get(0), nodes.get(1), nodes.get(2)));
+                targets.removeAll(Arrays.asList(nodes.get(0), nodes.get(1)));
+                return null;
+            }
+        });
+        assertEquals(Arrays.asList("+n3.next=n2"), events);
+    }
+
+    @Test
+    public void testCreatedAndDeletedElementNotDelivered() throws InvocationTargetException {
+        index.coalesceNotifications(new Callable<Void>() {
+            @Override
+            public Void call() {
+                EObject node = model.createNode();
+                model.link(nodes.get(0), node);
+                model.getLabels(node).add("temporary");
+                model.deleteNode(node);
+                return null;
+            }
+        });
+        assertEquals(Collections.emptyList(), events);
+    }
+
+    @Test
+    public void testDataTypeFirstOccurrence() throws InvocationTargetException {
+        index.coalesceNotifications(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.getLabels(nodes.get(2)).add("new");
+                model.getLabels(nodes.get(3)).add("new");
+                model.getLabels(nodes.get(2)).add("once");
+                return null;
+            }
+        });
+        assertEquals(Arrays.asList("+new first", "+new", "+once"), events);
+    }
+
+    @Test
+    public void testDataTypeLastOccurrence() throws InvocationTargetException {
+        index.coalesceNotifications(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.getLabels(nodes.get(0)).remove("twice");
+                model.getLabels(nodes.get(1)).remove("twice");
+                model.getLabels(nodes.get(0)).remove("once");
+                model.getLabels(nodes.get(1)).add("once");
+                return null;
+            }
+        });
+        // "once" is removed and added back
+        assertEquals(Arrays.asList("-twice", "-twice last"), events);
+    }
+
+    @Test
+    public void testDataTypeValueReplacedWithinBuffer() throws InvocationTargetException {
+        index.coalesceNotifications(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.getLabels(nodes.get(0)).remove("once");
+                model.getLabels(nodes.get(2)).add("new");
+                model.getLabels(nodes.get(2)).remove("new");
+                model.getLabels(nodes.get(3)).add("new");
+                return null;
+            }
+        });
+        assertEquals(Arrays.asList("-once last", "+new first"), events);
+    }
+
+    @Test
+    public void testListenerAddedWithinBuffer() throws InvocationTargetException {
+        final List<String> laterEvents = new ArrayList<String>();
+        final FeatureListener laterListener = new FeatureListener() {
+            @Override
+            public void featureInserted(EObject host, EStructuralFeature feature, Object value) {
+                laterEvents.add("+" + name(host) + "." + feature.getName() + "=" + name(value));
+            }
+
+            @Override
+            public void featureDeleted(EObject host, EStructuralFeature feature, Object value) {
+                laterEvents.add("-" + name(host) + "." + feature.getName() + "=" + name(value));
+            }
+        };
+        index.coalesceNotifications(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.link(nodes.get(3), nodes.get(0));
+                index.addFeatureListener(Collections.singleton(model.next), laterListener);
+                model.link(nodes.get(3), nodes.get(1));
+                index.removeFeatureListener(Collections.singleton(model.next), laterListener);
+                model.link(nodes.get(3), nodes.get(2));
+                return null;
+            }
+        });
+        assertEquals(Arrays.asList("+n3.next=n0", "+n3.next=n1", "+n3.next=n2"), events);
+        // only the change made while subscribed
+        assertEquals(Arrays.asList("+n3.next=n1"), laterEvents);
+    }
+
+    @Test
+    public void testMatcherCreatedWithinBuffer() throws InvocationTargetException, ViatraQueryException {
+        final AdvancedViatraQueryEngine engine = AdvancedViatraQueryEngine.createUnmanagedEngine(
+                new EMFScope(model.root, new BaseIndexOptions().withWildcardMode(true)));
+        try {
+            final DynamicQuerySpecification edgeQuery = model.edgeQuery();
+            final List<GenericPatternMatcher> matchers = new ArrayList<GenericPatternMatcher>();
+            EMFScope.extractUnderlyingEMFIndex(engine).coalesceNotifications(new Callable<Void>() {
+                @Override
+                public Void call() throws ViatraQueryException {
+                    model.link(nodes.get(3), nodes.get(0));
+                    // the matcher already sees the new link when it is initialized
+                    matchers.add(engine.getMatcher(edgeQuery));
+                    return null;
+                }
+            });
+            GenericPatternMatcher matcher = matchers.get(0);
+            assertEquals(4, matcher.countMatches());
+            model.unlink(nodes.get(3), nodes.get(0));
+            assertEquals(3, matcher.countMatches());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    private String name(Object object) {
+        if (object == model.root) {
+            return "root";
+        }
+        int position = nodes.indexOf(object);
+        return (position < 0) ? String.valueOf(object) : "n" + position;
+    }
+
+}
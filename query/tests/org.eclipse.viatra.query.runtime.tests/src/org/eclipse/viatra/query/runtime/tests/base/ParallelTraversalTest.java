@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.base.exception.ViatraBaseException;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests the parallel model traversal of the base index (see {@link BaseIndexOptions#withParallelTraversal(boolean)})
+ * against the sequential traversal.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class ParallelTraversalTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ParallelTraversalTest.class);
+
+    private DynamicTestModel model;
+    private ResourceSet resourceSet;
+    private List<EObject> nodes;
+    private NavigationHelper sequentialIndex;
+    private NavigationHelper parallelIndex;
+
+    @Before
+    public void setUp() {
+        model = new DynamicTestModel();
+        resourceSet = new ResourceSetImpl();
+        nodes = new ArrayList<EObject>();
+        Random random = new Random(42);
+        for (int i = 0; i < 4; i++) {
+            Resource resource = new ResourceImpl(URI.createURI("test:/resource" + i));
+            resourceSet.getResources().add(resource);
+            for (int j = 0; j < 5; j++) {
+                EObject top = createNode();
+                resource.getContents().add(top);
+                for (int k = 0; k < 4; k++) {
+                    addChild(top, createNode());
+                }
+            }
+        }
+        // references within and across resources
+        for (int i = 0; i < 200; i++) {
+            model.link(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())));
+            model.getLabels(nodes.get(random.nextInt(nodes.size()))).add("label" + random.nextInt(10));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (sequentialIndex != null) {
+            sequentialIndex.dispose();
+        }
+        if (parallelIndex != null) {
+            parallelIndex.dispose();
+        }
+    }
+
+    @Test
+    public void testWildcardTraversal() throws ViatraBaseException {
+        BaseIndexOptions options = new BaseIndexOptions().withWildcardMode(true);
+        sequentialIndex = ViatraBaseFactory.getInstance().createNavigationHelper(resourceSet, options, LOGGER);
+        parallelIndex = ViatraBaseFactory.getInstance().createNavigationHelper(resourceSet,
+                options.withParallelTraversal(true), LOGGER);
+        assertEquals(nodes.size(), parallelIndex.countAllInstances(model.nodeClass));
+        BaseIndexAssert.assertSameContents(model, sequentialIndex, parallelIndex);
+
+        // later changes are indexed by notifications
+        EObject node = createNode();
+        addChild(nodes.get(0), node);
+        model.link(node, nodes.get(7));
+        model.deleteNode(nodes.get(3));
+        BaseIndexAssert.assertSameContents(model, sequentialIndex, parallelIndex);
+    }
+
+    @Test
+    public void testTraversalOnRegistration() throws ViatraBaseException {
+        BaseIndexOptions options = new BaseIndexOptions();
+        sequentialIndex = ViatraBaseFactory.getInstance().createNavigationHelper(resourceSet, options, LOGGER);
+        parallelIndex = ViatraBaseFactory.getInstance().createNavigationHelper(resourceSet,
+                options.withParallelTraversal(true), LOGGER);
+        for (NavigationHelper index : new NavigationHelper[] { sequentialIndex, parallelIndex }) {
+            index.registerObservedTypes(Collections.<EClass> singleton(model.nodeClass),
+                    Collections.<EDataType> emptySet(),
+                    ImmutableSet.<EStructuralFeature> of(model.next, model.labels));
+        }
+        assertEquals(nodes.size(), parallelIndex.countAllInstances(model.nodeClass));
+        BaseIndexAssert.assertSameContents(model, sequentialIndex, parallelIndex);
+    }
+
+    @Test
+    public void testResourceAddedAsRoot() throws ViatraBaseException {
+        BaseIndexOptions options = new BaseIndexOptions().withWildcardMode(true);
+        sequentialIndex = ViatraBaseFactory.getInstance().createNavigationHelper(null, options, LOGGER);
+        parallelIndex = ViatraBaseFactory.getInstance().createNavigationHelper(null,
+                options.withParallelTraversal(true), LOGGER);
+        for (Resource resource : resourceSet.getResources()) {
+            sequentialIndex.addRoot(resource);
+            parallelIndex.addRoot(resource);
+        }
+        assertEquals(nodes.size(), parallelIndex.countAllInstances(model.nodeClass));
+        BaseIndexAssert.assertSameContents(model, sequentialIndex, parallelIndex);
+    }
+
+    @Test
+    public void testLargeContainmentTree() throws ViatraBaseException {
+        // a single top-level element with a subtree large enough to be split among the workers
+        Resource resource = new ResourceImpl(URI.createURI("test:/large"));
+        resourceSet.getResources().add(resource);
+        EObject top = createNode();
+        resource.getContents().add(top);
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            EObject child = createNode();
+            addChild(top, child);
+            for (int j = 0; j < 50; j++) {
+                EObject grandchild = createNode();
+                addChild(child, grandchild);
+                model.getLabels(grandchild).add("label" + random.nextInt(10));
+                model.link(grandchild, nodes.get(random.nextInt(nodes.size())));
+            }
+        }
+
+        createIndexes();
+        registerNodes();
+        assertEquals(nodes.size(), parallelIndex.countAllInstances(model.nodeClass));
+        BaseIndexAssert.assertSameContents(model, sequentialIndex, parallelIndex);
+    }
+
+    @Test
+    public void testProxiesResolvedOnRegistration() throws ViatraBaseException {
+        // the proxies cannot be resolved until the resource of their targets is added
+        Resource lateResource = new ResourceImpl(URI.createURI("test:/late"));
+        List<EObject> targets = new ArrayList<EObject>();
+        List<EObject> proxies = new ArrayList<EObject>();
+        for (int i = 0; i < 20; i++) {
+            EObject target = model.ePackage.getEFactoryInstance().create(model.nodeClass);
+            lateResource.getContents().add(target);
+            targets.add(target);
+            InternalEObject proxy = (InternalEObject) model.ePackage.getEFactoryInstance().create(model.nodeClass);
+            proxy.eSetProxyURI(EcoreUtil.getURI(target));
+            model.link(nodes.get(i), proxy);
+            proxies.add(proxy);
+        }
+        createIndexes();
+        resourceSet.getResources().add(lateResource);
+        nodes.addAll(targets);
+
+        // the parallel index traverses the model first, so that it has to resolve the proxies itself
+        registerNodes();
+        for (int i = 0; i < proxies.size(); i++) {
+            Set<Object> parallelTargets = parallelIndex.getFeatureTargets(nodes.get(i), model.next);
+            assertFalse(parallelTargets.contains(proxies.get(i)));
+            assertTrue(parallelTargets.contains(targets.get(i)));
+        }
+        assertEquals(nodes.size(), parallelIndex.countAllInstances(model.nodeClass));
+        BaseIndexAssert.assertSameContents(model, sequentialIndex, parallelIndex);
+    }
+
+    private void createIndexes() throws ViatraBaseException {
+        BaseIndexOptions options = new BaseIndexOptions();
+        parallelIndex = ViatraBaseFactory.getInstance().createNavigationHelper(resourceSet,
+                options.withParallelTraversal(true), LOGGER);
+        sequentialIndex = ViatraBaseFactory.getInstance().createNavigationHelper(resourceSet, options, LOGGER);
+    }
+
+    private void registerNodes() {
+        for (NavigationHelper index : new NavigationHelper[] { parallelIndex, sequentialIndex }) {
+            index.registerObservedTypes(Collections.<EClass> singleton(model.nodeClass),
+                    Collections.<EDataType> emptySet(),
+                    ImmutableSet.<EStructuralFeature> of(model.next, model.labels));
+        }
+    }
+
+    private EObject createNode() {
+        EObject node = model.ePackage.getEFactoryInstance().create(model.nodeClass);
+        nodes.add(node);
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addChild(EObject parent, EObject child) {
+        ((List<EObject>) parent.eGet(model.children)).add(child);
+    }
+
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.IMatchUpdateListener;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.AdaptiveBackendFactory;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.AdaptiveBackendHintOptions;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.AdaptiveResultProvider;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryHintOption;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteEngine;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel.DynamicQuerySpecification;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the switching of queries between local search and Rete by the {@link AdaptiveBackendFactory adaptive
+ * backend}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class AdaptiveBackendTest {
+
+    /**
+     * The number of calls between two checks of the backend for idle queries.
+     */
+    private static final int IDLE_CHECK_INTERVAL = 1024;
+
+    private DynamicTestModel model;
+    private AdvancedViatraQueryEngine engine;
+    private List<EObject> nodes;
+
+    @Before
+    public void setUp() throws ViatraQueryException {
+        model = new DynamicTestModel();
+        engine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 9; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private QueryEvaluationHint adaptiveHint(double costFactor, int idleCallLimit) {
+        Map<QueryHintOption, Object> hints = new HashMap<QueryHintOption, Object>();
+        AdaptiveBackendHintOptions.INCREMENTAL_COST_FACTOR.insertOverridingValue(hints, costFactor);
+        AdaptiveBackendHintOptions.IDLE_CALL_LIMIT.insertOverridingValue(hints, idleCallLimit);
+        return new QueryEvaluationHint(hints, AdaptiveBackendFactory.INSTANCE);
+    }
+
+    private AdaptiveResultProvider getResultProvider(GenericPatternMatcher matcher) {
+        return (AdaptiveResultProvider) engine.getResultProviderOfMatcher(matcher);
+    }
+
+    @Test
+    public void testSwitchedToReteAboveCostThreshold() throws ViatraQueryException {
+        // the cost of calls without bound parameters equals the threshold of a single scan
+        GenericPatternMatcher matcher = engine.getMatcher(model.twoStepsQuery(), adaptiveHint(2, 0));
+        AdaptiveResultProvider resultProvider = getResultProvider(matcher);
+        assertFalse(resultProvider.isIncremental());
+
+        assertEquals(8, matcher.countMatches());
+        assertEquals(8, matcher.countMatches());
+        assertFalse(resultProvider.isIncremental());
+        assertTrue(resultProvider.getQueryBackend() instanceof LocalSearchBackend);
+
+        assertEquals(8, matcher.countMatches());
+        assertTrue(resultProvider.isIncremental());
+        assertTrue(resultProvider.getQueryBackend() instanceof ReteEngine);
+
+        // the incremental results are maintained
+        model.link(nodes.get(9), nodes.get(0));
+        assertEquals(10, matcher.countMatches());
+        model.deleteNode(nodes.get(5));
+        assertEquals(7, matcher.countMatches());
+    }
+
+    @Test
+    public void testChecksBelowCostThreshold() throws ViatraQueryException {
+        GenericPatternMatcher matcher = engine.getMatcher(model.edgeQuery(), adaptiveHint(2, 0));
+        AdaptiveResultProvider resultProvider = getResultProvider(matcher);
+
+        // a check costs 1, while a scan costs the 9 edges, so the threshold is 18
+        for (int i = 0; i < 9; i++) {
+            assertTrue(matcher.hasMatch(matcher.newMatch(nodes.get(i), nodes.get(i + 1))));
+        }
+        for (int i = 0; i < 9; i++) {
+            assertFalse(matcher.hasMatch(matcher.newMatch(nodes.get(0), nodes.get(2))));
+        }
+        assertFalse(resultProvider.isIncremental());
+
+        assertFalse(matcher.hasMatch(matcher.newMatch(nodes.get(0), nodes.get(2))));
+        assertTrue(resultProvider.isIncremental());
+    }
+
+    @Test
+    public void testMatchesIteratedByBothBackends() throws ViatraQueryException {
+        DynamicQuerySpecification query = model.twoStepsQuery();
+        GenericPatternMatcher matcher = engine.getMatcher(query, adaptiveHint(1, 0));
+        AdaptiveResultProvider resultProvider = getResultProvider(matcher);
+        assertSame(resultProvider, engine.getQueryBackend(AdaptiveBackendFactory.INSTANCE)
+                .peekExistingResultProvider(query.getInternalQueryRepresentation()));
+
+        assertEquals(8, Iterators.size(matcher.iterateMatches(matcher.newEmptyMatch())));
+        assertFalse(resultProvider.isIncremental());
+        assertEquals(8, Iterators.size(matcher.iterateMatches(matcher.newEmptyMatch())));
+        assertTrue(resultProvider.isIncremental());
+        assertEquals(new HashSet<GenericPatternMatch>(matcher.getAllMatches()),
+                Sets.newHashSet(matcher.iterateMatches(matcher.newEmptyMatch())));
+    }
+
+    @Test
+    public void testIdleQuerySwitchedBack() throws ViatraQueryException {
+        GenericPatternMatcher idleMatcher = engine.getMatcher(model.twoStepsQuery(), adaptiveHint(0, 10));
+        AdaptiveResultProvider idleResultProvider = getResultProvider(idleMatcher);
+        GenericPatternMatcher busyMatcher = engine.getMatcher(model.edgeQuery(), adaptiveHint(Double.MAX_VALUE, 10));
+        AdaptiveResultProvider busyResultProvider = getResultProvider(busyMatcher);
+
+        assertEquals(8, idleMatcher.countMatches());
+        assertTrue(idleResultProvider.isIncremental());
+
+        for (int i = 0; i < IDLE_CHECK_INTERVAL; i++) {
+            busyMatcher.countMatches();
+        }
+        assertFalse(busyResultProvider.isIncremental());
+        assertFalse(idleResultProvider.isIncremental());
+        assertTrue(idleResultProvider.getQueryBackend() instanceof LocalSearchBackend);
+
+        // switched back to local search, the results reflect the changes of the model
+        model.unlink(nodes.get(0), nodes.get(1));
+        assertEquals(7, idleMatcher.countMatches());
+        assertTrue(idleResultProvider.isIncremental());
+        model.link(nodes.get(0), nodes.get(1));
+        assertEquals(8, idleMatcher.countMatches());
+    }
+
+    @Test
+    public void testBatchesForwardedToRete() throws Exception {
+        final GenericPatternMatcher matcher = engine.getMatcher(model.twoStepsQuery(), adaptiveHint(0, 0));
+        assertEquals(8, matcher.countMatches());
+        assertTrue(getResultProvider(matcher).isIncremental());
+
+        int countInBatch = engine.executeBatched(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                model.link(nodes.get(9), nodes.get(0));
+                return matcher.countMatches();
+            }
+        });
+
+        // the incremental results are only updated at the end of the batch
+        assertEquals(8, countInBatch);
+        assertEquals(10, matcher.countMatches());
+    }
+
+    @Test
+    public void testListenersForceRete() throws ViatraQueryException {
+        GenericPatternMatcher matcher = engine.getMatcher(model.edgeQuery(),
+                adaptiveHint(Double.MAX_VALUE, 10));
+        AdaptiveResultProvider resultProvider = getResultProvider(matcher);
+        GenericPatternMatcher busyMatcher = engine.getMatcher(model.nodeQuery(),
+                adaptiveHint(Double.MAX_VALUE, 10));
+        assertFalse(resultProvider.isIncremental());
+
+        final List<GenericPatternMatch> appeared = new ArrayList<GenericPatternMatch>();
+        IMatchUpdateListener<GenericPatternMatch> listener = new IMatchUpdateListener<GenericPatternMatch>() {
+            @Override
+            public void notifyAppearance(GenericPatternMatch match) {
+                appeared.add(match);
+            }
+
+            @Override
+            public void notifyDisappearance(GenericPatternMatch match) {
+            }
+        };
+        engine.addMatchUpdateListener(matcher, listener, true);
+        assertTrue(resultProvider.isIncremental());
+        assertEquals(9, appeared.size());
+
+        // not switched back while it has listeners, even if idle
+        for (int i = 0; i < IDLE_CHECK_INTERVAL; i++) {
+            busyMatcher.countMatches();
+        }
+        assertTrue(resultProvider.isIncremental());
+        model.link(nodes.get(9), nodes.get(0));
+        assertEquals(10, appeared.size());
+        assertEquals(new HashSet<Object>(appeared), new HashSet<Object>(matcher.getAllMatches()));
+
+        engine.removeMatchUpdateListener(matcher, listener);
+        for (int i = 0; i < IDLE_CHECK_INTERVAL; i++) {
+            busyMatcher.countMatches();
+        }
+        assertFalse(resultProvider.isIncremental());
+    }
+
+}
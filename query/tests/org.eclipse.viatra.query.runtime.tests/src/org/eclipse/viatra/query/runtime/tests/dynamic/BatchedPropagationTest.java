@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineOptions;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel.DynamicQuerySpecification;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link AdvancedViatraQueryEngine#executeBatched(Callable)} against an engine propagating changes one by one.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class BatchedPropagationTest {
+
+    private DynamicTestModel model;
+    private AdvancedViatraQueryEngine batchedEngine;
+    private AdvancedViatraQueryEngine referenceEngine;
+    private List<EObject> nodes;
+
+    @Before
+    public void setUp() throws ViatraQueryException {
+        model = new DynamicTestModel();
+        batchedEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope(),
+                ViatraQueryEngineOptions.defineOptions().withDefaultBackend(new ReteBackendFactory()).build());
+        referenceEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope(),
+                ViatraQueryEngineOptions.defineOptions().withDefaultBackend(new ReteBackendFactory()).build());
+        nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 9; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        batchedEngine.dispose();
+        referenceEngine.dispose();
+    }
+
+    @Test
+    public void testResultsUpdatedAtEndOfBatch() throws Exception {
+        DynamicQuerySpecification threeStepsQuery = model.threeStepsQuery();
+        final GenericPatternMatcher matcher = threeStepsQuery.getMatcher(batchedEngine);
+        GenericPatternMatcher referenceMatcher = threeStepsQuery.getMatcher(referenceEngine);
+        assertEquals(7, matcher.countMatches());
+
+        int countInBatch = batchedEngine.executeBatched(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                model.link(nodes.get(9), nodes.get(0));
+                // cancelled out within the batch
+                model.unlink(nodes.get(4), nodes.get(5));
+                model.link(nodes.get(4), nodes.get(5));
+                model.unlink(nodes.get(6), nodes.get(7));
+                model.deleteNode(nodes.get(2));
+                return matcher.countMatches();
+            }
+        });
+
+        assertEquals(7, countInBatch);
+        assertEquals(new HashSet<Object>(referenceMatcher.getAllMatches()),
+                new HashSet<Object>(matcher.getAllMatches()));
+    }
+
+    @Test
+    public void testMatcherCreatedDuringBatch() throws Exception {
+        // the input node of the edges already exists, and collects the changes of the batch
+        model.threeStepsQuery().getMatcher(batchedEngine);
+        final DynamicQuerySpecification edgeQuery = model.edgeQuery();
+        GenericPatternMatcher referenceMatcher = edgeQuery.getMatcher(referenceEngine);
+
+        GenericPatternMatcher matcher = batchedEngine.executeBatched(new Callable<GenericPatternMatcher>() {
+            @Override
+            public GenericPatternMatcher call() throws Exception {
+                model.link(nodes.get(9), nodes.get(0));
+                GenericPatternMatcher matcher = edgeQuery.getMatcher(batchedEngine);
+                assertEquals(10, matcher.countMatches());
+                return matcher;
+            }
+        });
+        assertEquals(10, matcher.countMatches());
+
+        // the new edge was only counted once, so its removal is reflected
+        model.unlink(nodes.get(9), nodes.get(0));
+        assertEquals(new HashSet<Object>(referenceMatcher.getAllMatches()),
+                new HashSet<Object>(matcher.getAllMatches()));
+    }
+
+    @Test
+    public void testChangesPropagatedOnException() throws ViatraQueryException {
+        final GenericPatternMatcher matcher = model.edgeQuery().getMatcher(batchedEngine);
+        final IllegalStateException exception = new IllegalStateException();
+
+        try {
+            batchedEngine.executeBatched(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    model.unlink(nodes.get(0), nodes.get(1));
+                    throw exception;
+                }
+            });
+            fail("Exception of the callable not propagated");
+        } catch (InvocationTargetException e) {
+            assertSame(exception, e.getCause());
+        }
+
+        assertEquals(8, matcher.countMatches());
+    }
+
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.emf.types.EClassTransitiveInstancesKey;
+import org.eclipse.viatra.query.runtime.emf.types.EStructuralFeatureInstancesKey;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.MatcherReference;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchBackend;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchBackendFactory;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.eclipse.viatra.query.runtime.localsearch.plan.CachingPlanProvider;
+import org.eclipse.viatra.query.runtime.localsearch.plan.IPlanDescriptor;
+import org.eclipse.viatra.query.runtime.matchers.context.IQueryRuntimeContext;
+import org.eclipse.viatra.query.runtime.matchers.context.IndexingService;
+import org.eclipse.viatra.query.runtime.matchers.planning.QueryProcessingException;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the eviction and re-planning behavior of {@link CachingPlanProvider}.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class CachingPlanProviderTest {
+
+    private static final Logger LOGGER = Logger.getLogger(CachingPlanProviderTest.class);
+
+    private DynamicTestModel model;
+    private AdvancedViatraQueryEngine engine;
+    private LocalSearchBackend backend;
+    private LocalSearchHints hints;
+
+    @Before
+    public void setUp() throws ViatraQueryException {
+        model = new DynamicTestModel();
+        engine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        backend = (LocalSearchBackend) engine.getQueryBackend(LocalSearchBackendFactory.INSTANCE);
+        hints = LocalSearchHints.getDefault();
+        createNodes(20);
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPlanEvicted() throws QueryProcessingException {
+        CachingPlanProvider provider = new CachingPlanProvider(LOGGER, 2);
+        PQuery edgeQuery = model.edgeQuery().getInternalQueryRepresentation();
+        MatcherReference unbound = new MatcherReference(edgeQuery, Collections.<PParameter> emptySet());
+        MatcherReference sourceBound = new MatcherReference(edgeQuery,
+                Collections.singleton(edgeQuery.getParameters().get(0)));
+        MatcherReference targetBound = new MatcherReference(edgeQuery,
+                Collections.singleton(edgeQuery.getParameters().get(1)));
+
+        IPlanDescriptor unboundPlan = provider.getPlan(backend, hints, unbound);
+        provider.getPlan(backend, hints, sourceBound);
+        assertSame(unboundPlan, provider.getPlan(backend, hints, unbound));
+        // sourceBound is the least recently used plan
+        provider.getPlan(backend, hints, targetBound);
+
+        assertEquals(2, provider.size());
+        assertEquals(1, provider.getEvictionCount());
+        assertSame(unboundPlan, provider.getPlan(backend, hints, unbound));
+        assertEquals(2, provider.getHitCount());
+        assertEquals(3, provider.getMissCount());
+        provider.getPlan(backend, hints, sourceBound);
+        assertEquals(4, provider.getMissCount());
+        assertEquals(2, provider.getEvictionCount());
+    }
+
+    @Test
+    public void testReplannedAboveThreshold() throws QueryProcessingException {
+        CachingPlanProvider provider = new CachingPlanProvider(LOGGER, CachingPlanProvider.DEFAULT_CAPACITY, 0);
+        MatcherReference reference = nodeReference();
+        IPlanDescriptor plan = provider.getPlan(backend, hints, reference);
+
+        // 20 -> 36 nodes is below the default threshold of 2
+        createNodes(16);
+        assertSame(plan, provider.getPlan(backend, hints, reference));
+        assertEquals(0, provider.getInvalidationCount());
+
+        // 20 -> 60 nodes exceeds the threshold
+        createNodes(24);
+        IPlanDescriptor replanned = provider.getPlan(backend, hints, reference);
+        assertNotSame(plan, replanned);
+        assertEquals(1, provider.getInvalidationCount());
+        assertSame(replanned, provider.getPlan(backend, hints, reference));
+    }
+
+    @Test
+    public void testSmallCountsNotReplanned() throws QueryProcessingException, ViatraQueryException {
+        DynamicTestModel smallModel = new DynamicTestModel();
+        AdvancedViatraQueryEngine smallEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(smallModel.getScope());
+        try {
+            LocalSearchBackend smallBackend = (LocalSearchBackend) smallEngine
+                    .getQueryBackend(LocalSearchBackendFactory.INSTANCE);
+            CachingPlanProvider provider = new CachingPlanProvider(LOGGER, CachingPlanProvider.DEFAULT_CAPACITY, 0);
+            MatcherReference reference = new MatcherReference(smallModel.nodeQuery().getInternalQueryRepresentation(),
+                    Collections.<PParameter> emptySet());
+            smallModel.createNode();
+            IPlanDescriptor plan = provider.getPlan(smallBackend, hints, reference);
+            // a tenfold increase of a small count is ignored
+            for (int i = 0; i < 9; i++) {
+                smallModel.createNode();
+            }
+            assertSame(plan, provider.getPlan(smallBackend, hints, reference));
+        } finally {
+            smallEngine.dispose();
+        }
+    }
+
+    @Test
+    public void testStatisticsNotCheckedWithinInterval() throws QueryProcessingException {
+        CachingPlanProvider provider = new CachingPlanProvider(LOGGER, CachingPlanProvider.DEFAULT_CAPACITY,
+                TimeUnit.HOURS.toMillis(1));
+        MatcherReference reference = nodeReference();
+        IPlanDescriptor plan = provider.getPlan(backend, hints, reference);
+        createNodes(100);
+        assertSame(plan, provider.getPlan(backend, hints, reference));
+        assertEquals(0, provider.getInvalidationCount());
+    }
+
+    @Test
+    public void testStatisticsIgnoredWithoutThreshold() throws QueryProcessingException {
+        CachingPlanProvider provider = new CachingPlanProvider(LOGGER, CachingPlanProvider.DEFAULT_CAPACITY, 0);
+        LocalSearchHints noReplanning = LocalSearchHints.getDefault().setReplanningThreshold(0);
+        MatcherReference reference = nodeReference();
+        IPlanDescriptor plan = provider.getPlan(backend, noReplanning, reference);
+        createNodes(100);
+        assertSame(plan, provider.getPlan(backend, noReplanning, reference));
+    }
+
+    @Test
+    public void testStatisticsCheckDoesNotIndexKeys() throws QueryProcessingException, ViatraQueryException {
+        CachingPlanProvider provider = new CachingPlanProvider(LOGGER, CachingPlanProvider.DEFAULT_CAPACITY, 0);
+        MatcherReference reference = new MatcherReference(model.edgeQuery().getInternalQueryRepresentation(),
+                Collections.<PParameter> emptySet());
+        IPlanDescriptor plan = provider.getPlan(backend, hints, reference);
+
+        // the cached plan is checked against a base index where none of its keys are indexed
+        AdvancedViatraQueryEngine otherEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        try {
+            LocalSearchBackend otherBackend = (LocalSearchBackend) otherEngine
+                    .getQueryBackend(LocalSearchBackendFactory.INSTANCE);
+            assertSame(plan, provider.getPlan(otherBackend, hints, reference));
+            IQueryRuntimeContext runtimeContext = otherBackend.getRuntimeContext();
+            assertFalse(runtimeContext.isIndexed(new EClassTransitiveInstancesKey(model.nodeClass),
+                    IndexingService.STATISTICS));
+            assertFalse(runtimeContext.isIndexed(new EStructuralFeatureInstancesKey(model.next),
+                    IndexingService.STATISTICS));
+        } finally {
+            otherEngine.dispose();
+        }
+    }
+
+    private MatcherReference nodeReference() {
+        return new MatcherReference(model.nodeQuery().getInternalQueryRepresentation(),
+                Collections.<PParameter> emptySet());
+    }
+
+    private void createNodes(int count) {
+        for (int i = 0; i < count; i++) {
+            model.createNode();
+        }
+    }
+
+}
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.dynamic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.impl.BaseGeneratedEMFPQuery;
+import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.emf.types.EClassTransitiveInstancesKey;
+import org.eclipse.viatra.query.runtime.emf.types.EStructuralFeatureInstancesKey;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.matchers.context.IInputKey;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PBody;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.ExportedParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.PatternMatchCounter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.BinaryTransitiveClosure;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.PositivePatternCall;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.TypeConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.QueryInitializationException;
+import org.eclipse.viatra.query.runtime.matchers.tuple.FlatTuple;
+
+/**
+ * A dynamic EMF model of nodes connected by a <code>next</code> reference and labelled by a non-unique
+ * <code>labels</code> attribute, with queries over it that are built
+ * without the pattern language.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class DynamicTestModel {
+
+    public final EPackage ePackage;
+    public final EClass nodeClass;
+    public final EReference children;
+    public final EReference next;
+    public final EAttribute labels;
+    public final EObject root;
+
+    public DynamicTestModel() {
+        EcoreFactory factory = EcoreFactory.eINSTANCE;
+
+        nodeClass = factory.createEClass();
+        nodeClass.setName("Node");
+
+        children = factory.createEReference();
+        children.setName("children");
+        children.setEType(nodeClass);
+        children.setUpperBound(EStructuralFeature.UNBOUNDED_MULTIPLICITY);
+        children.setContainment(true);
+        nodeClass.getEStructuralFeatures().add(children);
+
+        next = factory.createEReference();
+        next.setName("next");
+        next.setEType(nodeClass);
+        next.setUpperBound(EStructuralFeature.UNBOUNDED_MULTIPLICITY);
+        nodeClass.getEStructuralFeatures().add(next);
+
+        labels = factory.createEAttribute();
+        labels.setName("labels");
+        labels.setEType(EcorePackage.Literals.ESTRING);
+        labels.setUpperBound(EStructuralFeature.UNBOUNDED_MULTIPLICITY);
+        labels.setUnique(false);
+        nodeClass.getEStructuralFeatures().add(labels);
+
+        ePackage = factory.createEPackage();
+        ePackage.setName("nodes");
+        ePackage.setNsPrefix("nodes");
+        ePackage.setNsURI("http:///org.eclipse.viatra.query.runtime.tests.dynamic.nodes");
+        ePackage.getEClassifiers().add(nodeClass);
+
+        root = ePackage.getEFactoryInstance().create(nodeClass);
+    }
+
+    public EMFScope getScope() throws ViatraQueryException {
+        return new EMFScope(root);
+    }
+
+    /**
+     * @return a new node contained by the root
+     */
+    @SuppressWarnings("unchecked")
+    public EObject createNode() {
+        EObject node = ePackage.getEFactoryInstance().create(nodeClass);
+        ((List<EObject>) root.eGet(children)).add(node);
+        return node;
+    }
+
+    public void deleteNode(EObject node) {
+        EcoreUtil.delete(node);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void link(EObject source, EObject target) {
+        ((List<EObject>) source.eGet(next)).add(target);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void unlink(EObject source, EObject target) {
+        ((List<EObject>) source.eGet(next)).remove(target);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> getLabels(EObject node) {
+        return (List<String>) node.eGet(labels);
+    }
+
+    /**
+     * <code>node(n) : Node(n)</code>
+     */
+    public DynamicQuerySpecification nodeQuery() {
+        return new DynamicQuerySpecification(
+                new DynamicPQuery("node", "n").withConstraint(new EClassTransitiveInstancesKey(nodeClass), "n"));
+    }
+
+    /**
+     * <code>edge(s, t) : Node.next(s, t)</code>
+     */
+    public DynamicQuerySpecification edgeQuery() {
+        return new DynamicQuerySpecification(new DynamicPQuery("edge", "s", "t")
+                .withConstraint(new EStructuralFeatureInstancesKey(next), "s", "t"));
+    }
+
+    /**
+     * <code>twoSteps(s, u) : Node.next(s, t), Node.next(t, u)</code>
+     */
+    public DynamicQuerySpecification twoStepsQuery() {
+        return new DynamicQuerySpecification(new DynamicPQuery("twoSteps", "s", "u")
+                .withConstraint(new EStructuralFeatureInstancesKey(next), "s", "t")
+                .withConstraint(new EStructuralFeatureInstancesKey(next), "t", "u"));
+    }
+
+    /**
+     * <code>threeSteps(s, v) : find twoSteps(s, u), Node.next(u, v)</code>
+     */
+    public DynamicQuerySpecification threeStepsQuery() {
+        return new DynamicQuerySpecification(new DynamicPQuery("threeSteps", "s", "v")
+                .withCall(twoStepsQuery().getInternalQueryRepresentation(), "s", "u")
+                .withConstraint(new EStructuralFeatureInstancesKey(next), "u", "v"));
+    }
+
+    /**
+     * <code>twoStepsCount(n, c) : Node(n), c == count find twoSteps(n, _u)</code>
+     */
+    public DynamicQuerySpecification twoStepsCountQuery() {
+        return new DynamicQuerySpecification(new DynamicPQuery("twoStepsCount", "n", "c")
+                .withConstraint(new EClassTransitiveInstancesKey(nodeClass), "n")
+                .withCount(twoStepsQuery().getInternalQueryRepresentation(), "c", "n", "_u"));
+    }
+
+    /**
+     * <code>reachable(s, t) : Node(s), Node(t), find edge+(s, t)</code>
+     */
+    public DynamicQuerySpecification reachableQuery() {
+        return new DynamicQuerySpecification(new DynamicPQuery("reachable", "s", "t")
+                .withConstraint(new EClassTransitiveInstancesKey(nodeClass), "s")
+                .withConstraint(new EClassTransitiveInstancesKey(nodeClass), "t")
+                .withClosure(edgeQuery().getInternalQueryRepresentation(), "s", "t"));
+    }
+
+    /**
+     * A single-body query consisting of type constraints, positive pattern calls, transitive closures and match
+     * counters.
+     */
+    public static class DynamicPQuery extends BaseGeneratedEMFPQuery {
+
+        private final String name;
+        private final List<PParameter> parameters = new ArrayList<PParameter>();
+        // either an IInputKey or a called PQuery
+        private final List<Object> constraintTargets = new ArrayList<Object>();
+        private final List<String[]> constraintVariables = new ArrayList<String[]>();
+        // null, unless the call is a match counter
+        private final List<String> resultVariables = new ArrayList<String>();
+        private final List<Boolean> transitiveClosures = new ArrayList<Boolean>();
+
+        public DynamicPQuery(String name, String... parameterNames) {
+            this.name = name;
+            for (String parameterName : parameterNames) {
+                parameters.add(new PParameter(parameterName));
+            }
+        }
+
+        public DynamicPQuery withConstraint(IInputKey inputKey, String... variableNames) {
+            return addConstraint(inputKey, null, false, variableNames);
+        }
+
+        public DynamicPQuery withCall(PQuery calledQuery, String... variableNames) {
+            return addConstraint(calledQuery, null, false, variableNames);
+        }
+
+        public DynamicPQuery withClosure(PQuery calledQuery, String... variableNames) {
+            return addConstraint(calledQuery, null, true, variableNames);
+        }
+
+        public DynamicPQuery withCount(PQuery calledQuery, String resultVariableName, String... variableNames) {
+            return addConstraint(calledQuery, resultVariableName, false, variableNames);
+        }
+
+        private DynamicPQuery addConstraint(Object target, String resultVariableName, boolean transitiveClosure,
+                String... variableNames) {
+            constraintTargets.add(target);
+            constraintVariables.add(variableNames);
+            resultVariables.add(resultVariableName);
+            transitiveClosures.add(transitiveClosure);
+            return this;
+        }
+
+        @Override
+        public String getFullyQualifiedName() {
+            return "org.eclipse.viatra.query.runtime.tests.dynamic." + name;
+        }
+
+        @Override
+        public List<PParameter> getParameters() {
+            return parameters;
+        }
+
+        @Override
+        protected Set<PBody> doGetContainedBodies() throws QueryInitializationException {
+            PBody body = new PBody(this);
+            List<ExportedParameter> symbolicParameters = new ArrayList<ExportedParameter>();
+            for (PParameter parameter : parameters) {
+                symbolicParameters.add(
+                        new ExportedParameter(body, body.getOrCreateVariableByName(parameter.getName()), parameter));
+            }
+            body.setSymbolicParameters(symbolicParameters);
+            for (int i = 0; i < constraintTargets.size(); i++) {
+                String[] variableNames = constraintVariables.get(i);
+                PVariable[] variables = new PVariable[variableNames.length];
+                for (int j = 0; j < variableNames.length; j++) {
+                    variables[j] = body.getOrCreateVariableByName(variableNames[j]);
+                }
+                FlatTuple variablesTuple = new FlatTuple((Object[]) variables);
+                Object target = constraintTargets.get(i);
+                String resultVariableName = resultVariables.get(i);
+                if (target instanceof IInputKey) {
+                    new TypeConstraint(body, variablesTuple, (IInputKey) target);
+                } else if (transitiveClosures.get(i)) {
+                    new BinaryTransitiveClosure(body, variablesTuple, (PQuery) target);
+                } else if (resultVariableName == null) {
+                    new PositivePatternCall(body, variablesTuple, (PQuery) target);
+                } else {
+                    new PatternMatchCounter(body, variablesTuple, (PQuery) target,
+                            body.getOrCreateVariableByName(resultVariableName));
+                }
+            }
+            return Collections.singleton(body);
+        }
+    }
+
+    public static class DynamicQuerySpecification extends GenericQuerySpecification<GenericPatternMatcher> {
+
+        public DynamicQuerySpecification(DynamicPQuery query) {
+            super(query);
+        }
+
+        @Override
+        protected GenericPatternMatcher instantiate(ViatraQueryEngine engine) throws ViatraQueryException {
+            return defaultInstantiate(engine);
+        }
+
+        @Override
+        public GenericPatternMatcher instantiate() throws ViatraQueryException {
+            return new GenericPatternMatcher(this);
+        }
+
+        @Override
+        public Class<? extends QueryScope> getPreferredScopeClass() {
+            return EMFScope.class;
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests lazy iteration of local search matches with partially consumed and interleaved iterators.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class LocalSearchIterationTest {
+
+    private DynamicTestModel model;
+    private AdvancedViatraQueryEngine engine;
+    private List<EObject> nodes;
+    private GenericPatternMatcher matcher;
+
+    @Before
+    public void setUp() throws ViatraQueryException {
+        model = new DynamicTestModel();
+        engine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 9; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+        model.link(nodes.get(2), nodes.get(6));
+        matcher = engine.getMatcher(model.threeStepsQuery(), LocalSearchHints.getDefault().build());
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    @Test
+    public void testPartialIteration() {
+        Iterator<GenericPatternMatch> abandoned = matcher.iterateMatches();
+        assertTrue(abandoned.hasNext());
+        abandoned.next();
+        assertTrue(abandoned.hasNext());
+        abandoned.next();
+
+        assertEquals(new HashSet<GenericPatternMatch>(matcher.getAllMatches()), collect(matcher.iterateMatches()));
+        assertEquals(10, collect(matcher.iterateMatches()).size());
+    }
+
+    @Test
+    public void testInterleavedIteration() {
+        Iterator<GenericPatternMatch> first = matcher.iterateMatches();
+        Iterator<GenericPatternMatch> second = matcher.iterateMatches();
+        Set<GenericPatternMatch> firstMatches = new HashSet<GenericPatternMatch>();
+        Set<GenericPatternMatch> secondMatches = new HashSet<GenericPatternMatch>();
+        while (first.hasNext() || second.hasNext()) {
+            if (first.hasNext()) {
+                assertTrue(firstMatches.add(first.next()));
+            }
+            // a third iterator started and finished in the middle of the others
+            assertEquals(10, collect(matcher.iterateMatches()).size());
+            if (second.hasNext()) {
+                assertTrue(secondMatches.add(second.next()));
+            }
+        }
+        Set<GenericPatternMatch> allMatches = new HashSet<GenericPatternMatch>(matcher.getAllMatches());
+        assertEquals(allMatches, firstMatches);
+        assertEquals(allMatches, secondMatches);
+    }
+
+    @Test
+    public void testCallsDuringIteration() throws ViatraQueryException {
+        // every frame of the edge query is a distinct match, so the iterator does not filter repeated matches
+        GenericPatternMatcher edgeMatcher = engine.getMatcher(model.edgeQuery(), LocalSearchHints.getDefault().build());
+        Set<GenericPatternMatch> allMatches = new HashSet<GenericPatternMatch>(edgeMatcher.getAllMatches());
+        Iterator<GenericPatternMatch> iterator = edgeMatcher.iterateMatches();
+        Set<GenericPatternMatch> iteratedMatches = new HashSet<GenericPatternMatch>();
+        while (iterator.hasNext()) {
+            assertTrue(iteratedMatches.add(iterator.next()));
+            // the other calls must not reuse the search operations of the unfinished iterator
+            assertEquals(allMatches, new HashSet<GenericPatternMatch>(edgeMatcher.getAllMatches()));
+            assertEquals(10, edgeMatcher.countMatches());
+            assertTrue(edgeMatcher.getOneArbitraryMatch() != null);
+        }
+        assertEquals(allMatches, iteratedMatches);
+    }
+
+    @Test
+    public void testIterationWithBoundParameters() {
+        GenericPatternMatch partialMatch = matcher.newEmptyMatch();
+        partialMatch.set(0, nodes.get(2));
+        Iterator<GenericPatternMatch> first = matcher.iterateMatches(partialMatch);
+        Set<GenericPatternMatch> unbound = collect(matcher.iterateMatches());
+        Set<GenericPatternMatch> bound = collect(first);
+        assertEquals(10, unbound.size());
+        assertEquals(new HashSet<GenericPatternMatch>(matcher.getAllMatches(partialMatch)), bound);
+        assertEquals(2, bound.size());
+    }
+
+    @Test
+    public void testIterationAfterModification() {
+        assertEquals(10, collect(matcher.iterateMatches()).size());
+        model.unlink(nodes.get(2), nodes.get(6));
+        model.link(nodes.get(9), nodes.get(0));
+        Set<GenericPatternMatch> matches = collect(matcher.iterateMatches());
+        assertEquals(new HashSet<GenericPatternMatch>(matcher.getAllMatches()), matches);
+        assertEquals(10, matches.size());
+    }
+
+    private Set<GenericPatternMatch> collect(Iterator<GenericPatternMatch> iterator) {
+        Set<GenericPatternMatch> matches = new HashSet<GenericPatternMatch>();
+        while (iterator.hasNext()) {
+            assertTrue(matches.add(iterator.next()));
+        }
+        return matches;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.NeverFlattenCallPredicate;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel.DynamicQuerySpecification;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests local search with {@link LocalSearchHints#setParallelExecution(boolean)} against sequential local search.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class ParallelLocalSearchTest {
+
+    private DynamicTestModel model;
+    private AdvancedViatraQueryEngine parallelEngine;
+    private AdvancedViatraQueryEngine sequentialEngine;
+    private List<EObject> nodes;
+
+    @Before
+    public void setUp() throws ViatraQueryException {
+        model = new DynamicTestModel();
+        parallelEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        sequentialEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 200; i++) {
+            nodes.add(model.createNode());
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 600; i++) {
+            model.link(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        parallelEngine.dispose();
+        sequentialEngine.dispose();
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws ViatraQueryException {
+        QueryEvaluationHint parallelHint = LocalSearchHints.getDefault().setParallelExecution(true).build();
+        QueryEvaluationHint sequentialHint = LocalSearchHints.getDefault().build();
+        List<DynamicQuerySpecification> queries = new ArrayList<DynamicQuerySpecification>();
+        queries.add(model.nodeQuery());
+        queries.add(model.edgeQuery());
+        queries.add(model.twoStepsQuery());
+        queries.add(model.threeStepsQuery());
+        queries.add(model.twoStepsCountQuery());
+        queries.add(model.reachableQuery());
+
+        for (DynamicQuerySpecification query : queries) {
+            GenericPatternMatcher parallelMatcher = parallelEngine.getMatcher(query, parallelHint);
+            GenericPatternMatcher sequentialMatcher = sequentialEngine.getMatcher(query, sequentialHint);
+            assertEquals(sequentialMatcher.countMatches(), parallelMatcher.countMatches());
+            assertEquals(new HashSet<Object>(sequentialMatcher.getAllMatches()),
+                    new HashSet<Object>(parallelMatcher.getAllMatches()));
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequentialWithCalls() throws ViatraQueryException {
+        // the called queries are not flattened, so the parallel search tasks call their result providers
+        QueryEvaluationHint parallelHint = LocalSearchHints.getDefault().setParallelExecution(true)
+                .setFlattenCallPredicate(new NeverFlattenCallPredicate()).build();
+        QueryEvaluationHint sequentialHint = LocalSearchHints.getDefault().build();
+        List<DynamicQuerySpecification> queries = new ArrayList<DynamicQuerySpecification>();
+        queries.add(model.threeStepsQuery());
+        queries.add(model.twoStepsCountQuery());
+
+        for (DynamicQuerySpecification query : queries) {
+            GenericPatternMatcher parallelMatcher = parallelEngine.getMatcher(query, parallelHint);
+            GenericPatternMatcher sequentialMatcher = sequentialEngine.getMatcher(query, sequentialHint);
+            assertEquals(new HashSet<Object>(sequentialMatcher.getAllMatches()),
+                    new HashSet<Object>(parallelMatcher.getAllMatches()));
+        }
+    }
+
+    @Test
+    public void testConcurrentCallsMatchSequential() throws Exception {
+        QueryEvaluationHint parallelHint = LocalSearchHints.getDefault().setParallelExecution(true)
+                .setFlattenCallPredicate(new NeverFlattenCallPredicate()).build();
+        QueryEvaluationHint sequentialHint = LocalSearchHints.getDefault().build();
+        DynamicQuerySpecification query = model.threeStepsQuery();
+        final GenericPatternMatcher parallelMatcher = parallelEngine.getMatcher(query, parallelHint);
+        GenericPatternMatcher sequentialMatcher = sequentialEngine.getMatcher(query, sequentialHint);
+        Set<GenericPatternMatch> expected = new HashSet<GenericPatternMatch>(sequentialMatcher.getAllMatches());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Set<GenericPatternMatch>>> results = new ArrayList<Future<Set<GenericPatternMatch>>>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(new Callable<Set<GenericPatternMatch>>() {
+                    @Override
+                    public Set<GenericPatternMatch> call() {
+                        return new HashSet<GenericPatternMatch>(parallelMatcher.getAllMatches());
+                    }
+                }));
+            }
+            for (Future<Set<GenericPatternMatch>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
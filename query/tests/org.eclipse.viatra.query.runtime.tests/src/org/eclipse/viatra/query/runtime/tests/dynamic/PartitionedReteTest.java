@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineOptions;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel.DynamicQuerySpecification;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests queries evaluated by a Rete network partitioned across multiple containers, against a single-threaded
+ * network on the same model.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class PartitionedReteTest {
+
+    private DynamicTestModel model;
+    private AdvancedViatraQueryEngine partitionedEngine;
+    private AdvancedViatraQueryEngine referenceEngine;
+
+    @Before
+    public void setUp() throws ViatraQueryException {
+        model = new DynamicTestModel();
+        partitionedEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope(),
+                ViatraQueryEngineOptions.defineOptions().withDefaultBackend(new ReteBackendFactory(3)).build());
+        referenceEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope(),
+                ViatraQueryEngineOptions.defineOptions().withDefaultBackend(new ReteBackendFactory()).build());
+    }
+
+    @After
+    public void tearDown() {
+        partitionedEngine.dispose();
+        referenceEngine.dispose();
+    }
+
+    @Test
+    public void testQueriesAcrossContainers() throws ViatraQueryException {
+        List<EObject> nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 9; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+
+        // queries sharing input relations are assigned to different containers
+        GenericPatternMatcher nodeMatcher = model.nodeQuery().getMatcher(partitionedEngine);
+        GenericPatternMatcher edgeMatcher = model.edgeQuery().getMatcher(partitionedEngine);
+        DynamicQuerySpecification twoStepsQuery = model.twoStepsQuery();
+        GenericPatternMatcher twoStepsMatcher = twoStepsQuery.getMatcher(partitionedEngine);
+        GenericPatternMatcher referenceTwoStepsMatcher = twoStepsQuery.getMatcher(referenceEngine);
+
+        assertEquals(11, nodeMatcher.countMatches());
+        assertEquals(9, edgeMatcher.countMatches());
+        assertEquals(8, twoStepsMatcher.countMatches());
+
+        model.link(nodes.get(9), nodes.get(0));
+        model.unlink(nodes.get(4), nodes.get(5));
+        model.deleteNode(nodes.get(7));
+        EObject extraNode = model.createNode();
+        model.link(nodes.get(3), extraNode);
+
+        assertEquals(11, nodeMatcher.countMatches());
+        assertEquals(8, edgeMatcher.countMatches());
+        assertEquals(new HashSet<Object>(referenceTwoStepsMatcher.getAllMatches()),
+                new HashSet<Object>(twoStepsMatcher.getAllMatches()));
+    }
+
+    @Test
+    public void testPatternCallsAcrossContainers() throws ViatraQueryException {
+        List<EObject> nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(model.createNode());
+        }
+        for (int i = 0; i < 9; i++) {
+            model.link(nodes.get(i), nodes.get(i + 1));
+        }
+        model.link(nodes.get(2), nodes.get(6));
+
+        // the called pattern is built in a different container than its callers,
+        // so the join and the aggregation are fed from a remote production
+        List<DynamicQuerySpecification> queries = new ArrayList<DynamicQuerySpecification>();
+        queries.add(model.threeStepsQuery());
+        queries.add(model.twoStepsCountQuery());
+        List<GenericPatternMatcher> matchers = new ArrayList<GenericPatternMatcher>();
+        List<GenericPatternMatcher> referenceMatchers = new ArrayList<GenericPatternMatcher>();
+        for (DynamicQuerySpecification query : queries) {
+            matchers.add(query.getMatcher(partitionedEngine));
+            referenceMatchers.add(query.getMatcher(referenceEngine));
+        }
+
+        assertEquals(10, matchers.get(0).countMatches());
+        assertSameMatches(referenceMatchers, matchers);
+
+        model.link(nodes.get(9), nodes.get(0));
+        model.unlink(nodes.get(4), nodes.get(5));
+        model.deleteNode(nodes.get(7));
+        EObject extraNode = model.createNode();
+        model.link(nodes.get(3), extraNode);
+        model.link(extraNode, nodes.get(1));
+
+        assertSameMatches(referenceMatchers, matchers);
+    }
+
+    private void assertSameMatches(List<GenericPatternMatcher> expectedMatchers,
+            List<GenericPatternMatcher> actualMatchers) {
+        for (int i = 0; i < expectedMatchers.size(); i++) {
+            assertEquals(new HashSet<Object>(expectedMatchers.get(i).getAllMatches()),
+                    new HashSet<Object>(actualMatchers.get(i).getAllMatches()));
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.dynamic.DynamicTestModel.DynamicQuerySpecification;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the transitive closure checks of local search against Rete, with repeated queries between model
+ * modifications.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class TransitiveClosureCheckTest {
+
+    private DynamicTestModel model;
+    private AdvancedViatraQueryEngine reteEngine;
+    private AdvancedViatraQueryEngine sequentialEngine;
+    private AdvancedViatraQueryEngine parallelEngine;
+    private List<EObject> nodes;
+    private Random random;
+    private GenericPatternMatcher reteMatcher;
+    private GenericPatternMatcher sequentialMatcher;
+    private GenericPatternMatcher parallelMatcher;
+
+    @Before
+    public void setUp() throws ViatraQueryException {
+        model = new DynamicTestModel();
+        // an engine evaluates a query with a single backend, so each backend gets its own engine
+        reteEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        sequentialEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        parallelEngine = AdvancedViatraQueryEngine.createUnmanagedEngine(model.getScope());
+        nodes = new ArrayList<EObject>();
+        for (int i = 0; i < 60; i++) {
+            nodes.add(model.createNode());
+        }
+        random = new Random(42);
+        for (int i = 0; i < 70; i++) {
+            linkRandomly();
+        }
+        DynamicQuerySpecification reachableQuery = model.reachableQuery();
+        reteMatcher = reteEngine.getMatcher(reachableQuery, new QueryEvaluationHint(null, new ReteBackendFactory()));
+        sequentialMatcher = sequentialEngine.getMatcher(reachableQuery, LocalSearchHints.getDefault().build());
+        parallelMatcher = parallelEngine.getMatcher(reachableQuery,
+                LocalSearchHints.getDefault().setParallelExecution(true).build());
+    }
+
+    @After
+    public void tearDown() {
+        reteEngine.dispose();
+        sequentialEngine.dispose();
+        parallelEngine.dispose();
+    }
+
+    @Test
+    public void testSameMatchesAsRete() {
+        for (int round = 0; round < 5; round++) {
+            assertSameMatches(sequentialMatcher);
+            assertSameMatches(parallelMatcher);
+            for (int i = 0; i < 10; i++) {
+                linkRandomly();
+            }
+            EObject source = nodes.get(random.nextInt(nodes.size()));
+            List<?> targets = (List<?>) source.eGet(model.next);
+            if (!targets.isEmpty()) {
+                model.unlink(source, (EObject) targets.get(0));
+            }
+        }
+    }
+
+    @Test
+    public void testBoundSource() {
+        for (EObject source : nodes) {
+            GenericPatternMatch partialMatch = reteMatcher.newMatch(source, null);
+            assertEquals(new HashSet<GenericPatternMatch>(reteMatcher.getAllMatches(partialMatch)),
+                    new HashSet<GenericPatternMatch>(sequentialMatcher.getAllMatches(partialMatch)));
+        }
+    }
+
+    @Test
+    public void testBoundSourceAndTarget() {
+        for (int i = 0; i < 200; i++) {
+            GenericPatternMatch match = reteMatcher.newMatch(nodes.get(random.nextInt(nodes.size())),
+                    nodes.get(random.nextInt(nodes.size())));
+            assertEquals(reteMatcher.hasMatch(match), sequentialMatcher.hasMatch(match));
+        }
+    }
+
+    @Test
+    public void testModificationBetweenCalls() {
+        EObject source = model.createNode();
+        EObject middle = model.createNode();
+        EObject target = model.createNode();
+        model.link(source, middle);
+        GenericPatternMatch match = reteMatcher.newMatch(source, target);
+        assertFalse(sequentialMatcher.hasMatch(match));
+        // the search from the source is not continued with its state from the previous call
+        model.link(middle, target);
+        assertTrue(sequentialMatcher.hasMatch(match));
+        model.unlink(source, middle);
+        assertFalse(sequentialMatcher.hasMatch(match));
+    }
+
+    private void assertSameMatches(GenericPatternMatcher matcher) {
+        assertEquals(new HashSet<GenericPatternMatch>(reteMatcher.getAllMatches()),
+                new HashSet<GenericPatternMatch>(matcher.getAllMatches()));
+    }
+
+    private void linkRandomly() {
+        model.link(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())));
+    }
+
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.evm.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * The footprint of firing an activation: the objects read and the objects written by its jobs. The objects are
+ * arbitrary keys chosen by the jobs, e.g. model elements, structural features or pairs of them; two footprints only
+ * interact through equal objects.
+ *
+ * <p>
+ * Two activations are independent if neither of them writes an object read or written by the other; such
+ * activations may be computed in parallel by the {@link ParallelExecutor}.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public final class ActivationFootprint {
+
+    private final Set<Object> readObjects;
+    private final Set<Object> writtenObjects;
+
+    /**
+     * Creates a footprint of the given objects; the written objects need not be repeated among the read ones.
+     */
+    public ActivationFootprint(Set<?> readObjects, Set<?> writtenObjects) {
+        this.readObjects = ImmutableSet.copyOf(checkNotNull(readObjects, "Read objects cannot be null!"));
+        this.writtenObjects = ImmutableSet.copyOf(checkNotNull(writtenObjects, "Written objects cannot be null!"));
+    }
+
+    /**
+     * @return the objects read by the activation
+     */
+    public Set<Object> getReadObjects() {
+        return readObjects;
+    }
+
+    /**
+     * @return the objects written by the activation
+     */
+    public Set<Object> getWrittenObjects() {
+        return writtenObjects;
+    }
+
+    /**
+     * @return true if either of the footprints writes an object read or written by the other
+     */
+    public boolean conflictsWith(ActivationFootprint other) {
+        return conflictsWith(other.readObjects, other.writtenObjects);
+    }
+
+    /**
+     * @return true if this footprint writes one of the given objects, or reads one of the given written objects
+     */
+    public boolean conflictsWith(Set<?> otherReadObjects, Set<?> otherWrittenObjects) {
+        return !Collections.disjoint(writtenObjects, otherReadObjects)
+                || !Collections.disjoint(writtenObjects, otherWrittenObjects)
+                || !Collections.disjoint(readObjects, otherWrittenObjects);
+    }
+
+    /**
+     * @return a footprint containing the objects of both footprints
+     */
+    public ActivationFootprint union(ActivationFootprint other) {
+        return new ActivationFootprint(Sets.union(readObjects, other.readObjects), Sets.union(writtenObjects,
+                other.writtenObjects));
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("read", readObjects).add("written", writtenObjects).toString();
+    }
+}
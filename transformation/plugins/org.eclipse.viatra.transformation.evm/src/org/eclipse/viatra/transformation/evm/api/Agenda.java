@@ -15,6 +15,7 @@ import java.util.Collection;
 
 import org.apache.log4j.Logger;
 import org.eclipse.viatra.transformation.evm.api.event.ActivationState;
+import org.eclipse.viatra.transformation.evm.api.resolver.BulkChangeableConflictSet;
 import org.eclipse.viatra.transformation.evm.api.resolver.ChangeableConflictSet;
 import org.eclipse.viatra.transformation.evm.api.resolver.ConflictResolver;
 import org.eclipse.viatra.transformation.evm.api.resolver.ConflictSetUpdater;
@@ -96,8 +97,12 @@ public class Agenda {
 
     public void setConflictResolver(final ConflictResolver resolver) {
         final ChangeableConflictSet set = resolver.createConflictSet();
-        for (final Activation<?> act : conflictSet.getConflictingActivations()) {
-            set.addActivation(act);
+        if (set instanceof BulkChangeableConflictSet) {
+            ((BulkChangeableConflictSet) set).addActivations(conflictSet.getConflictingActivations());
+        } else {
+            for (final Activation<?> act : conflictSet.getConflictingActivations()) {
+                set.addActivation(act);
+            }
         }
         updatingListener = new ConflictSetUpdater(set);
         this.conflictSet = set;
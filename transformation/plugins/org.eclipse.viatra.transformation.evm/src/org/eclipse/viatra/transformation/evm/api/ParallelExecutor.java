@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.evm.api;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+
+/**
+ * An {@link IExecutor} that fires independent activations in parallel. Activations whose jobs are all
+ * {@link ParallelizableJob}s with known footprints are collected into batches of activations with pairwise disjoint
+ * footprints (see {@link ActivationFootprint}). The computations of a batch run on the given executor service; once
+ * all of them are finished, the activations are fired one by one on the calling thread, in the order of the iterator,
+ * committing the computed results. Thus the model is only modified on the calling thread, and the query engine sees
+ * the same sequence of updates as with the {@link Executor}.
+ *
+ * <p>
+ * Other activations are fired sequentially, after the pending batch. An activation that gets disabled by the commit
+ * of an earlier activation of its batch is not fired, and its computed result is dropped.
+ *
+ * <p>
+ * Iterators that return the next activation of a conflict set (see {@link ConflictSetIterator}) return the same
+ * activation until it is fired; in this case the batch is fired when an activation is returned again, and the
+ * activation is not fired twice.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class ParallelExecutor implements IExecutor {
+
+    /**
+     * The default limit of the number of activations computed in a single batch.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+    /**
+     * The key of the results computed for the current batch in the {@link Context}.
+     */
+    private static final String COMPUTED_RESULTS_KEY = ParallelExecutor.class.getName() + ".computedResults";
+
+    private final Context context;
+    private final ExecutorService executorService;
+    private final int maxBatchSize;
+
+    /**
+     * Creates an executor computing batches on the given executor service, which is not shut down by this executor.
+     */
+    public ParallelExecutor(ExecutorService executorService) {
+        this(executorService, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Creates an executor computing batches of at most the given size on the given executor service, which is not
+     * shut down by this executor.
+     */
+    public ParallelExecutor(ExecutorService executorService, int maxBatchSize) {
+        checkArgument(maxBatchSize > 0, "Batch size must be positive!");
+        this.context = Context.create();
+        this.executorService = checkNotNull(executorService, "Executor service cannot be null!");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public Context getContext() {
+        return context;
+    }
+
+    @Override
+    public void startExecution(String transactionID) {
+    }
+
+    @Override
+    public void execute(Iterator<Activation<?>> activations) {
+        List<Activation<?>> batch = new ArrayList<Activation<?>>();
+        Set<Activation<?>> batchActivations = Sets.newIdentityHashSet();
+        Set<Object> batchReadObjects = new HashSet<Object>();
+        Set<Object> batchWrittenObjects = new HashSet<Object>();
+        while (activations.hasNext()) {
+            Activation<?> activation = activations.next();
+            if (batchActivations.contains(activation)) {
+                // returned again as it was not fired yet
+                fireBatch(batch);
+            } else {
+                ActivationFootprint footprint = getFootprint(activation);
+                if (footprint == null) {
+                    fireBatch(batch);
+                    activation.fire(context);
+                } else {
+                    if (batch.size() >= maxBatchSize
+                            || footprint.conflictsWith(batchReadObjects, batchWrittenObjects)) {
+                        fireBatch(batch);
+                        batchActivations.clear();
+                        batchReadObjects.clear();
+                        batchWrittenObjects.clear();
+                    }
+                    batch.add(activation);
+                    batchActivations.add(activation);
+                    batchReadObjects.addAll(footprint.getReadObjects());
+                    batchWrittenObjects.addAll(footprint.getWrittenObjects());
+                    continue;
+                }
+            }
+            batchActivations.clear();
+            batchReadObjects.clear();
+            batchWrittenObjects.clear();
+        }
+        fireBatch(batch);
+    }
+
+    @Override
+    public void endExecution(String transactionID) {
+    }
+
+    /**
+     * @return the union of the footprints of the jobs of the activation, or null if it is not parallelizable
+     */
+    private static <EventAtom> ActivationFootprint getFootprint(Activation<EventAtom> activation) {
+        if (!activation.isEnabled()) {
+            return null;
+        }
+        Collection<Job<EventAtom>> jobs = activation.getInstance().getSpecification()
+                .getJobs(activation.getState());
+        ActivationFootprint result = null;
+        for (Job<EventAtom> job : jobs) {
+            if (!(job instanceof ParallelizableJob)) {
+                return null;
+            }
+            ActivationFootprint footprint = ((ParallelizableJob<EventAtom>) job).getFootprint(activation);
+            if (footprint == null) {
+                return null;
+            }
+            result = (result == null) ? footprint : result.union(footprint);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the jobs of the activations of the batch in parallel, then fires the activations and clears the batch.
+     */
+    private void fireBatch(List<Activation<?>> batch) {
+        if (batch.size() > 1) {
+            Table<Activation<?>, Job<?>, Future<Object>> results = HashBasedTable.create();
+            List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+            List<Activation<?>> taskActivations = new ArrayList<Activation<?>>();
+            List<Job<?>> taskJobs = new ArrayList<Job<?>>();
+            for (Activation<?> activation : batch) {
+                createTasks(activation, tasks, taskActivations, taskJobs);
+            }
+            try {
+                List<Future<Object>> futures = executorService.invokeAll(tasks);
+                for (int i = 0; i < futures.size(); i++) {
+                    results.put(taskActivations.get(i), taskJobs.get(i), futures.get(i));
+                }
+            } catch (InterruptedException e) {
+                // the jobs are computed on this thread while firing
+                Thread.currentThread().interrupt();
+            }
+            context.put(COMPUTED_RESULTS_KEY, results);
+            try {
+                for (Activation<?> activation : batch) {
+                    activation.fire(context);
+                }
+            } finally {
+                context.remove(COMPUTED_RESULTS_KEY);
+            }
+        } else if (batch.size() == 1) {
+            batch.get(0).fire(context);
+        }
+        batch.clear();
+    }
+
+    private static <EventAtom> void createTasks(final Activation<EventAtom> activation,
+            List<Callable<Object>> tasks, List<Activation<?>> taskActivations, List<Job<?>> taskJobs) {
+        for (Job<EventAtom> job : activation.getInstance().getSpecification().getJobs(activation.getState())) {
+            final ParallelizableJob<EventAtom> parallelizableJob = (ParallelizableJob<EventAtom>) job;
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return parallelizableJob.compute(activation);
+                }
+            });
+            taskActivations.add(activation);
+            taskJobs.add(job);
+        }
+    }
+
+    /**
+     * Returns the result computed in advance for the job and activation, or computes it if there is none.
+     * Exceptions thrown by the computation are rethrown, so that they are handled by the job.
+     */
+    static <EventAtom> Object getComputedResult(ParallelizableJob<EventAtom> job,
+            Activation<? extends EventAtom> activation, Context context) {
+        @SuppressWarnings("unchecked")
+        Table<Activation<?>, Job<?>, Future<Object>> results = (Table<Activation<?>, Job<?>, Future<Object>>) context
+                .get(COMPUTED_RESULTS_KEY);
+        Future<Object> future = (results == null) ? null : results.remove(activation, job);
+        if (future == null || future.isCancelled()) {
+            return job.compute(activation);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return job.compute(activation);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Exception " + cause.getMessage() + " was thrown when computing "
+                    + activation, cause);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.evm.api;
+
+import org.eclipse.viatra.transformation.evm.api.event.ActivationState;
+
+/**
+ * A job that is split into a computation, which only reads the model and may run on a worker thread, and a commit,
+ * which applies the result of the computation to the model on the firing thread. Given the footprint of the job, the
+ * {@link ParallelExecutor} computes independent activations in parallel; other executors simply perform the two
+ * steps one after the other.
+ *
+ * <p>
+ * The computation must neither modify the model nor access the query engine or the {@link Context}, as these are not
+ * thread-safe; everything it needs has to be reachable from the activation.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public abstract class ParallelizableJob<EventAtom> extends Job<EventAtom> {
+
+    /**
+     * Creates a new job corresponding to the given state.
+     */
+    protected ParallelizableJob(final ActivationState activationState) {
+        super(activationState);
+    }
+
+    /**
+     * Returns the objects read by the computation and written by the commit of this job for the given activation.
+     *
+     * @param activation
+     * @return the footprint, or null if it is unknown, in which case the activation is fired sequentially
+     */
+    public abstract ActivationFootprint getFootprint(final Activation<? extends EventAtom> activation);
+
+    /**
+     * Computes the result of the job for the given activation; may be called on a worker thread.
+     *
+     * @param activation
+     * @return the result passed to {@link #commit}
+     */
+    protected abstract Object compute(final Activation<? extends EventAtom> activation);
+
+    /**
+     * Applies the result of the computation; called on the firing thread, in the order of firing.
+     *
+     * @param activation
+     * @param result
+     *            the value returned by {@link #compute}
+     * @param context
+     */
+    protected abstract void commit(final Activation<? extends EventAtom> activation, final Object result,
+            final Context context);
+
+    /**
+     * Commits the result computed in advance by the {@link ParallelExecutor}, or computes it now if there is none.
+     */
+    @Override
+    protected final void execute(final Activation<? extends EventAtom> activation, final Context context) {
+        commit(activation, ParallelExecutor.getComputedResult(this, activation, context), context);
+    }
+
+}
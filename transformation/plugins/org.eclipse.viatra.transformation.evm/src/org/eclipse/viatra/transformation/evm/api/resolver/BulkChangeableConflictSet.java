@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.evm.api.resolver;
+
+import java.util.Collection;
+
+import org.eclipse.viatra.transformation.evm.api.Activation;
+
+/**
+ * A conflict set that can add many activations at once more efficiently than one by one.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public interface BulkChangeableConflictSet extends ChangeableConflictSet {
+
+    /**
+     * Adds each of the given activations, with the same semantics as {@link #addActivation(Activation)}.
+     *
+     * @param activations the activations that should be added to the conflict set
+     * @return true, if the conflict set changed
+     */
+    boolean addActivations(Collection<? extends Activation<?>> activations);
+
+}
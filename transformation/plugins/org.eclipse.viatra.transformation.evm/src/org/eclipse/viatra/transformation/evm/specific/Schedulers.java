@@ -10,8 +10,11 @@
  *******************************************************************************/
 package org.eclipse.viatra.transformation.evm.specific;
 
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.viatra.query.runtime.api.ViatraQueryEngine;
 import org.eclipse.viatra.query.runtime.api.scope.IBaseIndex;
+import org.eclipse.viatra.transformation.evm.specific.scheduler.DebouncingScheduler.DebouncingSchedulerFactory;
 import org.eclipse.viatra.transformation.evm.specific.scheduler.TimedScheduler.TimedSchedulerFactory;
 import org.eclipse.viatra.transformation.evm.specific.scheduler.UpdateCompleteBasedScheduler.UpdateCompleteBasedSchedulerFactory;
 import org.eclipse.viatra.transformation.evm.update.IQBaseCallbackUpdateCompleteProvider;
@@ -53,6 +56,23 @@ public final class Schedulers {
         return new UpdateCompleteBasedSchedulerFactory(provider);
     }
 
+    /**
+     * Creates a scheduler factory that creates schedulers coalescing the model updates on the given engine:
+     *  an execution is scheduled once there were no updates for the debounce delay, but at most the maximal
+     *  latency after the first update.
+     * 
+     * @param engine
+     * @param debounceDelay in milliseconds
+     * @param maxLatency in milliseconds
+     * @since 1.6
+     */
+    public static DebouncingSchedulerFactory getDebouncingSchedulerFactory(final ViatraQueryEngine engine,
+            long debounceDelay, long maxLatency) {
+        QueryEngineUpdateCompleteProvider provider;
+        provider = new QueryEngineUpdateCompleteProvider(engine);
+        return new DebouncingSchedulerFactory(provider, debounceDelay, maxLatency, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Creates a scheduler factory with the given interval.
      * @param interval
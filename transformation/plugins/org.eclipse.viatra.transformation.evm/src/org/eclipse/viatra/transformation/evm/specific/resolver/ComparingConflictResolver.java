@@ -12,19 +12,22 @@ package org.eclipse.viatra.transformation.evm.specific.resolver;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.SortedSet;
 
 import org.eclipse.viatra.transformation.evm.api.Activation;
-import org.eclipse.viatra.transformation.evm.api.resolver.ChangeableConflictSet;
+import org.eclipse.viatra.transformation.evm.api.resolver.BulkChangeableConflictSet;
 import org.eclipse.viatra.transformation.evm.api.resolver.ConflictResolver;
-
-import com.google.common.collect.Sets;
+import org.eclipse.viatra.transformation.evm.specific.resolver.impl.IndexedActivationHeap;
 
 /**
+ * A conflict resolver ordering the activations by a comparator. The conflict sets keep the activations in an
+ * {@link IndexedActivationHeap}; activations that are equal according to the comparator are ordered by the time they
+ * were enabled.
+ * 
  * @author Abel Hegedus
  *
  */
@@ -48,33 +51,39 @@ public class ComparingConflictResolver implements ConflictResolver {
         return comparator;
     }
     
-    public class ComparingConflictSet implements ChangeableConflictSet {
+    public class ComparingConflictSet implements BulkChangeableConflictSet {
     
-        private SortedSet<Activation<?>> set;
+        private IndexedActivationHeap heap;
         
         protected ComparingConflictSet(Comparator<Activation<?>> comparator) {
             checkArgument(comparator != null, "Comparator cannot be null!");
-            set = Sets.newTreeSet(comparator);
+            heap = new IndexedActivationHeap(comparator);
         }
         
         @Override
         public Activation<?> getNextActivation() {
-            if(!set.isEmpty()) {
-                return set.first();
-            }
-            return null;
+            return heap.peek();
         }
     
         @Override
         public boolean addActivation(Activation<?> activation) {
             checkArgument(activation != null, "Activation cannot be null!");
-            return set.add(activation);
+            return heap.add(activation);
+        }
+    
+        /**
+         * @since 1.6
+         */
+        @Override
+        public boolean addActivations(Collection<? extends Activation<?>> activations) {
+            checkArgument(activations != null, "Activations cannot be null!");
+            return heap.addAll(activations);
         }
     
         @Override
         public boolean removeActivation(Activation<?> activation) {
             checkArgument(activation != null, "Activation cannot be null!");
-            return set.remove(activation);
+            return heap.remove(activation);
         }
 
         @Override
@@ -89,9 +98,12 @@ public class ComparingConflictResolver implements ConflictResolver {
             return Collections.unmodifiableSet(hashSet);
         }
 
+        /**
+         * Returns all conflicting activations, in no particular order.
+         */
         @Override
         public Set<Activation<?>> getConflictingActivations() {
-            return Collections.unmodifiableSet(set);
+            return heap.asSet();
         }
         
     }
@@ -15,6 +15,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -34,6 +35,11 @@ import com.google.common.collect.Sets;
  * Integer valued priorities assigned to rules.
  * The activations of rules with the lowest priority value will be the next activations.
  * 
+ * <p>
+ * The activations are kept in insertion-ordered buckets sorted by priority, so the next activation is found in
+ * logarithmic time of the number of priorities, and activations of the same priority are fired in the order they
+ * were enabled.
+ * 
  * See {@link FixedPriorityConflictResolver} for more details.
  * 
  * @author Abel Hegedus
@@ -53,7 +59,8 @@ public class FixedPriorityConflictSet implements ChangeableConflictSet {
         Multimap<Integer, Activation<?>> multimap = Multimaps.newSetMultimap(treeMap, new Supplier<Set<Activation<?>>>() {
             @Override
             public Set<Activation<?>> get() {
-                return new HashSet<Activation<?>>();
+                // the first element of a drained HashSet is found by scanning its table
+                return new LinkedHashSet<Activation<?>>();
             }
         });
         this.priorityBuckets = multimap;
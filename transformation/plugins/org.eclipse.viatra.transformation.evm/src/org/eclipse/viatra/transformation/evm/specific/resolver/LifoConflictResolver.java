@@ -40,6 +40,10 @@ public class LifoConflictResolver implements ConflictResolver {
         private static final String ACTIVATION_CANNOT_BE_NULL = "Activation cannot be null!";
         private LifoConflictResolver resolver;
         private Deque<Activation<?>> activations = new ArrayDeque<Activation<?>>();
+        /**
+         * The activations of the queue, to avoid scanning it for activations that are not in it
+         */
+        private Set<Activation<?>> members = new HashSet<Activation<?>>();
 
         public LifoConflictSet(LifoConflictResolver resolver) {
             this.resolver = resolver;
@@ -79,7 +83,9 @@ public class LifoConflictResolver implements ConflictResolver {
             } else {
                 // activation may already be in the queue, but never more than
                 // once (see JavaDoc of method)
-                activations.remove(activation);
+                if (!members.add(activation)) {
+                    activations.remove(activation);
+                }
                 activations.push(activation);
                 // if the first activation changes, we consider it
                 return true;
@@ -90,7 +96,7 @@ public class LifoConflictResolver implements ConflictResolver {
         @Override
         public boolean removeActivation(Activation<?> activation) {
             checkArgument(activation != null, ACTIVATION_CANNOT_BE_NULL);
-            return activations.remove(activation);
+            return members.remove(activation) && activations.remove(activation);
         }
     }
 }
\ No newline at end of file
@@ -11,7 +11,7 @@
 package org.eclipse.viatra.transformation.evm.specific.resolver.impl;
 
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.eclipse.viatra.transformation.evm.api.Activation;
@@ -19,7 +19,7 @@ import org.eclipse.viatra.transformation.evm.api.resolver.ChangeableConflictSet;
 
 public abstract class HashSetBasedConflictSetImpl implements ChangeableConflictSet {
 	
-	protected Set<Activation<?>> container = new HashSet<Activation<?>>();
+	protected Set<Activation<?>> container = new LinkedHashSet<Activation<?>>();
 
 	@Override
 	public Set<Activation<?>> getConflictingActivations() {
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.evm.specific.resolver.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.transformation.evm.api.Activation;
+
+/**
+ * A binary min-heap of activations ordered by a comparator, indexed by the activations, so that adding and removing
+ * an arbitrary activation takes O(log n) time and the least activation is available in O(1) time. Activations that
+ * are equal according to the comparator are ordered by the time of their addition.
+ *
+ * <p>
+ * Adding many activations at once with {@link #addAll(Collection)} rebuilds the heap in linear time.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class IndexedActivationHeap {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Comparator<Activation<?>> comparator;
+    private final Map<Activation<?>, Integer> positions = new HashMap<Activation<?>, Integer>();
+    private Activation<?>[] heap = new Activation<?>[INITIAL_CAPACITY];
+    /**
+     * the number of the addition of the activation at the same position of the heap, used to break ties
+     */
+    private long[] sequence = new long[INITIAL_CAPACITY];
+    private int size = 0;
+    private long nextSequence = 0;
+
+    public IndexedActivationHeap(Comparator<Activation<?>> comparator) {
+        checkArgument(comparator != null, "Comparator cannot be null!");
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(Activation<?> activation) {
+        return positions.containsKey(activation);
+    }
+
+    /**
+     * @return the least activation, or null if the heap is empty
+     */
+    public Activation<?> peek() {
+        return (size == 0) ? null : heap[0];
+    }
+
+    /**
+     * @return an unmodifiable view of the activations in the heap, in no particular order
+     */
+    public Set<Activation<?>> asSet() {
+        return Collections.unmodifiableSet(positions.keySet());
+    }
+
+    /**
+     * @return true if the activation was not in the heap
+     */
+    public boolean add(Activation<?> activation) {
+        if (positions.containsKey(activation)) {
+            return false;
+        }
+        int position = append(activation);
+        siftUp(position);
+        return true;
+    }
+
+    /**
+     * Adds the given activations; if they outnumber the activations already in the heap, the heap is rebuilt in
+     * linear time instead of inserting them one by one.
+     *
+     * @return true if any of the activations was not in the heap
+     */
+    public boolean addAll(Collection<? extends Activation<?>> activations) {
+        if (activations.size() <= size) {
+            boolean changed = false;
+            for (Activation<?> activation : activations) {
+                changed |= add(activation);
+            }
+            return changed;
+        }
+        int oldSize = size;
+        for (Activation<?> activation : activations) {
+            if (!positions.containsKey(activation)) {
+                append(activation);
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        return size != oldSize;
+    }
+
+    /**
+     * @return true if the activation was in the heap
+     */
+    public boolean remove(Activation<?> activation) {
+        Integer position = positions.remove(activation);
+        if (position == null) {
+            return false;
+        }
+        int last = --size;
+        if (position != last) {
+            move(last, position);
+            heap[last] = null;
+            siftDown(position);
+            siftUp(position);
+        } else {
+            heap[last] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Restores the position of an activation whose ordering may have changed.
+     */
+    public void update(Activation<?> activation) {
+        Integer position = positions.get(activation);
+        if (position != null) {
+            siftDown(position);
+            siftUp(positions.get(activation));
+        }
+    }
+
+    public void clear() {
+        positions.clear();
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+    }
+
+    private int append(Activation<?> activation) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            sequence = Arrays.copyOf(sequence, size * 2);
+        }
+        int position = size++;
+        heap[position] = activation;
+        sequence[position] = nextSequence++;
+        positions.put(activation, position);
+        return position;
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        sequence[to] = sequence[from];
+        positions.put(heap[to], to);
+    }
+
+    private boolean less(int left, int right) {
+        int result = comparator.compare(heap[left], heap[right]);
+        return result < 0 || (result == 0 && sequence[left] < sequence[right]);
+    }
+
+    private void swap(int left, int right) {
+        Activation<?> activation = heap[left];
+        long activationSequence = sequence[left];
+        move(right, left);
+        heap[right] = activation;
+        sequence[right] = activationSequence;
+        positions.put(activation, right);
+    }
+
+    private void siftUp(int position) {
+        int current = position;
+        while (current > 0) {
+            int parent = (current - 1) / 2;
+            if (!less(current, parent)) {
+                return;
+            }
+            swap(current, parent);
+            current = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        int current = position;
+        while (true) {
+            int child = 2 * current + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && less(child + 1, child)) {
+                child++;
+            }
+            if (!less(child, current)) {
+                return;
+            }
+            swap(current, child);
+            current = child;
+        }
+    }
+}
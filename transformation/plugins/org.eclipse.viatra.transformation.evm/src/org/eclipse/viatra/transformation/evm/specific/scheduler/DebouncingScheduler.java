@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.evm.specific.scheduler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.viatra.transformation.evm.api.ScheduledExecution;
+import org.eclipse.viatra.transformation.evm.api.Scheduler;
+import org.eclipse.viatra.transformation.evm.update.IUpdateCompleteListener;
+import org.eclipse.viatra.transformation.evm.update.IUpdateCompleteProvider;
+
+/**
+ * A scheduler that coalesces bursts of update complete events: it schedules its execution once no event was received
+ * for the debounce delay, but at most the maximal latency after the first pending event. The executions are
+ * scheduled on an executor service, which may be shared by many schedulers.
+ *
+ * <p>
+ * If an execution takes longer than the current debounce delay, the delay is doubled (up to the maximal latency), so
+ * that the scheduler backs off under load; it is halved back towards the configured delay after quicker executions.
+ *
+ * <p>
+ * The activations are fired on the threads of the executor service, like with the {@link TimedScheduler}; the model
+ * must not be modified concurrently with the executions. The executions of a scheduler never overlap: the next
+ * execution for the events received during an execution is scheduled when it ends.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class DebouncingScheduler extends Scheduler implements IUpdateCompleteListener {
+
+    private final IUpdateCompleteProvider provider;
+    private final ScheduledExecutorService executorService;
+    private final long debounceDelay;
+    private final long maxLatency;
+
+    private long currentDelay;
+    /**
+     * the number of update complete events since the last execution
+     */
+    private int pendingEvents = 0;
+    private long firstPendingTime;
+    /**
+     * the time the execution is due, if there are pending events
+     */
+    private long deadline;
+    private ScheduledFuture<?> future = null;
+    /**
+     * whether an execution is in progress; it schedules the next execution when it ends, so that executions never
+     * overlap, even on an executor service with many threads
+     */
+    private boolean running = false;
+    private boolean disposed = false;
+
+    private long executionCount = 0;
+    private long eventCount = 0;
+    private long lastLatency = 0;
+    private long maxObservedLatency = 0;
+    private long totalLatency = 0;
+    private long lastExecutionTime = 0;
+
+    private final Runnable firingTask = new Runnable() {
+        @Override
+        public void run() {
+            fire();
+        }
+    };
+
+    /**
+     * Creates a scheduler for the given execution, with the debounce delay and maximal latency given in nanoseconds.
+     */
+    protected DebouncingScheduler(final ScheduledExecution execution, final IUpdateCompleteProvider provider,
+            final ScheduledExecutorService executorService, final long debounceDelay, final long maxLatency) {
+        super(execution);
+        this.provider = provider;
+        this.executorService = executorService;
+        this.debounceDelay = debounceDelay;
+        this.maxLatency = maxLatency;
+        this.currentDelay = debounceDelay;
+    }
+
+    @Override
+    public void updateComplete() {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (disposed) {
+                return;
+            }
+            eventCount++;
+            if (pendingEvents++ == 0) {
+                firstPendingTime = now;
+            }
+            deadline = Math.min(now + currentDelay, firstPendingTime + maxLatency);
+            if (future == null && !running) {
+                // an already scheduled task reschedules itself if the deadline was postponed
+                submit(deadline - now);
+            }
+        }
+    }
+
+    private void submit(long delay) {
+        try {
+            future = executorService.schedule(firingTask, delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            future = null;
+            getExecution().getRuleBase().getLogger().error("Executor service rejected the scheduling of " + this, e);
+        }
+    }
+
+    private void fire() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            if (disposed || pendingEvents == 0) {
+                future = null;
+                return;
+            }
+            if (start < deadline) {
+                submit(deadline - start);
+                return;
+            }
+            future = null;
+            running = true;
+            long latency = start - firstPendingTime;
+            pendingEvents = 0;
+            executionCount++;
+            lastLatency = latency;
+            maxObservedLatency = Math.max(maxObservedLatency, latency);
+            totalLatency += latency;
+        }
+        try {
+            schedule();
+        } finally {
+            long end = System.nanoTime();
+            long executionTime = end - start;
+            synchronized (this) {
+                running = false;
+                lastExecutionTime = executionTime;
+                if (executionTime > currentDelay) {
+                    currentDelay = Math.min(Math.max(1, currentDelay * 2), maxLatency);
+                } else {
+                    currentDelay = Math.max(debounceDelay, currentDelay / 2);
+                }
+                if (!disposed && pendingEvents > 0) {
+                    // events received during the execution
+                    submit(Math.max(0, deadline - end));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of update complete events waiting for the next execution
+     */
+    public synchronized int getPendingEventCount() {
+        return pendingEvents;
+    }
+
+    /**
+     * @return the number of update complete events received
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return the number of executions scheduled
+     */
+    public synchronized long getExecutionCount() {
+        return executionCount;
+    }
+
+    /**
+     * @return the time between the first pending event and the start of the last execution
+     */
+    public synchronized long getLastLatency(TimeUnit unit) {
+        return unit.convert(lastLatency, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the largest time between the first pending event and the start of an execution
+     */
+    public synchronized long getMaxLatency(TimeUnit unit) {
+        return unit.convert(maxObservedLatency, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the average time between the first pending event and the start of an execution
+     */
+    public synchronized long getAverageLatency(TimeUnit unit) {
+        return (executionCount == 0) ? 0 : unit.convert(totalLatency / executionCount, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the duration of the last execution
+     */
+    public synchronized long getLastExecutionTime(TimeUnit unit) {
+        return unit.convert(lastExecutionTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the current debounce delay, which is larger than the configured one while backing off
+     */
+    public synchronized long getCurrentDelay(TimeUnit unit) {
+        return unit.convert(currentDelay, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void dispose() {
+        provider.removeUpdateCompleteListener(this);
+        synchronized (this) {
+            disposed = true;
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+        super.dispose();
+    }
+
+    @Override
+    public String toString() {
+        return "DebouncingScheduler [delay: " + TimeUnit.NANOSECONDS.toMillis(debounceDelay) + "ms, max latency: "
+                + TimeUnit.NANOSECONDS.toMillis(maxLatency) + "ms]";
+    }
+
+    /**
+     * This scheduler factory implementation uses an update complete provider that sends notifications to the
+     * prepared schedulers, which schedule their executions on the given executor service.
+     *
+     * @author Kristof Marussy
+     *
+     */
+    public static class DebouncingSchedulerFactory implements ISchedulerFactory {
+
+        private final IUpdateCompleteProvider provider;
+        private final ScheduledExecutorService executorService;
+        private final long debounceDelay;
+        private final long maxLatency;
+
+        /**
+         * Creates a scheduler factory using the {@link SharedSchedulerExecutor}.
+         *
+         * @param provider
+         * @param debounceDelay
+         *            the time without events after which the execution is scheduled
+         * @param maxLatency
+         *            the maximal time between the first pending event and the execution
+         * @param unit
+         *            the unit of the delays
+         */
+        public DebouncingSchedulerFactory(final IUpdateCompleteProvider provider, final long debounceDelay,
+                final long maxLatency, final TimeUnit unit) {
+            this(provider, SharedSchedulerExecutor.getExecutorService(), debounceDelay, maxLatency, unit);
+        }
+
+        /**
+         * Creates a scheduler factory using the given executor service.
+         *
+         * @param provider
+         * @param executorService
+         * @param debounceDelay
+         *            the time without events after which the execution is scheduled
+         * @param maxLatency
+         *            the maximal time between the first pending event and the execution
+         * @param unit
+         *            the unit of the delays
+         */
+        public DebouncingSchedulerFactory(final IUpdateCompleteProvider provider,
+                final ScheduledExecutorService executorService, final long debounceDelay, final long maxLatency,
+                final TimeUnit unit) {
+            checkArgument(debounceDelay >= 0, "Debounce delay cannot be negative!");
+            checkArgument(maxLatency >= debounceDelay, "Maximal latency cannot be less than the debounce delay!");
+            this.provider = checkNotNull(provider, "Update complete provider cannot be null!");
+            this.executorService = checkNotNull(executorService, "Executor service cannot be null!");
+            this.debounceDelay = unit.toNanos(debounceDelay);
+            this.maxLatency = unit.toNanos(maxLatency);
+        }
+
+        /**
+         * @return the provider
+         */
+        public IUpdateCompleteProvider getProvider() {
+            return provider;
+        }
+
+        @Override
+        public Scheduler prepareScheduler(final ScheduledExecution execution) {
+            DebouncingScheduler scheduler = new DebouncingScheduler(execution, provider, executorService,
+                    debounceDelay, maxLatency);
+            provider.addUpdateCompleteListener(scheduler, true);
+            return scheduler;
+        }
+
+    }
+
+}
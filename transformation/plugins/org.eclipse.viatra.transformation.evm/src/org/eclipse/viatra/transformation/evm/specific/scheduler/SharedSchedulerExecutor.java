@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.evm.specific.scheduler;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the executor service shared by the time-based schedulers by default. Its threads are daemon threads that
+ * are stopped when idle, so the executor service never has to be shut down.
+ *
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public final class SharedSchedulerExecutor {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private SharedSchedulerExecutor() {
+    }
+
+    /**
+     * Lazily initialized holder of the shared executor service.
+     */
+    private static final class Holder {
+        private static final ScheduledExecutorService INSTANCE = createExecutorService();
+    }
+
+    /**
+     * @return the shared executor service
+     */
+    public static ScheduledExecutorService getExecutorService() {
+        return Holder.INSTANCE;
+    }
+
+    private static ScheduledExecutorService createExecutorService() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Runtime.getRuntime()
+                .availableProcessors(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "VIATRA EVM scheduler " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
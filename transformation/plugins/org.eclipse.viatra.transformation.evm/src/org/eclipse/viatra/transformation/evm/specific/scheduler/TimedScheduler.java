@@ -10,19 +10,27 @@
  *******************************************************************************/
 package org.eclipse.viatra.transformation.evm.specific.scheduler;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.viatra.transformation.evm.api.ScheduledExecution;
 import org.eclipse.viatra.transformation.evm.api.Scheduler;
 
 /**
  * A timed scheduler is similar to the {@link UpdateCompleteBasedScheduler} but it schedules in a periodic manner.
  *  One must define the interval between two consecutive scheduling calls.
+ *  
+ * <p>
+ * The scheduling is performed on an executor service with a fixed delay between the end of a scheduling and the
+ *  start of the next one; by default, the {@link SharedSchedulerExecutor} is used instead of a thread per scheduler.
  * 
  * @author Tamas Szabo
  * 
  */
 public class TimedScheduler extends Scheduler {
     private long interval;
-    private volatile boolean interrupted = false;
+    private final ScheduledFuture<?> future;
     
     /**
      * Creates a timed scheduler for the given Scheduled execution and interval.
@@ -31,42 +39,42 @@ public class TimedScheduler extends Scheduler {
      * @param interval
      */
     protected TimedScheduler(final ScheduledExecution execution, final long interval) {
-        super(execution);
-        this.interval = interval;
-        new FiringThread().start();
+        this(execution, interval, SharedSchedulerExecutor.getExecutorService());
     }
 
     /**
-     * Internal thread class for scheduling at predefined intervals.
+     * Creates a timed scheduler for the given Scheduled execution and interval, scheduling on the given executor
+     *  service.
      * 
-     * @author Abel Hegedus
-     *
+     * @param execution
+     * @param interval
+     * @param executorService
+     * @since 1.6
      */
-    private class FiringThread extends Thread {
-
-        public FiringThread() {
-            this.setName("TimedFiringStrategy [interval: " + interval + "]");
-        }
-
-        @Override
-        public void run() {
-            while (!interrupted) {
+    protected TimedScheduler(final ScheduledExecution execution, final long interval,
+            final ScheduledExecutorService executorService) {
+        super(execution);
+        this.interval = interval;
+        // the delay of periodic tasks must be positive
+        this.future = executorService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
                 schedule();
-                try {
-                    Thread.sleep(interval);
-                } catch (InterruptedException e) {
-                    // e.printStackTrace();
-                }
             }
-        }
+        }, 0, Math.max(1, interval), TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void dispose() {
-        interrupted = true;
+        future.cancel(false);
         super.dispose();
     }
     
+    @Override
+    public String toString() {
+        return "TimedScheduler [interval: " + interval + "]";
+    }
+    
     /**
      * Scheduler factory implementation for preparing timed schedulers.
      * 
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.runtime.emf.changemonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.eclipse.viatra.query.runtime.api.IPatternMatch;
+import org.eclipse.viatra.query.runtime.api.IQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryMatcher;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.LinkedHashMultiset;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+
+/**
+ * An append-only log of match changes, read by any number of {@link Reader}s, each with its own checkpoint. The
+ * entries are stored once, regardless of the number of readers, until every reader has read them.
+ * 
+ * <p>
+ * Each reader keeps the net changes since its checkpoint, with the same semantics as the accumulating
+ * {@link ChangeMonitor}: a disappearance cancels an earlier appearance and one earlier update of the same match. The
+ * entries are folded into the net changes of a reader when its delta is requested, so each entry is processed once per
+ * reader. Once {@link #COMPACTION_THRESHOLD} entries are retained, they are folded into the net changes of every reader
+ * and dropped; hence the log does not grow with changes that cancel each other, even if some readers are not read for
+ * a long time.
+ * 
+ * <p>
+ * The log is thread-safe: changes may be appended and read on different threads.
+ * 
+ * @author Kristof Marussy
+ * @since 1.6
+ */
+public class ChangeLog {
+
+    /**
+     * The kinds of the entries of the log.
+     */
+    public enum ChangeKind {
+        APPEARED, UPDATED, DISAPPEARED
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The number of retained entries after which all readers read the log, so that the entries can be dropped.
+     */
+    public static final int COMPACTION_THRESHOLD = 1024;
+
+    private IPatternMatch[] matches = new IPatternMatch[INITIAL_CAPACITY];
+    private ChangeKind[] kinds = new ChangeKind[INITIAL_CAPACITY];
+    /**
+     * the index of the first retained entry in the arrays
+     */
+    private int head = 0;
+    /**
+     * the index after the last entry in the arrays
+     */
+    private int tail = 0;
+    /**
+     * the offset of the entry at index 0 of the arrays
+     */
+    private long baseOffset = 0;
+
+    private final List<Reader> readers = new ArrayList<Reader>();
+
+    /**
+     * Appends a change to the log. Without readers, the change is not retained, as no reader could ever read it.
+     */
+    public synchronized void append(ChangeKind kind, IPatternMatch match) {
+        Preconditions.checkArgument(kind != null, "Change kind cannot be null!");
+        Preconditions.checkArgument(match != null, "Match cannot be null!");
+        if (readers.isEmpty()) {
+            // the log is empty, as the last reader truncated it when it was disposed
+            baseOffset++;
+            return;
+        }
+        if (tail == matches.length) {
+            makeRoom();
+        }
+        matches[tail] = match;
+        kinds[tail] = kind;
+        tail++;
+        if (tail - head >= COMPACTION_THRESHOLD) {
+            for (Reader reader : readers) {
+                reader.fold();
+            }
+            truncate();
+        }
+    }
+
+    /**
+     * Moves the retained entries to the start of the arrays if at least half of the arrays is free, otherwise grows
+     * the arrays.
+     */
+    private void makeRoom() {
+        int size = tail - head;
+        if (head >= matches.length / 2) {
+            System.arraycopy(matches, head, matches, 0, size);
+            System.arraycopy(kinds, head, kinds, 0, size);
+            Arrays.fill(matches, size, tail, null);
+            Arrays.fill(kinds, size, tail, null);
+            baseOffset += head;
+            head = 0;
+            tail = size;
+        } else {
+            matches = Arrays.copyOf(matches, matches.length * 2);
+            kinds = Arrays.copyOf(kinds, kinds.length * 2);
+        }
+    }
+
+    /**
+     * @return the offset after the last entry of the log
+     */
+    public synchronized long getEndOffset() {
+        return baseOffset + tail;
+    }
+
+    /**
+     * @return the number of entries retained by the log
+     */
+    public synchronized int getRetainedEntryCount() {
+        return tail - head;
+    }
+
+    /**
+     * Creates a reader whose checkpoint is the current end of the log. Readers that are no longer used should be
+     * disposed, otherwise the log retains the entries since their checkpoints.
+     */
+    public synchronized Reader createReader() {
+        Reader reader = new Reader(getEndOffset());
+        readers.add(reader);
+        return reader;
+    }
+
+    /**
+     * Drops the entries read by all readers.
+     */
+    private void truncate() {
+        long minOffset = getEndOffset();
+        for (Reader reader : readers) {
+            minOffset = Math.min(minOffset, reader.readOffset);
+        }
+        int newHead = (int) (minOffset - baseOffset);
+        if (newHead > head) {
+            Arrays.fill(matches, head, newHead, null);
+            Arrays.fill(kinds, head, newHead, null);
+            head = newHead;
+        }
+        if (head == tail) {
+            baseOffset += head;
+            head = 0;
+            tail = 0;
+        }
+    }
+
+    /**
+     * Creates a multimap whose values are kept in multisets, so that removing a match takes constant time.
+     */
+    private static <K, V> Multimap<K, V> createMultimap() {
+        return Multimaps.newMultimap(new LinkedHashMap<K, Collection<V>>(), new Supplier<Collection<V>>() {
+            @Override
+            public Collection<V> get() {
+                return LinkedHashMultiset.create();
+            }
+        });
+    }
+
+    private static <K, V> Multimap<K, V> copy(Multimap<K, V> multimap) {
+        Multimap<K, V> result = createMultimap();
+        result.putAll(multimap);
+        return result;
+    }
+
+    /**
+     * A consumer of the log with its own checkpoint.
+     * 
+     * @author Kristof Marussy
+     */
+    public final class Reader {
+
+        private long checkpoint;
+        /**
+         * the offset after the last entry folded into the net changes
+         */
+        private long readOffset;
+        private boolean disposed = false;
+
+        private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> appeared = createMultimap();
+        private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> updated = createMultimap();
+        private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> disappeared = createMultimap();
+
+        private Reader(long checkpoint) {
+            this.checkpoint = checkpoint;
+            this.readOffset = checkpoint;
+        }
+
+        /**
+         * @return the offset of the checkpoint of the reader in the log
+         */
+        public long getCheckpoint() {
+            synchronized (ChangeLog.this) {
+                return checkpoint;
+            }
+        }
+
+        /**
+         * Folds the entries not read yet into the net changes. Must be called while holding the lock of the log.
+         */
+        private void fold() {
+            for (int i = (int) (readOffset - baseOffset); i < tail; i++) {
+                IPatternMatch match = matches[i];
+                @SuppressWarnings("unchecked")
+                IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>> specification = (IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>) match
+                        .specification();
+                switch (kinds[i]) {
+                case APPEARED:
+                    appeared.put(specification, match);
+                    break;
+                case UPDATED:
+                    updated.put(specification, match);
+                    break;
+                case DISAPPEARED:
+                    updated.remove(specification, match);
+                    if (!appeared.remove(specification, match)) {
+                        disappeared.put(specification, match);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown change kind " + kinds[i]);
+                }
+            }
+            readOffset = getEndOffset();
+        }
+
+        /**
+         * @return the changes since the checkpoint of this reader
+         */
+        public ChangeDelta getDelta() {
+            synchronized (ChangeLog.this) {
+                Preconditions.checkState(!disposed, "Reader is disposed!");
+                fold();
+                truncate();
+                return new ChangeDelta(copy(appeared), copy(updated), copy(disappeared));
+            }
+        }
+
+        /**
+         * Moves the checkpoint of this reader to the end of the log, dropping the entries no longer needed by any
+         * reader.
+         * 
+         * @return the changes between the previous and the new checkpoint
+         */
+        public ChangeDelta createCheckpoint() {
+            synchronized (ChangeLog.this) {
+                Preconditions.checkState(!disposed, "Reader is disposed!");
+                fold();
+                ChangeDelta delta = new ChangeDelta(appeared, updated, disappeared);
+                appeared = createMultimap();
+                updated = createMultimap();
+                disappeared = createMultimap();
+                checkpoint = readOffset;
+                truncate();
+                return delta;
+            }
+        }
+
+        /**
+         * Unregisters the reader from the log, so that it no longer retains entries.
+         */
+        public void dispose() {
+            synchronized (ChangeLog.this) {
+                if (!disposed) {
+                    disposed = true;
+                    readers.remove(this);
+                    appeared = null;
+                    updated = null;
+                    disappeared = null;
+                    truncate();
+                }
+            }
+        }
+    }
+}
@@ -10,7 +10,6 @@
  *******************************************************************************/
 package org.eclipse.viatra.transformation.runtime.emf.changemonitor;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -36,7 +35,6 @@ import org.eclipse.viatra.transformation.evm.specific.job.EnableJob;
 import org.eclipse.viatra.transformation.evm.specific.job.StatelessJob;
 import org.eclipse.viatra.transformation.evm.specific.scheduler.UpdateCompleteBasedScheduler.UpdateCompleteBasedSchedulerFactory;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
@@ -51,17 +49,16 @@ import com.google.common.collect.Sets;
  * By default the monitor accumulates the changes of the defined QuerySpecifications, this behavior, however can be
  * overridden via inheritance.
  * 
+ * The changes are recorded in a {@link ChangeLog}; besides the checkpoints of the monitor itself, any number of
+ * consumers may track the changes from their own checkpoints using readers created by {@link #createReader()}.
+ * 
  * @author Lunk Péter
  *
  */
 @SuppressWarnings("unchecked")
 public class ChangeMonitor extends IChangeMonitor {
-    private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> appearBetweenCheckpoints;
-    private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> updateBetweenCheckpoints;
-    private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> disappearBetweenCheckpoints;
-    private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> appearAccumulator;
-    private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> updateAccumulator;
-    private Multimap<IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>, IPatternMatch> disappearAccumulator;
+    private final ChangeLog changeLog;
+    private final ChangeLog.Reader checkpointReader;
     private Set<RuleSpecification<IPatternMatch>> rules;
     private Map<IQuerySpecification<?>, RuleSpecification<IPatternMatch>> specs;
     private Set<Job<?>> allJobs;
@@ -78,12 +75,8 @@ public class ChangeMonitor extends IChangeMonitor {
      */
     public ChangeMonitor(ViatraQueryEngine engine) {
         super(engine);
-        this.appearBetweenCheckpoints = ArrayListMultimap.create();
-        this.updateBetweenCheckpoints = ArrayListMultimap.create();
-        this.disappearBetweenCheckpoints = ArrayListMultimap.create();
-        this.appearAccumulator = ArrayListMultimap.create();
-        this.updateAccumulator = ArrayListMultimap.create();
-        this.disappearAccumulator = ArrayListMultimap.create();
+        this.changeLog = new ChangeLog();
+        this.checkpointReader = changeLog.createReader();
 
         allJobs = new HashSet<Job<?>>();
         rules = new HashSet<RuleSpecification<IPatternMatch>>();
@@ -170,14 +163,7 @@ public class ChangeMonitor extends IChangeMonitor {
      */
     @Override
     public ChangeDelta createCheckpoint() {
-        appearBetweenCheckpoints = appearAccumulator;
-        updateBetweenCheckpoints = updateAccumulator;
-        disappearBetweenCheckpoints = disappearAccumulator;
-        appearAccumulator = ArrayListMultimap.create();
-        updateAccumulator = ArrayListMultimap.create();
-        disappearAccumulator = ArrayListMultimap.create();
-
-        return new ChangeDelta(appearBetweenCheckpoints, updateBetweenCheckpoints, disappearBetweenCheckpoints);
+        return checkpointReader.createCheckpoint();
     }
 
     /**
@@ -186,7 +172,25 @@ public class ChangeMonitor extends IChangeMonitor {
      */
     @Override
     public ChangeDelta getDeltaSinceLastCheckpoint() {
-        return new ChangeDelta(appearAccumulator, updateAccumulator, disappearAccumulator);
+        return checkpointReader.getDelta();
+    }
+
+    /**
+     * Creates a reader of the changes with its own checkpoint, initially at the current state of the model. The
+     * reader should be disposed when it is no longer used.
+     * 
+     * @since 1.6
+     */
+    public ChangeLog.Reader createReader() {
+        return changeLog.createReader();
+    }
+
+    /**
+     * @return the log recording the changes of the model
+     * @since 1.6
+     */
+    public ChangeLog getChangeLog() {
+        return changeLog;
     }
 
     /**
@@ -269,11 +273,7 @@ public class ChangeMonitor extends IChangeMonitor {
      * @param match
      */
     protected void registerUpdate(IPatternMatch match) {
-        IQuerySpecification<? extends ViatraQueryMatcher<? extends IPatternMatch>> specification = match.specification();
-        Collection<IPatternMatch> updateMatches = updateAccumulator
-                .get((IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>) specification);        	
-        updateMatches.add(match);
-        
+        changeLog.append(ChangeLog.ChangeKind.UPDATED, match);
     }
 
     /**
@@ -282,10 +282,7 @@ public class ChangeMonitor extends IChangeMonitor {
      * @param match
      */
     protected void registerAppear(IPatternMatch match) {
-        IQuerySpecification<? extends ViatraQueryMatcher<? extends IPatternMatch>> specification = match.specification();
-        Collection<IPatternMatch> appearMatches = appearAccumulator
-                .get((IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>) specification);
-        appearMatches.add(match);
+        changeLog.append(ChangeLog.ChangeKind.APPEARED, match);
     }
 
     /**
@@ -294,26 +291,6 @@ public class ChangeMonitor extends IChangeMonitor {
      * @param match
      */
     protected void registerDisappear(IPatternMatch match) {
-        IQuerySpecification<? extends ViatraQueryMatcher<? extends IPatternMatch>> specification = match.specification();
-        
-        Collection<IPatternMatch> appearMatches = appearAccumulator
-                .get((IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>) specification);
-        Collection<IPatternMatch> updateMatches = updateAccumulator
-                .get((IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>) specification);
-        Collection<IPatternMatch> disappearMatches = disappearAccumulator
-                .get((IQuerySpecification<? extends ViatraQueryMatcher<IPatternMatch>>) specification);
-        
-        if (updateMatches.contains(match))
-            updateMatches.remove(match);
-        
-        if (appearMatches.contains(match)){
-        	appearMatches.remove(match);
-        }else{
-        	disappearMatches.add(match);
-        }
-        
-            
-        
-        
+        changeLog.append(ChangeLog.ChangeKind.DISAPPEARED, match);
     }
 }
@@ -13,6 +13,7 @@ package org.eclipse.viatra.transformation.runtime.emf.transformation.batch;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.eclipse.viatra.query.runtime.api.GenericQueryGroup;
 import org.eclipse.viatra.query.runtime.api.IQuerySpecification;
@@ -22,6 +23,7 @@ import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
 import org.eclipse.viatra.transformation.evm.api.Context;
 import org.eclipse.viatra.transformation.evm.api.Executor;
 import org.eclipse.viatra.transformation.evm.api.IExecutor;
+import org.eclipse.viatra.transformation.evm.api.ParallelExecutor;
 import org.eclipse.viatra.transformation.evm.api.RuleEngine;
 import org.eclipse.viatra.transformation.evm.api.adapter.AdaptableEVM;
 import org.eclipse.viatra.transformation.evm.api.adapter.AdaptableEVMFactory;
@@ -59,6 +61,7 @@ public class BatchTransformation {
         private Set<BatchTransformationRule<?, ?>> rules = Sets.newHashSet();
         private List<IEVMListener> listeners = Lists.newArrayList();
         private List<IEVMAdapter> adapters = Lists.newArrayList();
+        private ExecutorService executorService;
 
         public BatchTransformationBuilder setQueryEngine(ViatraQueryEngine engine) {
             this.engine = engine;
@@ -86,6 +89,18 @@ public class BatchTransformation {
             return this;
         }
 
+        /**
+         * Enables firing independent activations in parallel on the given executor service, see
+         * {@link ParallelExecutor}. Only activations of rules with parallelizable jobs are affected; if adapters or
+         * listeners are registered, the activations are fired sequentially.
+         * 
+         * @since 1.6
+         */
+        public BatchTransformationBuilder setExecutorService(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
         public BatchTransformationBuilder addRules(BatchTransformationRuleGroup ruleGroup) {
             for (BatchTransformationRule<?, ?> rule : ruleGroup) {
                 rules.add(rule);
@@ -103,7 +118,8 @@ public class BatchTransformation {
         }
 
         private BatchTransformation doBuild() throws ViatraQueryException {
-            final IExecutor executor = new Executor();
+            final IExecutor executor = (executorService == null) ? new Executor()
+                    : new ParallelExecutor(executorService);
             RuleEngine ruleEngine = RuleEngines.createViatraQueryRuleEngine(engine);
             return new BatchTransformation(ruleEngine, engine, executor);
         }
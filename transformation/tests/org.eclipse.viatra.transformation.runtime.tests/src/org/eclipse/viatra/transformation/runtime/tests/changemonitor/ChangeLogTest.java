@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.runtime.tests.changemonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.viatra.query.runtime.api.IPatternMatch;
+import org.eclipse.viatra.query.runtime.api.IQuerySpecification;
+import org.eclipse.viatra.transformation.runtime.emf.changemonitor.ChangeDelta;
+import org.eclipse.viatra.transformation.runtime.emf.changemonitor.ChangeLog;
+import org.eclipse.viatra.transformation.runtime.emf.changemonitor.ChangeLog.ChangeKind;
+import org.eclipse.viatra.transformation.runtime.emf.changemonitor.ChangeLog.Reader;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+
+/**
+ * Tests the readers of {@link ChangeLog}, the truncation of the log and the computed {@link ChangeDelta}s, which are
+ * compared to the changes accumulated by the original ChangeMonitor.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class ChangeLogTest {
+
+    private IQuerySpecification<?> firstSpecification;
+    private IQuerySpecification<?> secondSpecification;
+    private List<IPatternMatch> matches;
+    private ChangeLog log;
+
+    @Before
+    public void setUp() {
+        firstSpecification = mock(IQuerySpecification.class);
+        secondSpecification = mock(IQuerySpecification.class);
+        matches = new ArrayList<IPatternMatch>();
+        for (int i = 0; i < 4; i++) {
+            matches.add(createMatch((i < 2) ? firstSpecification : secondSpecification));
+        }
+        log = new ChangeLog();
+    }
+
+    private IPatternMatch createMatch(IQuerySpecification<?> specification) {
+        IPatternMatch match = mock(IPatternMatch.class);
+        doReturn(specification).when(match).specification();
+        return match;
+    }
+
+    /**
+     * The changes accumulated between two checkpoints by the original ChangeMonitor.
+     */
+    private static final class Accumulator {
+        private final Multimap<IQuerySpecification<?>, IPatternMatch> appeared = ArrayListMultimap.create();
+        private final Multimap<IQuerySpecification<?>, IPatternMatch> updated = ArrayListMultimap.create();
+        private final Multimap<IQuerySpecification<?>, IPatternMatch> disappeared = ArrayListMultimap.create();
+
+        public void register(ChangeKind kind, IPatternMatch match) {
+            IQuerySpecification<?> specification = match.specification();
+            switch (kind) {
+            case APPEARED:
+                appeared.put(specification, match);
+                break;
+            case UPDATED:
+                updated.put(specification, match);
+                break;
+            default:
+                updated.remove(specification, match);
+                if (!appeared.remove(specification, match)) {
+                    disappeared.put(specification, match);
+                }
+                break;
+            }
+        }
+    }
+
+    private void append(ChangeKind kind, int matchIndex) {
+        log.append(kind, matches.get(matchIndex));
+    }
+
+    /**
+     * @return the matches of the multimap grouped by specification, ignoring the order of the matches
+     */
+    private Map<Object, Multiset<IPatternMatch>> toMultisets(Multimap<?, IPatternMatch> multimap) {
+        Map<Object, Multiset<IPatternMatch>> result = new HashMap<Object, Multiset<IPatternMatch>>();
+        for (Map.Entry<?, IPatternMatch> entry : multimap.entries()) {
+            Multiset<IPatternMatch> values = result.get(entry.getKey());
+            if (values == null) {
+                values = HashMultiset.create();
+                result.put(entry.getKey(), values);
+            }
+            values.add(entry.getValue());
+        }
+        return result;
+    }
+
+    private void assertDelta(Accumulator expected, ChangeDelta actual) {
+        assertEquals(toMultisets(expected.appeared), toMultisets(actual.getAppeared()));
+        assertEquals(toMultisets(expected.updated), toMultisets(actual.getUpdated()));
+        assertEquals(toMultisets(expected.disappeared), toMultisets(actual.getDisappeared()));
+    }
+
+    private void assertDelta(ChangeDelta expected, ChangeDelta actual) {
+        assertEquals(toMultisets(expected.getAppeared()), toMultisets(actual.getAppeared()));
+        assertEquals(toMultisets(expected.getUpdated()), toMultisets(actual.getUpdated()));
+        assertEquals(toMultisets(expected.getDisappeared()), toMultisets(actual.getDisappeared()));
+    }
+
+    private void assertEmpty(ChangeDelta delta) {
+        assertDelta(new Accumulator(), delta);
+    }
+
+    private Multimap<IQuerySpecification<?>, IPatternMatch> multimap(int... matchIndices) {
+        Multimap<IQuerySpecification<?>, IPatternMatch> result = ArrayListMultimap.create();
+        for (int index : matchIndices) {
+            result.put(matches.get(index).specification(), matches.get(index));
+        }
+        return result;
+    }
+
+    @Test
+    public void testMultipleReaders() {
+        Reader first = log.createReader();
+        append(ChangeKind.APPEARED, 0);
+        Reader second = log.createReader();
+        assertEquals(0, first.getCheckpoint());
+        assertEquals(1, second.getCheckpoint());
+        append(ChangeKind.APPEARED, 2);
+        append(ChangeKind.UPDATED, 1);
+
+        ChangeDelta firstDelta = first.getDelta();
+        assertEquals(toMultisets(multimap(0, 2)), toMultisets(firstDelta.getAppeared()));
+        assertEquals(toMultisets(multimap(1)), toMultisets(firstDelta.getUpdated()));
+        ChangeDelta secondDelta = second.getDelta();
+        assertEquals(toMultisets(multimap(2)), toMultisets(secondDelta.getAppeared()));
+        assertEquals(toMultisets(multimap(1)), toMultisets(secondDelta.getUpdated()));
+
+        // moving the checkpoint of a reader does not affect the others
+        assertDelta(firstDelta, first.createCheckpoint());
+        assertEquals(3, first.getCheckpoint());
+        assertEmpty(first.getDelta());
+        assertDelta(secondDelta, second.getDelta());
+
+        // the deltas are snapshots
+        append(ChangeKind.DISAPPEARED, 2);
+        assertEquals(toMultisets(multimap(2)), toMultisets(secondDelta.getAppeared()));
+        assertEquals(toMultisets(multimap(2)), toMultisets(first.getDelta().getDisappeared()));
+        assertTrue(second.getDelta().getAppeared().isEmpty());
+        assertTrue(second.getDelta().getDisappeared().isEmpty());
+        assertEquals(toMultisets(multimap(2)), toMultisets(secondDelta.getAppeared()));
+    }
+
+    @Test
+    public void testTruncationOnCheckpoint() {
+        Reader first = log.createReader();
+        Reader second = log.createReader();
+        append(ChangeKind.APPEARED, 0);
+        append(ChangeKind.APPEARED, 1);
+        append(ChangeKind.UPDATED, 0);
+        assertEquals(3, log.getRetainedEntryCount());
+
+        // still retained for the other reader
+        first.createCheckpoint();
+        assertEquals(3, log.getRetainedEntryCount());
+        append(ChangeKind.DISAPPEARED, 1);
+        second.createCheckpoint();
+        assertEquals(1, log.getRetainedEntryCount());
+        first.createCheckpoint();
+        assertEquals(0, log.getRetainedEntryCount());
+        assertEquals(4, log.getEndOffset());
+
+        // the storage of the log is compacted and grown while the readers keep up with it
+        Accumulator expected = new Accumulator();
+        for (int i = 0; i < 1000; i++) {
+            ChangeKind kind = ChangeKind.values()[i % 3];
+            append(kind, i % matches.size());
+            expected.register(kind, matches.get(i % matches.size()));
+            if (i % 10 == 9) {
+                first.createCheckpoint();
+            }
+            if (i % 100 == 99) {
+                assertDelta(expected, second.createCheckpoint());
+                expected = new Accumulator();
+                assertTrue(log.getRetainedEntryCount() < 10);
+            }
+        }
+        assertEquals(1004, log.getEndOffset());
+        assertEquals(1004, second.getCheckpoint());
+    }
+
+    @Test
+    public void testReaderDisposal() {
+        Reader lagging = log.createReader();
+        Reader current = log.createReader();
+        for (int i = 0; i < 20; i++) {
+            append(ChangeKind.APPEARED, i % matches.size());
+            current.createCheckpoint();
+        }
+        assertEquals(20, log.getRetainedEntryCount());
+
+        lagging.dispose();
+        assertEquals(0, log.getRetainedEntryCount());
+        lagging.dispose();
+        try {
+            lagging.getDelta();
+            fail("Disposed reader should not compute deltas");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // without readers, the log does not retain entries, and new readers start at its end
+        current.dispose();
+        append(ChangeKind.UPDATED, 0);
+        append(ChangeKind.UPDATED, 1);
+        assertEquals(0, log.getRetainedEntryCount());
+        assertEquals(22, log.getEndOffset());
+        Reader late = log.createReader();
+        assertEquals(22, late.getCheckpoint());
+        assertEmpty(late.createCheckpoint());
+        assertEquals(0, log.getRetainedEntryCount());
+    }
+
+    @Test
+    public void testCancelledChangesCompacted() {
+        Reader lagging = log.createReader();
+        Reader current = log.createReader();
+        append(ChangeKind.APPEARED, 3);
+        Accumulator expected = new Accumulator();
+        expected.register(ChangeKind.APPEARED, matches.get(3));
+        for (int i = 0; i < 10 * ChangeLog.COMPACTION_THRESHOLD; i++) {
+            append(ChangeKind.APPEARED, 0);
+            append(ChangeKind.UPDATED, 0);
+            append(ChangeKind.DISAPPEARED, 0);
+            assertTrue(log.getRetainedEntryCount() < ChangeLog.COMPACTION_THRESHOLD);
+        }
+        append(ChangeKind.UPDATED, 3);
+        expected.register(ChangeKind.UPDATED, matches.get(3));
+
+        // neither reader was read, but the log only retains the entries since the last compaction
+        assertTrue(log.getRetainedEntryCount() < ChangeLog.COMPACTION_THRESHOLD);
+        assertDelta(expected, lagging.getDelta());
+        assertDelta(expected, current.createCheckpoint());
+        assertEmpty(current.getDelta());
+        assertDelta(expected, lagging.createCheckpoint());
+        assertEquals(0, log.getRetainedEntryCount());
+        assertEquals(2 + 30 * ChangeLog.COMPACTION_THRESHOLD, log.getEndOffset());
+    }
+
+    @Test
+    public void testCancellation() {
+        Reader reader = log.createReader();
+        append(ChangeKind.APPEARED, 0);
+        append(ChangeKind.DISAPPEARED, 0);
+        append(ChangeKind.UPDATED, 1);
+        append(ChangeKind.UPDATED, 1);
+        append(ChangeKind.DISAPPEARED, 1);
+        append(ChangeKind.DISAPPEARED, 2);
+        append(ChangeKind.APPEARED, 2);
+        ChangeDelta delta = reader.createCheckpoint();
+        // an appearance is cancelled by the disappearance, but an update is only removed once
+        assertEquals(toMultisets(multimap(2)), toMultisets(delta.getAppeared()));
+        assertEquals(toMultisets(multimap(1)), toMultisets(delta.getUpdated()));
+        assertEquals(toMultisets(multimap(1, 2)), toMultisets(delta.getDisappeared()));
+    }
+
+    @Test
+    public void testCancellationMatchesChangeMonitor() {
+        Reader reader = log.createReader();
+        Reader other = log.createReader();
+        Accumulator expected = new Accumulator();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            ChangeKind kind = ChangeKind.values()[random.nextInt(3)];
+            IPatternMatch match = matches.get(random.nextInt(matches.size()));
+            log.append(kind, match);
+            expected.register(kind, match);
+            if (random.nextInt(50) == 0) {
+                assertDelta(expected, reader.getDelta());
+                assertDelta(expected, reader.createCheckpoint());
+                expected = new Accumulator();
+            }
+            if (random.nextInt(20) == 0) {
+                other.createCheckpoint();
+            }
+        }
+        assertDelta(expected, reader.getDelta());
+    }
+
+}
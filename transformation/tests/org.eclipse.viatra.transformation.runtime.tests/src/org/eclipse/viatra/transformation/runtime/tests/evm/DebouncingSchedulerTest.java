@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.runtime.tests.evm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.viatra.transformation.evm.api.ScheduledExecution;
+import org.eclipse.viatra.transformation.evm.specific.scheduler.DebouncingScheduler;
+import org.eclipse.viatra.transformation.evm.specific.scheduler.DebouncingScheduler.DebouncingSchedulerFactory;
+import org.eclipse.viatra.transformation.evm.update.UpdateCompleteProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the coalescing of update complete events by the {@link DebouncingScheduler}, its maximal latency and back-off,
+ * and that its executions do not overlap on an executor service with many threads.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class DebouncingSchedulerTest {
+
+    private static final int THREAD_COUNT = 4;
+    private static final long TIMEOUT_MILLIS = 5000;
+    /**
+     * The allowed delay of the executor service in starting an execution.
+     */
+    private static final long SLACK_MILLIS = 250;
+
+    private static final class TestUpdateCompleteProvider extends UpdateCompleteProvider {
+        public void notifyUpdateComplete() {
+            updateCompleted();
+        }
+    }
+
+    /**
+     * Counts the executions instead of firing activations, and records whether they overlapped.
+     */
+    private static final class TestExecution extends ScheduledExecution {
+        private final AtomicInteger executionCount = new AtomicInteger();
+        private final AtomicInteger runningCount = new AtomicInteger();
+        private final AtomicInteger maxRunningCount = new AtomicInteger();
+        private volatile long executionMillis = 0;
+
+        public TestExecution() {
+            super(new TestEventRealm());
+        }
+
+        @Override
+        protected void schedule() {
+            int running = runningCount.incrementAndGet();
+            int max = maxRunningCount.get();
+            while (running > max && !maxRunningCount.compareAndSet(max, running)) {
+                max = maxRunningCount.get();
+            }
+            try {
+                Thread.sleep(executionMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executionCount.incrementAndGet();
+            runningCount.decrementAndGet();
+        }
+    }
+
+    private ScheduledExecutorService executorService;
+    private TestUpdateCompleteProvider provider;
+    private TestExecution execution;
+    private DebouncingScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        executorService = new ScheduledThreadPoolExecutor(THREAD_COUNT);
+        provider = new TestUpdateCompleteProvider();
+        execution = new TestExecution();
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Creates the scheduler, which receives an update complete event when added to the provider.
+     */
+    private void createScheduler(long debounceMillis, long maxLatencyMillis) {
+        scheduler = (DebouncingScheduler) new DebouncingSchedulerFactory(provider, executorService, debounceMillis,
+                maxLatencyMillis, TimeUnit.MILLISECONDS).prepareScheduler(execution);
+    }
+
+    private void awaitExecutions(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (execution.executionCount.get() < count) {
+            assertTrue("Timed out waiting for " + count + " executions", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitRunning() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (execution.runningCount.get() == 0) {
+            assertTrue("Timed out waiting for an execution", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits until the pending events are handled by executions that have finished.
+     */
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (scheduler.getPendingEventCount() > 0
+                || scheduler.getExecutionCount() > execution.executionCount.get()) {
+            assertTrue("Timed out waiting for the pending events", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Sends update complete events with the given interval for the given time.
+     */
+    private void sendEvents(long intervalMillis, long durationMillis) throws InterruptedException {
+        long end = System.currentTimeMillis() + durationMillis;
+        while (System.currentTimeMillis() < end) {
+            provider.notifyUpdateComplete();
+            Thread.sleep(intervalMillis);
+        }
+    }
+
+    @Test
+    public void testBurstCoalesced() throws InterruptedException {
+        createScheduler(100, TIMEOUT_MILLIS);
+        for (int i = 0; i < 10; i++) {
+            provider.notifyUpdateComplete();
+            Thread.sleep(5);
+        }
+        awaitExecutions(1);
+        Thread.sleep(300);
+        assertEquals(1, execution.executionCount.get());
+        assertEquals(1, scheduler.getExecutionCount());
+        assertEquals(11, scheduler.getEventCount());
+        assertEquals(0, scheduler.getPendingEventCount());
+        assertTrue(scheduler.getLastLatency(TimeUnit.MILLISECONDS) >= 100);
+    }
+
+    @Test
+    public void testMaxLatency() throws InterruptedException {
+        createScheduler(100, 300);
+        // the events are never far enough apart to allow an execution after the debounce delay
+        sendEvents(10, 1000);
+        assertTrue(execution.executionCount.get() >= 2);
+        assertTrue(scheduler.getMaxLatency(TimeUnit.MILLISECONDS) >= 300);
+        assertTrue(scheduler.getMaxLatency(TimeUnit.MILLISECONDS) <= 300 + SLACK_MILLIS);
+        assertEquals(100, scheduler.getCurrentDelay(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBackOffWithoutOverlappingExecutions() throws InterruptedException {
+        createScheduler(10, 100);
+        // slower than the debounce delay, and even than the maximal latency
+        execution.executionMillis = 150;
+        awaitRunning();
+        // received during the execution, and due long before it ends
+        provider.notifyUpdateComplete();
+        awaitIdle();
+        assertEquals(2, execution.executionCount.get());
+        assertEquals(1, execution.maxRunningCount.get());
+        // the delay is doubled after each slow execution
+        assertEquals(40, scheduler.getCurrentDelay(TimeUnit.MILLISECONDS));
+        assertTrue(scheduler.getLastExecutionTime(TimeUnit.MILLISECONDS) >= 150);
+
+        // up to the maximal latency
+        for (int i = 0; i < 3; i++) {
+            provider.notifyUpdateComplete();
+            awaitIdle();
+        }
+        assertEquals(100, scheduler.getCurrentDelay(TimeUnit.MILLISECONDS));
+
+        // quick executions halve the delay back to the configured one
+        execution.executionMillis = 0;
+        for (int i = 0; i < 10 && scheduler.getCurrentDelay(TimeUnit.MILLISECONDS) > 10; i++) {
+            provider.notifyUpdateComplete();
+            awaitIdle();
+        }
+        assertEquals(10, scheduler.getCurrentDelay(TimeUnit.MILLISECONDS));
+        assertEquals(1, execution.maxRunningCount.get());
+    }
+
+}
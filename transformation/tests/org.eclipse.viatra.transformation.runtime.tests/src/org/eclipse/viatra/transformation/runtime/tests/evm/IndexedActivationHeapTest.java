@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.runtime.tests.evm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.viatra.transformation.evm.api.Activation;
+import org.eclipse.viatra.transformation.evm.api.EventDrivenVM;
+import org.eclipse.viatra.transformation.evm.api.Job;
+import org.eclipse.viatra.transformation.evm.api.RuleEngine;
+import org.eclipse.viatra.transformation.evm.api.RuleSpecification;
+import org.eclipse.viatra.transformation.evm.specific.Jobs;
+import org.eclipse.viatra.transformation.evm.specific.Lifecycles;
+import org.eclipse.viatra.transformation.evm.specific.crud.CRUDActivationStateEnum;
+import org.eclipse.viatra.transformation.evm.specific.resolver.impl.IndexedActivationHeap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the ordering of activations by {@link IndexedActivationHeap}, including activations equal according to the
+ * comparator, which are ordered by the time of their addition.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class IndexedActivationHeapTest {
+
+    private static final int ACTIVATION_COUNT = 40;
+    private static final int PRIORITY_COUNT = 5;
+
+    /**
+     * Orders the activations by the priority of their atoms; activations of the same priority are equal.
+     */
+    private static final Comparator<Activation<?>> BY_PRIORITY = new Comparator<Activation<?>>() {
+        @Override
+        public int compare(Activation<?> left, Activation<?> right) {
+            return Integer.compare(((Item) left.getAtom()).priority, ((Item) right.getAtom()).priority);
+        }
+    };
+
+    private static final class Item {
+        private final int index;
+        private final int priority;
+
+        public Item(int index, int priority) {
+            this.index = index;
+            this.priority = priority;
+        }
+
+        @Override
+        public String toString() {
+            return "item" + index + "@" + priority;
+        }
+    }
+
+    private RuleEngine ruleEngine;
+    private List<Activation<?>> activations;
+    private IndexedActivationHeap heap;
+
+    @Before
+    public void setUp() {
+        TestEventRealm realm = new TestEventRealm();
+        ruleEngine = EventDrivenVM.createRuleEngine(realm);
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < ACTIVATION_COUNT; i++) {
+            Item item = new Item(i, (i * 7) % PRIORITY_COUNT);
+            items.add(item);
+            realm.appear(item);
+        }
+        Job<Object> job = Jobs.newNopJob(CRUDActivationStateEnum.CREATED);
+        RuleSpecification<Object> specification = new RuleSpecification<Object>(realm.sourceSpecification,
+                Lifecycles.getDefault(false, false), Collections.singleton(job));
+        ruleEngine.addRule(specification);
+        Map<Object, Activation<?>> activationsByAtom = new HashMap<Object, Activation<?>>();
+        for (Activation<?> activation : ruleEngine.getActivations(specification)) {
+            activationsByAtom.put(activation.getAtom(), activation);
+        }
+        activations = new ArrayList<Activation<?>>();
+        for (Item item : items) {
+            activations.add(activationsByAtom.get(item));
+        }
+        heap = new IndexedActivationHeap(BY_PRIORITY);
+    }
+
+    @After
+    public void tearDown() {
+        ruleEngine.dispose();
+    }
+
+    /**
+     * @return the activations in the heap from the least one, emptying the heap
+     */
+    private List<Activation<?>> drain() {
+        List<Activation<?>> result = new ArrayList<Activation<?>>();
+        while (!heap.isEmpty()) {
+            Activation<?> activation = heap.peek();
+            assertTrue(heap.remove(activation));
+            result.add(activation);
+        }
+        assertNull(heap.peek());
+        return result;
+    }
+
+    /**
+     * @return the given activations ordered by priority, then by their order in the list
+     */
+    private List<Activation<?>> sorted(List<Activation<?>> activationsInInsertionOrder) {
+        List<Activation<?>> result = new ArrayList<Activation<?>>(activationsInInsertionOrder);
+        // the sort is stable, thus it keeps the insertion order of equal activations
+        Collections.sort(result, BY_PRIORITY);
+        return result;
+    }
+
+    @Test
+    public void testTiesBrokenByInsertionOrder() {
+        List<Activation<?>> reversed = new ArrayList<Activation<?>>(activations);
+        Collections.reverse(reversed);
+        for (Activation<?> activation : reversed) {
+            assertTrue(heap.add(activation));
+        }
+        assertFalse(heap.add(reversed.get(0)));
+        assertEquals(ACTIVATION_COUNT, heap.size());
+        assertEquals(sorted(reversed), drain());
+
+        // an activation added again is ordered after the other activations of the same priority
+        Activation<?> first = activations.get(0);
+        Activation<?> second = activations.get(PRIORITY_COUNT);
+        Activation<?> third = activations.get(2 * PRIORITY_COUNT);
+        heap.add(first);
+        heap.add(second);
+        heap.add(third);
+        heap.remove(first);
+        heap.add(first);
+        assertEquals(Arrays.asList(second, third, first), drain());
+    }
+
+    @Test
+    public void testRemoveFromMiddle() {
+        for (Activation<?> activation : activations) {
+            heap.add(activation);
+        }
+        List<Activation<?>> remaining = new ArrayList<Activation<?>>(activations);
+        for (int i = ACTIVATION_COUNT / 2; i < ACTIVATION_COUNT; i += 3) {
+            Activation<?> activation = activations.get(i);
+            assertTrue(heap.remove(activation));
+            assertFalse(heap.remove(activation));
+            assertFalse(heap.contains(activation));
+            remaining.remove(activation);
+        }
+        assertEquals(remaining.size(), heap.size());
+        assertEquals(remaining.size(), heap.asSet().size());
+        assertSame(sorted(remaining).get(0), heap.peek());
+        assertEquals(sorted(remaining), drain());
+    }
+
+    @Test
+    public void testAddAllRebuild() {
+        // a few activations are added one by one, then the rest rebuilds the heap
+        List<Activation<?>> inserted = new ArrayList<Activation<?>>(activations.subList(0, 3));
+        for (Activation<?> activation : inserted) {
+            heap.add(activation);
+        }
+        List<Activation<?>> added = new ArrayList<Activation<?>>(activations.subList(2, ACTIVATION_COUNT));
+        Collections.reverse(added);
+        added.add(activations.get(ACTIVATION_COUNT - 1));
+        assertTrue(heap.addAll(added));
+        for (Activation<?> activation : added) {
+            if (!inserted.contains(activation)) {
+                inserted.add(activation);
+            }
+        }
+        assertEquals(ACTIVATION_COUNT, heap.size());
+        assertEquals(sorted(inserted), drain());
+
+        // only duplicates, added both by rebuilding and one by one
+        heap.add(activations.get(0));
+        assertFalse(heap.addAll(Arrays.asList(activations.get(0), activations.get(0))));
+        assertFalse(heap.addAll(Collections.singletonList(activations.get(0))));
+        assertEquals(1, heap.size());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        List<Activation<?>> inserted = new ArrayList<Activation<?>>();
+        for (int i = 0; i < 2000; i++) {
+            Activation<?> activation = activations.get(random.nextInt(ACTIVATION_COUNT));
+            switch (random.nextInt(4)) {
+            case 0:
+                assertEquals(inserted.remove(activation), heap.remove(activation));
+                break;
+            case 1:
+                Activation<?> least = heap.peek();
+                if (least != null) {
+                    assertSame(sorted(inserted).get(0), least);
+                    inserted.remove(least);
+                    heap.remove(least);
+                }
+                break;
+            case 2:
+                List<Activation<?>> batch = new ArrayList<Activation<?>>();
+                for (int j = random.nextInt(ACTIVATION_COUNT); j > 0; j--) {
+                    batch.add(activations.get(random.nextInt(ACTIVATION_COUNT)));
+                }
+                boolean changed = false;
+                for (Activation<?> added : batch) {
+                    if (!inserted.contains(added)) {
+                        inserted.add(added);
+                        changed = true;
+                    }
+                }
+                assertEquals(changed, heap.addAll(batch));
+                break;
+            default:
+                assertEquals(!inserted.contains(activation), heap.add(activation));
+                if (!inserted.contains(activation)) {
+                    inserted.add(activation);
+                }
+                break;
+            }
+            assertEquals(inserted.size(), heap.size());
+        }
+        assertEquals(sorted(inserted), drain());
+    }
+
+}
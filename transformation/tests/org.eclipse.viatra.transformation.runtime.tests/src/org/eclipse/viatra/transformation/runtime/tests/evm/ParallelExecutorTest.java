@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.runtime.tests.evm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.viatra.transformation.evm.api.Activation;
+import org.eclipse.viatra.transformation.evm.api.ActivationFootprint;
+import org.eclipse.viatra.transformation.evm.api.Context;
+import org.eclipse.viatra.transformation.evm.api.EventDrivenVM;
+import org.eclipse.viatra.transformation.evm.api.Executor;
+import org.eclipse.viatra.transformation.evm.api.IExecutor;
+import org.eclipse.viatra.transformation.evm.api.Job;
+import org.eclipse.viatra.transformation.evm.api.ParallelExecutor;
+import org.eclipse.viatra.transformation.evm.api.ParallelizableJob;
+import org.eclipse.viatra.transformation.evm.api.RuleEngine;
+import org.eclipse.viatra.transformation.evm.api.RuleSpecification;
+import org.eclipse.viatra.transformation.evm.api.event.EventFilter;
+import org.eclipse.viatra.transformation.evm.api.resolver.ScopedConflictSet;
+import org.eclipse.viatra.transformation.evm.specific.Lifecycles;
+import org.eclipse.viatra.transformation.evm.specific.crud.CRUDActivationStateEnum;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link ParallelExecutor} computes activations with disjoint footprints in parallel, while it
+ * commits them in the order of firing and computes conflicting activations only after the commits they depend on.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class ParallelExecutorTest {
+
+    private static final int THREAD_COUNT = 4;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * An event atom that adds its weight to the sum of the values it reads and writes the result to a single value.
+     */
+    private static final class Step {
+        private final String name;
+        private final Set<String> reads;
+        private final String write;
+        private final int weight;
+
+        public Step(String name, int weight, String write, String... reads) {
+            this.name = name;
+            this.weight = weight;
+            this.write = write;
+            this.reads = new HashSet<String>(Arrays.asList(reads));
+        }
+
+        public int compute(Map<String, Integer> values) {
+            int result = weight;
+            for (String read : reads) {
+                Integer value = values.get(read);
+                result += (value == null) ? 0 : value;
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final Map<String, Integer> values = new HashMap<String, Integer>();
+    /**
+     * the computations and commits of the steps in the order they happened
+     */
+    private final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    private final List<Step> commits = new ArrayList<Step>();
+    private final Set<Thread> computingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+    private CountDownLatch computationLatch = new CountDownLatch(0);
+    private final AtomicBoolean computationTimedOut = new AtomicBoolean(false);
+
+    private TestEventRealm realm;
+    private RuleEngine ruleEngine;
+    private RuleSpecification<Object> specification;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        realm = new TestEventRealm();
+        ruleEngine = EventDrivenVM.createRuleEngine(realm);
+        Job<Object> job = new ParallelizableJob<Object>(CRUDActivationStateEnum.CREATED) {
+            @Override
+            public ActivationFootprint getFootprint(Activation<? extends Object> activation) {
+                Step step = (Step) activation.getAtom();
+                return new ActivationFootprint(step.reads, Collections.singleton(step.write));
+            }
+
+            @Override
+            protected Object compute(Activation<? extends Object> activation) {
+                Step step = (Step) activation.getAtom();
+                computingThreads.add(Thread.currentThread());
+                log.add("compute " + step);
+                computationLatch.countDown();
+                try {
+                    // every step waits for the others, so that they only finish in time if computed in parallel
+                    if (!computationLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        computationTimedOut.set(true);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return step.compute(values);
+            }
+
+            @Override
+            protected void commit(Activation<? extends Object> activation, Object result, Context context) {
+                Step step = (Step) activation.getAtom();
+                log.add("commit " + step);
+                commits.add(step);
+                values.put(step.write, (Integer) result);
+            }
+
+            @Override
+            protected void handleError(Activation<? extends Object> activation, Exception exception,
+                    Context context) {
+                throw new IllegalStateException(exception);
+            }
+        };
+        specification = new RuleSpecification<Object>(realm.sourceSpecification, Lifecycles.getDefault(false, false),
+                Collections.singleton(job), "step");
+        executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        ruleEngine.dispose();
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Fires the current activations of the rule the same way as the fireAllCurrent statement of batch
+     * transformations, and returns the fired activations in the order of firing.
+     */
+    private List<Activation<?>> fireAllCurrent(IExecutor executor) {
+        EventFilter<Object> filter = specification.createEmptyFilter();
+        ruleEngine.addRule(specification, filter);
+        ScopedConflictSet conflictSet = ruleEngine.createScopedConflictSet(specification, filter);
+        List<Activation<?>> activations = new ArrayList<Activation<?>>(conflictSet.getConflictingActivations());
+        executor.execute(activations.iterator());
+        conflictSet.dispose();
+        ruleEngine.removeRule(specification, filter);
+        return activations;
+    }
+
+    private List<Step> getSteps(List<Activation<?>> activations) {
+        List<Step> steps = new ArrayList<Step>();
+        for (Activation<?> activation : activations) {
+            steps.add((Step) activation.getAtom());
+        }
+        return steps;
+    }
+
+    /**
+     * @return the values computed by firing the steps one after the other
+     */
+    private Map<String, Integer> computeSequentially(List<Step> steps, Map<String, Integer> initialValues) {
+        Map<String, Integer> result = new HashMap<String, Integer>(initialValues);
+        for (Step step : steps) {
+            result.put(step.write, step.compute(result));
+        }
+        return result;
+    }
+
+    @Test
+    public void testDisjointFootprintsComputedInParallel() {
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            values.put("in" + i, 10 * i);
+            realm.appear(new Step("step" + i, 1, "out" + i, "in" + i));
+        }
+        computationLatch = new CountDownLatch(THREAD_COUNT);
+
+        List<Step> fired = getSteps(fireAllCurrent(new ParallelExecutor(executorService)));
+        assertEquals(THREAD_COUNT, fired.size());
+        assertFalse(computationTimedOut.get());
+        assertFalse(computingThreads.contains(Thread.currentThread()));
+        assertEquals(fired, commits);
+        // all computations precede the commits
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            assertTrue(log.get(i).startsWith("compute"));
+            assertEquals("commit " + fired.get(i), log.get(THREAD_COUNT + i));
+            assertEquals(10 * i + 1, values.get("out" + i).intValue());
+        }
+    }
+
+    @Test
+    public void testConflictingFootprintsComputedAfterCommits() {
+        values.put("w", 5);
+        List<Step> steps = new ArrayList<Step>();
+        steps.add(new Step("a", 1, "x"));
+        steps.add(new Step("b", 2, "y", "x"));
+        steps.add(new Step("c", 3, "z", "y"));
+        steps.add(new Step("d", 4, "x"));
+        steps.add(new Step("e", 5, "v", "w"));
+        steps.add(new Step("f", 6, "w", "z"));
+        Map<String, Integer> initialValues = new HashMap<String, Integer>(values);
+        for (Step step : steps) {
+            realm.appear(step);
+        }
+
+        List<Step> fired = getSteps(fireAllCurrent(new ParallelExecutor(executorService)));
+        assertEquals(new HashSet<Step>(steps), new HashSet<Step>(fired));
+        assertEquals(fired, commits);
+        assertEquals(computeSequentially(fired, initialValues), values);
+
+        // a step is computed after the commits of the earlier steps it conflicts with
+        for (int i = 0; i < fired.size(); i++) {
+            Step later = fired.get(i);
+            ActivationFootprint laterFootprint = new ActivationFootprint(later.reads,
+                    Collections.singleton(later.write));
+            for (Step earlier : fired.subList(0, i)) {
+                if (laterFootprint.conflictsWith(earlier.reads, Collections.singleton(earlier.write))) {
+                    assertTrue(earlier + " must be committed before " + later + " is computed",
+                            log.indexOf("commit " + earlier) < log.indexOf("compute " + later));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequentialExecutor() {
+        for (int i = 0; i < 20; i++) {
+            realm.appear(new Step("step" + i, i, "v" + (i % 7), "v" + ((i * 3) % 7), "v" + ((i + 2) % 7)));
+        }
+        List<Step> fired = getSteps(fireAllCurrent(new ParallelExecutor(executorService)));
+        assertEquals(20, fired.size());
+        assertEquals(fired, commits);
+        assertEquals(computeSequentially(fired, Collections.<String, Integer> emptyMap()), values);
+
+        // the sequential executor computes the steps on the firing thread, with the same results
+        values.clear();
+        commits.clear();
+        computingThreads.clear();
+        fired = getSteps(fireAllCurrent(new Executor()));
+        assertEquals(20, fired.size());
+        assertEquals(fired, commits);
+        assertEquals(computeSequentially(fired, Collections.<String, Integer> emptyMap()), values);
+        assertEquals(Collections.singleton(Thread.currentThread()), computingThreads);
+    }
+
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2017, Kristof Marussy, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Kristof Marussy - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.viatra.transformation.runtime.tests.evm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.viatra.transformation.evm.api.Activation;
+import org.eclipse.viatra.transformation.evm.api.RuleInstance;
+import org.eclipse.viatra.transformation.evm.api.event.AbstractRuleInstanceBuilder;
+import org.eclipse.viatra.transformation.evm.api.event.Event;
+import org.eclipse.viatra.transformation.evm.api.event.EventFilter;
+import org.eclipse.viatra.transformation.evm.api.event.EventHandler;
+import org.eclipse.viatra.transformation.evm.api.event.EventRealm;
+import org.eclipse.viatra.transformation.evm.api.event.EventSource;
+import org.eclipse.viatra.transformation.evm.api.event.EventSourceSpecification;
+import org.eclipse.viatra.transformation.evm.specific.crud.CRUDEventTypeEnum;
+
+/**
+ * An event realm for testing the EVM without a query engine. The event atoms are arbitrary objects that appear and
+ * disappear when requested by the test; every rule instance in the realm has an activation for each present atom
+ * accepted by its filter.
+ *
+ * @author Kristof Marussy
+ *
+ */
+public class TestEventRealm implements EventRealm {
+
+    /**
+     * The filter accepting every atom; the same instance is returned for every rule, so that rule instances without
+     * a filter are found by the rule engine.
+     */
+    private static final EventFilter<Object> EMPTY_FILTER = new EventFilter<Object>() {
+        @Override
+        public boolean isProcessable(Object eventAtom) {
+            return true;
+        }
+    };
+
+    private final Set<Object> atoms = new LinkedHashSet<Object>();
+    private final List<TestEventHandler> handlers = new ArrayList<TestEventHandler>();
+
+    /**
+     * The source specification of the rules of the realm.
+     */
+    public final EventSourceSpecification<Object> sourceSpecification = new EventSourceSpecification<Object>() {
+        @Override
+        public EventFilter<Object> createEmptyFilter() {
+            return EMPTY_FILTER;
+        }
+
+        @Override
+        public AbstractRuleInstanceBuilder<Object> getRuleInstanceBuilder(EventRealm realm) {
+            return new AbstractRuleInstanceBuilder<Object>() {
+                @Override
+                public void prepareRuleInstance(RuleInstance<Object> ruleInstance, EventFilter<? super Object> filter) {
+                    TestEventHandler handler = new TestEventHandler(ruleInstance, filter);
+                    ruleInstance.setHandler(handler);
+                    handlers.add(handler);
+                    for (Object atom : atoms) {
+                        handler.appear(atom);
+                    }
+                }
+            };
+        }
+    };
+
+    public void appear(Object atom) {
+        if (atoms.add(atom)) {
+            for (TestEventHandler handler : new ArrayList<TestEventHandler>(handlers)) {
+                handler.appear(atom);
+            }
+        }
+    }
+
+    public void disappear(Object atom) {
+        if (atoms.remove(atom)) {
+            for (TestEventHandler handler : new ArrayList<TestEventHandler>(handlers)) {
+                handler.disappear(atom);
+            }
+        }
+    }
+
+    private final class TestEventHandler implements EventHandler<Object>, EventSource<Object> {
+
+        private final RuleInstance<Object> instance;
+        private final EventFilter<? super Object> filter;
+
+        public TestEventHandler(RuleInstance<Object> instance, EventFilter<? super Object> filter) {
+            this.instance = instance;
+            this.filter = filter;
+        }
+
+        public void appear(Object atom) {
+            if (filter.isProcessable(atom)) {
+                instance.activationStateTransition(instance.createActivation(atom), CRUDEventTypeEnum.CREATED);
+            }
+        }
+
+        public void disappear(Object atom) {
+            for (Activation<Object> activation : new ArrayList<Activation<Object>>(instance.getActivations()
+                    .column(atom).values())) {
+                instance.activationStateTransition(activation, CRUDEventTypeEnum.DELETED);
+            }
+        }
+
+        @Override
+        public void handleEvent(Event<Object> event) {
+            throw new UnsupportedOperationException("Events are handled directly by the realm");
+        }
+
+        @Override
+        public EventSource<Object> getSource() {
+            return this;
+        }
+
+        @Override
+        public EventFilter<? super Object> getEventFilter() {
+            return filter;
+        }
+
+        @Override
+        public EventSourceSpecification<Object> getSourceSpecification() {
+            return sourceSpecification;
+        }
+
+        @Override
+        public EventRealm getRealm() {
+            return TestEventRealm.this;
+        }
+
+        @Override
+        public void dispose() {
+            handlers.remove(this);
+        }
+
+    }
+
+}